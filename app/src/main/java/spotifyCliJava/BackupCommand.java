@@ -0,0 +1,288 @@
+package spotifyCliJava;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.*;
+import org.apache.hc.core5.http.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+import spotifyCliJava.facade.CircuitOpenException;
+import spotifyCliJava.localStore.BackupStore;
+import spotifyCliJava.metrics.RequestMetrics;
+import spotifyCliJava.utility.DeadlineExceededException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Back up every collection in the account, and the items of every playlist in it, to a BackupStore.
+ *
+ * Every page is checkpointed as soon as it is stored, so running the same backup (same --name) again after a crash
+ * or a kill only fetches the pages that are missing. Playlists are backed up under their snapshot_id, so a playlist
+ * that changes between two runs is simply backed up again.
+ *
+ * All requests go through one pool of --concurrency threads, which caps how many are in flight at once no matter
+ * how many playlists are being fetched concurrently. Network failures, rate limiting and server errors are retried
+ * with backoff (honouring Retry-After); anything else fails the page, and the run, which can then be resumed.
+ */
+@Command(
+        name = "backup",
+        mixinStandardHelpOptions = true,
+        description = "Back up your whole library and the contents of all your playlists. Re-run with the same name to resume."
+)
+class BackupCommand implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.BackupCommand");
+    private static final List<String> COLLECTION_TYPES = List.of("album", "track", "show", "artist", "playlist");
+    private static final int LIBRARY_PAGE_SIZE = 50;
+    private static final int PLAYLIST_PAGE_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Option(names = {"--name"}, description = "The name of this backup run. DEFAULT = today's date")
+    private String name;
+
+    @Option(names = {"-d", "--dir"}, description = "Where to write backups. DEFAULT = 'backup' in the local store")
+    private Path dir;
+
+    @Option(names = {"-j", "--concurrency"}, defaultValue = "4", description = "The most requests to have in flight at once. DEFAULT = ${DEFAULT-VALUE}")
+    private int concurrency;
+
+    @Option(names = {"--fresh"}, description = "Ignore the progress of an earlier run with the same name and start over")
+    private boolean fresh;
+
+    private SpotifyFacade spotifyFacade;
+    private BackupStore store;
+    private ExecutorService requests;
+    private final AtomicInteger fetchedPages = new AtomicInteger();
+    private final AtomicInteger skippedPages = new AtomicInteger();
+
+    @Override
+    public Integer call() throws IOException {
+        spotifyFacade = spotifyCLI.spotifyFacade;
+        if (spotifyFacade.isOffline()) {
+            spotifyCLI.err.println("Can't back up in offline mode");
+            return 1;
+        }
+        Path root = dir != null ? dir : spotifyCLI.localStore != null
+                ? BackupStore.defaultRoot(spotifyCLI.localStore) : Paths.get("backup");
+        store = new BackupStore(root, name != null ? name : LocalDate.now().toString());
+        if (fresh)
+            store.reset();
+
+        requests = Executors.newFixedThreadPool(Math.max(1, concurrency), new NamedThreadFactory("backup-request"));
+        // Collections wait on their pages' requests; they get their own threads so they never hold a request slot
+        ExecutorService collections = Executors.newCachedThreadPool(new NamedThreadFactory("backup-collection"));
+        var order = new ArrayList<String>();
+        var failures = new ArrayList<String>();
+        try {
+            var libraryJobs = new LinkedHashMap<String, Future<Boolean>>();
+            for (String itemType : COLLECTION_TYPES)
+                libraryJobs.put(itemType, collections.submit(() -> backupLibraryCollection(itemType)));
+            order.addAll(COLLECTION_TYPES);
+
+            var playlistJobs = new LinkedHashMap<String, Future<Boolean>>();
+            if (succeeded(libraryJobs.get("playlist"))) {
+                for (String[] playlist : listPlaylists()) {
+                    String collection = "playlist:" + playlist[0] + "@" + playlist[1];
+                    order.add(collection);
+                    playlistJobs.put(collection, collections.submit(() -> backupOffsetPaged(collection,
+                            PLAYLIST_PAGE_SIZE, (limit, offset) -> spotifyFacade.fetchPlaylistItemsJson(playlist[0], limit, offset, CountryCode.US))));
+                }
+            }
+
+            for (Map<String, Future<Boolean>> jobs : List.of(libraryJobs, playlistJobs)) {
+                jobs.forEach((collection, job) -> {
+                    if (!succeeded(job))
+                        failures.add(collection);
+                });
+            }
+        } finally {
+            collections.shutdownNow();
+            requests.shutdownNow();
+        }
+
+        spotifyCLI.err.printf("Fetched %d pages, %d already backed up, %d collections in %s%n",
+                fetchedPages.get(), skippedPages.get(), order.size(), store.getRunDir());
+        if (!failures.isEmpty()) {
+            spotifyCLI.err.println("Incomplete, run again with the same --name to resume. Failed: " + String.join(", ", failures));
+            return 1;
+        }
+        spotifyCLI.err.println("Backup complete: " + store.writeManifest(order));
+        return 0;
+    }
+
+    private interface PageFetcher {
+        String fetch(int limit, int offset) throws IOException, SpotifyWebApiException, ParseException;
+    }
+
+    private boolean backupLibraryCollection(String itemType) throws IOException {
+        if (itemType.equals("artist"))
+            return backupCursorPaged(itemType);
+        return backupOffsetPaged(itemType, LIBRARY_PAGE_SIZE,
+                (limit, offset) -> spotifyFacade.fetchUserCollectionJson(itemType, limit, offset, null, CountryCode.US));
+    }
+
+    /**
+     * The first page tells us how many pages there are; the rest are then fetched in parallel
+     */
+    private boolean backupOffsetPaged(String collection, int limit, PageFetcher fetcher) throws IOException {
+        if (store.isDone(collection))
+            return true;
+        var stored = new HashSet<Integer>();
+        for (BackupStore.PageRecord record : store.storedPages(collection))
+            stored.add(record.page);
+
+        String first;
+        if (stored.contains(0)) {
+            first = store.getObject(store.storedPages(collection).get(0).hash);
+            skippedPages.incrementAndGet();
+        } else {
+            first = await(requests.submit(() -> fetchAndStore(collection, 0, () -> fetcher.fetch(limit, 0))));
+            if (first == null)
+                return false;
+        }
+        int total = JsonParser.parseString(first).getAsJsonObject().get("total").getAsInt();
+
+        var pages = new ArrayList<Future<String>>();
+        for (int page = 1; page * limit < total; page++) {
+            if (stored.contains(page)) {
+                skippedPages.incrementAndGet();
+                continue;
+            }
+            int offset = page * limit;
+            int pageIndex = page;
+            pages.add(requests.submit(() -> fetchAndStore(collection, pageIndex, () -> fetcher.fetch(limit, offset))));
+        }
+        boolean complete = true;
+        for (Future<String> page : pages)
+            complete &= await(page) != null;
+        if (complete)
+            store.markDone(collection);
+        return complete;
+    }
+
+    /**
+     * Followed artists can only be paged through one page at a time; each checkpoint records the cursor to go on from
+     */
+    private boolean backupCursorPaged(String collection) throws IOException {
+        if (store.isDone(collection))
+            return true;
+        List<BackupStore.PageRecord> stored = store.storedPages(collection);
+        int page = stored.size();
+        skippedPages.addAndGet(page);
+        String after = page == 0 ? null : stored.get(page - 1).next;
+        if (page > 0 && after == null) {
+            store.markDone(collection);
+            return true;
+        }
+        while (true) {
+            String cursor = after;
+            int pageIndex = page;
+            String json = await(requests.submit(() -> fetchAndStore(collection, pageIndex,
+                    () -> spotifyFacade.fetchUserCollectionJson(collection, LIBRARY_PAGE_SIZE, 0, cursor, CountryCode.US))));
+            if (json == null)
+                return false;
+            after = nextCursor(json);
+            if (after == null)
+                break;
+            page++;
+        }
+        store.markDone(collection);
+        return true;
+    }
+
+    private interface Request {
+        String send() throws IOException, SpotifyWebApiException, ParseException;
+    }
+
+    /**
+     * Runs on a request thread: send the request, retrying what's worth retrying, and store + checkpoint the page
+     *
+     * @return The page's JSON
+     */
+    private String fetchAndStore(String collection, int page, Request request) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                String json = request.send();
+                // For cursor paged collections, the cursor of the next page is checkpointed with this one
+                store.putPage(collection, page, json, collection.equals("artist") ? nextCursor(json) : null);
+                fetchedPages.incrementAndGet();
+                return json;
+            } catch (IOException | TooManyRequestsException | InternalServerErrorException | BadGatewayException
+                     | ServiceUnavailableException e) {
+                // Out of time is final; the run can be resumed with a fresh deadline
+                if (attempt == MAX_ATTEMPTS || e instanceof DeadlineExceededException)
+                    throw e;
+                long backoff = BASE_BACKOFF_MILLIS << (attempt - 1);
+                if (e instanceof TooManyRequestsException && ((TooManyRequestsException) e).getRetryAfter() > 0)
+                    backoff = TimeUnit.SECONDS.toMillis(((TooManyRequestsException) e).getRetryAfter());
+                // The endpoint's breaker is open: wait it out rather than spend attempts on requests that won't be sent
+                if (e instanceof CircuitOpenException)
+                    backoff = Math.max(backoff, ((CircuitOpenException) e).getRetryAfterMillis());
+                logger.info("Retrying " + collection + " page " + page + " in " + backoff + " ms: " + e.getMessage());
+                Thread.sleep(backoff);
+                RequestMetrics.markRetry();
+            }
+        }
+    }
+
+    /**
+     * @return The ID and snapshot ID of every playlist in the backed up 'playlist' collection
+     */
+    private List<String[]> listPlaylists() throws IOException {
+        var playlists = new ArrayList<String[]>();
+        for (BackupStore.PageRecord record : store.storedPages("playlist")) {
+            String json = store.getObject(record.hash);
+            if (json == null)
+                continue;
+            for (JsonElement item : JsonParser.parseString(json).getAsJsonObject().getAsJsonArray("items")) {
+                JsonObject playlist = item.getAsJsonObject();
+                playlists.add(new String[]{playlist.get("id").getAsString(), playlist.get("snapshot_id").getAsString()});
+            }
+        }
+        return playlists;
+    }
+
+    private static String nextCursor(String json) {
+        JsonObject artists = JsonParser.parseString(json).getAsJsonObject().getAsJsonObject("artists");
+        if (artists == null || !artists.has("cursors") || artists.get("cursors").isJsonNull())
+            return null;
+        JsonElement after = artists.getAsJsonObject("cursors").get("after");
+        return after == null || after.isJsonNull() ? null : after.getAsString();
+    }
+
+    // The result, or null if the job failed; the failure is reported here
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            var msg = "Backup request failed: " + e.getCause().getMessage();
+            logger.error(msg);
+            spotifyCLI.err.println(msg);
+            return null;
+        }
+    }
+
+    private boolean succeeded(Future<Boolean> future) {
+        Boolean result = await(future);
+        return result != null && result;
+    }
+}
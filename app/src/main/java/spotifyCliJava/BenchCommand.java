@@ -0,0 +1,253 @@
+package spotifyCliJava;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Unmatched;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+import spotifyCliJava.metrics.Histogram;
+import spotifyCliJava.metrics.RequestMetrics;
+import spotifyCliJava.stub.StubCatalog;
+import spotifyCliJava.stub.StubSpotifyServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Load test the CLI against a StubSpotifyServer running in the same process.
+ *
+ * Each scenario runs the real command --runs times, --concurrency at once, every run a whole CLI invocation of its
+ * own (signing in, a local store of its own, the command, its output thrown away), so what's measured is what a
+ * user would see, minus the JVM's start. Reported per scenario: throughput (runs and requests per second), the
+ * latency percentiles of the runs, and the per-endpoint request table of --metrics. A run that ends the CLI early
+ * (EX: it can't sign in) goes through SpotifyCLI's execution strategy, which returns its exit code rather than
+ * exiting, so it only counts as a failed run.
+ */
+@Command(
+        name = "bench",
+        mixinStandardHelpOptions = true,
+        description = {"Load test the CLI against a local stub of the Spotify API: run 'list all', 'info --deep', a batch of " +
+                "'info' lookups and 'backup' at a given concurrency, and report throughput and latency percentiles.",
+                "Any other options are passed on to every run, EX: bench --hedge --bulkhead 4"}
+)
+class BenchCommand implements Callable<Integer>, LocalOnlyCommand {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.BenchCommand");
+    private static final List<String> SCENARIOS = List.of("list", "info", "info-batch", "backup");
+    // Albums looked up by each run of the info-batch scenario
+    private static final int INFO_BATCH_SIZE = 20;
+
+    @Option(names = {"--scenario"}, split = ",", defaultValue = "list,info,info-batch,backup",
+            description = "The scenarios to run, of: list (list all), info (info album ID --deep), " +
+                    "info-batch (" + INFO_BATCH_SIZE + " 'info album ID' lines of one 'run' script, 4 at once), backup. DEFAULT = ${DEFAULT-VALUE}")
+    private List<String> scenarios;
+
+    @Option(names = {"-n", "--runs"}, defaultValue = "20", description = "How many times to run each scenario. DEFAULT = ${DEFAULT-VALUE}")
+    private int runs;
+
+    @Option(names = {"-c", "--concurrency"}, defaultValue = "4", description = "How many runs to have going at once. DEFAULT = ${DEFAULT-VALUE}")
+    private int concurrency;
+
+    @Option(names = {"--library-size"}, defaultValue = "1000", description = "Saved tracks in the stub's library (the other collections are in proportion). DEFAULT = ${DEFAULT-VALUE}")
+    private int librarySize;
+
+    @Option(names = {"--playlist-size"}, defaultValue = "100", description = "Tracks in each of the stub's playlists. DEFAULT = ${DEFAULT-VALUE}")
+    private int playlistSize;
+
+    @Option(names = {"--latency"}, defaultValue = "20", paramLabel = "MS", description = "The stub's latency per request. DEFAULT = ${DEFAULT-VALUE}")
+    private int latencyMillis;
+
+    @Option(names = {"--jitter"}, defaultValue = "20", paramLabel = "MS", description = "Up to this much more latency, at random. DEFAULT = ${DEFAULT-VALUE}")
+    private int jitterMillis;
+
+    @Option(names = {"--error-rate"}, defaultValue = "0", paramLabel = "PERCENT", description = "Requests the stub fails with a 500 or 503. DEFAULT = ${DEFAULT-VALUE}")
+    private double errorPercent;
+
+    @Option(names = {"--throttle-rate"}, defaultValue = "0", paramLabel = "PERCENT", description = "Requests the stub answers with a 429. DEFAULT = ${DEFAULT-VALUE}")
+    private double throttlePercent;
+
+    @Option(names = {"--retry-after"}, defaultValue = "1", paramLabel = "SECONDS", description = "The Retry-After of the stub's 429s. DEFAULT = ${DEFAULT-VALUE}")
+    private int retryAfterSeconds;
+
+    @Option(names = {"--no-etags"}, description = "Don't send ETags or answer If-None-Match with 304")
+    private boolean noETags;
+
+    @Option(names = {"--serve"}, description = "Only start the stub (on --port) and keep it running, to point the CLI at with --apiBaseURI")
+    private boolean serve;
+
+    @Option(names = {"--port"}, defaultValue = "0", description = "The stub's port, 0 for any free one. DEFAULT = ${DEFAULT-VALUE}")
+    private int port;
+
+    @Unmatched
+    private List<String> cliOptions = new ArrayList<>();
+
+    private static class ScenarioResult {
+        final Histogram runMicros = new Histogram();
+        final RequestMetrics metrics = new RequestMetrics();
+        final AtomicInteger failedRuns = new AtomicInteger();
+        long elapsedNanos;
+        long requests;
+    }
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        for (String scenario : scenarios) {
+            if (!SCENARIOS.contains(scenario)) {
+                System.err.println("Unknown scenario '" + scenario + "', expected one of: " + String.join(", ", SCENARIOS));
+                return 1;
+            }
+        }
+
+        var stubBuilder = new StubSpotifyServer.Builder()
+                .withPort(port)
+                .withLatencyMillis(latencyMillis)
+                .withJitterMillis(jitterMillis)
+                .withErrorPercent(errorPercent)
+                .withThrottlePercent(throttlePercent)
+                .withRetryAfterSeconds(retryAfterSeconds)
+                .withETags(!noETags)
+                .withLibrarySize(librarySize)
+                .withPlaylistSize(playlistSize);
+        try (StubSpotifyServer stub = stubBuilder.build().start()) {
+            if (serve) {
+                System.out.println("Stub Spotify API on " + stub.getBaseURI() + "; use: --apiBaseURI " + stub.getBaseURI()
+                        + " --authFlow ClientCredentials --clientSecret stub. Ctrl+C to stop.");
+                new CountDownLatch(1).await();
+            }
+
+            Path workDir = Files.createTempDirectory("spotify-cli-bench");
+            try {
+                System.out.printf("Stub: %d saved tracks, %d ms latency (+ up to %d), %.1f%% errors, %.1f%% throttled; " +
+                                "%d runs per scenario, %d at once%n", librarySize, latencyMillis, jitterMillis,
+                        errorPercent, throttlePercent, runs, concurrency);
+                int failedScenarios = 0;
+                for (String scenario : scenarios) {
+                    ScenarioResult result = runScenario(scenario, stub, workDir);
+                    report(scenario, result);
+                    if (result.failedRuns.get() > 0)
+                        failedScenarios++;
+                }
+                return failedScenarios == 0 ? 0 : 1;
+            } finally {
+                deleteRecursively(workDir);
+            }
+        }
+    }
+
+    private ScenarioResult runScenario(String scenario, StubSpotifyServer stub, Path workDir) throws IOException, InterruptedException {
+        var result = new ScenarioResult();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, concurrency), new NamedThreadFactory("bench-" + scenario));
+        // The runs' own output would swamp the report (and slow them down in a terminal)
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        var discard = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(discard);
+        System.setErr(discard);
+        long requestsBefore = stub.requests();
+        long start = System.nanoTime();
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int run = 0; run < runs; run++) {
+                List<String> args = invocation(scenario, run, stub, workDir.resolve(scenario + "-" + run));
+                futures.add(pool.submit(() -> {
+                    long runStart = System.nanoTime();
+                    int exitCode;
+                    try {
+                        var cli = new SpotifyCLI();
+                        // All the runs of a scenario record into one RequestMetrics
+                        cli.metrics = result.metrics;
+                        exitCode = new CommandLine(cli)
+                                .setExecutionStrategy(cli::executionStrategy)
+                                .execute(args.toArray(new String[0]));
+                    } catch (RuntimeException e) {
+                        logger.error("Bench run failed: " + e);
+                        exitCode = 1;
+                    }
+                    result.runMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - runStart));
+                    if (exitCode != 0)
+                        result.failedRuns.incrementAndGet();
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    result.failedRuns.incrementAndGet();
+                }
+            }
+        } finally {
+            result.elapsedNanos = System.nanoTime() - start;
+            result.requests = stub.requests() - requestsBefore;
+            pool.shutdownNow();
+            System.setOut(out);
+            System.setErr(err);
+        }
+        return result;
+    }
+
+    // The arguments of one CLI invocation: pointed at the stub, with a local store of its own so nothing is served
+    // from an earlier run's
+    private List<String> invocation(String scenario, int run, StubSpotifyServer stub, Path runDir) throws IOException {
+        var args = new ArrayList<String>(List.of(
+                "--apiBaseURI", stub.getBaseURI().toString(),
+                "--authFlow", "ClientCredentials",
+                "--clientSecret", "stub",
+                "--storePath", runDir.resolve("store").toString()));
+        args.addAll(cliOptions);
+        StubCatalog catalog = stub.getCatalog();
+        switch (scenario) {
+            case "list":
+                args.addAll(List.of("list", "all"));
+                break;
+            case "info":
+                args.addAll(List.of("info", "album", StubCatalog.id(StubCatalog.Kind.ALBUM, run % catalog.savedAlbums), "--deep"));
+                break;
+            case "info-batch":
+                // One signed in session looking up a batch of albums, the way a script of lookups would
+                var script = new StringBuilder();
+                for (int i = 0; i < INFO_BATCH_SIZE; i++) {
+                    int album = (run * INFO_BATCH_SIZE + i) % catalog.savedAlbums;
+                    script.append("info album ").append(StubCatalog.id(StubCatalog.Kind.ALBUM, album)).append(" &\n");
+                }
+                script.append("wait\n");
+                Files.createDirectories(runDir);
+                Path scriptFile = Files.writeString(runDir.resolve("info-batch.txt"), script);
+                args.addAll(List.of("run", scriptFile.toString()));
+                break;
+            case "backup":
+                args.addAll(List.of("backup", "--dir", runDir.resolve("backup").toString(), "--name", "bench"));
+                break;
+        }
+        return args;
+    }
+
+    private void report(String scenario, ScenarioResult result) {
+        double seconds = result.elapsedNanos / 1e9;
+        Histogram runs = result.runMicros;
+        System.out.printf("%n=== %s: %d runs (%d failed) in %.2f s ===%n", scenario, runs.count(), result.failedRuns.get(), seconds);
+        System.out.printf("Throughput: %.2f runs/s, %.1f requests/s (%d requests)%n",
+                runs.count() / seconds, result.requests / seconds, result.requests);
+        System.out.printf("Run latency (ms): p50 %.1f, p90 %.1f, p99 %.1f, max %.1f, mean %.1f%n",
+                runs.percentile(50) / 1000.0, runs.percentile(90) / 1000.0, runs.percentile(99) / 1000.0,
+                runs.max() / 1000.0, runs.mean() / 1000.0);
+        result.metrics.printSummary(System.out);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+                Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package spotifyCliJava;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.localStore.CompletionTrie;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Backs shell completion of item IDs. Shell completion scripts call this on every TAB, so it only reads
+ * the memory-mapped completion trie, and never authenticates or talks to Spotify.
+ *
+ * EX (bash): COMPREPLY=( $(spotify-cli complete --type album "${COMP_WORDS[COMP_CWORD]}") )
+ */
+@Command(
+        name = "complete",
+        mixinStandardHelpOptions = true,
+        description = "Print the IDs of items in your local store whose name or ID starts with PREFIX. Used by shell completion."
+)
+class CompleteCommand implements Callable<Integer>, LocalOnlyCommand {
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Parameters(index = "0", arity = "0..1", defaultValue = "", description = "The start of an item name or ID")
+    private String prefix;
+
+    @Option(names = {"-t", "--type"}, description = "Only complete items of this type. " +
+            "Accepted types are: 'playlist', 'artist', 'album', 'show', 'episode', 'track'")
+    private String itemType;
+
+    @Option(names = {"-l", "--limit"}, defaultValue = "20", description = "The number of completions to print. DEFAULT = ${DEFAULT-VALUE}")
+    private int limit;
+
+    @Option(names = {"-d", "--describe"}, description = "Print ID:NAME pairs, the format zsh's _describe expects.")
+    private boolean describe;
+
+    @Override
+    public Integer call() {
+        // Kept up to date by the search index as syncing writes to it (see SearchIndex.writeCompletionTrie())
+        CompletionTrie trie = CompletionTrie.open(spotifyCLI.spotifyFacade.getSearchIndex().getTriePath());
+        if (trie == null)
+            return 0;
+        for (var completion : trie.complete(prefix, itemType, limit)) {
+            if (describe)
+                spotifyCLI.out.println(completion.itemID + ":" + completion.name.replace(":", "\\:"));
+            else
+                spotifyCLI.out.println(completion.itemID);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,126 @@
+package spotifyCliJava;
+
+import com.neovisionaries.i18n.CountryCode;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+import spotifyCliJava.facade.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Lists the recordings that are in the library more than once under different track IDs; see DuplicateFinder.
+ */
+@Command(
+        name = "duplicates",
+        mixinStandardHelpOptions = true,
+        description = "Find tracks in your saved tracks, saved albums and playlists that are the same recording under different IDs."
+)
+class DuplicatesCommand implements Callable<Integer> {
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Option(names = {"-j", "--threads"}, defaultValue = "8", description = "How many requests to run at once. DEFAULT = ${DEFAULT-VALUE}")
+    private int threads;
+
+    @Option(names = {"--no-albums"}, description = "Don't look at the tracks of saved albums")
+    private boolean noAlbums;
+
+    @Option(names = {"--no-playlists"}, description = "Don't look at the tracks of playlists")
+    private boolean noPlaylists;
+
+    @Override
+    public Integer call() throws InterruptedException {
+        SpotifyFacade spotifyFacade = spotifyCLI.spotifyFacade;
+        var types = new ArrayList<>(List.of("track"));
+        if (!noAlbums)
+            types.add("album");
+        if (!noPlaylists)
+            types.add("playlist");
+
+        long start = System.nanoTime();
+        var library = new UserLibrary();
+        int exitCode = 0;
+        for (UserLibrary.CollectionReport report : library.load(spotifyFacade, types, CountryCode.US, threads, null)) {
+            if (!report.complete) {
+                spotifyCLI.err.println("Could not list all of your " + report.itemType + "s, results may be missing some");
+                exitCode = 1;
+            }
+        }
+
+        var finder = new DuplicateFinder();
+        for (Items.Track track : library.getSavedTracks())
+            finder.add(track, "saved");
+
+        // The tracks of every saved album and playlist, a collection per task
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), new NamedThreadFactory("duplicates-load"));
+        // Pages are fetched -j at a time too, not on the few threads collections share by default
+        ExecutorService pageLoader = Executors.newFixedThreadPool(Math.max(1, threads), new NamedThreadFactory("duplicates-page"));
+        var loads = new ArrayList<Future<Boolean>>();
+        for (Items.Album album : library.getSavedAlbums()) {
+            var collection = new AlbumCollection(spotifyFacade, library.getItemPool(), album.getId(), CountryCode.US)
+                    .withPageLoader(pageLoader);
+            loads.add(pool.submit(() -> {
+                addAll(finder, collection.items(0, 0, true), "album:" + album.getName());
+                return collection.failedPageLoads() == 0;
+            }));
+        }
+        for (Items.Playlist playlist : library.getPlaylists()) {
+            var collection = new PlaylistCollection(spotifyFacade, library.getItemPool(), playlist.getId(), CountryCode.US)
+                    .withPageLoader(pageLoader);
+            loads.add(pool.submit(() -> {
+                addAll(finder, collection.items(0, 0, true), "playlist:" + playlist.getName());
+                return collection.failedPageLoads() == 0;
+            }));
+        }
+        try {
+            int incomplete = 0;
+            for (Future<Boolean> load : loads) {
+                if (!load.get())
+                    incomplete++;
+            }
+            if (incomplete > 0) {
+                spotifyCLI.err.println("Could not load all of " + incomplete + " albums/playlists, results may be missing some");
+                exitCode = 1;
+            }
+        } catch (ExecutionException e) {
+            spotifyCLI.err.println("Could not load your library: " + e.getCause().getMessage());
+            return 1;
+        } finally {
+            pool.shutdownNow();
+            pageLoader.shutdownNow();
+        }
+        long loaded = System.nanoTime();
+
+        List<DuplicateFinder.Group> groups = finder.find(spotifyFacade, CountryCode.US, threads);
+        if (finder.failedIsrcLookups() > 0) {
+            spotifyCLI.err.println("Could not look up the ISRCs of " + finder.failedIsrcLookups()
+                    + " tracks, they were only matched by title; results may be missing some");
+            exitCode = 1;
+        }
+        for (DuplicateFinder.Group group : groups) {
+            for (int i = 0; i < group.tracks.size(); i++) {
+                Items.Track track = group.tracks.get(i);
+                spotifyCLI.out.println(track.getId() + "\t" + (group.isrcs.get(i) == null ? "-" : group.isrcs.get(i))
+                        + "\t" + track + "\t" + String.join(", ", group.sources.get(i)));
+            }
+            spotifyCLI.out.println();
+        }
+        spotifyCLI.err.printf("%d tracks, %d recordings with more than one ID (loaded in %d ms, grouped in %d ms)%n",
+                finder.size(), groups.size(), TimeUnit.NANOSECONDS.toMillis(loaded - start),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loaded));
+        return exitCode;
+    }
+
+    // Episodes in playlists are skipped, and so are local files and pages that couldn't be fetched (null)
+    private static void addAll(DuplicateFinder finder, List<IItem> items, String source) {
+        for (IItem item : items) {
+            if (item instanceof Items.Track)
+                finder.add((Items.Track) item, source);
+        }
+    }
+}
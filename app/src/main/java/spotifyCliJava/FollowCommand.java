@@ -0,0 +1,237 @@
+package spotifyCliJava;
+
+import com.google.gson.JsonObject;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.*;
+import org.apache.hc.core5.http.ParseException;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+import spotifyCliJava.facade.SpotifyId;
+import spotifyCliJava.localStore.MutationJournal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Follow (or with UnfollowCommand, unfollow) any number of artists, users or playlists.
+ *
+ * Artists and users go to Spotify 50 IDs per request. If Spotify rejects a chunk as a bad request (EX: one ID in
+ * it doesn't exist) the chunk is split in half and retried, so one bad ID costs a few extra requests instead of
+ * failing the other 49. Playlists can only be followed one at a time, so those requests run concurrently.
+ *
+ * Every ID gets one JSON line on stdout, EX: {"id":"...","type":"artist","action":"follow","status":"ok"}
+ * where status is one of "ok", "failed" (with an "error"), "invalid" (not a Spotify ID, never sent) or "queued".
+ *
+ * IDs that can't be sent right now (offline, --queue, or a network failure, rate limit or server error) are
+ * written to the MutationJournal instead of being dropped, and reported as "queued"; they are applied on the next
+ * run that goes online, or with 'journal flush'.
+ */
+@Command(
+        name = "follow",
+        mixinStandardHelpOptions = true,
+        description = "Follow artists, users or playlists. IDs are taken from the arguments, or from stdin (one per line)."
+)
+class FollowCommand implements Callable<Integer> {
+    // The most IDs Spotify accepts per follow/unfollow request
+    static final int MAX_IDS_PER_REQUEST = 50;
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Parameters(index = "0", description = "The type of item. Accepted types are: 'artist', 'user', 'playlist'")
+    private String itemType;
+
+    @Parameters(index = "1..*", arity = "0..*", description = "The IDs of the items. Read from stdin if none are given, or for '-'")
+    private List<String> itemIDs;
+
+    @Option(names = {"-j", "--threads"}, defaultValue = "4", description = "How many playlist requests to run at once. DEFAULT = ${DEFAULT-VALUE}")
+    private int threads;
+
+    @Option(names = {"--private"}, description = "Follow playlists privately (they won't show on your profile)")
+    private boolean privateFollow;
+
+    @Option(names = {"--queue"}, description = "Only queue the changes in the local journal and return; they are sent on the next run")
+    private boolean queueOnly;
+
+    // Overridden by UnfollowCommand
+    boolean unfollow() {
+        return false;
+    }
+
+    @Override
+    public Integer call() throws IOException {
+        if (!itemType.equals("artist") && !itemType.equals("user") && !itemType.equals("playlist")) {
+            spotifyCLI.err.println("The only supported types for '" + action() + "' are 'artist', 'user' and 'playlist'");
+            return 1;
+        }
+
+        var valid = new ArrayList<String>();
+        int invalid = 0;
+        for (String id : readIDs()) {
+            // User IDs are user names, not base62 IDs
+            if (itemType.equals("user") || SpotifyId.isValid(id)) {
+                valid.add(id);
+            } else {
+                report(id, "invalid", "not a valid Spotify ID");
+                invalid++;
+            }
+        }
+
+        int failed = 0;
+        if (queueOnly || spotifyCLI.spotifyFacade.isOffline()) {
+            if (!queue(valid, null))
+                failed = valid.size();
+        } else if (itemType.equals("playlist")) {
+            failed = followPlaylists(valid);
+        } else {
+            for (int start = 0; start < valid.size(); start += MAX_IDS_PER_REQUEST)
+                failed += followChunk(valid.subList(start, Math.min(valid.size(), start + MAX_IDS_PER_REQUEST)));
+        }
+
+        spotifyCLI.err.printf("%s: %d ok/queued, %d failed, %d invalid%n", action(), valid.size() - failed, failed, invalid);
+        return failed + invalid == 0 ? 0 : 1;
+    }
+
+    /**
+     * Durably journal 'ids' to be (un)followed later, and report them as queued
+     *
+     * @param reason Why they weren't sent now, or null if they weren't tried
+     * @return False if the journal couldn't be written, the IDs are then reported as failed
+     */
+    private boolean queue(List<String> ids, String reason) {
+        MutationJournal journal = spotifyCLI.spotifyFacade.getMutationJournal();
+        try {
+            if (journal == null)
+                throw new IOException("no local store to queue changes in");
+            var mutations = new ArrayList<MutationJournal.Mutation>();
+            // A private follow has to stay private when it is replayed
+            String target = itemType.equals("playlist") && privateFollow && !unfollow()
+                    ? MutationJournal.Mutation.PRIVATE_PLAYLIST_FOLLOW : itemType;
+            for (String id : ids)
+                mutations.add(new MutationJournal.Mutation(!unfollow(), target, id));
+            journal.append(mutations);
+            ids.forEach(id -> report(id, "queued", reason));
+            return true;
+        } catch (IOException e) {
+            ids.forEach(id -> report(id, "failed", (reason == null ? "" : reason + "; ") + "could not queue: " + e.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * @return How many IDs failed
+     */
+    private int followChunk(List<String> ids) {
+        try {
+            spotifyCLI.spotifyFacade.sendLibraryUpdate(itemType, ids.toArray(String[]::new), unfollow());
+            ids.forEach(id -> report(id, "ok", null));
+            return 0;
+        } catch (BadRequestException | NotFoundException e) {
+            if (ids.size() == 1) {
+                report(ids.get(0), "failed", e.getMessage());
+                return 1;
+            }
+            // Find the IDs that were rejected, without failing the good ones along with them
+            int half = ids.size() / 2;
+            return followChunk(ids.subList(0, half)) + followChunk(ids.subList(half, ids.size()));
+        } catch (IOException | SpotifyWebApiException | ParseException e) {
+            if (SpotifyFacade.isRetryable(e))
+                return queue(ids, e.getMessage()) ? 0 : ids.size();
+            ids.forEach(id -> report(id, "failed", e.getMessage()));
+            return ids.size();
+        }
+    }
+
+    /**
+     * @return How many IDs failed
+     */
+    private int followPlaylists(List<String> ids) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), new NamedThreadFactory("follow"));
+        try {
+            var futures = new ArrayList<Future<Boolean>>();
+            for (String id : ids) {
+                futures.add(pool.submit(() -> {
+                    try {
+                        spotifyCLI.spotifyFacade.sendPlaylistFollow(id, unfollow(), !privateFollow);
+                        report(id, "ok", null);
+                        return true;
+                    } catch (IOException | SpotifyWebApiException | ParseException e) {
+                        if (SpotifyFacade.isRetryable(e))
+                            return queue(List.of(id), e.getMessage());
+                        report(id, "failed", e.getMessage());
+                        return false;
+                    }
+                }));
+            }
+            int failures = 0;
+            for (Future<Boolean> future : futures) {
+                try {
+                    if (!future.get())
+                        failures++;
+                } catch (InterruptedException | ExecutionException e) {
+                    failures++;
+                }
+            }
+            return failures;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // One JSON object per line, so scripts can follow along as results come in
+    private synchronized void report(String id, String status, String error) {
+        var line = new JsonObject();
+        line.addProperty("id", id);
+        line.addProperty("type", itemType);
+        line.addProperty("action", action());
+        line.addProperty("status", status);
+        if (error != null)
+            line.addProperty("error", error);
+        spotifyCLI.out.println(line);
+    }
+
+    private String action() {
+        return unfollow() ? "unfollow" : "follow";
+    }
+
+    // Duplicates are dropped, the order is kept
+    private Collection<String> readIDs() throws IOException {
+        var ids = new LinkedHashSet<String>();
+        boolean readStdin = itemIDs == null || itemIDs.isEmpty();
+        if (itemIDs != null) {
+            for (String id : itemIDs) {
+                if (id.equals("-"))
+                    readStdin = true;
+                else
+                    ids.add(id.strip());
+            }
+        }
+        if (readStdin) {
+            var reader = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank())
+                    ids.add(line.strip());
+            }
+        }
+        return ids;
+    }
+}
+
+@Command(
+        name = "unfollow",
+        mixinStandardHelpOptions = true,
+        description = "Unfollow artists, users or playlists. IDs are taken from the arguments, or from stdin (one per line)."
+)
+class UnfollowCommand extends FollowCommand {
+    @Override
+    boolean unfollow() {
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package spotifyCliJava;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.facade.JournalReplayer;
+import spotifyCliJava.localStore.MutationJournal;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Inspect or apply the library changes queued in the MutationJournal.
+ * Queued changes are also applied at the start of every other command that goes online.
+ */
+@Command(
+        name = "journal",
+        mixinStandardHelpOptions = true,
+        description = "Show ('status') or send ('flush') library changes that are queued to be applied to Spotify."
+)
+class JournalCommand implements Callable<Integer> {
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Parameters(index = "0", arity = "0..1", defaultValue = "status", description = "'status' or 'flush'. DEFAULT = ${DEFAULT-VALUE}")
+    private String action;
+
+    @Override
+    public Integer call() throws IOException {
+        SpotifyFacade spotifyFacade = spotifyCLI.spotifyFacade;
+        MutationJournal journal = spotifyFacade.getMutationJournal();
+        switch (action) {
+            case "status":
+                List<MutationJournal.Entry> pending = journal.pending();
+                for (MutationJournal.Entry entry : pending) {
+                    var mutation = entry.mutation;
+                    spotifyCLI.out.printf("%d\t%s\t%s\t%s%s%n", entry.seq, mutation.add ? "add" : "remove", mutation.target,
+                            mutation.item, entry.maybeApplied ? "\t(may already be applied)" : "");
+                }
+                spotifyCLI.err.println(pending.size() + " queued changes in " + journal.getJournalPath());
+                return 0;
+            case "flush":
+                if (spotifyFacade.isOffline()) {
+                    spotifyCLI.err.println("Can't apply queued changes in offline mode");
+                    return 1;
+                }
+                JournalReplayer.Result result = new JournalReplayer(spotifyFacade, journal).replay();
+                SpotifyCLI.printReplayResult(result);
+                return result.remaining == 0 && result.failed == 0 ? 0 : 1;
+            default:
+                spotifyCLI.err.println("Unknown action: " + action + ". Accepted actions are: 'status', 'flush'");
+                return 1;
+        }
+    }
+}
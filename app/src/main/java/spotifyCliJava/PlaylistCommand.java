@@ -0,0 +1,153 @@
+package spotifyCliJava;
+
+import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.model_objects.AbstractModelObject;
+import com.wrapper.spotify.model_objects.specification.Playlist;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.facade.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Set operations between playlists (see PlaylistSets). Every playlist involved is read in full, the result is
+ * computed locally, and only the difference is written to the target playlist, 100 items per request.
+ */
+@Command(
+        name = "playlist",
+        mixinStandardHelpOptions = true,
+        description = {
+                "Combine playlists. The result is written to the target playlist:",
+                "  union     TARGET SOURCE...  add the items of the sources that the target doesn't have",
+                "  intersect TARGET OTHER...   keep only the items that are also in every other playlist",
+                "  diff      TARGET OTHER...   remove the items that are in any other playlist",
+                "  dedupe    TARGET            keep only the first occurrence of each item (re-inserted items lose their 'added at' date)"
+        }
+)
+class PlaylistCommand implements Callable<Integer> {
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Parameters(index = "0", description = "'union', 'intersect', 'diff' or 'dedupe'")
+    private String operation;
+
+    @Parameters(index = "1", description = "The ID of the playlist to change")
+    private String targetID;
+
+    @Parameters(index = "2..*", arity = "0..*", description = "The IDs of the other playlists")
+    private List<String> otherIDs;
+
+    @Option(names = {"-n", "--dry-run"}, description = "Print the changes instead of making them")
+    private boolean dryRun;
+
+    @Override
+    public Integer call() {
+        SpotifyFacade spotifyFacade = spotifyCLI.spotifyFacade;
+        List<String> others = otherIDs == null ? List.of() : otherIDs;
+        if (operation.equals("dedupe") ? !others.isEmpty() : others.isEmpty()) {
+            spotifyCLI.err.println(operation.equals("dedupe") ? "'dedupe' takes only the target playlist"
+                    : "'" + operation + "' needs at least one other playlist");
+            return 1;
+        }
+        if (!dryRun && spotifyFacade.isOffline()) {
+            spotifyCLI.err.println("Can't modify playlists in offline mode");
+            return 1;
+        }
+
+        AbstractModelObject playlist = spotifyFacade.getItem("playlist", targetID);
+        if (!(playlist instanceof Playlist)) {
+            spotifyCLI.err.println("Could not get playlist: " + targetID);
+            return 1;
+        }
+        var itemPool = new ItemPool();
+        var target = new PlaylistCollection(spotifyFacade, itemPool, targetID, CountryCode.US)
+                .withSnapshotID(((Playlist) playlist).getSnapshotId());
+
+        long start = System.nanoTime();
+        List<IItem> targetItems = load(target);
+        var otherItems = new ArrayList<List<IItem>>();
+        for (String otherID : others)
+            otherItems.add(load(new PlaylistCollection(spotifyFacade, itemPool, otherID, CountryCode.US)));
+        if (targetItems == null || otherItems.contains(null))
+            return 1;
+        long loaded = System.nanoTime();
+
+        PlaylistSets.Changes changes;
+        switch (operation) {
+            case "union":
+                changes = PlaylistSets.union(targetItems, otherItems);
+                break;
+            case "intersect":
+                changes = PlaylistSets.intersect(targetItems, otherItems);
+                break;
+            case "diff":
+                changes = PlaylistSets.diff(targetItems, otherItems);
+                break;
+            case "dedupe":
+                changes = PlaylistSets.dedupe(targetItems);
+                break;
+            default:
+                spotifyCLI.err.println("Unknown operation: " + operation + ". Accepted operations are: 'union', 'intersect', 'diff', 'dedupe'");
+                return 1;
+        }
+        long computed = System.nanoTime();
+        spotifyCLI.err.printf("Read %d items in %d ms, computed %d removes and %d adds in %.3f ms%n",
+                targetItems.size() + otherItems.stream().mapToInt(List::size).sum(), (loaded - start) / 1_000_000,
+                changes.removes.size(), changes.appends.size() + changes.inserts.size(), (computed - loaded) / 1e6);
+
+        if (dryRun) {
+            changes.removes.forEach(item -> spotifyCLI.out.println("remove\t" + item.getUri() + "\t" + item.getName()));
+            changes.appends.forEach(item -> spotifyCLI.out.println("add\t" + item.getUri() + "\t" + item.getName()));
+            changes.inserts.forEach(insert -> spotifyCLI.out.println("insert\t" + insert.item.getUri() + "\t" + insert.item.getName()
+                    + "\t" + insert.position));
+            return 0;
+        }
+        return apply(target, changes) ? 0 : 1;
+    }
+
+    private List<IItem> load(PlaylistCollection collection) {
+        List<IItem> items = PlaylistSets.loadAll(collection);
+        if (items == null)
+            spotifyCLI.err.println("Could not read all of playlist " + collection.getPlaylistID() + ", nothing was changed");
+        return items;
+    }
+
+    /**
+     * Removes are flushed before adds are queued, so the batcher doesn't cancel out the remove and re-insert of an
+     * item that dedupe makes. Those removes aren't left in the journal for a later run, since the re-inserts
+     * only make sense once they have been applied.
+     */
+    private boolean apply(PlaylistCollection target, PlaylistSets.Changes changes) {
+        for (IItem item : changes.removes)
+            target.remove(item, null);
+        MutationBatcher.FlushResult removed = target.withQueueing(changes.inserts.isEmpty()).flush();
+        if (removed.failed > 0) {
+            spotifyCLI.err.println("Could not remove " + removed.failed + " items, nothing was added");
+            return false;
+        }
+
+        for (IItem item : changes.appends)
+            target.add(item, null);
+        for (PlaylistSets.Insert insert : changes.inserts) {
+            var kwargs = new HashMap<String, String>();
+            kwargs.put("position", String.valueOf(insert.position));
+            target.add(insert.item, kwargs);
+        }
+        MutationBatcher.FlushResult added = target.withQueueing(true).flush();
+        spotifyCLI.err.printf("Removed %d, added %d, queued %d items in %d requests%n", removed.removed, added.added,
+                removed.queued + added.queued, removed.requests + added.requests);
+        if (added.failed > 0) {
+            spotifyCLI.err.println("Could not add " + added.failed + " items");
+            // Re-inserts were removed above; say which, so they aren't lost silently
+            changes.inserts.forEach(insert -> spotifyCLI.err.println("  was to be re-inserted: " + insert.item.getUri()));
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package spotifyCliJava;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.localStore.SearchIndex;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "search",
+        mixinStandardHelpOptions = true,
+        description = "Search the items in your local store by name. Never contacts Spotify."
+)
+class SearchCommand implements Callable<Integer>, LocalOnlyCommand {
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Parameters(index = "0", arity = "0..1", description = "The words to search for, EX: \"weezer blue\"")
+    private String query;
+
+    @Option(names = {"-t", "--type"}, description = "Only return items of this type. " +
+            "Accepted types are: 'playlist', 'artist', 'album', 'show', 'episode', 'track'")
+    private String itemType;
+
+    @Option(names = {"-l", "--limit"}, defaultValue = "10", description = "The number of matches to return. DEFAULT = ${DEFAULT-VALUE}")
+    private int limit;
+
+    @Option(names = {"--reindex"}, description = "Rebuild the search index from everything in the local store before searching.")
+    private boolean reindex;
+
+    @Override
+    public Integer call() {
+        SearchIndex searchIndex = spotifyCLI.spotifyFacade.getSearchIndex();
+        if (reindex)
+            searchIndex.rebuild(spotifyCLI.localStore);
+        if (query == null)
+            return 0;
+
+        // Loading the index from disk happens once, only the query itself is timed
+        int indexedItems = searchIndex.size();
+        long start = System.nanoTime();
+        List<SearchIndex.Match> matches = searchIndex.search(query, itemType, limit);
+        long elapsed = System.nanoTime() - start;
+
+        for (var match : matches) {
+            var document = match.document;
+            spotifyCLI.out.printf("%-8s %s  %s%n", document.itemType, document.itemID, document.name);
+            if (!document.context.isEmpty())
+                spotifyCLI.out.printf("%-8s %22s  %s%n", "", "", document.context);
+        }
+        spotifyCLI.err.printf("%d matches out of %d items in %.3f ms%n", matches.size(), indexedItems, elapsed / 1e6);
+        return 0;
+    }
+}
@@ -0,0 +1,261 @@
+package spotifyCliJava;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs command lines against one session: signed in once, with the facade (and its caches), the local store and the
+ * metrics of the invocation that started it, so each command after the first costs only its own requests.
+ * Used by 'shell' and 'run'.
+ */
+class Session {
+    private final SpotifyCLI spotifyCLI;
+
+    Session(SpotifyCLI spotifyCLI) {
+        this.spotifyCLI = spotifyCLI;
+    }
+
+    /**
+     * Runs one command line, EX: list album --all
+     *
+     * @param out Where the command prints; passed down to it, so threads the command starts print there too
+     * @return The command's exit code
+     */
+    int execute(String line, PrintStream out, PrintStream err) {
+        List<String> args;
+        try {
+            args = tokenize(line);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 2;
+        }
+        if (args.isEmpty())
+            return 0;
+        String command = args.get(0);
+        if (command.startsWith("-")) {
+            err.println("Global options go before 'shell' or 'run', and apply to the whole session: " + command);
+            return 2;
+        }
+        if (command.equals("shell") || command.equals("run")) {
+            err.println("Can't start '" + command + "' from within a session");
+            return 2;
+        }
+        spotifyCLI.renewSignInIfDue();
+        SpotifyCLI shared = spotifyCLI.share(out, err);
+        // Only this command's misses: the session's count keeps growing across commands
+        int missesBefore = spotifyCLI.spotifyFacade.deadlineMisses();
+        int exitCode = new CommandLine(shared)
+                .setOut(new PrintWriter(out, true))
+                .setErr(new PrintWriter(err, true))
+                .execute(args.toArray(new String[0]));
+        return shared.reportDeadlineMisses(missesBefore, exitCode);
+    }
+
+    /**
+     * Splits a command line into arguments the way a shell would: on whitespace, except within single or double
+     * quotes, with a backslash escaping the character after it (outside single quotes)
+     */
+    static List<String> tokenize(String line) {
+        var args = new ArrayList<String>();
+        var arg = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && quote != '\'' && i + 1 < line.length()) {
+                arg.append(line.charAt(++i));
+                inArg = true;
+            } else if (quote != 0) {
+                if (c == quote)
+                    quote = 0;
+                else
+                    arg.append(c);
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(arg.toString());
+                    arg.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        if (quote != 0)
+            throw new IllegalArgumentException("Unterminated " + quote + " in: " + line);
+        if (inArg)
+            args.add(arg.toString());
+        return args;
+    }
+
+    // Blank lines and comments
+    static boolean isSkipped(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("#");
+    }
+}
+
+@Command(
+        name = "shell",
+        mixinStandardHelpOptions = true,
+        description = {"Read commands from stdin and run each against one signed in session, EX: list album, then info album ID.",
+                "Global options (EX: --storePath, --hedge, --metrics) go before 'shell' and apply to every command; " +
+                        "--deadline applies to each command. 'exit' or 'quit' to leave."}
+)
+class ShellCommand implements Callable<Integer> {
+    private static final String PROMPT = "spotify> ";
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Override
+    public Integer call() throws IOException {
+        var session = new Session(spotifyCLI);
+        // Only prompt someone typing, not a pipe
+        boolean interactive = System.console() != null;
+        var in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        int exitCode = 0;
+        while (true) {
+            if (interactive) {
+                spotifyCLI.out.print(PROMPT);
+                spotifyCLI.out.flush();
+            }
+            String line = in.readLine();
+            if (line == null)
+                break;
+            if (Session.isSkipped(line))
+                continue;
+            String trimmed = line.trim();
+            if (trimmed.equals("exit") || trimmed.equals("quit"))
+                break;
+            if (trimmed.equals("help")) {
+                new CommandLine(spotifyCLI.share(spotifyCLI.out, spotifyCLI.err)).usage(spotifyCLI.out);
+                continue;
+            }
+            spotifyCLI.startDeadline();
+            exitCode = session.execute(line, spotifyCLI.out, spotifyCLI.err);
+        }
+        return exitCode;
+    }
+}
+
+@Command(
+        name = "run",
+        mixinStandardHelpOptions = true,
+        description = {"Run the commands in SCRIPT, one per line, against one signed in session. Blank lines and lines starting with # are skipped.",
+                "A line ending in & runs in the background, alongside the lines after it (its output is printed whole once it's done); " +
+                        "a 'wait' line waits for every background line before it.",
+                "Global options go before 'run' and apply to every line; --deadline applies to the whole script."}
+)
+class RunCommand implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.RunCommand");
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Parameters(index = "0", paramLabel = "SCRIPT", description = "The file of commands to run")
+    private Path script;
+
+    @Option(names = {"-j", "--parallel"}, defaultValue = "4", description = "Most background lines to run at once. DEFAULT = ${DEFAULT-VALUE}")
+    private int parallel;
+
+    // A line started in the background
+    private static class Background {
+        final int lineNumber;
+        final Future<Integer> exitCode;
+
+        Background(int lineNumber, Future<Integer> exitCode) {
+            this.lineNumber = lineNumber;
+            this.exitCode = exitCode;
+        }
+    }
+
+    @Override
+    public Integer call() throws InterruptedException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(script, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.error("Could not read " + script + ": " + e.getMessage());
+            spotifyCLI.err.println("Could not read " + script + ": " + e.getMessage());
+            return 1;
+        }
+
+        var session = new Session(spotifyCLI);
+        var failedLines = new ArrayList<Integer>();
+        var pending = new ArrayList<Background>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallel), new NamedThreadFactory("run"));
+        PrintStream out = spotifyCLI.out;
+        PrintStream err = spotifyCLI.err;
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                int lineNumber = i + 1;
+                String line = lines.get(i).trim();
+                if (Session.isSkipped(line))
+                    continue;
+                if (line.equals("wait")) {
+                    join(pending, failedLines);
+                    continue;
+                }
+                if (!line.endsWith("&")) {
+                    if (session.execute(line, out, err) != 0)
+                        failedLines.add(lineNumber);
+                    continue;
+                }
+                String command = line.substring(0, line.length() - 1);
+                pending.add(new Background(lineNumber, pool.submit(() -> {
+                    // Buffered, so lines running at once don't interleave their output
+                    var bufferedOut = new ByteArrayOutputStream();
+                    var bufferedErr = new ByteArrayOutputStream();
+                    try {
+                        return session.execute(command, new PrintStream(bufferedOut, true), new PrintStream(bufferedErr, true));
+                    } finally {
+                        synchronized (RunCommand.this) {
+                            bufferedOut.writeTo(out);
+                            bufferedErr.writeTo(err);
+                        }
+                    }
+                })));
+            }
+            join(pending, failedLines);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (failedLines.isEmpty())
+            return 0;
+        failedLines.sort(null);
+        err.println("Failed lines of " + script + ": " + failedLines);
+        return 1;
+    }
+
+    private static void join(List<Background> pending, List<Integer> failedLines) throws InterruptedException {
+        for (Background background : pending) {
+            try {
+                if (background.exitCode.get() != 0)
+                    failedLines.add(background.lineNumber);
+            } catch (ExecutionException e) {
+                logger.error("Line " + background.lineNumber + " failed: " + e.getCause());
+                failedLines.add(background.lineNumber);
+            }
+        }
+        pending.clear();
+    }
+}
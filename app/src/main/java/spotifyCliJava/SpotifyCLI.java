@@ -1,17 +1,45 @@
 package spotifyCliJava;
 
 import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.IHttpManager;
 import com.wrapper.spotify.SpotifyApi;
-import com.wrapper.spotify.enums.ModelObjectType;
 import com.wrapper.spotify.exceptions.SpotifyWebApiException;
 import com.wrapper.spotify.model_objects.AbstractModelObject;
+import jdk.jfr.Recording;
 import org.apache.hc.core5.http.ParseException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 import picocli.CommandLine.*;
+import spotifyCliJava.authorization.AuthManager;
+import spotifyCliJava.cassette.Cassette;
+import spotifyCliJava.cassette.RecordingHttpManager;
+import spotifyCliJava.cassette.ReplayingHttpManager;
+import spotifyCliJava.facade.DeepInfo;
+import spotifyCliJava.facade.EndpointGuard;
+import spotifyCliJava.facade.IItem;
+import spotifyCliJava.facade.JournalReplayer;
+import spotifyCliJava.facade.RequestHedger;
+import spotifyCliJava.facade.RequestScheduler;
+import spotifyCliJava.facade.UserLibrary;
+import spotifyCliJava.localStore.LocalStore;
+import spotifyCliJava.localStore.MutationJournal;
+import spotifyCliJava.metrics.JfrEvents;
+import spotifyCliJava.metrics.MetricsServer;
+import spotifyCliJava.metrics.RequestMetrics;
+import spotifyCliJava.utility.Deadline;
 import spotifyCliJava.utility.Environment;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 @Command(
         name = "spotify-cli",
@@ -20,10 +48,22 @@ import java.util.concurrent.Callable;
         subcommands = {
                 ListCommand.class,
                 FollowCommand.class,
+                UnfollowCommand.class,
                 InfoCommand.class,
+                SearchCommand.class,
+                CompleteCommand.class,
+                WhereCommand.class,
+                JournalCommand.class,
+                BackupCommand.class,
+                PlaylistCommand.class,
+                DuplicatesCommand.class,
+                BenchCommand.class,
+                ShellCommand.class,
+                RunCommand.class,
         }
 )
 class SpotifyCLI implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.SpotifyCLI");
 
     // TODO: THINK ABOUT THIS:
     // Defaults for these options currently live in SpotifyManager
@@ -49,20 +89,346 @@ class SpotifyCLI implements Callable<Integer> {
     @Option(names = {"--redirectURI"}, description = "The redirect URI to use.")
     private String redirectURI;
 
+    @Option(names = {"--apiBaseURI"}, description = "Send every request there instead of to Spotify, EX: a stub of the API (see 'bench --serve'). " +
+            "Tokens from it are never cached.")
+    private String apiBaseURI;
+
+    @Option(names = {"--offline"}, description = "Answer entirely from the local store, without signing in or making any requests to Spotify.")
+    private boolean offline;
+
+    @Option(names = {"--storePath"}, description = "The directory responses from Spotify are mirrored into, and served from when offline.")
+    private String storePath;
+
+    @Option(names = {"--deadline"}, defaultValue = "0", description = "How long the command may spend on Spotify, in milliseconds (0 for no limit). " +
+            "Requests still in flight when it runs out are abandoned, and the command prints what it has, " +
+            "exiting with " + DEADLINE_EXIT_CODE + " if that is incomplete. Signing in doesn't count towards it.")
+    private int deadlineMillis;
+
+    @Option(names = {"--hedge"}, arity = "0..1", fallbackValue = "5", defaultValue = "0", paramLabel = "PERCENT",
+            description = "Send a GET again if it is slower than the p95 of its endpoint, and use whichever response comes first. " +
+                    "PERCENT caps the extra requests (${FALLBACK-VALUE} if not given); 0 turns hedging off.")
+    private int hedgePercent;
+
+    @Option(names = {"--bulkhead"}, defaultValue = "8", paramLabel = "N",
+            description = "Most requests to one endpoint family (EX: playlists, albums) to have in flight at once, so one slow or failing family " +
+                    "can't hold up the others. DEFAULT = ${DEFAULT-VALUE}")
+    private int bulkhead;
+
+    @Option(names = {"--metrics"}, description = "When done, print where the time of every request went (per endpoint: latency percentiles, " +
+            "time queued and parsing, bytes, retries, statuses) and how the local store answered, to stderr.")
+    private boolean printMetrics;
+
+    @Option(names = {"--metrics-json"}, paramLabel = "FILE", description = "When done, write the same metrics as --metrics to FILE as JSON.")
+    private Path metricsJson;
+
+    @Option(names = {"--metrics-port"}, paramLabel = "PORT", description = "Serve the metrics in the Prometheus text format on " +
+            "http://127.0.0.1:PORT/metrics while the command runs.")
+    private Integer metricsPort;
+
+    @Option(names = {"--jfr"}, arity = "0..1", fallbackValue = "spotify-cli.jfr", paramLabel = "FILE",
+            description = "Record the run with Java Flight Recorder (the 'profile' settings plus the CLI's own events for signing in, " +
+                    "requests, local store lookups and rendering) and write it to FILE on exit (${FALLBACK-VALUE} if not given).")
+    private Path jfrFile;
+
+    @Option(names = {"--record"}, paramLabel = "FILE", description = "Record every exchange with Spotify (its response or error, and how long it took; " +
+            "signing in excepted) to the cassette FILE, for --replay.")
+    private Path recordFile;
+
+    @Option(names = {"--replay"}, paramLabel = "FILE", description = "Answer every request from the cassette FILE made with --record, " +
+            "without signing in or touching the network. For runs to be comparable, give each an empty --storePath.")
+    private Path replayFile;
+
+    @Option(names = {"--replay-latency"}, defaultValue = "1", paramLabel = "FACTOR",
+            description = "With --replay: answer after the recorded latency times FACTOR (0 to answer at once). DEFAULT = ${DEFAULT-VALUE}")
+    private double replayLatency;
+
+    // Exit code of a command cut short by --deadline (as timeout(1) uses)
+    static final int DEADLINE_EXIT_CODE = 124;
+
     // TODO: Add these as options
     //tokenCaching
     //tokenRefresh
     //scopes
 
-    private int executionStrategy(ParseResult parseResult) {
-        init(); // custom initialization to be done before executing any command or subcommand
-        return new CommandLine.RunLast().execute(parseResult); // default execution strategy
+    /**
+     * Thrown to end the invocation with 'exitCode' where a plain return can't reach, EX: a failed sign in.
+     * executionStrategy() turns it into the exit code, so a whole CLI invocation never takes the JVM down with it.
+     */
+    static class ExitRequest extends RuntimeException {
+        final int exitCode;
+
+        ExitRequest(int exitCode) {
+            super("Exit with code " + exitCode, null, false, false);
+            this.exitCode = exitCode;
+        }
+    }
+
+    // Package private for BenchCommand, which runs whole CLI invocations
+    int executionStrategy(ParseResult parseResult) {
+        Recording recording = startRecording();
+        try {
+            return runMetered(parseResult);
+        } catch (ExitRequest e) {
+            return e.exitCode;
+        } finally {
+            closeCassette();
+            if (recording != null) {
+                // Stopping a recording with a destination writes it out
+                recording.stop();
+                recording.close();
+                System.err.println("Wrote the flight recording to " + jfrFile.toAbsolutePath());
+            }
+        }
+    }
+
+    @Nullable
+    private Recording startRecording() {
+        if (jfrFile == null)
+            return null;
+        try {
+            return JfrEvents.startRecording(jfrFile);
+        } catch (IOException | IllegalStateException | SecurityException e) {
+            logger.error("Could not start a flight recording: " + e.getMessage());
+            System.err.println("Could not start a flight recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private int runMetered(ParseResult parseResult) {
+        if (printMetrics || metricsJson != null || metricsPort != null)
+            metrics = new RequestMetrics();
+        try (MetricsServer metricsServer = startMetricsServer()) {
+            int exitCode = execute(parseResult);
+            reportMetrics();
+            return exitCode;
+        }
+    }
+
+    private int execute(ParseResult parseResult) {
+        boolean online = !offline && !isLocalOnly(parseResult);
+        if (!online) {
+            initOffline(); // cache-only invocations skip authentication entirely, so they never touch the network
+        } else {
+            init(); // custom initialization to be done before executing any command or subcommand
+        }
+        // The clock starts once signed in, so an interactive sign in doesn't eat into the command's budget
+        startDeadline();
+        RequestHedger hedger = hedgePercent > 0 && !spotifyFacade.isOffline() ? new RequestHedger(hedgePercent) : null;
+        spotifyFacade.withHedging(hedger);
+        spotifyFacade.withEndpointGuard(new EndpointGuard(bulkhead));
+        // Within the deadline and behind the endpoint guard, like the command's own requests.
+        // A replayed session must not send the queued changes for real, nor ask the cassette for requests it never recorded
+        if (online && replayer == null && !isJournalCommand(parseResult))
+            replayJournal();
+        int missesBefore = spotifyFacade.deadlineMisses();
+        int exitCode = new CommandLine.RunLast().execute(parseResult); // default execution strategy
+        // Once per command rather than per synced page; 'complete' only ever reads the trie
+        if (online && spotifyFacade.getSearchIndex() != null)
+            spotifyFacade.getSearchIndex().writeCompletionTrie();
+        if (hedger != null) {
+            logger.info(String.format("Hedged %d of %d GETs, %d hedges answered first",
+                    hedger.hedges(), hedger.requests(), hedger.hedgeWins()));
+            hedger.close();
+        }
+        // 'shell' and 'run' report each of their commands' misses as it finishes (see Session)
+        if (!isSessionCommand(parseResult))
+            exitCode = reportDeadlineMisses(missesBefore, exitCode);
+        return exitCode;
+    }
+
+    /**
+     * Reports the requests the deadline cut short since 'missesBefore' was taken from spotifyFacade.deadlineMisses()
+     *
+     * @return DEADLINE_EXIT_CODE if there were any and 'exitCode' is 0, otherwise 'exitCode'
+     */
+    int reportDeadlineMisses(int missesBefore, int exitCode) {
+        int misses = spotifyFacade.deadlineMisses() - missesBefore;
+        if (misses <= 0)
+            return exitCode;
+        err.println("Incomplete: the --deadline of " + deadlineMillis + " ms ran out, "
+                + misses + " requests were not answered in time");
+        return exitCode == 0 ? DEADLINE_EXIT_CODE : exitCode;
+    }
+
+    @Nullable
+    private MetricsServer startMetricsServer() {
+        if (metricsPort == null)
+            return null;
+        try {
+            return new MetricsServer(metrics, metricsPort);
+        } catch (IOException e) {
+            logger.error("Could not serve metrics on port " + metricsPort + ": " + e.getMessage());
+            System.err.println("Could not serve metrics on port " + metricsPort + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void reportMetrics() {
+        if (metrics == null)
+            return;
+        if (printMetrics)
+            metrics.printSummary(System.err);
+        if (metricsJson != null) {
+            try {
+                Files.writeString(metricsJson, metrics.toJson().toString());
+            } catch (IOException e) {
+                logger.error("Could not write metrics to " + metricsJson + ": " + e.getMessage());
+                System.err.println("Could not write metrics to " + metricsJson + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // With --record or --replay: what to put in place of, or around, the SpotifyApi's transport
+    @Nullable
+    private UnaryOperator<IHttpManager> openCassette() {
+        try {
+            if (recordFile != null && replayFile != null) {
+                System.err.println("--record and --replay can't be used together");
+                throw new ExitRequest(1);
+            }
+            if (replayFile != null) {
+                cassetteReader = new Cassette.Reader(replayFile);
+                replayer = new ReplayingHttpManager(cassetteReader, replayLatency);
+                return httpManager -> replayer;
+            }
+            if (recordFile != null) {
+                cassetteWriter = new Cassette.Writer(recordFile);
+                return httpManager -> new RecordingHttpManager(httpManager, cassetteWriter);
+            }
+        } catch (IOException e) {
+            logger.error("Could not open the cassette: " + e.getMessage());
+            System.err.println("Could not open the cassette: " + e.getMessage());
+            throw new ExitRequest(1);
+        }
+        return null;
+    }
+
+    private void closeCassette() {
+        try {
+            if (cassetteWriter != null) {
+                cassetteWriter.close();
+                System.err.println("Recorded " + cassetteWriter.size() + " exchanges to " + recordFile.toAbsolutePath());
+            }
+            if (cassetteReader != null) {
+                if (replayer.misses() > 0)
+                    System.err.println(replayer.misses() + " requests were not in the cassette " + replayFile);
+                cassetteReader.close();
+            }
+        } catch (IOException e) {
+            logger.error("Could not close the cassette: " + e.getMessage());
+            System.err.println("Could not close the cassette: " + e.getMessage());
+        }
+    }
+
+    // Commands which only ever read the local store don't need an authenticated SpotifyApi object
+    private static boolean isLocalOnly(ParseResult parseResult) {
+        return parseResult.hasSubcommand()
+                && parseResult.subcommand().commandLine().getCommand() instanceof LocalOnlyCommand;
+    }
+
+    private static boolean isSessionCommand(ParseResult parseResult) {
+        return parseResult.hasSubcommand()
+                && (parseResult.subcommand().commandLine().getCommand() instanceof ShellCommand
+                || parseResult.subcommand().commandLine().getCommand() instanceof RunCommand);
+    }
+
+    // 'journal' shows the queue as it is, and flushes it itself
+    private static boolean isJournalCommand(ParseResult parseResult) {
+        return parseResult.hasSubcommand()
+                && parseResult.subcommand().commandLine().getCommand() instanceof JournalCommand;
+    }
+
+    // Changes queued by earlier runs (offline, rate limited, network trouble) are applied before anything else, a few
+    // requests' worth per command so that a long queue doesn't hold every command up
+    private static final int MAX_JOURNAL_REQUESTS_PER_COMMAND = 4;
+
+    private void replayJournal() {
+        MutationJournal journal = spotifyFacade.getMutationJournal();
+        if (journal == null || Files.notExists(journal.getJournalPath()))
+            return;
+        try {
+            JournalReplayer.Result result = new JournalReplayer(spotifyFacade, journal)
+                    .withMaxRequests(MAX_JOURNAL_REQUESTS_PER_COMMAND)
+                    .replay();
+            if (result.requests == 0 && result.applied == 0)
+                return;
+            printReplayResult(result);
+            if (result.remaining > 0)
+                System.err.println("Run 'journal flush' to apply the rest of the queued changes now");
+        } catch (IOException e) {
+            System.err.println("Could not apply the queued changes: " + e.getMessage());
+        }
+    }
+
+    static void printReplayResult(JournalReplayer.Result result) {
+        System.err.printf("Applied %d queued changes in %d requests (%d failed, %d still queued)%n",
+                result.applied, result.requests, result.failed, result.remaining);
     }
 
     // TODO: Add Parent reference in all subcommands to spotifyFacade
     // TODO: Add functionality into spotifyCliJava.facade so you can just inject spotifyCliJava.facade reference
     public SpotifyFacade spotifyFacade;
     public SpotifyApi spotifyApi;
+    public LocalStore localStore;
+    // Null unless one of the --metrics options is given
+    public RequestMetrics metrics;
+    // Set from --deadline just before the command runs
+    public Deadline deadline = Deadline.NONE;
+    // Where commands print. The session's own messages (signing in, metrics, the cassette) go to System.out/err.
+    public PrintStream out = System.out;
+    public PrintStream err = System.err;
+    // Open for the whole run with --record or --replay
+    private Cassette.Writer cassetteWriter;
+    private Cassette.Reader cassetteReader;
+    private ReplayingHttpManager replayer;
+    // What the session signed in with, and when, to sign in again when a long 'shell' or 'run' outlives the token
+    private Environment env;
+    private long signedInNanos;
+
+    // Spotify's access tokens last an hour; sessions sign in again a little before that
+    private static final long SIGN_IN_RENEWAL_NANOS = TimeUnit.MINUTES.toNanos(50);
+
+    // Restarts the clock of --deadline ('shell' does for each of its commands)
+    void startDeadline() {
+        deadline = Deadline.in(deadlineMillis);
+        spotifyFacade.withDeadline(deadline);
+    }
+
+    /**
+     * For 'shell' and 'run': a SpotifyCLI to run one more command with, sharing this one's session (the signed in
+     * SpotifyApi object, the facade and its caches, the local store, the metrics)
+     *
+     * @param out Where the command prints, EX: a buffer of its own for a line 'run' runs in the background
+     */
+    SpotifyCLI share(@NotNull PrintStream out, @NotNull PrintStream err) {
+        var shared = new SpotifyCLI();
+        shared.spotifyFacade = spotifyFacade;
+        shared.spotifyApi = spotifyApi;
+        shared.localStore = localStore;
+        shared.metrics = metrics;
+        shared.deadline = deadline;
+        shared.deadlineMillis = deadlineMillis;
+        shared.out = out;
+        shared.err = err;
+        return shared;
+    }
+
+    // Signs the session in again if its access token is about to expire
+    void renewSignInIfDue() {
+        if (env == null || replayer != null || System.nanoTime() - signedInNanos < SIGN_IN_RENEWAL_NANOS)
+            return;
+        synchronized (this) {
+            if (System.nanoTime() - signedInNanos < SIGN_IN_RENEWAL_NANOS)
+                return;
+            logger.info("Access token about to expire, signing in again");
+            if (SpotifyCliSetup.reauthenticate(env, spotifyApi, deadline) == AuthManager.AuthStatus.SUCCESS) {
+                signedInNanos = System.nanoTime();
+            } else {
+                logger.error("Could not sign in again");
+                System.err.println("Could not sign in again; requests will fail once the access token expires");
+            }
+        }
+    }
 
     private void init() {
         // Collect command line args, environment vars, and vars stored in .env files.
@@ -73,20 +439,41 @@ class SpotifyCLI implements Callable<Integer> {
                 //.withAuthScopes("")
                 .withClientID(clientID)
                 .withClientSecret(clientSecret)
+                .withApiBaseURI(apiBaseURI)
                 //.withDisableTokenCaching(false)
                 //.withDisableTokenRefresh(false)
                 .build();
 
-        SpotifyApi spotifyApi = SpotifyCliSetup.createAndAuthenticate(env);
+        UnaryOperator<IHttpManager> transport = openCassette();
+        SpotifyApi spotifyApi;
+        if (replayer != null) {
+            // Everything is answered from the cassette, so there is nothing to sign in to
+            spotifyApi = SpotifyCliSetup.createAndConfigureSpotifyApi(env.redirectURI, env.clientID, env.clientSecret,
+                    env.apiBaseURI, deadlineMillis, metrics, transport);
+            if (spotifyApi != null)
+                spotifyApi.setAccessToken("replay");
+        } else {
+            spotifyApi = SpotifyCliSetup.createAndAuthenticate(env, deadlineMillis, metrics, transport);
+        }
         if (spotifyApi == null){
-            System.exit(1);
+            throw new ExitRequest(1);
         }
+        this.spotifyApi = spotifyApi;
+        this.env = env;
+        signedInNanos = System.nanoTime();
 
         // With a fully configured and authenticated SpotifyApi object, create a spotifyCliJava.facade and pass in the SpotifyApi object
         //---------------------------------------------------------------------
         // This spotifyCliJava.facade object will be used by all sub-commands to interact with the SpotifyApi
         // Picocli injects a reference to this object into all sub-commands
-        spotifyFacade = new SpotifyFacade(spotifyApi);
+        localStore = new LocalStore().withStorePath(storePath);
+        spotifyFacade = new SpotifyFacade(spotifyApi, localStore).withMetrics(metrics);
+    }
+
+    private void initOffline() {
+        // A facade without a SpotifyApi object serves everything from the local store
+        localStore = new LocalStore().withStorePath(storePath);
+        spotifyFacade = new SpotifyFacade(null, localStore).withMetrics(metrics);
     }
 
     public static void main(String... args) {
@@ -104,44 +491,11 @@ class SpotifyCLI implements Callable<Integer> {
     }
 }
 
-@Command(
-        name = "follow",
-        mixinStandardHelpOptions = true,
-        description = "Follow followable items"
-)
-class FollowCommand implements Callable<Integer> {
-
-    @ParentCommand
-    private SpotifyApi spotifyApi;
-
-    @Parameters(index = "0", description = "The type of item to follow. Accepted types are: 'playlist', 'artist'")
-    private String itemType;
-
-    @Parameters(index = "0", description = "The ID of item to follow")
-    private String itemID;
-
-    @Override
-    public Integer call() {
-        System.out.println("=============================================");
-        System.out.printf("Item type: %s, Item ID: %s", itemType, itemID);
-        System.out.println("PARTIALLY IMPLEMENTED!");
-        System.out.println("\n=============================================");
-
-        if (itemType.equals("playlist") || itemType.equals("artist")) {
-            var type = itemType.equals("artist") ? ModelObjectType.ARTIST : ModelObjectType.PLAYLIST;
-
-            String[] idsToFollow = {itemID};
-            try {
-                var request = spotifyApi.followArtistsOrUsers(type, idsToFollow).build().execute();
-            } catch (IOException | SpotifyWebApiException | ParseException e) {
-                e.printStackTrace();
-            }
-        } else {
-            System.err.println("The only supported types for the 'follow' command are 'playlist' and 'artist' ");
-        }
-
-        return 0;
-    }
+/**
+ * Marker for sub-commands that are answered entirely from the local store.
+ * SpotifyCLI skips authentication for these, so they start without any network I/O.
+ */
+interface LocalOnlyCommand {
 }
 
 @Command(
@@ -157,10 +511,14 @@ class ListCommand implements Callable<Integer> {
     @Parameters(
             index = "0",
             description = "The type of saved/followed item to list. " +
-                    "Accepted types are: 'playlist', 'artist', 'album', 'show', 'episode', 'track'"
+                    "Accepted types are: 'playlist', 'artist', 'album', 'show', 'episode', 'track', " +
+                    "or 'all' to list every saved/followed item of every type"
     )
     private String itemType;
 
+    @Option(names = {"-a", "--all"}, description = "List every item of ITEMTYPE, instead of one page of LIMIT items")
+    private boolean retrieveAll;
+
     @Option(names = {"-o", "--offset"}, defaultValue = "0", description = "How many items to skip before listing LIMIT items. DEFAULT = ${DEFAULT-VALUE}")
     private int offset;
 
@@ -173,12 +531,53 @@ class ListCommand implements Callable<Integer> {
         // UPDATE: May not need to do that. I can define spotifyAPI config options on the ENTRY command,
         // and also use the executionSTrategy method to setup the spotifyAPI + spotifyCliJava.facade objects.
         SpotifyFacade spotifyFacade = spotifyCLI.spotifyFacade;
+        if (itemType.equals("all") || retrieveAll)
+            return listLibrary(spotifyFacade);
+
         AbstractModelObject collection = spotifyFacade.getUserCollection(itemType, limit, offset, CountryCode.US);
         if (collection != null)
-            System.out.println(spotifyFacade.collectionToPrettyString(collection));
+            spotifyCLI.out.println(spotifyFacade.collectionToPrettyString(collection));
 
         return 0;
     }
+
+    // Load whole collections into a UserLibrary (all types concurrently), reporting progress and timings on stderr
+    private int listLibrary(SpotifyFacade spotifyFacade) {
+        List<String> types = itemType.equals("all") ? UserLibrary.COLLECTION_TYPES : List.of(itemType);
+        if (!UserLibrary.COLLECTION_TYPES.containsAll(types)) {
+            spotifyCLI.err.println("--all is supported for: " + String.join(", ", UserLibrary.COLLECTION_TYPES));
+            return 1;
+        }
+
+        var library = new UserLibrary();
+        long start = System.nanoTime();
+        List<UserLibrary.CollectionReport> reports = library.load(spotifyFacade, types, CountryCode.US,
+                UserLibrary.DEFAULT_PARALLELISM, new UserLibrary.ProgressListener() {
+                    @Override
+                    public void pageLoaded(@NotNull String type, int loaded, int total) {
+                        spotifyCLI.err.printf("%-8s %d/%s%n", type, loaded, total < 0 ? "?" : total);
+                    }
+
+                    @Override
+                    public void collectionLoaded(@NotNull UserLibrary.CollectionReport report) {
+                        spotifyCLI.err.printf("%-8s done: %d items in %d ms%s%n", report.itemType, report.count,
+                                report.elapsedMillis, report.complete ? "" : " (incomplete, some pages failed)");
+                    }
+                });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        for (UserLibrary.CollectionReport report : reports) {
+            UserLibrary.SavedItems<? extends IItem> items = library.collection(report.itemType);
+            spotifyCLI.out.printf("%n=== %s (%d) ===%n", report.itemType, items.size());
+            for (IItem item : items)
+                spotifyCLI.out.println(item.getId() + "  " + item);
+        }
+
+        long sumMillis = reports.stream().mapToLong(r -> r.elapsedMillis).sum();
+        spotifyCLI.err.printf("Loaded %d items in %d ms (the collections took %d ms combined)%n",
+                library.size(), elapsedMillis, sumMillis);
+        return reports.stream().allMatch(r -> r.complete) ? 0 : 1;
+    }
 }
 
 @Command(
@@ -189,7 +588,7 @@ class ListCommand implements Callable<Integer> {
 class InfoCommand implements Callable<Integer> {
 
     @ParentCommand
-    private SpotifyFacade spotifyFacade;
+    private SpotifyCLI spotifyCLI;
 
     @Parameters(
             index = "0",
@@ -198,22 +597,56 @@ class InfoCommand implements Callable<Integer> {
     )
     private String itemType;
 
-    @Parameters(index = "1", description = "The ID of item to retrieve info for")
+    @Parameters(index = "1", arity = "0..1", description = "The ID of item to retrieve info for")
     private String itemID;
 
-    public void getItemInfo() throws IOException, ParseException, SpotifyWebApiException {
-        AbstractModelObject item = spotifyFacade.getItem(itemType, itemID);
-        if (item != null)
-            System.out.println(spotifyFacade.itemToPrettyString(item));
+    @Option(names = {"-n", "--name"}, description = "Look the item up by name instead of ID. Names are resolved using the local search index, then Spotify's search.")
+    private String itemName;
+
+    @Option(names = {"--deep"}, description = "Also resolve what the item refers to: an album's tracks and artists, a playlist's items and owner, a track's album and artists")
+    private boolean deep;
+
+    @Option(names = {"-j", "--threads"}, defaultValue = "8", description = "With --deep: how many requests to run at once. DEFAULT = ${DEFAULT-VALUE}")
+    private int threads;
+
+    public int getItemInfo() throws IOException, ParseException, SpotifyWebApiException {
+        SpotifyFacade spotifyFacade = spotifyCLI.spotifyFacade;
+        String id = itemID;
+        if (id == null && itemName != null)
+            id = spotifyFacade.resolveItemID(itemType, itemName);
+        if (id == null) {
+            // A name that didn't resolve has been reported by resolveItemID()
+            if (itemName == null)
+                spotifyCLI.err.println("Either an item ID or --name is required");
+            return 1;
+        }
+        if (deep) {
+            try (var scheduler = new RequestScheduler(threads, spotifyCLI.deadline)) {
+                var deepInfo = new DeepInfo(spotifyFacade, scheduler, CountryCode.US);
+                String repr = deepInfo.render(itemType, id);
+                if (repr != null)
+                    spotifyCLI.out.println(repr);
+                if (deepInfo.isIncomplete()) {
+                    spotifyCLI.err.println("Some of the info could not be fetched" + (scheduler.isExpired() ? " before the deadline" : ""));
+                    return 1;
+                }
+                return 0;
+            }
+        }
+        AbstractModelObject item = spotifyFacade.getItem(itemType, id);
+        if (item == null)
+            return 1;
+        spotifyCLI.out.println(spotifyFacade.itemToPrettyString(item));
+        return 0;
     }
 
     @Override
     public Integer call() {
         try {
-            getItemInfo();
+            return getItemInfo();
         } catch (IOException | SpotifyWebApiException | ParseException e) {
-            System.out.println("Error: " + e.getMessage());
+            spotifyCLI.err.println("Error: " + e.getMessage());
+            return 1;
         }
-        return 0;
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package spotifyCliJava;
 
+import com.wrapper.spotify.IHttpManager;
 import com.wrapper.spotify.SpotifyApi;
 import com.wrapper.spotify.SpotifyHttpManager;
 import org.jetbrains.annotations.NotNull;
@@ -13,9 +14,17 @@ import spotifyCliJava.authorization.flows.AuthorizationFlowCodeFlow;
 import spotifyCliJava.authorization.flows.AuthorizationFlowPKCE;
 import spotifyCliJava.authorization.flows.utility.CallbackServer;
 import spotifyCliJava.authorization.tokenCaching.SpotifyCliTokenCache;
+import spotifyCliJava.metrics.JfrEvents;
+import spotifyCliJava.metrics.MeteredHttpManager;
+import spotifyCliJava.metrics.RequestMetrics;
+import spotifyCliJava.utility.Deadline;
 import spotifyCliJava.utility.Environment;
+import spotifyCliJava.utility.RebasingHttpManager;
 
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 class SpotifyCliSetup
 {
@@ -23,11 +32,33 @@ class SpotifyCliSetup
 
     @Nullable
     public static SpotifyApi createAndAuthenticate(@NotNull Environment env){
+        return createAndAuthenticate(env, 0, null);
+    }
+
+    @Nullable
+    public static SpotifyApi createAndAuthenticate(@NotNull Environment env, int requestTimeoutMillis, @Nullable RequestMetrics metrics){
+        return createAndAuthenticate(env, requestTimeoutMillis, metrics, null);
+    }
+
+    /**
+     * @param requestTimeoutMillis Bound on connecting and on each socket read of a request, 0 for the library defaults
+     * @param metrics              If not null, every HTTP exchange (signing in included) is recorded here
+     * @param transport            If not null, wraps (or replaces) what sends the requests; EX: to record them
+     */
+    @Nullable
+    public static SpotifyApi createAndAuthenticate(@NotNull Environment env, int requestTimeoutMillis, @Nullable RequestMetrics metrics,
+                                                   @Nullable UnaryOperator<IHttpManager> transport){
         // Create and configure a SpotifyApi object
         SpotifyApi spotifyApi = createAndConfigureSpotifyApi(
                 env.redirectURI,
                 env.clientID,
-                env.clientSecret);
+                env.clientSecret,
+                env.apiBaseURI,
+                requestTimeoutMillis,
+                metrics,
+                transport);
+        if (spotifyApi == null)
+            return null;
 
         // Create call back server to be used by selected auth flow
         var cbServerBuilder = new CallbackServer.Builder()
@@ -41,11 +72,14 @@ class SpotifyCliSetup
                 spotifyApi,
                 cbServerBuilder);
 
+        // Tokens from anything but Spotify must never take the place of the real ones in the token cache
+        boolean rebased = env.apiBaseURI != null;
+
         // Attempt to authenticate
         AuthManager.AuthStatus res = authenticate(
                 env.clientSecret,
-                env.disableTokenCaching,
-                env.disableTokenRefresh,
+                env.disableTokenCaching || rebased,
+                env.disableTokenRefresh || rebased,
                 authFlow,
                 spotifyApi);
 
@@ -55,7 +89,44 @@ class SpotifyCliSetup
         return spotifyApi;
     }
 
+    /**
+     * Signs 'spotifyApi' (made by createAndAuthenticate with the same 'env') in again, EX: when its access token is
+     * about to expire in a long running session. The token cache is skipped, since it holds the tokens that are about
+     * to expire: the session's refresh token is exchanged for new ones, and failing that the user signs in again.
+     *
+     * @param deadline A full sign in is abandoned once this passes (see CallbackServer.getAuthCode())
+     */
+    public static AuthManager.AuthStatus reauthenticate(@NotNull Environment env, @NotNull SpotifyApi spotifyApi,
+                                                        @NotNull Deadline deadline) {
+        var cbServerBuilder = new CallbackServer.Builder()
+                .withHostName(env.callbackServerHostName)
+                .withPort(env.callbackServerPort)
+                .withDeadline(deadline);
+        AbstractAuthorizationFlow authFlow = createAuthFlow(env.authFlowType, env.authScopes, spotifyApi, cbServerBuilder);
+        if (authFlow == null)
+            return AuthManager.AuthStatus.FAIL;
+        boolean rebased = env.apiBaseURI != null;
+        return authenticate(env.clientSecret, env.disableTokenCaching || rebased, env.disableTokenRefresh || rebased,
+                authFlow, spotifyApi, true);
+    }
+
+    @Nullable
     public static SpotifyApi createAndConfigureSpotifyApi(@NotNull String redirectURI, @NotNull String clientID, String clientSecret){
+        return createAndConfigureSpotifyApi(redirectURI, clientID, clientSecret, null, 0, null, null);
+    }
+
+    /**
+     * @param apiBaseURI If not null, every request (signing in included) is sent there instead of to Spotify,
+     *                   EX: "http://127.0.0.1:8089" for a StubSpotifyServer
+     * @param transport  If not null, wraps (or replaces) what sends the requests, EX: a RecordingHttpManager. It sees
+     *                   the requests as made to Spotify, before any apiBaseURI applies.
+     * @return Null if the configuration is missing or invalid (the error has been printed)
+     */
+    @Nullable
+    public static SpotifyApi createAndConfigureSpotifyApi(@NotNull String redirectURI, @NotNull String clientID, String clientSecret,
+                                                          @Nullable String apiBaseURI, int requestTimeoutMillis,
+                                                          @Nullable RequestMetrics metrics,
+                                                          @Nullable UnaryOperator<IHttpManager> transport){
         // Create SpotifyApi object
         //---------------------------------------------------------------------
         var logMsg = "%s is null. Cannot create spotify session.";
@@ -72,7 +143,18 @@ class SpotifyCliSetup
                 //logger.error(String.format(logMsg, "Client ID"));
                 System.err.printf((userErrorMsg) + "%n", "SPOTIFY_CLIENT_ID");
             }
-            System.exit(1);
+            return null;
+        }
+
+        URI baseURI = null;
+        if (apiBaseURI != null) {
+            try {
+                baseURI = new URI(apiBaseURI);
+            } catch (URISyntaxException e) {
+                logger.error("Invalid API base URI: " + e.getMessage());
+                System.err.println("ERROR: Invalid API base URI: " + e.getMessage());
+                return null;
+            }
         }
 
         final URI spotifyURI = SpotifyHttpManager.makeUri(redirectURI);
@@ -85,6 +167,28 @@ class SpotifyCliSetup
         if (clientSecret != null)
             spotifyApiBuilder.setClientSecret(clientSecret);
 
+        // A request abandoned at the deadline (see SpotifyFacade.send) still holds its connection until the socket
+        // gives up, so don't let that take longer than the deadline itself
+        var httpManagerBuilder = new SpotifyHttpManager.Builder();
+        if (requestTimeoutMillis > 0) {
+            httpManagerBuilder
+                    .setConnectTimeout(requestTimeoutMillis)
+                    .setConnectionRequestTimeout(requestTimeoutMillis)
+                    .setSocketTimeout(requestTimeoutMillis);
+        }
+        IHttpManager httpManager = httpManagerBuilder.build();
+        if (baseURI != null) {
+            logger.info("Sending all requests to " + baseURI);
+            httpManager = new RebasingHttpManager(httpManager, baseURI);
+        }
+        if (transport != null)
+            httpManager = transport.apply(httpManager);
+        boolean metered = metrics != null || JfrEvents.isRecording();
+        if (metered)
+            httpManager = new MeteredHttpManager(httpManager, metrics);
+        if (requestTimeoutMillis > 0 || baseURI != null || transport != null || metered)
+            spotifyApiBuilder.setHttpManager(httpManager);
+
         return spotifyApiBuilder.build();
     }
 
@@ -144,6 +248,20 @@ class SpotifyCliSetup
             boolean disableTokenRefresh,
             AbstractAuthorizationFlow authFlow,
             SpotifyApi spotifyApi) {
+        return authenticate(clientSecret, disableTokenCaching, disableTokenRefresh, authFlow, spotifyApi, false);
+    }
+
+    /**
+     * @param renewing True to renew the tokens 'spotifyApi' already signed in with: the cached tokens are those same
+     *                 tokens, so loading them is skipped for a refresh grant (or failing that, a full sign in)
+     */
+    private static AuthManager.AuthStatus authenticate(
+            String clientSecret,
+            boolean disableTokenCaching,
+            boolean disableTokenRefresh,
+            AbstractAuthorizationFlow authFlow,
+            SpotifyApi spotifyApi,
+            boolean renewing) {
         var logMsg = "%s is null. Cannot create spotify session.";
         var userErrorMsg = "ERROR: No configuration found for %s; cannot create Spotify session. " +
                 "Please set a configuration using an option/flag, an environment variable, or an .env file";
@@ -176,8 +294,14 @@ class SpotifyCliSetup
             logger.info("Token refresh enabled");
         }
 
+        if (renewing) {
+            if (timedPhase("renewal refresh", authManager::renewWithTokenRefresh) == AuthManager.AuthStatus.SUCCESS)
+                return AuthManager.AuthStatus.SUCCESS;
+            return timedPhase("full sign-in", authManager::authenticateWithFullSignIn);
+        }
+
         // Try to use tokens from the cache
-        if (authManager.authenticateWithTokenCache() == AuthManager.AuthStatus.SUCCESS) {
+        if (timedPhase("cache load", authManager::authenticateWithTokenCache) == AuthManager.AuthStatus.SUCCESS) {
             return AuthManager.AuthStatus.SUCCESS;
         }
 
@@ -187,17 +311,26 @@ class SpotifyCliSetup
          *
          * Sets accessToken, refreshToken if successful.
          */
-        if (authManager.authenticateWithTokenRefresh() == AuthManager.AuthStatus.SUCCESS) {
+        if (timedPhase("refresh", authManager::authenticateWithTokenRefresh) == AuthManager.AuthStatus.SUCCESS) {
             return AuthManager.AuthStatus.SUCCESS;
         }
 
         // If valid tokens could not be retrieved any other way, require a full refresh
         // This may mean the end user will have to sign in
-        if (authManager.authenticateWithFullSignIn() == AuthManager.AuthStatus.SUCCESS) {
+        if (timedPhase("full sign-in", authManager::authenticateWithFullSignIn) == AuthManager.AuthStatus.SUCCESS) {
             return AuthManager.AuthStatus.SUCCESS;
         }
 
         return AuthManager.AuthStatus.FAIL;
     }
-}
 
+    // Each way of authenticating is a JFR event, so a slow start can be pinned on the phase that caused it
+    private static AuthManager.AuthStatus timedPhase(String phase, Supplier<AuthManager.AuthStatus> attempt) {
+        var event = new JfrEvents.AuthPhase(phase);
+        event.begin();
+        AuthManager.AuthStatus status = attempt.get();
+        event.succeeded = status == AuthManager.AuthStatus.SUCCESS;
+        event.commit();
+        return status;
+    }
+}
@@ -4,34 +4,240 @@ import com.neovisionaries.i18n.CountryCode;
 import com.wrapper.spotify.SpotifyApi;
 import com.wrapper.spotify.SpotifyHttpManager;
 import com.wrapper.spotify.enums.ModelObjectType;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.BadGatewayException;
+import com.wrapper.spotify.exceptions.detailed.InternalServerErrorException;
+import com.wrapper.spotify.exceptions.detailed.ServiceUnavailableException;
+import com.wrapper.spotify.exceptions.detailed.TooManyRequestsException;
 import com.wrapper.spotify.model_objects.AbstractModelObject;
 import com.wrapper.spotify.model_objects.specification.*;
+import com.wrapper.spotify.requests.IRequest;
 import com.wrapper.spotify.requests.data.AbstractDataRequest;
 import org.apache.hc.core5.http.ParseException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+import spotifyCliJava.facade.EndpointGuard;
+import spotifyCliJava.facade.MutationBatcher;
+import spotifyCliJava.facade.RequestHedger;
+import spotifyCliJava.localStore.LocalStore;
+import spotifyCliJava.localStore.MembershipIndex;
+import spotifyCliJava.localStore.MutationJournal;
+import spotifyCliJava.localStore.SearchIndex;
+import spotifyCliJava.localStore.StoreEntry;
+import spotifyCliJava.metrics.JfrEvents;
+import spotifyCliJava.metrics.RequestMetrics;
+import spotifyCliJava.utility.Deadline;
+import spotifyCliJava.utility.DeadlineExceededException;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * A wrapper class around this wrapper https://github.com/spotify-web-api-java/spotify-web-api-java
  */
 public class SpotifyFacade {
     private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.SpotifyFacade");
+    // How many results to ask Spotify's search endpoint for when resolving a name
+    private static final int SEARCH_LIMIT = 10;
 
     public SpotifyApi spotifyApi;
+    private final LocalStore localStore;
+    private final SearchIndex searchIndex;
+    private final MembershipIndex membershipIndex;
+    private final MutationJournal mutationJournal;
+
+    // Bounds every request made through the facade; see send()
+    private volatile Deadline deadline = Deadline.NONE;
+    private final AtomicInteger deadlineMisses = new AtomicInteger();
+    private volatile ExecutorService requestExecutor;
+    // Null unless hedging is on
+    private volatile RequestHedger hedger;
+    // Null for no bulkheads or circuit breakers
+    private volatile EndpointGuard endpointGuard;
+    // Null unless metrics are being collected
+    private volatile RequestMetrics metrics;
 
     public SpotifyFacade(SpotifyApi spotifyApi) {
+        this(spotifyApi, null);
+    }
+
+    /**
+     * @param spotifyApi An authenticated SpotifyApi object, or null to run in offline mode
+     * @param localStore Every successful response is mirrored into this store, and read back from it when offline
+     *                   or when Spotify cannot be reached. May be null to disable the store entirely.
+     */
+    public SpotifyFacade(SpotifyApi spotifyApi, LocalStore localStore) {
         this.spotifyApi = spotifyApi;
+        this.localStore = localStore;
+        this.searchIndex = localStore == null ? null : new SearchIndex(localStore);
+        this.membershipIndex = localStore == null ? null : new MembershipIndex(localStore);
+        this.mutationJournal = localStore == null ? null : new MutationJournal(localStore);
+    }
+
+    /**
+     * Once 'deadline' has passed, requests are no longer sent, and those in flight are abandoned; both fail with a
+     * DeadlineExceededException, so reads fall back to the local store where they can.
+     */
+    public SpotifyFacade withDeadline(@NotNull Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Hedge slow GETs with 'hedger' (null to stop hedging); see RequestHedger
+     */
+    public SpotifyFacade withHedging(@Nullable RequestHedger hedger) {
+        this.hedger = hedger;
+        return this;
+    }
+
+    @Nullable
+    public RequestHedger getHedger() {
+        return hedger;
+    }
+
+    /**
+     * Send every request through 'guard', a bulkhead and circuit breaker per endpoint family; see EndpointGuard
+     */
+    public SpotifyFacade withEndpointGuard(@Nullable EndpointGuard guard) {
+        this.endpointGuard = guard;
+        return this;
+    }
+
+    @Nullable
+    public EndpointGuard getEndpointGuard() {
+        return endpointGuard;
+    }
+
+    /**
+     * Record every request's timings, and how reads were answered, in 'metrics'; see RequestMetrics
+     */
+    public SpotifyFacade withMetrics(@Nullable RequestMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    @Nullable
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return How many requests were cut short by the deadline; if any were, the command's results are incomplete
+     */
+    public int deadlineMisses() {
+        return deadlineMisses.get();
+    }
+
+    @Nullable
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    @Nullable
+    public MembershipIndex getMembershipIndex() {
+        return membershipIndex;
+    }
+
+    /**
+     * Library changes that could not be sent (offline, rate limited, network trouble) are queued here,
+     * and applied by JournalReplayer on a later run
+     */
+    @Nullable
+    public MutationJournal getMutationJournal() {
+        return mutationJournal;
+    }
+
+    /**
+     * Resolve the name of an item to its Spotify ID.
+     *
+     * The local search index is tried first; an item whose name contains every word of 'name' is taken as a match.
+     * Otherwise (when online) Spotify's search endpoint is used, and its results are cached in the local store
+     * and added to the index, so the same name resolves locally next time.
+     *
+     * @return The ID of the best match, or null if nothing matched
+     */
+    @Nullable
+    public String resolveItemID(@NotNull String itemType, @NotNull String name) {
+        if (searchIndex != null) {
+            SearchIndex.Match match = searchIndex.bestExactMatch(itemType, name);
+            if (match != null) {
+                logger.info("Resolved \"" + name + "\" to " + itemType + " " + match.document.itemID + " using the local index");
+                return match.document.itemID;
+            }
+        }
+
+        String storeKey = LocalStore.searchKey(itemType, name);
+        StoreEntry cached = localStore == null ? null : localStore.get(storeKey);
+        String json = cached == null ? null : cached.getJson();
+        recordCache(json == null ? RequestMetrics.Cache.MISS : RequestMetrics.Cache.HIT);
+        if (json == null) {
+            if (isOffline()) {
+                var msg = "No " + itemType + " named \"" + name + "\" in the local store";
+                logger.error(msg);
+                System.err.println(msg);
+                return null;
+            }
+            json = trySearchRequest(itemType, name);
+            if (json == null)
+                return null;
+            if (localStore != null)
+                localStore.put(storeKey, json);
+        }
+
+        // Search results look like: { "artists": { "items": [ ... ] } }
+        JsonObject results = JsonParser.parseString(json).getAsJsonObject().getAsJsonObject(itemType + "s");
+        var documents = new ArrayList<SearchIndex.Document>();
+        for (JsonElement element : results.getAsJsonArray("items")) {
+            if (!element.isJsonObject())
+                continue;
+            SearchIndex.Document document = SearchIndex.documentFor(itemType, element.getAsJsonObject());
+            if (document != null)
+                documents.add(document);
+        }
+        if (documents.isEmpty()) {
+            var msg = "Spotify has no " + itemType + " named \"" + name + "\"";
+            logger.error(msg);
+            System.err.println(msg);
+            return null;
+        }
+        if (searchIndex != null)
+            searchIndex.add(documents);
+        return documents.get(0).itemID;
+    }
+
+    /**
+     * In offline mode all data is served from the local store, no requests are made to Spotify.
+     */
+    public boolean isOffline() {
+        return spotifyApi == null;
     }
 
     @Nullable
     public AbstractModelObject getItem(@NotNull String itemType, @NotNull String itemID) {
+        String storeKey = LocalStore.itemKey(itemType, itemID);
+        if (isOffline())
+            return loadFromStore(storeKey, itemParser(itemType), itemType);
+
         AbstractDataRequest request = null;
         switch (itemType) {
             case "album":
@@ -52,6 +258,9 @@ public class SpotifyFacade {
             case "episode":
                 request = spotifyApi.getEpisode(itemID).build();
                 break;
+            case "user":
+                request = spotifyApi.getUsersProfile(itemID).build();
+                break;
             default:
                 var msg = "Item type not recognized: " + itemType;
                 logger.error(msg);
@@ -59,7 +268,7 @@ public class SpotifyFacade {
                 break;
         }
         if (request != null)
-            return tryDataRequest(request);
+            return tryDataRequest(request, storeKey, itemParser(itemType), itemType, json -> indexItem(itemType, json));
         else
             return null;
     }
@@ -70,57 +279,391 @@ public class SpotifyFacade {
      */
     @Nullable
     public AbstractModelObject getUserCollection(@NotNull String itemType, int limit, int offset, CountryCode market) {
-        AbstractDataRequest request = null;
+        // Followed artists are cursor based, the offset is never sent; only the first page can be had from here
+        if (itemType.equals("artist"))
+            return getFollowedArtists(limit, null);
+
+        String storeKey = LocalStore.collectionKey(itemType, limit, offset);
+        if (isOffline())
+            return loadFromStore(storeKey, collectionParser(itemType), itemType);
+
+        AbstractDataRequest request = userCollectionRequest(itemType, limit, offset, market);
+        if (request != null) {
+            return tryDataRequest(request, storeKey, collectionParser(itemType), itemType,
+                    json -> mirrorCollectionItems(itemType, json));
+        }
+        return null;
+    }
+
+    /**
+     * The raw JSON of one page of a user collection, as Spotify returned it. Unlike getUserCollection() this never
+     * falls back to the local store, and failures are left to the caller; for when stale data would be wrong (EX: backups).
+     * The page is still mirrored into the local store.
+     *
+     * @param after For followed artists (cursor based): the 'after' cursor of the previous page, or null for the first
+     */
+    @NotNull
+    public String fetchUserCollectionJson(@NotNull String itemType, int limit, int offset, @Nullable String after, CountryCode market)
+            throws IOException, SpotifyWebApiException, ParseException {
+        if (isOffline())
+            throw new IOException("Can't fetch from Spotify in offline mode");
+        AbstractDataRequest request;
+        String storeKey;
+        if (itemType.equals("artist")) {
+            var builder = spotifyApi.getUsersFollowedArtists(ModelObjectType.ARTIST).limit(limit);
+            if (after != null)
+                builder.after(after);
+            request = builder.build();
+            storeKey = LocalStore.cursorKey(itemType, limit, after);
+        } else {
+            request = userCollectionRequest(itemType, limit, offset, market);
+            storeKey = LocalStore.collectionKey(itemType, limit, offset);
+        }
+        if (request == null)
+            throw new IllegalArgumentException("Item type not recognized: " + itemType);
+        String json = sendGet(request);
+        if (localStore != null) {
+            localStore.put(storeKey, json);
+            mirrorCollectionItems(itemType, json);
+        }
+        return json;
+    }
+
+    /**
+     * One page of a user collection, fetched as fetchUserCollectionJson() does (never from the local store)
+     *
+     * @return A Paging or PagingCursorbased object, as getUserCollection()
+     */
+    @NotNull
+    public AbstractModelObject fetchUserCollection(@NotNull String itemType, int limit, int offset, @Nullable String after, CountryCode market)
+            throws IOException, SpotifyWebApiException, ParseException {
+        return collectionParser(itemType).apply(fetchUserCollectionJson(itemType, limit, offset, after, market));
+    }
+
+    /**
+     * The raw JSON of one page of a playlist's items; see fetchUserCollectionJson()
+     */
+    @NotNull
+    public String fetchPlaylistItemsJson(@NotNull String playlistID, int limit, int offset, CountryCode market)
+            throws IOException, SpotifyWebApiException, ParseException {
+        if (isOffline())
+            throw new IOException("Can't fetch from Spotify in offline mode");
+        String json = sendGet(spotifyApi.getPlaylistsItems(playlistID).limit(limit).offset(offset).market(market).build());
+        if (localStore != null)
+            localStore.put(LocalStore.childKey("playlist", playlistID, limit, offset), json);
+        return json;
+    }
+
+    /**
+     * One page of the tracks and episodes in a playlist
+     */
+    @Nullable
+    public Paging<PlaylistTrack> getPlaylistItems(@NotNull String playlistID, int limit, int offset, CountryCode market) {
+        String storeKey = LocalStore.childKey("playlist", playlistID, limit, offset);
+        Function<String, AbstractModelObject> parser = json -> new PlaylistTrack.JsonUtil().createModelObjectPaging(json);
+        AbstractModelObject page = isOffline()
+                ? loadFromStore(storeKey, parser, "playlist")
+                : tryDataRequest(spotifyApi.getPlaylistsItems(playlistID).limit(limit).offset(offset).market(market).build(),
+                storeKey, parser, "playlist", null);
+        @SuppressWarnings("unchecked")
+        var items = (Paging<PlaylistTrack>) page;
+        return items;
+    }
+
+    /**
+     * One page of the tracks on an album
+     */
+    @Nullable
+    public Paging<TrackSimplified> getAlbumTracks(@NotNull String albumID, int limit, int offset, CountryCode market) {
+        String storeKey = LocalStore.childKey("album", albumID, limit, offset);
+        Function<String, AbstractModelObject> parser = json -> new TrackSimplified.JsonUtil().createModelObjectPaging(json);
+        AbstractModelObject page = isOffline()
+                ? loadFromStore(storeKey, parser, "album")
+                : tryDataRequest(spotifyApi.getAlbumsTracks(albumID).limit(limit).offset(offset).market(market).build(),
+                storeKey, parser, "album", null);
+        @SuppressWarnings("unchecked")
+        var tracks = (Paging<TrackSimplified>) page;
+        return tracks;
+    }
+
+    /**
+     * The ISRC of each track: the code of the recording, shared by every release of it (single, album, compilation).
+     * Tracks already in the local store are answered from there; the rest are fetched with one several-tracks
+     * request, and stored.
+     *
+     * @param trackIDs At most 50
+     * @return The ISRC of each track, in the same order; null where it isn't known. Null if the request failed.
+     */
+    @Nullable
+    public String[] getTrackIsrcs(@NotNull String[] trackIDs, CountryCode market) {
+        var isrcs = new String[trackIDs.length];
+        // Indices into trackIDs
+        var missing = new ArrayList<Integer>();
+        for (int i = 0; i < trackIDs.length; i++) {
+            StoreEntry cached = localStore == null ? null : localStore.get(LocalStore.itemKey("track", trackIDs[i]));
+            if (cached != null && cached.getJson() != null)
+                isrcs[i] = isrcOf(JsonParser.parseString(cached.getJson()).getAsJsonObject());
+            if (isrcs[i] == null)
+                missing.add(i);
+            recordCache(isrcs[i] == null ? RequestMetrics.Cache.MISS : RequestMetrics.Cache.HIT);
+        }
+        if (missing.isEmpty() || isOffline())
+            return isrcs;
+
+        var ids = new String[missing.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = trackIDs[missing.get(i)];
+        try {
+            String json = sendGet(spotifyApi.getSeveralTracks(ids).market(market).build());
+            // EX: { "tracks": [ { "id": ..., "external_ids": { "isrc": ... } }, null, ... ] }, in the order asked for.
+            // Matched by position: with a market Spotify may answer with another release of the track, whose "id"
+            // isn't the one asked for (that one is then in "linked_from").
+            JsonArray tracks = JsonParser.parseString(json).getAsJsonObject().getAsJsonArray("tracks");
+            for (int i = 0; i < ids.length && i < tracks.size(); i++) {
+                JsonElement element = tracks.get(i);
+                if (!element.isJsonObject() || !element.getAsJsonObject().has("id"))
+                    continue;
+                JsonObject track = element.getAsJsonObject();
+                isrcs[missing.get(i)] = isrcOf(track);
+                if (localStore != null)
+                    localStore.put(LocalStore.itemKey("track", track.get("id").getAsString()), track.toString());
+            }
+        } catch (IOException | SpotifyWebApiException | ParseException e) {
+            logger.error(e.getMessage());
+            System.err.println(e.getMessage());
+            return null;
+        }
+        return isrcs;
+    }
+
+    @Nullable
+    private static String isrcOf(@NotNull JsonObject track) {
+        JsonElement externalIDs = track.get("external_ids");
+        if (externalIDs == null || !externalIDs.isJsonObject())
+            return null;
+        JsonElement isrc = externalIDs.getAsJsonObject().get("isrc");
+        return isrc == null || isrc.isJsonNull() ? null : isrc.getAsString();
+    }
+
+    /**
+     * Followed artists are paged with a cursor rather than an offset: pass in the 'after' cursor of the
+     * previous page (PagingCursorbased.getCursors()), or null for the first page.
+     */
+    @Nullable
+    public PagingCursorbased<Artist> getFollowedArtists(int limit, @Nullable String after) {
+        String storeKey = LocalStore.cursorKey("artist", limit, after);
+        AbstractModelObject page;
+        if (isOffline()) {
+            page = loadFromStore(storeKey, collectionParser("artist"), "artist");
+        } else {
+            var builder = spotifyApi.getUsersFollowedArtists(ModelObjectType.ARTIST).limit(limit);
+            if (after != null)
+                builder.after(after);
+            page = tryDataRequest(builder.build(), storeKey, collectionParser("artist"), "artist",
+                    json -> mirrorCollectionItems("artist", json));
+        }
+        @SuppressWarnings("unchecked")
+        var artists = (PagingCursorbased<Artist>) page;
+        return artists;
+    }
+
+    /**
+     * The playlist's current snapshot_id, asked of Spotify; never read from the local store, which may be behind
+     *
+     * @return The snapshot_id, or null if the request failed (the error has been reported)
+     */
+    @Nullable
+    public String getPlaylistSnapshotID(@NotNull String playlistID) {
+        if (!canWrite())
+            return null;
+        try {
+            return send(spotifyApi.getPlaylist(playlistID).fields("snapshot_id").build()).getSnapshotId();
+        } catch (IOException | SpotifyWebApiException | ParseException e) {
+            logger.error(e.getMessage());
+            System.err.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Add items to a playlist in one request (at most 100, Spotify's limit). Failures are left to the caller to report,
+     * or to queue with queueFailedMutations().
+     *
+     * @param uris     EX: "spotify:track:3jOstUTkEu2JkjvRdBA5Gu"
+     * @param position Where to insert the items, or null to append them
+     * @return The playlist's new snapshot_id
+     */
+    public String sendPlaylistAdd(@NotNull String playlistID, @NotNull String[] uris, @Nullable Integer position)
+            throws IOException, SpotifyWebApiException, ParseException {
+        if (isOffline())
+            throw new IOException("Can't modify your library in offline mode");
+        var builder = spotifyApi.addItemsToPlaylist(playlistID, uris);
+        if (position != null)
+            builder.position(position);
+        return send(builder.build()).getSnapshotId();
+    }
+
+    /**
+     * Remove every occurrence of the items from a playlist in one request (at most 100, Spotify's limit).
+     * Failures are left to the caller to report, or to queue with queueFailedMutations().
+     *
+     * @param snapshotID The snapshot the removal is meant for, or null for the latest. Spotify doesn't check it
+     *                   when removing by URI, see PlaylistCollection.withSnapshotID()
+     * @return The playlist's new snapshot_id
+     */
+    public String sendPlaylistRemove(@NotNull String playlistID, @NotNull String[] uris, @Nullable String snapshotID)
+            throws IOException, SpotifyWebApiException, ParseException {
+        if (isOffline())
+            throw new IOException("Can't modify your library in offline mode");
+        var tracks = new JsonArray();
+        for (String uri : uris) {
+            var track = new JsonObject();
+            track.addProperty("uri", uri);
+            tracks.add(track);
+        }
+        var builder = spotifyApi.removeItemsFromPlaylist(playlistID, tracks);
+        if (snapshotID != null)
+            builder.snapshotId(snapshotID);
+        return send(builder.build()).getSnapshotId();
+    }
+
+    /**
+     * Save items to (or remove them from) the user's library in one request; for artists this follows/unfollows them.
+     * At most 50 IDs per request, Spotify's limit. If the request fails in a way worth retrying, the change is
+     * queued in the journal (see queueFailedMutations()).
+     *
+     * @param itemType 'album', 'track', 'show', 'artist' or 'user'
+     */
+    public MutationBatcher.Outcome updateLibrary(@NotNull String itemType, @NotNull String[] ids, boolean remove) {
+        try {
+            sendLibraryUpdate(itemType, ids, remove);
+            return MutationBatcher.Outcome.SENT;
+        } catch (IOException | SpotifyWebApiException | ParseException | IllegalArgumentException e) {
+            var mutations = new ArrayList<MutationJournal.Mutation>();
+            for (String id : ids)
+                mutations.add(new MutationJournal.Mutation(!remove, itemType, id));
+            return queueFailedMutations(mutations, e) ? MutationBatcher.Outcome.QUEUED : MutationBatcher.Outcome.FAILED;
+        }
+    }
+
+    /**
+     * Report a mutation request that failed. If it's worth retrying (offline, network trouble, rate limiting or a
+     * server error), its mutations are durably queued in the journal too, and JournalReplayer applies them on a
+     * later run. A request that may have reached Spotify is journaled as possibly applied, so replaying it is checked
+     * against the playlist first.
+     *
+     * @return True if the mutations were queued, false if they failed for good (or the journal couldn't be written)
+     */
+    public boolean queueFailedMutations(@NotNull List<MutationJournal.Mutation> mutations, @NotNull Exception e) {
+        logger.error(e.getMessage());
+        System.err.println(e.getMessage());
+        if (!isRetryable(e) || mutations.isEmpty())
+            return false;
+        try {
+            if (mutationJournal == null)
+                throw new IOException("no local store to queue changes in");
+            long[] seqs = mutationJournal.append(mutations);
+            // Offline, or rate limited, the request was never acted on
+            if (!isOffline() && !(e instanceof TooManyRequestsException)) {
+                var sent = new ArrayList<Long>(seqs.length);
+                for (long seq : seqs)
+                    sent.add(seq);
+                mutationJournal.markSending(sent);
+            }
+        } catch (IOException journalError) {
+            var msg = "Could not queue " + mutations.size() + " changes: " + journalError.getMessage();
+            logger.error(msg);
+            System.err.println(msg);
+            return false;
+        }
+        var msg = "Queued " + mutations.size() + " changes in " + mutationJournal.getJournalPath()
+                + ", they are applied on the next run that goes online, or with 'journal flush'";
+        logger.info(msg);
+        System.err.println(msg);
+        return true;
+    }
+
+    /**
+     * @return True if a request that failed with 'e' is worth sending again later, as opposed to Spotify rejecting
+     * the request itself
+     */
+    public static boolean isRetryable(@NotNull Exception e) {
+        return e instanceof IOException || e instanceof TooManyRequestsException || e instanceof InternalServerErrorException
+                || e instanceof BadGatewayException || e instanceof ServiceUnavailableException;
+    }
+
+    /**
+     * Like updateLibrary(), but leaves reporting failures to the caller
+     *
+     * @throws IllegalArgumentException If 'itemType' can't be saved/followed
+     */
+    public void sendLibraryUpdate(@NotNull String itemType, @NotNull String[] ids, boolean remove)
+            throws IOException, SpotifyWebApiException, ParseException {
+        if (isOffline())
+            throw new IOException("Can't modify your library in offline mode");
+        IRequest<?> request;
         switch (itemType) {
             case "album":
-                request = spotifyApi.getCurrentUsersSavedAlbums()
-                        .limit(limit)
-                        .offset(offset)
-                        .market(market)
-                        .build();
-                break;
-            case "artist":
-                request = spotifyApi.getUsersFollowedArtists(ModelObjectType.ARTIST)
-                        .limit(limit)
-                        .build();
-                break;
-            case "playlist":
-                request = spotifyApi.getListOfCurrentUsersPlaylists()
-                        .limit(limit)
-                        .offset(offset)
-                        .build();
+                request = remove ? spotifyApi.removeAlbumsForCurrentUser(ids).build() : spotifyApi.saveAlbumsForCurrentUser(ids).build();
                 break;
             case "track":
-                request = spotifyApi.getUsersSavedTracks()
-                        .limit(limit)
-                        .offset(offset)
-                        .market(market)
-                        .build();
+                request = remove ? spotifyApi.removeUsersSavedTracks(ids).build() : spotifyApi.saveTracksForUser(ids).build();
                 break;
             case "show":
-                request = spotifyApi.getUsersSavedShows()
-                        .limit(limit)
-                        .offset(offset)
-                        .build();
+                request = remove ? spotifyApi.removeUsersSavedShows(ids).build() : spotifyApi.saveShowsForCurrentUser(ids).build();
                 break;
-            case "episode":
-                System.err.println("No support in the Spotify Wrapper for getting a users saved episodes!");
-                logger.error("No support in the Spotify Wrapper for getting a users saved episodes!");
+            case "artist":
+            case "user":
+                var type = itemType.equals("artist") ? ModelObjectType.ARTIST : ModelObjectType.USER;
+                request = remove ? spotifyApi.unfollowArtistsOrUsers(type, ids).build()
+                        : spotifyApi.followArtistsOrUsers(type, ids).build();
                 break;
             default:
-                var msg = "Item type not recognized: " + itemType;
-                logger.error(msg);
-                System.err.println(msg);
-                break;
-        }
-        if (request != null) {
-            return tryDataRequest(request);
+                throw new IllegalArgumentException("Saving/following is not supported for: " + itemType);
         }
-        return null;
+        send(request);
+    }
+
+    /**
+     * Follow or unfollow one playlist; Spotify has no endpoint for doing several at once.
+     * Failures are left to the caller to report.
+     *
+     * @param publicFollow Whether the followed playlist shows on the user's profile (ignored when unfollowing)
+     */
+    public void sendPlaylistFollow(@NotNull String playlistID, boolean unfollow, boolean publicFollow)
+            throws IOException, SpotifyWebApiException, ParseException {
+        if (isOffline())
+            throw new IOException("Can't modify your library in offline mode");
+        if (unfollow)
+            send(spotifyApi.unfollowPlaylist(playlistID).build());
+        else
+            send(spotifyApi.followPlaylist(playlistID, publicFollow).build());
+    }
+
+    // For requests that only make sense against what Spotify holds right now
+    private boolean canWrite() {
+        if (!isOffline())
+            return true;
+        var msg = "Can't modify your library in offline mode";
+        logger.error(msg);
+        System.err.println(msg);
+        return false;
     }
 
     @Nullable
     public String itemToPrettyString(@NotNull AbstractModelObject obj) {
+        var event = new JfrEvents.Render();
+        event.begin();
+        String repr = renderItem(obj);
+        if (event.shouldCommit()) {
+            event.itemType = obj.getClass().getSimpleName();
+            event.length = repr == null ? 0 : repr.length();
+            event.commit();
+        }
+        return repr;
+    }
+
+    private String renderItem(@NotNull AbstractModelObject obj) {
         String repr = null;
         var itemType = obj.getClass().getSimpleName();
         String addedAt = null;
@@ -131,14 +674,15 @@ public class SpotifyFacade {
             case "Album":
                 var album = (Album) obj;
                 repr = "Name: " + album.getName();
-                //TODO: Fix artist printing, Artists here, is a sub object. Just get artist name
-                //repr += "\nArtists: " + Arrays.toString(Arrays.stream(album.getArtists().);
+                repr += "\nArtists: " + artistNames(album.getArtists());
                 repr += "\nID: " + album.getId();
-                repr += "\nLink: " + album.getExternalUrls().getExternalUrls().get("spotify");
+                repr += "\nLink: " + spotifyLink(album.getExternalUrls());
                 repr += "\nGenres: " + Arrays.toString(album.getGenres());
                 repr += "\nType: " + album.getAlbumType();
                 repr += "\nLabel: " + album.getLabel();
                 repr += "\nRelease date: " + album.getReleaseDate();
+                if (album.getTracks() != null)
+                    repr += "\nTracks: " + album.getTracks().getTotal();
                 if (addedAt != null)
                     repr += "\nAdded at: " + addedAt;
                 break;
@@ -146,29 +690,68 @@ public class SpotifyFacade {
                 var artist = (Artist) obj;
                 repr = "Name: " + artist.getName();
                 repr += "\nID: " + artist.getId();
-                repr += "\nLink: " + artist.getExternalUrls().getExternalUrls().get("spotify");
+                repr += "\nLink: " + spotifyLink(artist.getExternalUrls());
                 repr += "\nGenres: " + Arrays.toString(artist.getGenres());
-                repr += "\nFollowers: " + artist.getFollowers().getTotal().toString();
+                repr += "\nFollowers: " + (artist.getFollowers() == null ? "?" : artist.getFollowers().getTotal());
                 break;
             case "Playlist":
-                // TODO: Implement nice looking string for humans to read
                 var playlist = (Playlist) obj;
-                repr = obj.toString();
+                repr = "Name: " + playlist.getName();
+                repr += "\nOwner: " + (playlist.getOwner() == null ? "?" : userName(playlist.getOwner()));
+                repr += "\nID: " + playlist.getId();
+                repr += "\nLink: " + spotifyLink(playlist.getExternalUrls());
+                if (playlist.getDescription() != null && !playlist.getDescription().isEmpty())
+                    repr += "\nDescription: " + playlist.getDescription();
+                repr += "\nTracks: " + (playlist.getTracks() == null ? "?" : playlist.getTracks().getTotal());
+                repr += "\nFollowers: " + (playlist.getFollowers() == null ? "?" : playlist.getFollowers().getTotal());
+                repr += "\nPublic: " + playlist.getIsPublicAccess();
+                repr += "\nCollaborative: " + playlist.getIsCollaborative();
+                repr += "\nSnapshot ID: " + playlist.getSnapshotId();
                 break;
+            case "SavedTrack":
+                addedAt = ((SavedTrack) obj).getAddedAt().toString();
+                obj = ((SavedTrack) obj).getTrack();
             case "Track":
-                // TODO: Implement nice looking string for humans to read
                 var track = (Track) obj;
-                repr = obj.toString();
+                repr = "Name: " + track.getName();
+                repr += "\nArtists: " + artistNames(track.getArtists());
+                repr += "\nAlbum: " + (track.getAlbum() == null ? "?" : track.getAlbum().getName());
+                repr += "\nID: " + track.getId();
+                repr += "\nLink: " + spotifyLink(track.getExternalUrls());
+                repr += "\nDuration: " + formatDuration(track.getDurationMs());
+                repr += "\nTrack number: " + track.getTrackNumber() + " (disc " + track.getDiscNumber() + ")";
+                repr += "\nExplicit: " + track.getIsExplicit();
+                repr += "\nPopularity: " + track.getPopularity();
+                if (addedAt != null)
+                    repr += "\nAdded at: " + addedAt;
                 break;
             case "Show":
-                // TODO: Implement nice looking string for humans to read
                 var show = (Show) obj;
-                repr = obj.toString();
+                repr = "Name: " + show.getName();
+                repr += "\nPublisher: " + show.getPublisher();
+                repr += "\nID: " + show.getId();
+                repr += "\nLink: " + spotifyLink(show.getExternalUrls());
+                repr += "\nDescription: " + show.getDescription();
+                repr += "\nEpisodes: " + (show.getEpisodes() == null ? "?" : show.getEpisodes().getTotal());
+                repr += "\nExplicit: " + show.getExplicit();
                 break;
             case "Episode":
-                // TODO: Implement nice looking string for humans to read
                 var episode = (Episode) obj;
-                repr = obj.toString();
+                repr = "Name: " + episode.getName();
+                repr += "\nShow: " + (episode.getShow() == null ? "?" : episode.getShow().getName());
+                repr += "\nID: " + episode.getId();
+                repr += "\nLink: " + spotifyLink(episode.getExternalUrls());
+                repr += "\nRelease date: " + episode.getReleaseDate();
+                repr += "\nDuration: " + formatDuration(episode.getDurationMs());
+                repr += "\nDescription: " + episode.getDescription();
+                repr += "\nExplicit: " + episode.getExplicit();
+                break;
+            case "User":
+                var user = (User) obj;
+                repr = "Name: " + userName(user);
+                repr += "\nID: " + user.getId();
+                repr += "\nLink: " + spotifyLink(user.getExternalUrls());
+                repr += "\nFollowers: " + (user.getFollowers() == null ? "?" : user.getFollowers().getTotal());
                 break;
             default:
                 var msg = itemType + " is not recognized as a valid item type.";
@@ -179,6 +762,28 @@ public class SpotifyFacade {
         return repr;
     }
 
+    public static String artistNames(@Nullable ArtistSimplified[] artists) {
+        if (artists == null)
+            return "?";
+        return String.join(", ", Arrays.stream(artists).map(ArtistSimplified::getName).toArray(String[]::new));
+    }
+
+    public static String formatDuration(@Nullable Integer durationMs) {
+        if (durationMs == null)
+            return "?";
+        int seconds = durationMs / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private static String userName(@NotNull User user) {
+        return user.getDisplayName() != null ? user.getDisplayName() : user.getId();
+    }
+
+    @Nullable
+    private static String spotifyLink(@Nullable ExternalUrl externalUrl) {
+        return externalUrl == null || externalUrl.getExternalUrls() == null ? null : externalUrl.getExternalUrls().get("spotify");
+    }
+
     @Nullable
     public String collectionToPrettyString(@NotNull AbstractModelObject obj) {
         String repr = "";
@@ -204,15 +809,393 @@ public class SpotifyFacade {
     }
 
     @Nullable
-    private AbstractModelObject tryDataRequest(@NotNull AbstractDataRequest request) {
+    private AbstractDataRequest userCollectionRequest(@NotNull String itemType, int limit, int offset, CountryCode market) {
+        switch (itemType) {
+            case "album":
+                return spotifyApi.getCurrentUsersSavedAlbums()
+                        .limit(limit)
+                        .offset(offset)
+                        .market(market)
+                        .build();
+            case "playlist":
+                return spotifyApi.getListOfCurrentUsersPlaylists()
+                        .limit(limit)
+                        .offset(offset)
+                        .build();
+            case "track":
+                return spotifyApi.getUsersSavedTracks()
+                        .limit(limit)
+                        .offset(offset)
+                        .market(market)
+                        .build();
+            case "show":
+                return spotifyApi.getUsersSavedShows()
+                        .limit(limit)
+                        .offset(offset)
+                        .build();
+            case "episode":
+                System.err.println("No support in the Spotify Wrapper for getting a users saved episodes!");
+                logger.error("No support in the Spotify Wrapper for getting a users saved episodes!");
+                return null;
+            default:
+                var msg = "Item type not recognized: " + itemType;
+                logger.error(msg);
+                System.err.println(msg);
+                return null;
+        }
+    }
+
+    @Nullable
+    private String trySearchRequest(@NotNull String itemType, @NotNull String query) {
+        AbstractDataRequest request = null;
+        switch (itemType) {
+            case "album":
+                request = spotifyApi.searchAlbums(query).limit(SEARCH_LIMIT).build();
+                break;
+            case "artist":
+                request = spotifyApi.searchArtists(query).limit(SEARCH_LIMIT).build();
+                break;
+            case "playlist":
+                request = spotifyApi.searchPlaylists(query).limit(SEARCH_LIMIT).build();
+                break;
+            case "track":
+                request = spotifyApi.searchTracks(query).limit(SEARCH_LIMIT).build();
+                break;
+            case "show":
+                request = spotifyApi.searchShows(query).limit(SEARCH_LIMIT).build();
+                break;
+            case "episode":
+                request = spotifyApi.searchEpisodes(query).limit(SEARCH_LIMIT).build();
+                break;
+            default:
+                var msg = "Item type not recognized: " + itemType;
+                logger.error(msg);
+                System.err.println(msg);
+                return null;
+        }
+        try {
+            return sendGet(request);
+        } catch (IOException | SpotifyWebApiException | ParseException e) {
+            logger.error(e.getMessage());
+            System.err.println(e.getMessage());
+            return null;
+        }
+    }
+
+    private interface SpotifyCall<T> {
+        T run() throws IOException, SpotifyWebApiException, ParseException;
+    }
+
+    /**
+     * Every request to Spotify goes through here. Without a deadline the request runs on the calling thread;
+     * with one, it runs on a request thread that is interrupted and abandoned if the deadline passes first.
+     */
+    private <T> T send(IRequest<T> request) throws IOException, SpotifyWebApiException, ParseException {
+        return send(request.getUri(), request::execute, true);
+    }
+
+    /**
+     * @param parsesResponse Whether 'call' parses the response itself (so its time beyond the network is parsing)
+     */
+    private <T> T send(URI uri, SpotifyCall<T> call, boolean parsesResponse) throws IOException, SpotifyWebApiException, ParseException {
+        RequestMetrics currentMetrics = metrics;
+        RequestMetrics.Sample sample = currentMetrics == null ? null : currentMetrics.begin(RequestHedger.endpointOf(uri));
+        try {
+            SpotifyCall<T> guarded = guarded(uri, metered(sample, call, parsesResponse));
+            Deadline current = deadline;
+            if (!current.isBounded())
+                return guarded.run();
+            checkDeadline(current);
+            return awaitResponse(requestExecutor().submit(guarded::run), current);
+        } finally {
+            if (sample != null)
+                sample.done();
+        }
+    }
+
+    /**
+     * As send(), for GETs: these are idempotent, so with hedging on (see withHedging()) a slow one is sent twice
+     */
+    private String sendGet(AbstractDataRequest<?> request) throws IOException, SpotifyWebApiException, ParseException {
+        RequestHedger currentHedger = hedger;
+        if (currentHedger == null)
+            return send(request.getUri(), request::getJson, false);
+        String endpoint = RequestHedger.endpointOf(request.getUri());
+        RequestMetrics currentMetrics = metrics;
+        RequestMetrics.Sample sample = currentMetrics == null ? null : currentMetrics.begin(endpoint);
+        try {
+            Deadline current = deadline;
+            checkDeadline(current);
+            SpotifyCall<String> guarded = guarded(request.getUri(), metered(sample, request::getJson, false));
+            return awaitResponse(currentHedger.submit(endpoint, guarded::run, requestExecutor()), current);
+        } finally {
+            if (sample != null)
+                sample.done();
+        }
+    }
+
+    /**
+     * Mark when 'call' actually goes out (ending its time in the queue), and time its parsing; see RequestMetrics
+     */
+    private <T> SpotifyCall<T> metered(@Nullable RequestMetrics.Sample sample, SpotifyCall<T> call, boolean parsesResponse) {
+        if (sample == null)
+            return call;
+        return () -> {
+            sample.sending();
+            long networkBefore = RequestMetrics.networkNanosOnThread();
+            long start = System.nanoTime();
+            T result = call.run();
+            if (parsesResponse)
+                sample.parsed(System.nanoTime() - start - (RequestMetrics.networkNanosOnThread() - networkBefore));
+            return result;
+        };
+    }
+
+    /**
+     * Run 'call' inside its endpoint family's bulkhead and circuit breaker (see withEndpointGuard())
+     */
+    private <T> SpotifyCall<T> guarded(URI uri, SpotifyCall<T> call) {
+        EndpointGuard currentGuard = endpointGuard;
+        if (currentGuard == null)
+            return call;
+        String family = EndpointGuard.familyOf(uri);
+        return () -> {
+            try (EndpointGuard.Permit permit = currentGuard.acquire(family, deadline)) {
+                try {
+                    T result = call.run();
+                    permit.succeeded();
+                    return result;
+                } catch (TooManyRequestsException e) {
+                    permit.throttled(e.getRetryAfter());
+                    throw e;
+                } catch (InternalServerErrorException | BadGatewayException | ServiceUnavailableException e) {
+                    permit.failed();
+                    throw e;
+                } catch (SpotifyWebApiException e) {
+                    // Spotify answered, the endpoint itself is fine
+                    permit.succeeded();
+                    throw e;
+                } catch (DeadlineExceededException e) {
+                    // Cancelled on our side, which says nothing about the endpoint
+                    throw e;
+                } catch (InterruptedIOException e) {
+                    // A lost hedge is interrupted on our side too; a socket timeout is the endpoint being slow
+                    if (!Thread.currentThread().isInterrupted())
+                        permit.failed();
+                    throw e;
+                } catch (IOException e) {
+                    permit.failed();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private void checkDeadline(Deadline current) throws DeadlineExceededException {
+        if (current.isExpired()) {
+            deadlineMisses.incrementAndGet();
+            throw new DeadlineExceededException("Deadline exceeded, request not sent");
+        }
+    }
+
+    private <T> T awaitResponse(Future<T> future, Deadline current) throws IOException, SpotifyWebApiException, ParseException {
+        try {
+            if (!current.isBounded())
+                return future.get();
+            return future.get(current.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            deadlineMisses.incrementAndGet();
+            throw new DeadlineExceededException("Deadline exceeded, request abandoned");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Interrupted while waiting for Spotify");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof SpotifyWebApiException)
+                throw (SpotifyWebApiException) cause;
+            if (cause instanceof ParseException)
+                throw (ParseException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private ExecutorService requestExecutor() {
+        if (requestExecutor == null) {
+            synchronized (this) {
+                if (requestExecutor == null)
+                    requestExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("spotify-request"));
+            }
+        }
+        return requestExecutor;
+    }
+
+    /**
+     * Execute 'request', parse the response with 'parser' and mirror the raw JSON into the local store.
+     * 'onFetched' (if not null) is handed the raw JSON of every fresh response, after it has been stored.
+     *
+     * If Spotify could not be reached, is rate limiting us or is having server trouble, fall back to whatever
+     * copy of the data we have in the local store (stale-if-error), and tell the user how old it is.
+     */
+    @Nullable
+    private AbstractModelObject tryDataRequest(
+            @NotNull AbstractDataRequest request,
+            @NotNull String storeKey,
+            @NotNull Function<String, AbstractModelObject> parser,
+            @NotNull String itemType,
+            @Nullable Consumer<String> onFetched
+    ) {
         AbstractModelObject obj = null;
         try {
-            obj = (AbstractModelObject) request.execute();
+            String json = sendGet(request);
+            long parseStart = System.nanoTime();
+            obj = parser.apply(json);
+            recordCache(RequestMetrics.Cache.MISS);
+            RequestMetrics currentMetrics = metrics;
+            if (currentMetrics != null)
+                currentMetrics.parsed(RequestHedger.endpointOf(request.getUri()), System.nanoTime() - parseStart);
+            if (localStore != null) {
+                localStore.put(storeKey, json);
+                if (onFetched != null)
+                    onFetched.accept(json);
+            }
 
-        } catch (IOException | SpotifyWebApiException | ParseException e) {
+        } catch (IOException | TooManyRequestsException | InternalServerErrorException
+                | BadGatewayException | ServiceUnavailableException e) {
+            logger.error(e.getMessage());
+            System.err.println(e.getMessage());
+            obj = loadFromStore(storeKey, parser, itemType);
+        } catch (SpotifyWebApiException | ParseException e) {
             logger.error(e.getMessage());
             System.err.println(e.getMessage());
         }
         return obj;
     }
+
+    @Nullable
+    private AbstractModelObject loadFromStore(
+            @NotNull String storeKey,
+            @Nullable Function<String, AbstractModelObject> parser,
+            @NotNull String itemType
+    ) {
+        if (parser == null) {
+            var msg = "Item type not recognized: " + itemType;
+            logger.error(msg);
+            System.err.println(msg);
+            return null;
+        }
+        StoreEntry entry = localStore == null ? null : localStore.get(storeKey);
+        if (entry == null) {
+            var msg = "No cached data available for \"" + storeKey + "\"";
+            logger.error(msg);
+            System.err.println(msg);
+            return null;
+        }
+        // Offline, the store is the answer; otherwise it stands in for a failed request
+        recordCache(isOffline() ? RequestMetrics.Cache.HIT : RequestMetrics.Cache.STALE);
+        logger.info("Serving \"" + storeKey + "\" from the local store");
+        System.err.printf("Showing cached data from %s (%s old)%n", entry.getFetchedAtTimeStamp(), entry.getAgeString());
+        return parser.apply(entry.getJson());
+    }
+
+    private void recordCache(RequestMetrics.Cache outcome) {
+        RequestMetrics currentMetrics = metrics;
+        if (currentMetrics != null)
+            currentMetrics.cache(outcome);
+    }
+
+    /**
+     * Collection pages embed full album, track and artist objects; store each of those under its own item key
+     * as well, so 'info' can answer for anything that has been listed before, even while offline.
+     * Every item on the page (including simplified playlists and shows) is added to the search index.
+     */
+    private void mirrorCollectionItems(@NotNull String itemType, @NotNull String json) {
+        String nestedKey = null;
+        boolean storeItems = true;
+        switch (itemType) {
+            case "album":
+                nestedKey = "album";
+                break;
+            case "track":
+                nestedKey = "track";
+                break;
+            case "show":
+                nestedKey = "show";
+                // Saved shows come back as simplified objects, which can't stand in for the full item
+                storeItems = false;
+                break;
+            case "playlist":
+                storeItems = false;
+                break;
+        }
+        JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+        if (itemType.equals("artist"))
+            root = root.getAsJsonObject("artists");
+
+        var documents = new ArrayList<SearchIndex.Document>();
+        for (JsonElement element : root.getAsJsonArray("items")) {
+            JsonObject item = element.getAsJsonObject();
+            if (nestedKey != null)
+                item = item.getAsJsonObject(nestedKey);
+            if (item == null || !item.has("id") || item.get("id").isJsonNull())
+                continue;
+            if (storeItems)
+                localStore.put(LocalStore.itemKey(itemType, item.get("id").getAsString()), item.toString());
+            SearchIndex.Document document = SearchIndex.documentFor(itemType, item);
+            if (document != null)
+                documents.add(document);
+        }
+        searchIndex.add(documents);
+    }
+
+    private void indexItem(@NotNull String itemType, @NotNull String json) {
+        SearchIndex.Document document = SearchIndex.documentFor(itemType, JsonParser.parseString(json).getAsJsonObject());
+        if (document != null)
+            searchIndex.add(List.of(document));
+    }
+
+    @Nullable
+    private static Function<String, AbstractModelObject> itemParser(@NotNull String itemType) {
+        switch (itemType) {
+            case "album":
+                return json -> new Album.JsonUtil().createModelObject(json);
+            case "artist":
+                return json -> new Artist.JsonUtil().createModelObject(json);
+            case "playlist":
+                return json -> new Playlist.JsonUtil().createModelObject(json);
+            case "track":
+                return json -> new Track.JsonUtil().createModelObject(json);
+            case "show":
+                return json -> new Show.JsonUtil().createModelObject(json);
+            case "episode":
+                return json -> new Episode.JsonUtil().createModelObject(json);
+            case "user":
+                return json -> new User.JsonUtil().createModelObject(json);
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static Function<String, AbstractModelObject> collectionParser(@NotNull String itemType) {
+        switch (itemType) {
+            case "album":
+                return json -> new SavedAlbum.JsonUtil().createModelObjectPaging(json);
+            case "artist":
+                return json -> new Artist.JsonUtil().createModelObjectPagingCursorbased(json, "artists");
+            case "playlist":
+                return json -> new PlaylistSimplified.JsonUtil().createModelObjectPaging(json);
+            case "track":
+                return json -> new SavedTrack.JsonUtil().createModelObjectPaging(json);
+            case "show":
+                return json -> new SavedShow.JsonUtil().createModelObjectPaging(json);
+            default:
+                return null;
+        }
+    }
 }
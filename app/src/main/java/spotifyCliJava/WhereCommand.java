@@ -0,0 +1,141 @@
+package spotifyCliJava;
+
+import com.neovisionaries.i18n.CountryCode;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+import spotifyCliJava.facade.Items;
+import spotifyCliJava.facade.PlaylistCollection;
+import spotifyCliJava.facade.SpotifyId;
+import spotifyCliJava.facade.UserLibrary;
+import spotifyCliJava.localStore.MembershipIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Membership checks against every playlist in the library at once.
+ *
+ * Each playlist's contents are kept in the MembershipIndex, tagged with its snapshot_id. Listing the playlists
+ * tells us which snapshots have changed; only those playlists are paged through again, everything else is
+ * answered from the index without any further requests. A playlist that can't be paged through is reported and left
+ * out, never answered from an index of an older snapshot.
+ */
+@Command(
+        name = "where",
+        mixinStandardHelpOptions = true,
+        description = "Find which of your playlists contain each of the given tracks or episodes."
+)
+class WhereCommand implements Callable<Integer> {
+
+    @ParentCommand
+    private SpotifyCLI spotifyCLI;
+
+    @Parameters(arity = "0..*", description = "IDs of the tracks/episodes to look for. Read from stdin (one per line) if none are given, or for '-'")
+    private List<String> itemIDs;
+
+    @Option(names = {"-j", "--threads"}, defaultValue = "4", description = "How many playlists to re-index at once. DEFAULT = ${DEFAULT-VALUE}")
+    private int threads;
+
+    @Override
+    public Integer call() throws IOException {
+        SpotifyFacade spotifyFacade = spotifyCLI.spotifyFacade;
+        MembershipIndex membershipIndex = spotifyFacade.getMembershipIndex();
+        List<String> ids = readIDs();
+
+        var library = new UserLibrary();
+        UserLibrary.CollectionReport report = library.load(spotifyFacade, List.of("playlist"), CountryCode.US,
+                UserLibrary.DEFAULT_PARALLELISM, null).get(0);
+        if (!report.complete)
+            spotifyCLI.err.println("Could not list all of your playlists, results may be missing some");
+        List<Items.Playlist> playlists = library.getPlaylists();
+        var playlistIDs = new String[playlists.size()];
+
+        // Bring the index up to date with the current snapshot of every playlist
+        long start = System.nanoTime();
+        ExecutorService indexers = Executors.newFixedThreadPool(Math.max(1, threads), new NamedThreadFactory("where"));
+        var refreshes = new ArrayList<Future<PlaylistCollection.IndexStatus>>();
+        for (int i = 0; i < playlists.size(); i++) {
+            Items.Playlist playlist = playlists.get(i);
+            playlistIDs[i] = playlist.getId();
+            var collection = new PlaylistCollection(spotifyFacade, library.getItemPool(), playlistIDs[i], CountryCode.US)
+                    .withMembershipIndex(membershipIndex, playlist.getSnapshotId());
+            refreshes.add(indexers.submit(collection::refreshMembershipIndex));
+        }
+        int reindexed = 0;
+        // Playlists whose index couldn't be brought current are left out, rather than answered from an older snapshot
+        var current = new boolean[playlists.size()];
+        var failed = new ArrayList<String>();
+        try {
+            for (int i = 0; i < refreshes.size(); i++) {
+                PlaylistCollection.IndexStatus status = refreshes.get(i).get();
+                if (status == PlaylistCollection.IndexStatus.REBUILT)
+                    reindexed++;
+                current[i] = status != PlaylistCollection.IndexStatus.FAILED;
+                if (!current[i])
+                    failed.add(playlistIDs[i] + " " + playlists.get(i).getName());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            spotifyCLI.err.println("Could not index your playlists: " + e.getMessage());
+            return 1;
+        } finally {
+            indexers.shutdownNow();
+        }
+        long indexedAt = System.nanoTime();
+
+        int exitCode = 0;
+        if (!failed.isEmpty()) {
+            spotifyCLI.err.println("Could not index " + failed.size() + " playlists, they are left out of the results: "
+                    + String.join(", ", failed));
+            exitCode = 1;
+        }
+        for (String id : ids) {
+            long[] pair = SpotifyId.decode(id);
+            if (pair == null) {
+                spotifyCLI.err.println("Not a valid Spotify ID: " + id);
+                exitCode = 1;
+                continue;
+            }
+            var matches = new ArrayList<String>();
+            for (int i = 0; i < playlistIDs.length; i++) {
+                if (current[i] && membershipIndex.contains("playlist", playlistIDs[i], pair[0], pair[1]))
+                    matches.add(playlistIDs[i] + " " + playlists.get(i).getName());
+            }
+            spotifyCLI.out.println(id + "\t" + String.join("\t", matches));
+        }
+        long done = System.nanoTime();
+
+        spotifyCLI.err.printf("Indexed %d playlists (%d re-indexed) in %d ms, checked %d items in %.3f ms%n",
+                playlists.size(), reindexed, TimeUnit.NANOSECONDS.toMillis(indexedAt - start),
+                ids.size(), (done - indexedAt) / 1e6);
+        return exitCode;
+    }
+
+    private List<String> readIDs() throws IOException {
+        var ids = new ArrayList<String>();
+        boolean readStdin = itemIDs == null || itemIDs.isEmpty();
+        if (itemIDs != null) {
+            for (String id : itemIDs) {
+                if (id.equals("-"))
+                    readStdin = true;
+                else
+                    ids.add(id);
+            }
+        }
+        if (readStdin) {
+            var reader = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank())
+                    ids.add(line.strip());
+            }
+        }
+        return ids;
+    }
+}
@@ -94,6 +94,33 @@ public class AuthManager {
         return AuthStatus.FAIL;
     }
 
+    /**
+     * For a session whose access token is about to expire. The cache holds the very tokens the session already has, so
+     * it is skipped: the refresh token the session signed in with is exchanged for a new access token straight away.
+     */
+    public AuthStatus renewWithTokenRefresh() {
+        GenericCredentials genericCredentials;
+        String refreshToken = spotifyApi.getRefreshToken();
+        if (tokenRefreshEnabled
+                && authorizationFlow.isRefreshable()
+                && refreshToken != null && !refreshToken.equals("")) {
+            logger.info("Attempting to renew the access token using the session's refresh token");
+            genericCredentials = authorizationFlow.refresh();
+            if (genericCredentials != null) {
+                setTokensOnSpotifyInstance(genericCredentials);
+
+                String msg = testSpotifyConnection();
+                if (msg.equals("")) {
+                    if (tokenCachingEnabled)
+                        tokenCache.cacheTokens(genericCredentials);
+                    logger.info("Successfully renewed the access token");
+                    return AuthStatus.SUCCESS;
+                }
+            }
+        }
+        return AuthStatus.FAIL;
+    }
+
     public AuthStatus authenticateWithFullSignIn() {
         GenericCredentials genericCredentials;
         logger.info("A full spotifyCliJava.authorization is required, end user may be required to sign in");
@@ -14,6 +14,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spotifyCliJava.authorization.flows.utility.CallbackServer;
+import spotifyCliJava.utility.DeadlineExceededException;
 
 import java.awt.*;
 import java.io.IOException;
@@ -88,8 +89,15 @@ public class AuthorizationFlowCodeFlow extends AbstractAuthorizationFlow {
             System.out.println("URI: " + uri.toString());
         }
 
-        String authCode = cbServer.getAuthCode();
-        cbServer.destroy();
+        String authCode;
+        try {
+            authCode = cbServer.getAuthCode();
+        } catch (DeadlineExceededException e) {
+            System.err.println("Error: " + e.getMessage());
+            return null;
+        } finally {
+            cbServer.destroy();
+        }
 
         AuthorizationCodeRequest authorizationCodeRequest = spotifyApi.authorizationCode(authCode)
                 .build();
@@ -15,6 +15,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spotifyCliJava.authorization.flows.utility.CallbackServer;
+import spotifyCliJava.utility.DeadlineExceededException;
 
 import java.awt.*;
 import java.io.IOException;
@@ -97,8 +98,15 @@ public class AuthorizationFlowPKCE extends AbstractAuthorizationFlow {
             System.out.println("Please navigate to this url in a browser and authorize the application:");
             System.out.println("URI: " + uri.toString());
         }
-        String authCode = cbServer.getAuthCode();
-        cbServer.destroy();
+        String authCode;
+        try {
+            authCode = cbServer.getAuthCode();
+        } catch (DeadlineExceededException e) {
+            System.err.println("Error: " + e.getMessage());
+            return null;
+        } finally {
+            cbServer.destroy();
+        }
 
         AuthorizationCodePKCERequest authCodePKCERequest = spotifyApi.authorizationCodePKCE(authCode, codeVerifier)
                 .build();
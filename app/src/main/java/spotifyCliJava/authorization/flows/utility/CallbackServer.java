@@ -20,6 +20,9 @@ import com.sun.net.httpserver.HttpServer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import spotifyCliJava.metrics.JfrEvents;
+import spotifyCliJava.utility.Deadline;
+import spotifyCliJava.utility.DeadlineExceededException;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -27,6 +30,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class CallbackServer {
@@ -34,12 +38,17 @@ public class CallbackServer {
             = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.authorization.flows.utility.CallbackServer");
     protected static HttpServer server;
     private final authServerHandler requestHandler = new authServerHandler();
+    // How long to wait for the browser to come back with a sign in, when no earlier deadline applies
+    public static final long SIGN_IN_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
     private int port;
     private String hostName;
+    private final Deadline deadline;
+    private boolean stopped = false;
 
     private CallbackServer(Builder builder) {
         this.port = builder.port;
         this.hostName = builder.hostName;
+        this.deadline = builder.deadline;
         logger.debug("Starting callback server..");
         logger.debug("With Port: " + port);
         logger.debug("With hostName: " + hostName);
@@ -55,11 +64,26 @@ public class CallbackServer {
         }
     }
 
-    public String getAuthCode() {
-        return requestHandler.fetchAuthCode();
+    /**
+     * Wait for the browser to be redirected back with the authorization code, until the deadline
+     * (or SIGN_IN_TIMEOUT_MILLIS, if that is earlier)
+     *
+     * @throws DeadlineExceededException If no sign in arrived in time; the server has been stopped
+     */
+    public String getAuthCode() throws DeadlineExceededException {
+        long budgetMillis = Math.min(SIGN_IN_TIMEOUT_MILLIS, deadline.remainingMillis());
+        if (!requestHandler.awaitAuthCode(deadline.orWithin(SIGN_IN_TIMEOUT_MILLIS))) {
+            destroy();
+            throw new DeadlineExceededException("No sign in arrived at the callback server within "
+                    + budgetMillis + " ms, giving up");
+        }
+        return requestHandler.authCode;
     }
 
-    public void destroy() {
+    public synchronized void destroy() {
+        if (stopped)
+            return;
+        stopped = true;
         logger.info("Destroying the callback server");
         server.stop(0);
     }
@@ -67,6 +91,7 @@ public class CallbackServer {
     public static class Builder {
         private int port = 8080;
         private String hostName = "0.0.0.0";
+        private Deadline deadline = Deadline.NONE;
 
         public CallbackServer build() {
             return new CallbackServer(this);
@@ -81,6 +106,12 @@ public class CallbackServer {
             this.hostName = hostName;
             return this;
         }
+
+        // The sign in is abandoned once this passes
+        public Builder withDeadline(Deadline deadline) {
+            this.deadline = deadline;
+            return this;
+        }
     }
 
     static public class authServerHandler implements HttpHandler {
@@ -197,15 +228,26 @@ public class CallbackServer {
             }
         }
 
-        private String fetchAuthCode() {
+        /**
+         * @return False if 'deadline' passed first
+         */
+        private boolean awaitAuthCode(Deadline deadline) {
+            var event = new JfrEvents.AuthPhase("callback wait");
+            event.begin();
+            boolean arrived = false;
             try {
                 logger.info("Waiting for request to callback server");
-                tokenLatch.await();
+                arrived = tokenLatch.await(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
             } catch (InterruptedException e) {
-                //Main.showException(e);
+                Thread.currentThread().interrupt();
             }
-            logger.info("Passing access code from callback");
-            return authCode;
+            event.succeeded = authCode != null;
+            event.commit();
+            if (arrived)
+                logger.info("Passing access code from callback");
+            else
+                logger.error("No request to the callback server before the deadline");
+            return arrived;
         }
     }
 
@@ -0,0 +1,318 @@
+package spotifyCliJava.cassette;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A file of recorded HTTP exchanges with Spotify (see RecordingHttpManager), to be served back by a
+ * ReplayingHttpManager so that runs can be compared on exactly the same network behaviour.
+ *
+ * Layout, all big endian:
+ * - "SPCASS01"
+ * - The exchanges, one after the other:
+ *   key (int length + UTF-8, EX: "GET https://api.spotify.com/v1/me/tracks?offset=0&limit=50", or for a request
+ *   with a body, a hash of the body after it: "PUT https://api.spotify.com/v1/me/tracks #9e1b3c0f5a2d4e67"),
+ *   latency (long, nanoseconds), kind (byte, RESPONSE or ERROR), then for a RESPONSE the body (int length + UTF-8,
+ *   -1 for none), for an ERROR the exception's class and message (each int length + UTF-8, -1 for none) and its
+ *   Retry-After (int, seconds)
+ * - The index: a (hash of the key, offset of the exchange) pair per exchange, sorted by hash, then by offset
+ * - The offset of the index (long) and the number of exchanges (int)
+ *
+ * The Writer streams exchanges out as they complete and writes the index when closed. The Reader maps the file into
+ * memory and binary searches the index, so opening a cassette of a whole library walk costs nothing up front.
+ */
+public final class Cassette {
+    private static final byte[] MAGIC = "SPCASS01".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES;
+    private static final int INDEX_ENTRY_LENGTH = Long.BYTES * 2;
+    static final byte RESPONSE = 0;
+    static final byte ERROR = 1;
+
+    private Cassette() {
+    }
+
+    /**
+     * One recorded exchange
+     */
+    public static class Exchange {
+        public final String key;
+        public final long latencyNanos;
+        // For a response; null if there was no body
+        @Nullable
+        public final String body;
+        // For an error: the class of the exception thrown, and what to rebuild it from
+        @Nullable
+        public final String errorClass;
+        @Nullable
+        public final String errorMessage;
+        public final int retryAfter;
+
+        Exchange(String key, long latencyNanos, @Nullable String body, @Nullable String errorClass,
+                 @Nullable String errorMessage, int retryAfter) {
+            this.key = key;
+            this.latencyNanos = latencyNanos;
+            this.body = body;
+            this.errorClass = errorClass;
+            this.errorMessage = errorMessage;
+            this.retryAfter = retryAfter;
+        }
+
+        public boolean isError() {
+            return errorClass != null;
+        }
+    }
+
+    @NotNull
+    public static String key(@NotNull String method, @NotNull String uri) {
+        return method + " " + uri;
+    }
+
+    /**
+     * The key of a request with a body (POST, PUT, DELETE): two saves of different tracks to the same URI are
+     * different exchanges. A body that can't be read twice is left out, so that sending it still works.
+     */
+    @NotNull
+    public static String key(@NotNull String method, @NotNull String uri, @Nullable HttpEntity body) throws IOException {
+        if (body == null || !body.isRepeatable())
+            return key(method, uri);
+        var content = new ByteArrayOutputStream();
+        body.writeTo(content);
+        if (content.size() == 0)
+            return key(method, uri);
+        return key(method, uri) + " #" + Long.toHexString(hash(content.toByteArray()));
+    }
+
+    // 64 bit FNV-1a over the key's UTF-8
+    static long hash(@NotNull String key) {
+        return hash(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Writing
+    //---------------------------------------------------------------------
+
+    public static class Writer implements Closeable {
+        private final Path path;
+        private final DataOutputStream out;
+        private final List<long[]> index = new ArrayList<>();
+        private long offset;
+        private boolean closed;
+
+        public Writer(@NotNull Path path) throws IOException {
+            this.path = path;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+            out.write(MAGIC);
+            offset = MAGIC.length;
+        }
+
+        @NotNull
+        public Path getPath() {
+            return path;
+        }
+
+        public synchronized int size() {
+            return index.size();
+        }
+
+        public void response(@NotNull String key, long latencyNanos, @Nullable String body) throws IOException {
+            var record = new ByteArrayOutputStream();
+            var data = new DataOutputStream(record);
+            writeHead(data, key, latencyNanos, RESPONSE);
+            writeString(data, body);
+            append(key, record.toByteArray());
+        }
+
+        public void error(@NotNull String key, long latencyNanos, @NotNull Exception error, int retryAfter) throws IOException {
+            var record = new ByteArrayOutputStream();
+            var data = new DataOutputStream(record);
+            writeHead(data, key, latencyNanos, ERROR);
+            writeString(data, error.getClass().getName());
+            writeString(data, error.getMessage());
+            data.writeInt(retryAfter);
+            append(key, record.toByteArray());
+        }
+
+        private static void writeHead(DataOutputStream data, String key, long latencyNanos, byte kind) throws IOException {
+            writeString(data, key);
+            data.writeLong(latencyNanos);
+            data.writeByte(kind);
+        }
+
+        // Each exchange is encoded before taking the lock, so concurrent requests only wait on the copy
+        private synchronized void append(String key, byte[] record) throws IOException {
+            if (closed)
+                return;
+            out.write(record);
+            index.add(new long[]{hash(key), offset});
+            offset += record.length;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            try (out) {
+                // Equal hashes stay in recording order, which is the order they are replayed in
+                index.sort(Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]));
+                for (long[] entry : index) {
+                    out.writeLong(entry[0]);
+                    out.writeLong(entry[1]);
+                }
+                out.writeLong(offset);
+                out.writeInt(index.size());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream data, @Nullable String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    // Reading
+    //---------------------------------------------------------------------
+
+    public static class Reader implements Closeable {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int indexOffset;
+        private final int count;
+
+        public Reader(@NotNull Path path) throws IOException {
+            this.path = path;
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE)
+                    throw new IOException("Cassette too large to map: " + path);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                byte[] magic = new byte[MAGIC.length];
+                if (size >= MAGIC.length + TRAILER_LENGTH)
+                    buffer.get(0, magic);
+                if (!Arrays.equals(magic, MAGIC))
+                    throw new IOException("Not a cassette: " + path);
+                long trailer = size - TRAILER_LENGTH;
+                indexOffset = (int) buffer.getLong((int) trailer);
+                count = buffer.getInt((int) trailer + Long.BYTES);
+                if (indexOffset < MAGIC.length || indexOffset + (long) count * INDEX_ENTRY_LENGTH != trailer)
+                    throw new IOException("Cassette is truncated or corrupt (was the recording closed?): " + path);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        @NotNull
+        public Path getPath() {
+            return path;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @param occurrence How many exchanges with this key were replayed before; the n-th request gets the n-th
+         *                   recording, and any request after the last gets the last again
+         * @return The exchange recorded for 'key', or null if there is none
+         */
+        @Nullable
+        public Exchange find(@NotNull String key, int occurrence) {
+            long hash = hash(key);
+            // The first index entry with this hash
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (Long.compare(indexHash(middle), hash) < 0)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            int found = -1;
+            int seen = 0;
+            for (int entry = low; entry < count && indexHash(entry) == hash; entry++) {
+                int offset = (int) buffer.getLong(indexOffset + entry * INDEX_ENTRY_LENGTH + Long.BYTES);
+                // A different key with the same hash
+                if (!keyEquals(offset, keyBytes))
+                    continue;
+                found = offset;
+                if (seen++ == occurrence)
+                    break;
+            }
+            return found < 0 ? null : read(found);
+        }
+
+        private long indexHash(int entry) {
+            return buffer.getLong(indexOffset + entry * INDEX_ENTRY_LENGTH);
+        }
+
+        private boolean keyEquals(int offset, byte[] keyBytes) {
+            if (buffer.getInt(offset) != keyBytes.length)
+                return false;
+            for (int i = 0; i < keyBytes.length; i++) {
+                if (buffer.get(offset + Integer.BYTES + i) != keyBytes[i])
+                    return false;
+            }
+            return true;
+        }
+
+        private Exchange read(int offset) {
+            // A view of its own, so concurrent reads don't share a position
+            ByteBuffer record = buffer.duplicate().position(offset);
+            String key = readString(record);
+            long latencyNanos = record.getLong();
+            if (record.get() == RESPONSE)
+                return new Exchange(key, latencyNanos, readString(record), null, null, 0);
+            String errorClass = readString(record);
+            String errorMessage = readString(record);
+            return new Exchange(key, latencyNanos, null, errorClass, errorMessage, record.getInt());
+        }
+
+        @Nullable
+        private static String readString(ByteBuffer record) {
+            int length = record.getInt();
+            if (length < 0)
+                return null;
+            byte[] bytes = new byte[length];
+            record.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The mapping itself goes when the buffer is collected
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package spotifyCliJava.cassette;
+
+import com.wrapper.spotify.IHttpManager;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.TooManyRequestsException;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.ParseException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Wraps the SpotifyApi's IHttpManager, recording every exchange (its response or the exception it ended in, and how
+ * long it took) into a Cassette, for a ReplayingHttpManager to serve back later.
+ *
+ * Signing in is left out: its responses are the user's tokens, and a replay doesn't sign in anyway.
+ */
+public class RecordingHttpManager implements IHttpManager {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.cassette.RecordingHttpManager");
+
+    private final IHttpManager delegate;
+    private final Cassette.Writer cassette;
+    private volatile boolean failed;
+
+    public RecordingHttpManager(@NotNull IHttpManager delegate, @NotNull Cassette.Writer cassette) {
+        this.delegate = delegate;
+        this.cassette = cassette;
+    }
+
+    private interface Send {
+        String send() throws IOException, SpotifyWebApiException, ParseException;
+    }
+
+    private String record(String key, URI uri, Send send) throws IOException, SpotifyWebApiException, ParseException {
+        if (uri.getPath().startsWith("/api/token"))
+            return send.send();
+        long start = System.nanoTime();
+        String response;
+        try {
+            response = send.send();
+        } catch (IOException | SpotifyWebApiException | ParseException | RuntimeException e) {
+            long latency = System.nanoTime() - start;
+            int retryAfter = e instanceof TooManyRequestsException ? ((TooManyRequestsException) e).getRetryAfter() : 0;
+            write(() -> cassette.error(key, latency, e, retryAfter));
+            throw e;
+        }
+        long latency = System.nanoTime() - start;
+        write(() -> cassette.response(key, latency, response));
+        return response;
+    }
+
+    private interface Write {
+        void write() throws IOException;
+    }
+
+    // Failing to record never fails the request itself
+    private void write(Write write) {
+        try {
+            write.write();
+        } catch (IOException e) {
+            if (!failed) {
+                failed = true;
+                logger.error("Could not record to " + cassette.getPath() + ": " + e.getMessage());
+                System.err.println("Could not record to " + cassette.getPath() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String get(URI uri, Header[] headers) throws IOException, SpotifyWebApiException, ParseException {
+        return record(Cassette.key("GET", uri.toString()), uri, () -> delegate.get(uri, headers));
+    }
+
+    @Override
+    public String post(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return record(Cassette.key("POST", uri.toString(), body), uri, () -> delegate.post(uri, headers, body));
+    }
+
+    @Override
+    public String put(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return record(Cassette.key("PUT", uri.toString(), body), uri, () -> delegate.put(uri, headers, body));
+    }
+
+    @Override
+    public String delete(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return record(Cassette.key("DELETE", uri.toString(), body), uri, () -> delegate.delete(uri, headers, body));
+    }
+}
@@ -0,0 +1,109 @@
+package spotifyCliJava.cassette;
+
+import com.wrapper.spotify.IHttpManager;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.TooManyRequestsException;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.ParseException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An IHttpManager that never touches the network: every request is answered from a Cassette, with the response (or
+ * exception) recorded for it, after the latency recorded for it times a scale (1 for the original timing, 0 for
+ * none). A request made several times gets its recordings in the order they were made, then the last one again.
+ *
+ * A request that isn't in the cassette fails with an IOException, and is counted in misses().
+ */
+public class ReplayingHttpManager implements IHttpManager {
+    private final Cassette.Reader cassette;
+    private final double latencyScale;
+    private final ConcurrentHashMap<String, AtomicInteger> occurrences = new ConcurrentHashMap<>();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ReplayingHttpManager(@NotNull Cassette.Reader cassette, double latencyScale) {
+        this.cassette = cassette;
+        this.latencyScale = latencyScale;
+    }
+
+    public long replayed() {
+        return replayed.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private String replay(String key) throws IOException, SpotifyWebApiException, ParseException {
+        int occurrence = occurrences.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+        Cassette.Exchange exchange = cassette.find(key, occurrence);
+        if (exchange == null) {
+            misses.increment();
+            throw new IOException("Not in the cassette " + cassette.getPath() + ": " + key);
+        }
+        replayed.increment();
+        long latencyNanos = (long) (exchange.latencyNanos * latencyScale);
+        if (latencyNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted replaying " + key);
+            }
+        }
+        if (exchange.isError())
+            throwRecorded(exchange);
+        return exchange.body;
+    }
+
+    // The recorded exception again, as far as its class can be made from a message
+    private static void throwRecorded(Cassette.Exchange exchange) throws IOException, SpotifyWebApiException, ParseException {
+        String message = exchange.errorMessage;
+        if (TooManyRequestsException.class.getName().equals(exchange.errorClass))
+            throw new TooManyRequestsException(message, exchange.retryAfter);
+        Exception error;
+        try {
+            error = (Exception) Class.forName(exchange.errorClass).getConstructor(String.class).newInstance(message);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IOException(message);
+        }
+        if (error instanceof IOException)
+            throw (IOException) error;
+        if (error instanceof SpotifyWebApiException)
+            throw (SpotifyWebApiException) error;
+        if (error instanceof ParseException)
+            throw (ParseException) error;
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        throw new IOException(message);
+    }
+
+    @Override
+    public String get(URI uri, Header[] headers) throws IOException, SpotifyWebApiException, ParseException {
+        return replay(Cassette.key("GET", uri.toString()));
+    }
+
+    @Override
+    public String post(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return replay(Cassette.key("POST", uri.toString(), body));
+    }
+
+    @Override
+    public String put(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return replay(Cassette.key("PUT", uri.toString(), body));
+    }
+
+    @Override
+    public String delete(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return replay(Cassette.key("DELETE", uri.toString(), body));
+    }
+}
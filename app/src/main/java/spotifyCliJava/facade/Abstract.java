@@ -1,5 +1,61 @@
 package spotifyCliJava.facade;
 
-class AbstractItem implements IItem {
-//    public AbstractItem(SpotifyApi spotifyApi, String itemID, String itemType, )
-}
\ No newline at end of file
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Base class of the compact item model (see Items).
+ *
+ * An item keeps only its ID, as two longs, and its name. Type specific fields are primitives, and references to
+ * other items (a track's album and artists) point at shared instances handed out by an ItemPool.
+ */
+abstract class AbstractItem implements IItem {
+    protected final long idHigh;
+    protected final long idLow;
+    protected final String name;
+
+    protected AbstractItem(long idHigh, long idLow, @NotNull String name) {
+        this.idHigh = idHigh;
+        this.idLow = idLow;
+        this.name = name;
+    }
+
+    @Override
+    public String getId() {
+        return SpotifyId.encode(idHigh, idLow);
+    }
+
+    @Override
+    public long getIdHigh() {
+        return idHigh;
+    }
+
+    @Override
+    public long getIdLow() {
+        return idLow;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getUri() {
+        return "spotify:" + getType() + ":" + getId();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || obj.getClass() != getClass())
+            return false;
+        var other = (AbstractItem) obj;
+        return idHigh == other.idHigh && idLow == other.idLow;
+    }
+
+    @Override
+    public int hashCode() {
+        return LongPairMap.hash(idHigh, idLow);
+    }
+}
@@ -0,0 +1,97 @@
+package spotifyCliJava.facade;
+
+import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.model_objects.AbstractModelObject;
+import com.wrapper.spotify.model_objects.specification.Album;
+import com.wrapper.spotify.model_objects.specification.Paging;
+import com.wrapper.spotify.model_objects.specification.TrackSimplified;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import spotifyCliJava.SpotifyFacade;
+import spotifyCliJava.localStore.MembershipIndex;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The tracks of one album, fetched a page at a time (see PagedCollection)
+ */
+public class AlbumCollection extends PagedCollection {
+    // The most tracks Spotify returns per request for an album
+    public static final int PAGE_SIZE = 50;
+    // Albums don't change once released, so there is only ever one version of their index
+    private static final String INDEX_VERSION = "album";
+
+    private final SpotifyFacade facade;
+    private final ItemPool itemPool;
+    private final String albumID;
+    private final CountryCode market;
+    // Album track listings don't include the album, so it is fetched once and shared by every track
+    private volatile Items.Album album;
+    private MembershipIndex membershipIndex;
+
+    public AlbumCollection(@NotNull SpotifyFacade facade, @NotNull ItemPool itemPool, @NotNull String albumID, CountryCode market) {
+        super(PAGE_SIZE, DEFAULT_MAX_CACHED_PAGES);
+        this.facade = facade;
+        this.itemPool = itemPool;
+        this.albumID = albumID;
+        this.market = market;
+    }
+
+    public String getAlbumID() {
+        return albumID;
+    }
+
+    @Override
+    public AlbumCollection withPageLoader(@NotNull Executor pageLoader) {
+        super.withPageLoader(pageLoader);
+        return this;
+    }
+
+    /**
+     * Answer contains() from 'membershipIndex' instead of paging through the album (the first call indexes it)
+     */
+    public AlbumCollection withMembershipIndex(@Nullable MembershipIndex membershipIndex) {
+        this.membershipIndex = membershipIndex;
+        return this;
+    }
+
+    @Override
+    public boolean contains(@NotNull IItem item) {
+        if (membershipIndex == null)
+            return super.contains(item);
+        if (!membershipIndex.isCurrent("album", albumID, INDEX_VERSION)) {
+            List<IItem> all = retrieveAllOrNull();
+            if (all != null) // don't record an index with holes in it as current
+                membershipIndex.put("album", albumID, INDEX_VERSION, all);
+        }
+        return membershipIndex.contains("album", albumID, item);
+    }
+
+    /**
+     * @return The album itself, or null if it could not be fetched
+     */
+    @Nullable
+    public Items.Album getAlbum() {
+        if (album == null) {
+            AbstractModelObject obj = facade.getItem("album", albumID);
+            if (obj instanceof Album)
+                album = itemPool.album((Album) obj);
+        }
+        return album;
+    }
+
+    @Nullable
+    @Override
+    protected Page fetchPage(int offset, int limit) {
+        Items.Album album = getAlbum();
+        Paging<TrackSimplified> page = facade.getAlbumTracks(albumID, limit, offset, market);
+        if (page == null)
+            return null;
+        TrackSimplified[] tracks = page.getItems();
+        var items = new IItem[tracks.length];
+        for (int i = 0; i < tracks.length; i++)
+            items[i] = tracks[i] == null ? null : itemPool.track(tracks[i], album);
+        return new Page(items, page.getTotal() == null ? offset + items.length : page.getTotal());
+    }
+}
@@ -0,0 +1,71 @@
+package spotifyCliJava.facade;
+
+/**
+ * A Bloom filter over long pairs (EX: Spotify IDs split with SpotifyId.high() and .low()).
+ *
+ * mightContain() never gives a false negative; with BITS_PER_ITEM bits and HASHES probes per item it gives a false
+ * positive for about 1% of pairs that were never added. The probes are derived from the pair by double hashing.
+ * Not thread safe for writes.
+ */
+public class BloomFilter {
+    public static final int BITS_PER_ITEM = 10;
+    public static final int HASHES = 7;
+
+    private final long[] words;
+    private final int hashes;
+
+    /**
+     * @param expectedItems How many pairs will be added; the filter is sized for about 1% false positives at that count
+     */
+    public BloomFilter(int expectedItems) {
+        this(new long[Math.max(1, (int) (((long) Math.max(1, expectedItems) * BITS_PER_ITEM + 63) / 64))], HASHES);
+    }
+
+    /**
+     * Wrap the words of a filter written out with getWords()
+     */
+    public BloomFilter(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+    }
+
+    public long[] getWords() {
+        return words;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    public void add(long high, long low) {
+        long bits = (long) words.length * 64;
+        long h1 = mix(high ^ low);
+        long h2 = mix(low + 0x9E3779B97F4A7C15L * high) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(long high, long low) {
+        long bits = (long) words.length * 64;
+        long h1 = mix(high ^ low);
+        long h2 = mix(low + 0x9E3779B97F4A7C15L * high) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    // The finalizer of MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
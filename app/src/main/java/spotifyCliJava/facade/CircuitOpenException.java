@@ -0,0 +1,30 @@
+package spotifyCliJava.facade;
+
+import java.io.IOException;
+
+/**
+ * A request was not sent because its endpoint family's circuit breaker is open; see EndpointGuard.
+ * It is an IOException, so reads fall back to the local store and library changes are queued in the journal,
+ * as they would be if Spotify couldn't be reached.
+ */
+public class CircuitOpenException extends IOException {
+    private final String family;
+    private final long retryAfterMillis;
+
+    public CircuitOpenException(String family, long retryAfterMillis) {
+        super("Not sending requests to '" + family + "' for another " + retryAfterMillis + " ms, after repeated failures");
+        this.family = family;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getFamily() {
+        return family;
+    }
+
+    /**
+     * @return How long until the breaker lets a request through again
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,227 @@
+package spotifyCliJava.facade;
+
+import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.model_objects.AbstractModelObject;
+import com.wrapper.spotify.model_objects.IPlaylistItem;
+import com.wrapper.spotify.model_objects.specification.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import spotifyCliJava.SpotifyFacade;
+import spotifyCliJava.metrics.JfrEvents;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The 'info --deep' view of an item: the item, and the items it refers to resolved in full.
+ *
+ * Everything the item refers to is requested at once as soon as the item itself is in (EX: for an album, every
+ * remaining page of its track list and all of its artists), through a RequestScheduler; so a deep view costs one
+ * extra round trip over the plain one, not one per page and artist.
+ */
+public class DeepInfo {
+    private static final String SEPARATOR = "\n-----------------------------------------------------------\n";
+
+    private final SpotifyFacade facade;
+    private final RequestScheduler scheduler;
+    private final CountryCode market;
+    // Set once anything could not be fetched, or the deadline passed
+    private boolean incomplete = false;
+
+    public DeepInfo(@NotNull SpotifyFacade facade, @NotNull RequestScheduler scheduler, CountryCode market) {
+        this.facade = facade;
+        this.scheduler = scheduler;
+        this.market = market;
+    }
+
+    /**
+     * @return True if part of the last view could not be fetched in time
+     */
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+
+    /**
+     * @return The view, or null if the item itself could not be fetched
+     */
+    @Nullable
+    public String render(@NotNull String itemType, @NotNull String itemID) {
+        var event = new JfrEvents.Render();
+        event.begin();
+        String repr = renderDeep(itemType, itemID);
+        if (event.shouldCommit()) {
+            event.itemType = "deep " + itemType;
+            event.length = repr == null ? 0 : repr.length();
+            event.commit();
+        }
+        return repr;
+    }
+
+    @Nullable
+    private String renderDeep(@NotNull String itemType, @NotNull String itemID) {
+        incomplete = false;
+        AbstractModelObject item = scheduler.await(item(itemType, itemID));
+        if (item == null) {
+            incomplete = true;
+            return null;
+        }
+        String repr = facade.itemToPrettyString(item);
+        if (item instanceof Album)
+            return repr + album((Album) item);
+        if (item instanceof Playlist)
+            return repr + playlist((Playlist) item);
+        if (item instanceof Track)
+            return repr + track((Track) item);
+        return repr;
+    }
+
+    private String album(Album album) {
+        // Fan out: the artists and every page of the track list after the first (which comes with the album)
+        List<CompletableFuture<AbstractModelObject>> artists = artists(album.getArtists());
+        Paging<TrackSimplified> firstPage = album.getTracks();
+        var pages = new ArrayList<CompletableFuture<Paging<TrackSimplified>>>();
+        int total = firstPage == null || firstPage.getTotal() == null ? 0 : firstPage.getTotal();
+        int start = firstPage == null ? 0 : firstPage.getItems().length;
+        for (int offset = start; offset < total; offset += AlbumCollection.PAGE_SIZE) {
+            int pageOffset = offset;
+            pages.add(scheduler.submit("album-tracks/" + album.getId() + "/" + offset,
+                    () -> facade.getAlbumTracks(album.getId(), AlbumCollection.PAGE_SIZE, pageOffset, market)));
+        }
+
+        var repr = new StringBuilder(artistsSection(artists));
+        repr.append(SEPARATOR).append("Tracks (").append(total).append("):");
+        int number = 1;
+        if (firstPage != null)
+            number = appendTracks(repr, firstPage.getItems(), number);
+        for (CompletableFuture<Paging<TrackSimplified>> page : pages) {
+            Paging<TrackSimplified> tracks = scheduler.await(page);
+            if (tracks == null) {
+                incomplete = true;
+                repr.append("\n  (could not get the rest of the tracks)");
+                break;
+            }
+            number = appendTracks(repr, tracks.getItems(), number);
+        }
+        return repr.toString();
+    }
+
+    private String playlist(Playlist playlist) {
+        CompletableFuture<AbstractModelObject> owner = playlist.getOwner() == null ? null
+                : item("user", playlist.getOwner().getId());
+        Paging<PlaylistTrack> firstPage = playlist.getTracks();
+        var pages = new ArrayList<CompletableFuture<Paging<PlaylistTrack>>>();
+        int total = firstPage == null || firstPage.getTotal() == null ? 0 : firstPage.getTotal();
+        int start = firstPage == null ? 0 : firstPage.getItems().length;
+        for (int offset = start; offset < total; offset += PlaylistCollection.PAGE_SIZE) {
+            int pageOffset = offset;
+            pages.add(scheduler.submit("playlist-items/" + playlist.getId() + "/" + offset,
+                    () -> facade.getPlaylistItems(playlist.getId(), PlaylistCollection.PAGE_SIZE, pageOffset, market)));
+        }
+
+        var repr = new StringBuilder();
+        if (owner != null) {
+            AbstractModelObject user = scheduler.await(owner);
+            repr.append(SEPARATOR).append("Owner:\n");
+            if (user == null) {
+                incomplete = true;
+                repr.append("  (could not get the owner)");
+            } else {
+                repr.append(facade.itemToPrettyString(user));
+            }
+        }
+        repr.append(SEPARATOR).append("Items (").append(total).append("):");
+        int number = 1;
+        if (firstPage != null)
+            number = appendPlaylistItems(repr, firstPage.getItems(), number);
+        for (CompletableFuture<Paging<PlaylistTrack>> page : pages) {
+            Paging<PlaylistTrack> items = scheduler.await(page);
+            if (items == null) {
+                incomplete = true;
+                repr.append("\n  (could not get the rest of the items)");
+                break;
+            }
+            number = appendPlaylistItems(repr, items.getItems(), number);
+        }
+        return repr.toString();
+    }
+
+    private String track(Track track) {
+        CompletableFuture<AbstractModelObject> album = track.getAlbum() == null ? null : item("album", track.getAlbum().getId());
+        List<CompletableFuture<AbstractModelObject>> artists = artists(track.getArtists());
+        var repr = new StringBuilder();
+        if (album != null) {
+            AbstractModelObject obj = scheduler.await(album);
+            repr.append(SEPARATOR).append("Album:\n");
+            if (obj == null) {
+                incomplete = true;
+                repr.append("  (could not get the album)");
+            } else {
+                repr.append(facade.itemToPrettyString(obj));
+            }
+        }
+        return repr + artistsSection(artists);
+    }
+
+    private CompletableFuture<AbstractModelObject> item(String itemType, String itemID) {
+        return scheduler.submit(itemType + "/" + itemID, () -> facade.getItem(itemType, itemID));
+    }
+
+    private List<CompletableFuture<AbstractModelObject>> artists(@Nullable ArtistSimplified[] artists) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (artists != null) {
+            for (ArtistSimplified artist : artists) {
+                if (artist != null && artist.getId() != null)
+                    ids.add(artist.getId());
+            }
+        }
+        var futures = new ArrayList<CompletableFuture<AbstractModelObject>>();
+        for (String id : ids)
+            futures.add(item("artist", id));
+        return futures;
+    }
+
+    private String artistsSection(List<CompletableFuture<AbstractModelObject>> artists) {
+        var repr = new StringBuilder();
+        for (CompletableFuture<AbstractModelObject> future : artists) {
+            AbstractModelObject artist = scheduler.await(future);
+            repr.append(SEPARATOR).append("Artist:\n");
+            if (artist == null) {
+                incomplete = true;
+                repr.append("  (could not get the artist)");
+            } else {
+                repr.append(facade.itemToPrettyString(artist));
+            }
+        }
+        return repr.toString();
+    }
+
+    private static int appendTracks(StringBuilder repr, TrackSimplified[] tracks, int number) {
+        for (TrackSimplified track : tracks) {
+            repr.append("\n  ").append(number++).append(". ").append(track.getName())
+                    .append(" - ").append(SpotifyFacade.artistNames(track.getArtists()))
+                    .append(" [").append(SpotifyFacade.formatDuration(track.getDurationMs())).append("]");
+        }
+        return number;
+    }
+
+    private static int appendPlaylistItems(StringBuilder repr, PlaylistTrack[] items, int number) {
+        for (PlaylistTrack playlistTrack : items) {
+            IPlaylistItem item = playlistTrack == null ? null : playlistTrack.getTrack();
+            repr.append("\n  ").append(number++).append(". ");
+            if (item == null) {
+                repr.append("(unavailable)");
+                continue;
+            }
+            repr.append(item.getName());
+            if (item instanceof Track)
+                repr.append(" - ").append(SpotifyFacade.artistNames(((Track) item).getArtists()));
+            else if (item instanceof Episode && ((Episode) item).getShow() != null)
+                repr.append(" - ").append(((Episode) item).getShow().getName());
+            repr.append(" [").append(SpotifyFacade.formatDuration(item.getDurationMs())).append("]");
+        }
+        return number;
+    }
+}
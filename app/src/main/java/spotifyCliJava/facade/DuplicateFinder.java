@@ -0,0 +1,258 @@
+package spotifyCliJava.facade;
+
+import com.neovisionaries.i18n.CountryCode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import spotifyCliJava.SpotifyFacade;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the same recording saved under different track IDs (EX: the single, the album track and a compilation).
+ *
+ * Two tracks are duplicates if they share an ISRC, or a normalized title + primary artist and a duration within a few
+ * seconds (for tracks whose ISRCs differ or are unknown, EX: a remaster). Both are a hash join over the distinct
+ * tracks, split into partitions by key hash and run in parallel; the matches are then merged with a union-find, so a
+ * group can be linked partly by ISRC and partly by title.
+ */
+public class DuplicateFinder {
+    // The most tracks Spotify returns per several-tracks request
+    private static final int MAX_TRACKS_PER_REQUEST = 50;
+    // How far apart the durations of two tracks matched only by title and artist may be
+    static final int MAX_TITLE_MATCH_DURATION_DIFFERENCE_MS = 3_000;
+
+    // Version notes that don't make a different recording, EX: "Song - 2011 Remaster", "Song (feat. X)"
+    private static final Pattern VERSION_NOTE = Pattern.compile(
+            "\\s+-\\s+[^-]*\\b(?:remaster(?:ed)?|mono|stereo|(?:single|album) version)\\b.*$"
+                    + "|\\s*[(\\[][^)\\]]*\\b(?:remaster(?:ed)?|mono|stereo|(?:single|album) version|feat\\.?|ft\\.?|with)(?:\\b|\\s)[^)\\]]*[)\\]]",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Distinct tracks, and where each was found
+    private final LongPairMap<Integer> indexOf = new LongPairMap<>();
+    private final List<Items.Track> tracks = new ArrayList<>();
+    private final List<List<String>> sources = new ArrayList<>();
+    // Tracks whose ISRC request failed in the last find()
+    private int failedIsrcLookups = 0;
+
+    public static class Group {
+        public final List<Items.Track> tracks = new ArrayList<>();
+        // Per track: where it was found, EX: "saved", "album:Abbey Road", "playlist:Road trip"
+        public final List<List<String>> sources = new ArrayList<>();
+        // Per track, null if unknown
+        public final List<String> isrcs = new ArrayList<>();
+    }
+
+    /**
+     * @param source Where the track was found, EX: "playlist:Road trip"
+     */
+    public synchronized void add(@NotNull Items.Track track, @NotNull String source) {
+        Integer index = indexOf.get(track.getIdHigh(), track.getIdLow());
+        if (index == null) {
+            index = tracks.size();
+            indexOf.put(track.getIdHigh(), track.getIdLow(), index);
+            tracks.add(track);
+            sources.add(new ArrayList<>(1));
+        }
+        List<String> trackSources = sources.get(index);
+        if (!trackSources.contains(source))
+            trackSources.add(source);
+    }
+
+    public synchronized int size() {
+        return tracks.size();
+    }
+
+    /**
+     * @return How many tracks find() couldn't look up the ISRC of, because the request failed; those could only be
+     * matched by title, so some of their duplicates may be missing
+     */
+    public synchronized int failedIsrcLookups() {
+        return failedIsrcLookups;
+    }
+
+    /**
+     * Look up every track's ISRC (see SpotifyFacade.getTrackIsrcs()) and group the duplicates
+     *
+     * @param parallelism How many ISRC requests, and how many partitions of the join, to run at once
+     * @return Every group of two or more distinct tracks that are the same recording, biggest first
+     */
+    public synchronized List<Group> find(@NotNull SpotifyFacade facade, CountryCode market, int parallelism)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism), new NamedThreadFactory("duplicates"));
+        try {
+            return group(lookupIsrcs(facade, market, pool), pool, parallelism);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The join and merge of find(), given every track's ISRC (null if unknown)
+     */
+    synchronized List<Group> group(String[] isrcs, ExecutorService pool, int parallelism) throws InterruptedException {
+        int n = tracks.size();
+        int partitions = Math.max(1, parallelism);
+
+        // Keys first, in parallel; "i:" and "t:" keep the two kinds apart in one join. Each task also sorts its
+        // key slots into the partitions their hash belongs to, so a partition only ever looks at its own keys.
+        var keys = new String[n * 2];
+        int chunk = Math.max(1, (n + partitions - 1) / partitions);
+        var tasks = new ArrayList<Callable<List<List<Integer>>>>();
+        for (int start = 0; start < n; start += chunk) {
+            int from = start;
+            int to = Math.min(n, start + chunk);
+            tasks.add(() -> {
+                var slots = new ArrayList<List<Integer>>(partitions);
+                for (int p = 0; p < partitions; p++)
+                    slots.add(new ArrayList<>());
+                for (int i = from; i < to; i++) {
+                    keys[2 * i] = isrcs[i] == null ? null : "i:" + isrcs[i].toUpperCase(Locale.ROOT);
+                    keys[2 * i + 1] = titleKey(tracks.get(i));
+                    for (int k = 2 * i; k <= 2 * i + 1; k++) {
+                        if (keys[k] != null)
+                            slots.get(Math.floorMod(keys[k].hashCode(), partitions)).add(k);
+                    }
+                }
+                return slots;
+            });
+        }
+        List<List<List<Integer>>> slotsPerChunk = invokeAll(pool, tasks);
+
+        // Partitioned hash join. An ISRC links every track with it to the first one seen; a title only links
+        // tracks whose durations are close enough to be the same recording (not a live take or an extended mix).
+        var joins = new ArrayList<Callable<int[]>>();
+        for (int p = 0; p < partitions; p++) {
+            int partition = p;
+            joins.add(() -> {
+                var seen = new HashMap<String, List<Integer>>();
+                var edges = new int[16];
+                int count = 0;
+                for (List<List<Integer>> slots : slotsPerChunk) {
+                    for (int k : slots.get(partition)) {
+                        int track = k / 2;
+                        List<Integer> withKey = seen.computeIfAbsent(keys[k], key -> new ArrayList<>(1));
+                        boolean byTitle = k % 2 == 1;
+                        for (int other : withKey) {
+                            if (byTitle && !similarDuration(tracks.get(other), tracks.get(track)))
+                                continue;
+                            if (count + 2 > edges.length)
+                                edges = Arrays.copyOf(edges, edges.length * 2);
+                            edges[count++] = other;
+                            edges[count++] = track;
+                            break;
+                        }
+                        // For an ISRC the first track stands for all; a title can hold several recordings
+                        if (withKey.isEmpty() || byTitle)
+                            withKey.add(track);
+                    }
+                }
+                return Arrays.copyOf(edges, count);
+            });
+        }
+        var parents = new int[n];
+        for (int i = 0; i < n; i++)
+            parents[i] = i;
+        for (int[] edges : invokeAll(pool, joins)) {
+            for (int e = 0; e < edges.length; e += 2)
+                union(parents, edges[e], edges[e + 1]);
+        }
+
+        var groups = new LinkedHashMap<Integer, Group>();
+        var sizes = new int[n];
+        for (int i = 0; i < n; i++)
+            sizes[find(parents, i)]++;
+        for (int i = 0; i < n; i++) {
+            int root = find(parents, i);
+            if (sizes[root] < 2)
+                continue;
+            Group group = groups.computeIfAbsent(root, r -> new Group());
+            group.tracks.add(tracks.get(i));
+            group.sources.add(sources.get(i));
+            group.isrcs.add(isrcs[i]);
+        }
+        var result = new ArrayList<>(groups.values());
+        result.sort((a, b) -> b.tracks.size() - a.tracks.size());
+        return result;
+    }
+
+    // A remaster can differ by a few seconds, a different take or edit of the song by more
+    static boolean similarDuration(Items.Track a, Items.Track b) {
+        return Math.abs(a.getDurationMs() - b.getDurationMs()) <= MAX_TITLE_MATCH_DURATION_DIFFERENCE_MS;
+    }
+
+    private String[] lookupIsrcs(SpotifyFacade facade, CountryCode market, ExecutorService pool) throws InterruptedException {
+        var isrcs = new String[tracks.size()];
+        var lookups = new ArrayList<Callable<Integer>>();
+        for (int start = 0; start < tracks.size(); start += MAX_TRACKS_PER_REQUEST) {
+            int from = start;
+            int to = Math.min(tracks.size(), start + MAX_TRACKS_PER_REQUEST);
+            lookups.add(() -> {
+                var ids = new String[to - from];
+                for (int i = from; i < to; i++)
+                    ids[i - from] = tracks.get(i).getId();
+                String[] found = facade.getTrackIsrcs(ids, market);
+                if (found == null)
+                    return ids.length;
+                System.arraycopy(found, 0, isrcs, from, ids.length);
+                return 0;
+            });
+        }
+        failedIsrcLookups = 0;
+        for (int failed : invokeAll(pool, lookups))
+            failedIsrcLookups += failed;
+        return isrcs;
+    }
+
+    /**
+     * @return "t:{normalized title}|{normalized primary artist}", or null if the track has no artist
+     */
+    @Nullable
+    static String titleKey(Items.Track track) {
+        Items.Artist[] artists = track.getArtists();
+        if (artists.length == 0)
+            return null;
+        String title = normalize(VERSION_NOTE.matcher(track.getName()).replaceAll(""));
+        if (title.isEmpty())
+            title = normalize(track.getName());
+        return "t:" + title + "|" + normalize(artists[0].getName());
+    }
+
+    // Lower case, without accents or punctuation, single spaced
+    static String normalize(String text) {
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    private static <T> List<T> invokeAll(ExecutorService pool, List<Callable<T>> tasks) throws InterruptedException {
+        var results = new ArrayList<T>(tasks.size());
+        for (Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA != rootB)
+            parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+    }
+}
@@ -0,0 +1,226 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.utility.Deadline;
+import spotifyCliJava.utility.DeadlineExceededException;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps trouble with one endpoint family (EX: "playlists") from spilling over into the others.
+ *
+ * Each family gets a bulkhead, a limit on how many of its requests are in flight at once, so a slow family can't
+ * tie up every request thread; and a circuit breaker. After FAILURE_THRESHOLD failures in a row (network trouble,
+ * 5xx), or on any 429, the breaker opens: requests to the family fail fast with a CircuitOpenException for the
+ * cooldown (the Retry-After of a 429). Then it lets a single probe through (half open); if that succeeds the
+ * breaker closes, if not it opens again for twice as long (up to MAX_COOLDOWN_MILLIS).
+ *
+ * Every request is wrapped in a Permit, which must be told how the request went and closed.
+ */
+public class EndpointGuard {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.facade.EndpointGuard");
+
+    static final int FAILURE_THRESHOLD = 5;
+    static final long BASE_COOLDOWN_MILLIS = 30_000;
+    static final long MAX_COOLDOWN_MILLIS = 5 * 60_000;
+
+    private final int concurrencyPerFamily;
+    private final ConcurrentHashMap<String, Family> families = new ConcurrentHashMap<>();
+
+    /**
+     * @param concurrencyPerFamily How many requests to one endpoint family may be in flight at once
+     */
+    public EndpointGuard(int concurrencyPerFamily) {
+        this.concurrencyPerFamily = Math.max(1, concurrencyPerFamily);
+    }
+
+    /**
+     * Wait for room in the family's bulkhead, unless its breaker is open
+     *
+     * @throws CircuitOpenException      If the breaker is open (or half open, with its probe in flight)
+     * @throws DeadlineExceededException If there was no room before 'deadline'
+     */
+    @NotNull
+    public Permit acquire(@NotNull String family, @NotNull Deadline deadline) throws InterruptedIOException, CircuitOpenException {
+        Family f = families.computeIfAbsent(family, Family::new);
+        boolean probe = f.admit();
+        try {
+            if (!deadline.isBounded())
+                f.bulkhead.acquire();
+            else if (!f.bulkhead.tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+                f.abandon(probe);
+                throw new DeadlineExceededException("Deadline exceeded waiting for a '" + family + "' request slot");
+            }
+        } catch (InterruptedException e) {
+            f.abandon(probe);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a '" + family + "' request slot");
+        }
+        return new Permit(f, probe);
+    }
+
+    /**
+     * @return "open", "half open" or "closed"
+     */
+    @NotNull
+    public String state(@NotNull String family) {
+        Family f = families.get(family);
+        return f == null ? "closed" : f.state();
+    }
+
+    /**
+     * The endpoint family of a request URI: its first path segment, skipping "me", "users" and IDs.
+     * EX: /v1/albums/{id}/tracks is "albums", /v1/me/playlists and /v1/users/{id}/playlists are "playlists"
+     */
+    @NotNull
+    public static String familyOf(@NotNull URI uri) {
+        String[] segments = RequestHedger.endpointOf(uri).split("/");
+        for (String segment : segments) {
+            if (!segment.isEmpty() && !segment.equals("me") && !segment.equals("users") && !segment.equals("{id}"))
+                return segment;
+        }
+        return segments.length > 0 && !segments[0].isEmpty() ? segments[0] : "other";
+    }
+
+    /**
+     * One request's place in its family's bulkhead. Report the outcome with one of succeeded()/failed()/throttled();
+     * a permit closed without an outcome (EX: the request was cancelled) doesn't count either way.
+     */
+    public static class Permit implements AutoCloseable {
+        private final Family family;
+        private final boolean probe;
+        private boolean reported = false;
+        private boolean released = false;
+
+        private Permit(Family family, boolean probe) {
+            this.family = family;
+            this.probe = probe;
+        }
+
+        /**
+         * Spotify answered (an error response such as a 404 counts: the endpoint itself is fine)
+         */
+        public void succeeded() {
+            if (!reported) {
+                reported = true;
+                family.onSuccess(probe);
+            }
+        }
+
+        public void failed() {
+            if (!reported) {
+                reported = true;
+                family.onFailure(probe, false, 0);
+            }
+        }
+
+        /**
+         * Spotify answered with a 429
+         *
+         * @param retryAfterSeconds The response's Retry-After, 0 if it had none; the breaker then opens for its
+         *                          current cooldown
+         */
+        public void throttled(int retryAfterSeconds) {
+            if (!reported) {
+                reported = true;
+                family.onFailure(probe, true, TimeUnit.SECONDS.toMillis(Math.max(0, retryAfterSeconds)));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (released)
+                return;
+            released = true;
+            if (!reported)
+                family.abandon(probe);
+            family.bulkhead.release();
+        }
+    }
+
+    private class Family {
+        final String name;
+        final Semaphore bulkhead = new Semaphore(concurrencyPerFamily);
+        private int consecutiveFailures = 0;
+        // While open: when the breaker may let a probe through; 0 while closed
+        private long openUntilMillis = 0;
+        private long cooldownMillis = BASE_COOLDOWN_MILLIS;
+        private boolean probeInFlight = false;
+
+        Family(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return True if the request is the half open breaker's probe
+         */
+        synchronized boolean admit() throws CircuitOpenException {
+            if (openUntilMillis == 0)
+                return false;
+            long now = System.currentTimeMillis();
+            if (now < openUntilMillis)
+                throw new CircuitOpenException(name, openUntilMillis - now);
+            if (probeInFlight)
+                throw new CircuitOpenException(name, 0);
+            probeInFlight = true;
+            return true;
+        }
+
+        /**
+         * @param probe Whether the request was the half open breaker's probe; a request let through before the
+         *              breaker opened doesn't close it
+         */
+        synchronized void onSuccess(boolean probe) {
+            if (openUntilMillis != 0 && !probe)
+                return;
+            if (openUntilMillis != 0)
+                logger.info("Circuit for '" + name + "' closed");
+            consecutiveFailures = 0;
+            openUntilMillis = 0;
+            cooldownMillis = BASE_COOLDOWN_MILLIS;
+            if (probe)
+                probeInFlight = false;
+        }
+
+        /**
+         * @param probe            Whether the request was the half open breaker's probe
+         * @param throttled        Open the breaker now, instead of counting the failure towards the threshold
+         * @param retryAfterMillis How long to open it for when throttled; 0 for the current cooldown
+         */
+        synchronized void onFailure(boolean probe, boolean throttled, long retryAfterMillis) {
+            consecutiveFailures++;
+            if (probe)
+                probeInFlight = false;
+            long cooldown;
+            if (throttled) {
+                cooldown = retryAfterMillis > 0 ? retryAfterMillis : cooldownMillis;
+            } else if (probe) {
+                cooldownMillis = Math.min(cooldownMillis * 2, MAX_COOLDOWN_MILLIS);
+                cooldown = cooldownMillis;
+            } else if (consecutiveFailures >= FAILURE_THRESHOLD && openUntilMillis == 0) {
+                cooldown = cooldownMillis;
+            } else {
+                return;
+            }
+            openUntilMillis = System.currentTimeMillis() + cooldown;
+            logger.info("Circuit for '" + name + "' open for " + cooldown + " ms");
+        }
+
+        synchronized void abandon(boolean probe) {
+            if (probe)
+                probeInFlight = false;
+        }
+
+        synchronized String state() {
+            if (openUntilMillis == 0)
+                return "closed";
+            return System.currentTimeMillis() < openUntilMillis ? "open" : "half open";
+        }
+    }
+}
@@ -4,6 +4,22 @@ package spotifyCliJava.facade;
  * Item should be implemented by all items (Playlist, Artist, Album, Track, Episode, Show, etc)
  */
 public interface IItem {
+    // The item type as Spotify names it, EX: "track"
+    String getType();
+
+    // The base62 Spotify ID, EX: "3jOstUTkEu2JkjvRdBA5Gu"
+    String getId();
+
+    // The ID as two longs (see SpotifyId), for use as a key in primitive collections
+    long getIdHigh();
+
+    long getIdLow();
+
+    String getName();
+
+    // EX: "spotify:artist:3jOstUTkEu2JkjvRdBA5Gu"
+    String getUri();
+
     // Human-readable text representation of the item
     String toString();
 }
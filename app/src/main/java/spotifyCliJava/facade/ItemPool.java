@@ -0,0 +1,232 @@
+package spotifyCliJava.facade;
+
+import com.wrapper.spotify.model_objects.IPlaylistItem;
+import com.wrapper.spotify.model_objects.specification.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds compact items (see Items) out of the wrapper's model objects, and hands out one shared instance per ID.
+ *
+ * Every track on an album points at the same Album, every album and track by an artist points at the same Artist,
+ * and owner/publisher strings are interned, so a large library costs little more than its distinct items.
+ *
+ * Items without a valid Spotify ID (EX: local files in a playlist) can't be represented, and come back as null.
+ * Thread safe.
+ */
+public class ItemPool {
+    private final LongPairMap<Items.Artist> artists = new LongPairMap<>();
+    private final LongPairMap<Items.Album> albums = new LongPairMap<>();
+    private final LongPairMap<Items.Track> tracks = new LongPairMap<>();
+    private final LongPairMap<Items.Playlist> playlists = new LongPairMap<>();
+    private final LongPairMap<Items.Show> shows = new LongPairMap<>();
+    private final LongPairMap<Items.Episode> episodes = new LongPairMap<>();
+    private final Map<String, String> strings = new HashMap<>();
+
+    private static final Items.Artist[] NO_ARTISTS = new Items.Artist[0];
+
+    /**
+     * @return The number of distinct items in the pool
+     */
+    public synchronized int size() {
+        return artists.size() + albums.size() + tracks.size() + playlists.size() + shows.size() + episodes.size();
+    }
+
+    @Nullable
+    public synchronized Items.Artist artist(@NotNull ArtistSimplified artist) {
+        return artist(artist.getId(), artist.getName());
+    }
+
+    @Nullable
+    public synchronized Items.Artist artist(@NotNull Artist artist) {
+        return artist(artist.getId(), artist.getName());
+    }
+
+    @Nullable
+    public synchronized Items.Album album(@NotNull AlbumSimplified album) {
+        return album(album.getId(), album.getName(), album.getArtists(), album.getReleaseDate());
+    }
+
+    @Nullable
+    public synchronized Items.Album album(@NotNull Album album) {
+        return album(album.getId(), album.getName(), album.getArtists(), album.getReleaseDate());
+    }
+
+    @Nullable
+    public synchronized Items.Track track(@NotNull Track track) {
+        long[] id = decode(track.getId());
+        if (id == null)
+            return null;
+        return tracks.computeIfAbsent(id[0], id[1], () -> {
+            Items.Album album = track.getAlbum() == null ? null : album(track.getAlbum());
+            return new Items.Track(id[0], id[1], orEmpty(track.getName()), album,
+                    artists(track.getArtists(), album),
+                    orZero(track.getDurationMs()),
+                    (byte) orZero(track.getPopularity()),
+                    Boolean.TRUE.equals(track.getIsExplicit()));
+        });
+    }
+
+    /**
+     * Album track listings come back simplified, and without the album; pass in the album they came from.
+     */
+    @Nullable
+    public synchronized Items.Track track(@NotNull TrackSimplified track, @Nullable Items.Album album) {
+        long[] id = decode(track.getId());
+        if (id == null)
+            return null;
+        return tracks.computeIfAbsent(id[0], id[1], () -> new Items.Track(id[0], id[1], orEmpty(track.getName()), album,
+                artists(track.getArtists(), album),
+                orZero(track.getDurationMs()),
+                (byte) 0,
+                Boolean.TRUE.equals(track.getIsExplicit())));
+    }
+
+    @Nullable
+    public synchronized Items.Playlist playlist(@NotNull PlaylistSimplified playlist) {
+        return playlist(playlist.getId(), playlist.getName(), playlist.getOwner(), playlist.getSnapshotId(),
+                playlist.getTracks() == null ? 0 : orZero(playlist.getTracks().getTotal()),
+                playlist.getIsCollaborative(), playlist.getIsPublicAccess());
+    }
+
+    @Nullable
+    public synchronized Items.Playlist playlist(@NotNull Playlist playlist) {
+        return playlist(playlist.getId(), playlist.getName(), playlist.getOwner(), playlist.getSnapshotId(),
+                playlist.getTracks() == null ? 0 : orZero(playlist.getTracks().getTotal()),
+                playlist.getIsCollaborative(), playlist.getIsPublicAccess());
+    }
+
+    @Nullable
+    public synchronized Items.Show show(@NotNull ShowSimplified show) {
+        return show(show.getId(), show.getName(), show.getPublisher());
+    }
+
+    @Nullable
+    public synchronized Items.Show show(@NotNull Show show) {
+        return show(show.getId(), show.getName(), show.getPublisher());
+    }
+
+    @Nullable
+    public synchronized Items.Episode episode(@NotNull Episode episode) {
+        long[] id = decode(episode.getId());
+        if (id == null)
+            return null;
+        return episodes.computeIfAbsent(id[0], id[1], () -> new Items.Episode(id[0], id[1], orEmpty(episode.getName()),
+                episode.getShow() == null ? null : show(episode.getShow()),
+                orZero(episode.getDurationMs()),
+                Boolean.TRUE.equals(episode.getExplicit())));
+    }
+
+    @Nullable
+    public synchronized Items.Episode episode(@NotNull EpisodeSimplified episode, @Nullable Items.Show show) {
+        long[] id = decode(episode.getId());
+        if (id == null)
+            return null;
+        return episodes.computeIfAbsent(id[0], id[1], () -> new Items.Episode(id[0], id[1], orEmpty(episode.getName()),
+                show,
+                orZero(episode.getDurationMs()),
+                Boolean.TRUE.equals(episode.getExplicit())));
+    }
+
+    /**
+     * Playlists can hold both tracks and episodes
+     */
+    @Nullable
+    public synchronized IItem playlistItem(@Nullable IPlaylistItem item) {
+        if (item instanceof Track)
+            return track((Track) item);
+        if (item instanceof Episode)
+            return episode((Episode) item);
+        return null;
+    }
+
+    private Items.Artist artist(String artistId, String name) {
+        long[] id = decode(artistId);
+        if (id == null)
+            return null;
+        return artists.computeIfAbsent(id[0], id[1], () -> new Items.Artist(id[0], id[1], orEmpty(name)));
+    }
+
+    private Items.Album album(String albumId, String name, ArtistSimplified[] albumArtists, String releaseDate) {
+        long[] id = decode(albumId);
+        if (id == null)
+            return null;
+        return albums.computeIfAbsent(id[0], id[1], () -> new Items.Album(id[0], id[1], orEmpty(name),
+                artists(albumArtists, null), releaseYear(releaseDate)));
+    }
+
+    private Items.Playlist playlist(String playlistId, String name, User owner, String snapshotId, int totalTracks,
+                                    Boolean collaborative, Boolean publicAccess) {
+        long[] id = decode(playlistId);
+        if (id == null)
+            return null;
+        // Playlists change, so a newer copy replaces the pooled one instead of being dropped
+        var item = new Items.Playlist(id[0], id[1], orEmpty(name),
+                intern(owner == null ? "" : orEmpty(owner.getId())),
+                orEmpty(snapshotId),
+                totalTracks,
+                Boolean.TRUE.equals(collaborative),
+                Boolean.TRUE.equals(publicAccess));
+        playlists.put(id[0], id[1], item);
+        return item;
+    }
+
+    private Items.Show show(String showId, String name, String publisher) {
+        long[] id = decode(showId);
+        if (id == null)
+            return null;
+        return shows.computeIfAbsent(id[0], id[1], () -> new Items.Show(id[0], id[1], orEmpty(name), intern(orEmpty(publisher))));
+    }
+
+    // Most tracks are credited to exactly the album's artists, so share the album's array when they are the same
+    private Items.Artist[] artists(@Nullable ArtistSimplified[] source, @Nullable Items.Album album) {
+        if (source == null || source.length == 0)
+            return NO_ARTISTS;
+        var resolved = new Items.Artist[source.length];
+        int count = 0;
+        for (ArtistSimplified artist : source) {
+            Items.Artist item = artist == null ? null : artist(artist);
+            if (item != null)
+                resolved[count++] = item;
+        }
+        if (count == 0)
+            return NO_ARTISTS;
+        if (count < resolved.length)
+            resolved = Arrays.copyOf(resolved, count);
+        if (album != null && Arrays.equals(resolved, album.getArtistsShared()))
+            return album.getArtistsShared();
+        return resolved;
+    }
+
+    private String intern(String value) {
+        return strings.computeIfAbsent(value, v -> v);
+    }
+
+    @Nullable
+    private static long[] decode(@Nullable String id) {
+        return id == null ? null : SpotifyId.decode(id);
+    }
+
+    // Spotify release dates come as "YYYY", "YYYY-MM" or "YYYY-MM-DD"
+    private static short releaseYear(@Nullable String releaseDate) {
+        if (releaseDate == null || releaseDate.length() < 4)
+            return 0;
+        try {
+            return Short.parseShort(releaseDate.substring(0, 4));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int orZero(@Nullable Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    private static String orEmpty(@Nullable String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,241 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The compact item model.
+ *
+ * These are built from the wrapper's model objects (see ItemPool), but keep only what the CLI actually uses:
+ * IDs as two longs, primitives instead of boxed numbers, and references to shared Artist/Album instances instead of
+ * per-track copies. None of them hold on to the raw JSON, images, market lists or external URL maps.
+ * A saved track here costs well under a tenth of the heap of the wrapper's SavedTrack -> Track -> AlbumSimplified graph.
+ */
+public final class Items {
+    private Items() {
+    }
+
+    public static final class Artist extends AbstractItem {
+        Artist(long idHigh, long idLow, @NotNull String name) {
+            super(idHigh, idLow, name);
+        }
+
+        @Override
+        public String getType() {
+            return "artist";
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final class Album extends AbstractItem {
+        private final Artist[] artists;
+        // 0 if unknown
+        private final short releaseYear;
+
+        Album(long idHigh, long idLow, @NotNull String name, @NotNull Artist[] artists, short releaseYear) {
+            super(idHigh, idLow, name);
+            this.artists = artists;
+            this.releaseYear = releaseYear;
+        }
+
+        @Override
+        public String getType() {
+            return "album";
+        }
+
+        public Artist[] getArtists() {
+            return artists.clone();
+        }
+
+        // For ItemPool, so tracks credited to the album's artists can share this array
+        Artist[] getArtistsShared() {
+            return artists;
+        }
+
+        public int getReleaseYear() {
+            return releaseYear;
+        }
+
+        @Override
+        public String toString() {
+            return name + " - " + artistNames(artists) + (releaseYear > 0 ? " (" + releaseYear + ")" : "");
+        }
+    }
+
+    public static final class Track extends AbstractItem {
+        @Nullable
+        private final Album album;
+        private final Artist[] artists;
+        private final int durationMs;
+        private final byte popularity;
+        private final boolean explicit;
+
+        Track(long idHigh, long idLow, @NotNull String name, @Nullable Album album, @NotNull Artist[] artists,
+              int durationMs, byte popularity, boolean explicit) {
+            super(idHigh, idLow, name);
+            this.album = album;
+            this.artists = artists;
+            this.durationMs = durationMs;
+            this.popularity = popularity;
+            this.explicit = explicit;
+        }
+
+        @Override
+        public String getType() {
+            return "track";
+        }
+
+        @Nullable
+        public Album getAlbum() {
+            return album;
+        }
+
+        public Artist[] getArtists() {
+            return artists.clone();
+        }
+
+        public int getDurationMs() {
+            return durationMs;
+        }
+
+        public int getPopularity() {
+            return popularity;
+        }
+
+        public boolean isExplicit() {
+            return explicit;
+        }
+
+        @Override
+        public String toString() {
+            return name + " - " + artistNames(artists)
+                    + (album != null ? " (" + album.getName() + ")" : "")
+                    + " [" + formatDuration(durationMs) + "]";
+        }
+    }
+
+    public static final class Playlist extends AbstractItem {
+        private final String ownerId;
+        private final String snapshotId;
+        private final int totalTracks;
+        private final boolean collaborative;
+        private final boolean publicAccess;
+
+        Playlist(long idHigh, long idLow, @NotNull String name, @NotNull String ownerId, @NotNull String snapshotId,
+                 int totalTracks, boolean collaborative, boolean publicAccess) {
+            super(idHigh, idLow, name);
+            this.ownerId = ownerId;
+            this.snapshotId = snapshotId;
+            this.totalTracks = totalTracks;
+            this.collaborative = collaborative;
+            this.publicAccess = publicAccess;
+        }
+
+        @Override
+        public String getType() {
+            return "playlist";
+        }
+
+        public String getOwnerId() {
+            return ownerId;
+        }
+
+        public String getSnapshotId() {
+            return snapshotId;
+        }
+
+        public int getTotalTracks() {
+            return totalTracks;
+        }
+
+        public boolean isCollaborative() {
+            return collaborative;
+        }
+
+        public boolean isPublic() {
+            return publicAccess;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (by " + ownerId + ", " + totalTracks + " tracks)";
+        }
+    }
+
+    public static final class Show extends AbstractItem {
+        private final String publisher;
+
+        Show(long idHigh, long idLow, @NotNull String name, @NotNull String publisher) {
+            super(idHigh, idLow, name);
+            this.publisher = publisher;
+        }
+
+        @Override
+        public String getType() {
+            return "show";
+        }
+
+        public String getPublisher() {
+            return publisher;
+        }
+
+        @Override
+        public String toString() {
+            return name + " - " + publisher;
+        }
+    }
+
+    public static final class Episode extends AbstractItem {
+        @Nullable
+        private final Show show;
+        private final int durationMs;
+        private final boolean explicit;
+
+        Episode(long idHigh, long idLow, @NotNull String name, @Nullable Show show, int durationMs, boolean explicit) {
+            super(idHigh, idLow, name);
+            this.show = show;
+            this.durationMs = durationMs;
+            this.explicit = explicit;
+        }
+
+        @Override
+        public String getType() {
+            return "episode";
+        }
+
+        @Nullable
+        public Show getShow() {
+            return show;
+        }
+
+        public int getDurationMs() {
+            return durationMs;
+        }
+
+        public boolean isExplicit() {
+            return explicit;
+        }
+
+        @Override
+        public String toString() {
+            return name + (show != null ? " - " + show.getName() : "") + " [" + formatDuration(durationMs) + "]";
+        }
+    }
+
+    private static String artistNames(Artist[] artists) {
+        return Arrays.stream(artists).map(AbstractItem::getName).collect(Collectors.joining(", "));
+    }
+
+    // EX: 159000 -> "2:39"
+    private static String formatDuration(int durationMs) {
+        int seconds = durationMs / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
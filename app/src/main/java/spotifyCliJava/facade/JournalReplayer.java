@@ -0,0 +1,267 @@
+package spotifyCliJava.facade;
+
+import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.*;
+import com.wrapper.spotify.model_objects.AbstractModelObject;
+import com.wrapper.spotify.model_objects.specification.Playlist;
+import org.apache.hc.core5.http.ParseException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.SpotifyFacade;
+import spotifyCliJava.localStore.MembershipIndex;
+import spotifyCliJava.localStore.MutationJournal;
+import spotifyCliJava.localStore.MutationJournal.Entry;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Applies the mutations queued in a MutationJournal to Spotify.
+ *
+ * Entries are merged first: for each target and item only the last mutation counts, earlier ones are acknowledged
+ * without being sent. What's left is batched like MutationBatcher does (50 IDs per library request, 100 URIs per
+ * playlist request, removes before adds). Replaying is idempotent: saves, follows and removes can safely be sent
+ * twice, and a playlist add that an earlier run may already have applied is only sent if the playlist doesn't
+ * already hold the item.
+ *
+ * Entries Spotify rejects for good (a 4xx other than 429) are marked failed; on network trouble, rate limiting or
+ * server errors the replay stops and the rest stays queued for next time. So does reaching withMaxRequests().
+ */
+public class JournalReplayer {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.facade.JournalReplayer");
+    private static final int MAX_LIBRARY_IDS_PER_REQUEST = LibraryCollection.MAX_MUTATIONS_PER_REQUEST;
+    private static final int MAX_PLAYLIST_URIS_PER_REQUEST = PlaylistCollection.MAX_MUTATIONS_PER_REQUEST;
+
+    private final SpotifyFacade facade;
+    private final MutationJournal journal;
+
+    private int maxRequests = Integer.MAX_VALUE;
+    private int requests = 0;
+    private int applied = 0;
+    private int failed = 0;
+    private boolean interrupted = false;
+
+    public JournalReplayer(@NotNull SpotifyFacade facade, @NotNull MutationJournal journal) {
+        this.facade = facade;
+        this.journal = journal;
+    }
+
+    /**
+     * Stop once 'maxRequests' requests have been sent, leaving the rest queued. Replaying ahead of another command
+     * uses this, so a long queue doesn't hold the command up; 'journal flush' applies everything.
+     */
+    public JournalReplayer withMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    public static class Result {
+        public final int requests;
+        public final int applied;
+        public final int failed;
+        public final int remaining;
+
+        Result(int requests, int applied, int failed, int remaining) {
+            this.requests = requests;
+            this.applied = applied;
+            this.failed = failed;
+            this.remaining = remaining;
+        }
+    }
+
+    public synchronized Result replay() throws IOException {
+        requests = applied = failed = 0;
+        interrupted = false;
+
+        // Merge: the last entry for each target + item wins, the ones before it are superseded
+        var latest = new LinkedHashMap<String, Entry>();
+        var superseded = new ArrayList<Long>();
+        for (Entry entry : journal.pending()) {
+            Entry previous = latest.remove(mergeKey(entry));
+            if (previous != null)
+                superseded.add(previous.seq);
+            latest.put(mergeKey(entry), entry);
+        }
+        journal.markApplied(superseded);
+        applied += superseded.size();
+
+        // Group by target, keeping removes and adds apart
+        var groups = new LinkedHashMap<String, List<Entry>>();
+        for (Entry entry : latest.values())
+            groups.computeIfAbsent(entry.mutation.target + (entry.mutation.add ? "\t+" : "\t-"), k -> new ArrayList<>()).add(entry);
+
+        // Removes go before adds, so re-adding something that was also removed earlier ends up added
+        for (boolean adds : new boolean[]{false, true}) {
+            for (List<Entry> group : groups.values()) {
+                if (interrupted)
+                    break;
+                Entry first = group.get(0);
+                if (first.mutation.add != adds)
+                    continue;
+                if (first.mutation.isPlaylist())
+                    replayPlaylist(first.mutation.playlistID(), adds, group);
+                else if (first.mutation.isPlaylistFollow())
+                    for (Entry entry : group) {
+                        if (!interrupted)
+                            replayPlaylistFollow(entry);
+                    }
+                else
+                    for (int start = 0; start < group.size() && !interrupted; start += MAX_LIBRARY_IDS_PER_REQUEST)
+                        replayLibraryChunk(group.subList(start, Math.min(group.size(), start + MAX_LIBRARY_IDS_PER_REQUEST)));
+            }
+        }
+
+        journal.compact();
+        return new Result(requests, applied, failed, journal.pending().size());
+    }
+
+    private void replayLibraryChunk(List<Entry> chunk) throws IOException {
+        if (!requestAllowed())
+            return;
+        Entry first = chunk.get(0);
+        journal.markSending(seqs(chunk));
+        try {
+            requests++;
+            facade.sendLibraryUpdate(first.mutation.target, chunk.stream().map(e -> e.mutation.item).toArray(String[]::new),
+                    !first.mutation.add);
+            journal.markApplied(seqs(chunk));
+            applied += chunk.size();
+        } catch (BadRequestException | NotFoundException e) {
+            if (chunk.size() == 1) {
+                journal.markFailed(seqs(chunk), String.valueOf(e.getMessage()));
+                failed++;
+                return;
+            }
+            // Find the entries Spotify is rejecting without failing the rest with them
+            int half = chunk.size() / 2;
+            replayLibraryChunk(chunk.subList(0, half));
+            replayLibraryChunk(chunk.subList(half, chunk.size()));
+        } catch (ForbiddenException | UnauthorizedException | IllegalArgumentException e) {
+            journal.markFailed(seqs(chunk), String.valueOf(e.getMessage()));
+            failed += chunk.size();
+        } catch (IOException | SpotifyWebApiException | ParseException e) {
+            stop(e);
+        }
+    }
+
+    // Followed playlists can only be followed/unfollowed one at a time
+    private void replayPlaylistFollow(Entry entry) throws IOException {
+        if (!requestAllowed())
+            return;
+        journal.markSending(List.of(entry.seq));
+        try {
+            requests++;
+            facade.sendPlaylistFollow(entry.mutation.item, !entry.mutation.add,
+                    !entry.mutation.target.equals(MutationJournal.Mutation.PRIVATE_PLAYLIST_FOLLOW));
+            journal.markApplied(List.of(entry.seq));
+            applied++;
+        } catch (BadRequestException | NotFoundException | ForbiddenException | UnauthorizedException e) {
+            journal.markFailed(List.of(entry.seq), String.valueOf(e.getMessage()));
+            failed++;
+        } catch (IOException | SpotifyWebApiException | ParseException e) {
+            stop(e);
+        }
+    }
+
+    private void replayPlaylist(String playlistID, boolean adds, List<Entry> entries) throws IOException {
+        if (adds) {
+            // An add that an earlier run started sending may already be in the playlist; don't add it twice
+            List<Entry> uncertain = entries.stream().filter(e -> e.maybeApplied).toList();
+            if (!uncertain.isEmpty()) {
+                Set<String> present = presentUris(playlistID, uncertain);
+                if (present == null)
+                    return;
+                var alreadyApplied = new ArrayList<Long>();
+                var toSend = new ArrayList<Entry>();
+                for (Entry entry : entries) {
+                    if (entry.maybeApplied && present.contains(entry.mutation.item))
+                        alreadyApplied.add(entry.seq);
+                    else
+                        toSend.add(entry);
+                }
+                journal.markApplied(alreadyApplied);
+                applied += alreadyApplied.size();
+                entries = toSend;
+            }
+        }
+
+        for (int start = 0; start < entries.size() && requestAllowed(); start += MAX_PLAYLIST_URIS_PER_REQUEST) {
+            List<Entry> chunk = entries.subList(start, Math.min(entries.size(), start + MAX_PLAYLIST_URIS_PER_REQUEST));
+            String[] uris = chunk.stream().map(e -> e.mutation.item).toArray(String[]::new);
+            journal.markSending(seqs(chunk));
+            try {
+                requests++;
+                if (adds)
+                    facade.sendPlaylistAdd(playlistID, uris, null);
+                else
+                    facade.sendPlaylistRemove(playlistID, uris, null);
+                journal.markApplied(seqs(chunk));
+                applied += chunk.size();
+            } catch (BadRequestException | NotFoundException | ForbiddenException | UnauthorizedException e) {
+                journal.markFailed(seqs(chunk), String.valueOf(e.getMessage()));
+                failed += chunk.size();
+            } catch (IOException | SpotifyWebApiException | ParseException e) {
+                stop(e);
+            }
+        }
+    }
+
+    /**
+     * @return The URIs of 'entries' that are in the playlist right now, or null if that couldn't be found out
+     */
+    @Nullable
+    private Set<String> presentUris(String playlistID, List<Entry> entries) {
+        AbstractModelObject obj = facade.getItem("playlist", playlistID);
+        if (!(obj instanceof Playlist)) {
+            interrupted = true;
+            return null;
+        }
+        MembershipIndex membershipIndex = facade.getMembershipIndex();
+        String snapshotID = ((Playlist) obj).getSnapshotId();
+        PlaylistCollection.IndexStatus status = new PlaylistCollection(facade, new ItemPool(), playlistID, CountryCode.US)
+                .withMembershipIndex(membershipIndex, snapshotID)
+                .refreshMembershipIndex();
+        if (status == PlaylistCollection.IndexStatus.FAILED) {
+            interrupted = true;
+            return null;
+        }
+        var present = new HashSet<String>();
+        for (Entry entry : entries) {
+            String id = entry.mutation.item.substring(entry.mutation.item.lastIndexOf(':') + 1);
+            long[] pair = SpotifyId.decode(id);
+            if (pair != null && membershipIndex.contains("playlist", playlistID, pair[0], pair[1]))
+                present.add(entry.mutation.item);
+        }
+        return present;
+    }
+
+    // False once the replay has stopped, or has sent as many requests as it may
+    private boolean requestAllowed() {
+        if (requests >= maxRequests)
+            interrupted = true;
+        return !interrupted;
+    }
+
+    private void stop(Exception e) {
+        var msg = "Stopped applying queued changes, the rest stay queued: " + e.getMessage();
+        logger.error(msg);
+        System.err.println(msg);
+        interrupted = true;
+    }
+
+    // A private follow and a later unfollow of the same playlist are changes to the same thing
+    private static String mergeKey(Entry entry) {
+        String target = entry.mutation.isPlaylistFollow() ? "playlist" : entry.mutation.target;
+        return target + "\t" + entry.mutation.item;
+    }
+
+    private static List<Long> seqs(List<Entry> entries) {
+        var seqs = new ArrayList<Long>(entries.size());
+        for (Entry entry : entries)
+            seqs.add(entry.seq);
+        return seqs;
+    }
+}
@@ -0,0 +1,251 @@
+package spotifyCliJava.facade;
+
+import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.model_objects.AbstractModelObject;
+import com.wrapper.spotify.model_objects.specification.*;
+import org.apache.hc.core5.http.ParseException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.SpotifyFacade;
+import spotifyCliJava.localStore.MembershipIndex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * One of the user's saved/followed collections (EX: saved tracks), fetched a page at a time (see PagedCollection).
+ * For loading the whole library at once see UserLibrary. contains() can be answered from a MembershipIndex.
+ *
+ * Saving/following with add() and remove() is buffered until flush() (see MutationBatcher).
+ */
+public class LibraryCollection extends PagedCollection implements Mutable {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.facade.LibraryCollection");
+
+    // The most items Spotify returns per request for any of the library endpoints
+    public static final int PAGE_SIZE = 50;
+    // The most IDs Spotify accepts per save/remove/follow/unfollow request
+    public static final int MAX_MUTATIONS_PER_REQUEST = 50;
+
+    private final SpotifyFacade facade;
+    private final ItemPool itemPool;
+    private final String itemType;
+    private final CountryCode market;
+    // Followed artists are cursor paged: afterCursors.get(n) is the cursor that fetches page n (null for page 0)
+    private final List<String> afterCursors = new ArrayList<>();
+    private final MutationBatcher batcher = new MutationBatcher(MAX_MUTATIONS_PER_REQUEST, MAX_MUTATIONS_PER_REQUEST);
+    private MembershipIndex membershipIndex;
+    // flush() changed the collection and the index couldn't be rebuilt after
+    private volatile boolean indexStale = false;
+
+    /**
+     * @param itemType One of UserLibrary.COLLECTION_TYPES
+     */
+    public LibraryCollection(@NotNull SpotifyFacade facade, @NotNull ItemPool itemPool, @NotNull String itemType, CountryCode market) {
+        super(PAGE_SIZE, DEFAULT_MAX_CACHED_PAGES);
+        if (!UserLibrary.COLLECTION_TYPES.contains(itemType))
+            throw new IllegalArgumentException("Item type not recognized: " + itemType);
+        this.facade = facade;
+        this.itemPool = itemPool;
+        this.itemType = itemType;
+        this.market = market;
+        afterCursors.add(null);
+    }
+
+    public String getItemType() {
+        return itemType;
+    }
+
+    @Override
+    public LibraryCollection withPageLoader(@NotNull Executor pageLoader) {
+        super.withPageLoader(pageLoader);
+        return this;
+    }
+
+    /**
+     * Answer contains() from 'membershipIndex' instead of paging through the collection. Library collections have no
+     * snapshot_id, so there is no cheap way to tell whether the collection has changed since it was indexed: the index
+     * is answered from as it was last built, and rebuilt only by refreshMembershipIndex() (and by flush()). Until it
+     * has been built, contains() pages through the collection.
+     */
+    public LibraryCollection withMembershipIndex(@Nullable MembershipIndex membershipIndex) {
+        this.membershipIndex = membershipIndex;
+        return this;
+    }
+
+    @Override
+    public boolean contains(@NotNull IItem item) {
+        if (membershipIndex == null || indexStale || membershipIndex.indexedVersion("library", itemType) == null)
+            return super.contains(item);
+        return membershipIndex.contains("library", itemType, item);
+    }
+
+    /**
+     * Rebuild the membership index from the collection as it is now. It is rebuilt only from pages fetched from
+     * Spotify just now, never from the local store, which may be behind.
+     *
+     * @return False if there is no index, or the collection could not be paged through (the error has been reported;
+     * the index is left as it was)
+     */
+    public boolean refreshMembershipIndex() {
+        if (membershipIndex == null)
+            return false;
+        List<IItem> all = retrieveAllFreshOrNull();
+        if (all == null) // don't record an index with holes in it
+            return false;
+        // The version only records when it was built
+        membershipIndex.put("library", itemType, Long.toString(System.currentTimeMillis()), all);
+        indexStale = false;
+        return true;
+    }
+
+    /**
+     * Every item in the collection, a page at a time straight from Spotify (never from the local store)
+     *
+     * @return The items, or null if a page could not be fetched (the error has been reported)
+     */
+    @Nullable
+    private List<IItem> retrieveAllFreshOrNull() {
+        var all = new ArrayList<IItem>();
+        String after = null;
+        for (int offset = 0; ; offset += PAGE_SIZE) {
+            AbstractModelObject obj;
+            try {
+                obj = facade.fetchUserCollection(itemType, PAGE_SIZE, offset, after, market);
+            } catch (IOException | SpotifyWebApiException | ParseException e) {
+                var msg = "Could not read your saved " + itemType + "s: " + e.getMessage();
+                logger.error(msg);
+                System.err.println(msg);
+                return null;
+            }
+            Object[] saved;
+            boolean last;
+            if (obj instanceof PagingCursorbased) {
+                var page = (PagingCursorbased<?>) obj;
+                saved = page.getItems();
+                Cursor[] cursors = page.getCursors();
+                after = cursors == null || cursors.length == 0 ? null : cursors[0].getAfter();
+                last = page.getNext() == null || after == null;
+            } else {
+                var page = (Paging<?>) obj;
+                saved = page.getItems();
+                last = page.getNext() == null || (page.getTotal() != null && offset + saved.length >= page.getTotal());
+            }
+            for (Object item : saved)
+                all.add(toItem(item));
+            if (last || saved.length == 0)
+                return all;
+        }
+    }
+
+    /**
+     * Queue 'item' to be saved (or for artists, followed) on the next flush(). No kwargs are used.
+     */
+    @Override
+    public void add(@NotNull IItem item, @Nullable HashMap<String, String> kwargs) {
+        batcher.add(item, null);
+    }
+
+    /**
+     * Queue 'item' to be removed (or for artists, unfollowed) on the next flush(). No kwargs are used.
+     */
+    @Override
+    public void remove(@NotNull IItem item, @Nullable HashMap<String, String> kwargs) {
+        batcher.remove(item);
+    }
+
+    public int pendingMutations() {
+        return batcher.pendingCount();
+    }
+
+    /**
+     * Send every queued save and remove, 50 IDs per request. Requests that fail in a way worth retrying are queued in
+     * the journal for a later run (see SpotifyFacade.updateLibrary()).
+     */
+    public MutationBatcher.FlushResult flush() {
+        MutationBatcher.FlushResult result = batcher.flush(new MutationBatcher.Sink() {
+            @Override
+            public MutationBatcher.Outcome add(@NotNull List<IItem> items, @Nullable Integer position) {
+                return facade.updateLibrary(itemType, ids(items), false);
+            }
+
+            @Override
+            public MutationBatcher.Outcome remove(@NotNull List<IItem> items) {
+                return facade.updateLibrary(itemType, ids(items), true);
+            }
+        });
+        if (result.added + result.removed > 0) {
+            invalidate();
+            synchronized (afterCursors) {
+                afterCursors.subList(1, afterCursors.size()).clear();
+            }
+            if (membershipIndex != null)
+                indexStale = !refreshMembershipIndex();
+        }
+        return result;
+    }
+
+    private static String[] ids(List<IItem> items) {
+        return items.stream().map(IItem::getId).toArray(String[]::new);
+    }
+
+    @Nullable
+    @Override
+    protected Page fetchPage(int offset, int limit) {
+        if (itemType.equals("artist"))
+            return fetchArtistPage(offset / limit, limit);
+
+        AbstractModelObject obj = facade.getUserCollection(itemType, limit, offset, market);
+        if (!(obj instanceof Paging))
+            return null;
+        var page = (Paging<?>) obj;
+        Object[] saved = page.getItems();
+        var items = new IItem[saved.length];
+        for (int i = 0; i < saved.length; i++)
+            items[i] = toItem(saved[i]);
+        return new Page(items, page.getTotal() == null ? offset + items.length : page.getTotal());
+    }
+
+    // A cursor only leads to the page after it, so reaching page n means walking up from the last cursor we know
+    @Nullable
+    private Page fetchArtistPage(int pageIndex, int limit) {
+        synchronized (afterCursors) {
+            PagingCursorbased<Artist> page = null;
+            for (int n = Math.min(pageIndex, afterCursors.size() - 1); n <= pageIndex; n++) {
+                page = facade.getFollowedArtists(limit, afterCursors.get(n));
+                if (page == null)
+                    return null;
+                Cursor[] cursors = page.getCursors();
+                if (n + 1 == afterCursors.size() && page.getNext() != null && cursors != null && cursors.length > 0)
+                    afterCursors.add(cursors[0].getAfter());
+                else if (n < pageIndex && n + 1 >= afterCursors.size())
+                    return new Page(new IItem[0], n * limit + page.getItems().length); // ran off the end
+            }
+            Artist[] artists = page.getItems();
+            var items = new IItem[artists.length];
+            for (int i = 0; i < artists.length; i++)
+                items[i] = artists[i] == null ? null : itemPool.artist(artists[i]);
+            return new Page(items, page.getTotal() == null ? pageIndex * limit + items.length : page.getTotal());
+        }
+    }
+
+    @Nullable
+    private IItem toItem(Object saved) {
+        if (saved instanceof SavedAlbum)
+            return ((SavedAlbum) saved).getAlbum() == null ? null : itemPool.album(((SavedAlbum) saved).getAlbum());
+        if (saved instanceof SavedTrack)
+            return ((SavedTrack) saved).getTrack() == null ? null : itemPool.track(((SavedTrack) saved).getTrack());
+        if (saved instanceof SavedShow)
+            return ((SavedShow) saved).getShow() == null ? null : itemPool.show(((SavedShow) saved).getShow());
+        if (saved instanceof PlaylistSimplified)
+            return itemPool.playlist((PlaylistSimplified) saved);
+        if (saved instanceof Artist)
+            return itemPool.artist((Artist) saved);
+        return null;
+    }
+}
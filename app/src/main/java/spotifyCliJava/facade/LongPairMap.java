@@ -0,0 +1,118 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * An open addressing hash map keyed by a pair of longs, EX: a Spotify ID split with SpotifyId.high() and .low().
+ * Keys are stored in primitive arrays, so there is no boxing and no per-entry object. A null value marks an empty
+ * slot, so every key (including (0, 0)) can be stored. Not thread safe.
+ */
+public class LongPairMap<V> {
+    private static final float MAX_LOAD = 0.6f;
+
+    private long[] highs;
+    private long[] lows;
+    private Object[] values;
+    private int size = 0;
+
+    public LongPairMap() {
+        this(16);
+    }
+
+    public LongPairMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        highs = new long[capacity];
+        lows = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(long high, long low) {
+        int slot = find(highs, lows, values, high, low);
+        return (V) values[slot];
+    }
+
+    public boolean containsKey(long high, long low) {
+        return values[find(highs, lows, values, high, low)] != null;
+    }
+
+    /**
+     * @param value Must not be null, null marks an empty slot
+     * @return The previous value, or null if there was none
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V put(long high, long low, V value) {
+        int slot = find(highs, lows, values, high, low);
+        V previous = (V) values[slot];
+        highs[slot] = high;
+        lows[slot] = low;
+        values[slot] = value;
+        if (previous == null && ++size > values.length * MAX_LOAD)
+            grow();
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long high, long low, Supplier<V> supplier) {
+        int slot = find(highs, lows, values, high, low);
+        if (values[slot] != null)
+            return (V) values[slot];
+        V value = supplier.get();
+        put(high, low, value);
+        return value;
+    }
+
+    public interface EntryConsumer<V> {
+        void accept(long high, long low, V value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null)
+                consumer.accept(highs[i], lows[i], (V) values[i]);
+        }
+    }
+
+    static int hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    // Linear probing; returns the slot holding the key, or the empty slot where it belongs
+    private static int find(long[] highs, long[] lows, Object[] values, long high, long low) {
+        int mask = values.length - 1;
+        int slot = hash(high, low) & mask;
+        while (values[slot] != null && (highs[slot] != high || lows[slot] != low))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldHighs = highs;
+        long[] oldLows = lows;
+        Object[] oldValues = values;
+        highs = new long[oldValues.length * 2];
+        lows = new long[oldValues.length * 2];
+        values = new Object[oldValues.length * 2];
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null)
+                continue;
+            int slot = find(highs, lows, values, oldHighs[i], oldLows[i]);
+            highs[slot] = oldHighs[i];
+            lows[slot] = oldLows[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
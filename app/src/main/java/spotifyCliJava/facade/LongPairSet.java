@@ -0,0 +1,97 @@
+package spotifyCliJava.facade;
+
+/**
+ * An open addressing hash set of long pairs (EX: Spotify IDs split with SpotifyId.high() and .low()),
+ * kept in two primitive arrays. (0, 0) marks an empty slot, so that pair (EX: the ID "0000000000000000000000") is
+ * tracked with a flag of its own instead. Not thread safe.
+ */
+public class LongPairSet {
+    private static final float MAX_LOAD = 0.6f;
+
+    private long[] highs;
+    private long[] lows;
+    private int size = 0;
+    private boolean containsZero;
+
+    public LongPairSet() {
+        this(16);
+    }
+
+    public LongPairSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        highs = new long[capacity];
+        lows = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long high, long low) {
+        if (high == 0 && low == 0)
+            return containsZero;
+        int slot = find(highs, lows, high, low);
+        return !isEmpty(highs, lows, slot);
+    }
+
+    /**
+     * @return False if the pair was already in the set
+     */
+    public boolean add(long high, long low) {
+        if (high == 0 && low == 0) {
+            if (containsZero)
+                return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = find(highs, lows, high, low);
+        if (!isEmpty(highs, lows, slot))
+            return false;
+        highs[slot] = high;
+        lows[slot] = low;
+        if (++size > highs.length * MAX_LOAD)
+            grow();
+        return true;
+    }
+
+    public interface PairConsumer {
+        void accept(long high, long low);
+    }
+
+    public void forEach(PairConsumer consumer) {
+        if (containsZero)
+            consumer.accept(0, 0);
+        for (int i = 0; i < highs.length; i++) {
+            if (!isEmpty(highs, lows, i))
+                consumer.accept(highs[i], lows[i]);
+        }
+    }
+
+    private static boolean isEmpty(long[] highs, long[] lows, int slot) {
+        return highs[slot] == 0 && lows[slot] == 0;
+    }
+
+    // Linear probing; returns the slot holding the pair, or the empty slot where it belongs
+    private static int find(long[] highs, long[] lows, long high, long low) {
+        int mask = highs.length - 1;
+        int slot = LongPairMap.hash(high, low) & mask;
+        while (!isEmpty(highs, lows, slot) && (highs[slot] != high || lows[slot] != low))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldHighs = highs;
+        long[] oldLows = lows;
+        highs = new long[oldHighs.length * 2];
+        lows = new long[oldHighs.length * 2];
+        for (int i = 0; i < oldHighs.length; i++) {
+            if (isEmpty(oldHighs, oldLows, i))
+                continue;
+            int slot = find(highs, lows, oldHighs[i], oldLows[i]);
+            highs[slot] = oldHighs[i];
+            lows[slot] = oldLows[i];
+        }
+    }
+}
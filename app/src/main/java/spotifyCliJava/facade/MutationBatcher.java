@@ -0,0 +1,174 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers adds and removes against one collection, and sends them in as few requests as the endpoint allows.
+ *
+ * An add and a remove of the same item cancel each other out before anything is sent, and adding (or removing)
+ * the same item twice is sent once. flush() sends every pending remove first, then every add, each in chunks of
+ * the endpoint's maximum; adds that were given a position are sent together only when their positions are
+ * contiguous. Chunks that fail stay pending, so flush() can be called again to retry them; chunks the sink queued
+ * for a later run (see SpotifyFacade.queueFailedMutations()) are no longer pending here.
+ * Thread safe.
+ */
+public class MutationBatcher {
+    private final int maxAddsPerRequest;
+    private final int maxRemovesPerRequest;
+    // In the order the mutations were made; an item has at most one pending mutation
+    private final Map<IItem, Mutation> pending = new LinkedHashMap<>();
+
+    /**
+     * What became of one chunk of mutations
+     */
+    public enum Outcome {
+        SENT,
+        // Not applied yet, but durably queued in the journal to be applied on a later run
+        QUEUED,
+        FAILED
+    }
+
+    /**
+     * Sends one chunk of mutations. Implemented by each Mutable collection for its endpoints.
+     */
+    public interface Sink {
+        /**
+         * @param position Where to insert the items, or null to append them (only used by ordered collections)
+         */
+        Outcome add(@NotNull List<IItem> items, @Nullable Integer position);
+
+        Outcome remove(@NotNull List<IItem> items);
+    }
+
+    private static class Mutation {
+        final boolean add;
+        @Nullable
+        final Integer position;
+
+        Mutation(boolean add, @Nullable Integer position) {
+            this.add = add;
+            this.position = position;
+        }
+    }
+
+    public static class FlushResult {
+        public final int requests;
+        public final int added;
+        public final int removed;
+        // Items whose chunk was queued in the journal instead of being applied
+        public final int queued;
+        // Items whose chunk failed, they are still pending
+        public final int failed;
+
+        FlushResult(int requests, int added, int removed, int queued, int failed) {
+            this.requests = requests;
+            this.added = added;
+            this.removed = removed;
+            this.queued = queued;
+            this.failed = failed;
+        }
+    }
+
+    public MutationBatcher(int maxAddsPerRequest, int maxRemovesPerRequest) {
+        this.maxAddsPerRequest = maxAddsPerRequest;
+        this.maxRemovesPerRequest = maxRemovesPerRequest;
+    }
+
+    /**
+     * @param position Where to insert the item, or null to append it
+     */
+    public synchronized void add(@NotNull IItem item, @Nullable Integer position) {
+        Mutation previous = pending.get(item);
+        if (previous != null && !previous.add)
+            pending.remove(item); // cancels the pending remove
+        else if (previous == null)
+            pending.put(item, new Mutation(true, position));
+    }
+
+    public synchronized void remove(@NotNull IItem item) {
+        Mutation previous = pending.get(item);
+        if (previous != null && previous.add)
+            pending.remove(item); // cancels the pending add
+        else if (previous == null)
+            pending.put(item, new Mutation(false, null));
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    public synchronized void clear() {
+        pending.clear();
+    }
+
+    public synchronized FlushResult flush(@NotNull Sink sink) {
+        int requests = 0;
+        int added = 0;
+        int removed = 0;
+        int queued = 0;
+        int failed = 0;
+
+        var removes = new ArrayList<IItem>();
+        for (Map.Entry<IItem, Mutation> entry : pending.entrySet()) {
+            if (!entry.getValue().add)
+                removes.add(entry.getKey());
+        }
+        for (int start = 0; start < removes.size(); start += maxRemovesPerRequest) {
+            List<IItem> chunk = removes.subList(start, Math.min(removes.size(), start + maxRemovesPerRequest));
+            requests++;
+            Outcome outcome = sink.remove(chunk);
+            if (outcome == Outcome.FAILED) {
+                failed += chunk.size();
+                continue;
+            }
+            if (outcome == Outcome.SENT)
+                removed += chunk.size();
+            else
+                queued += chunk.size();
+            chunk.forEach(pending::remove);
+        }
+
+        // Group the adds into runs that can go out as one request: appends together, and positioned
+        // inserts only while each item's position follows on from the last
+        var runs = new ArrayList<List<IItem>>();
+        var runPositions = new ArrayList<Integer>();
+        List<IItem> run = null;
+        Integer nextPosition = null;
+        for (Map.Entry<IItem, Mutation> entry : pending.entrySet()) {
+            Mutation mutation = entry.getValue();
+            if (!mutation.add)
+                continue;
+            boolean continuesRun = run != null && run.size() < maxAddsPerRequest
+                    && (mutation.position == null ? runPositions.get(runPositions.size() - 1) == null
+                    : mutation.position.equals(nextPosition));
+            if (!continuesRun) {
+                run = new ArrayList<>();
+                runs.add(run);
+                runPositions.add(mutation.position);
+            }
+            run.add(entry.getKey());
+            nextPosition = mutation.position == null ? null : mutation.position + 1;
+        }
+        for (int i = 0; i < runs.size(); i++) {
+            List<IItem> chunk = runs.get(i);
+            requests++;
+            Outcome outcome = sink.add(chunk, runPositions.get(i));
+            if (outcome == Outcome.FAILED) {
+                failed += chunk.size();
+                continue;
+            }
+            if (outcome == Outcome.SENT)
+                added += chunk.size();
+            else
+                queued += chunk.size();
+            chunk.forEach(pending::remove);
+        }
+        return new FlushResult(requests, added, removed, queued, failed);
+    }
+}
@@ -0,0 +1,244 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of the lazily paged collections (see PlaylistCollection, AlbumCollection and LibraryCollection).
+ *
+ * items() hands back a view over the collection: nothing is fetched until an element is asked for, and then only
+ * the page holding it. Once a page is in, the next READ_AHEAD pages are fetched in the background, so walking the
+ * list front to back rarely waits on the network. Pages live in a small LRU cache of 'maxCachedPages', so iterating
+ * over a 10k track playlist holds a few pages at a time; only items the caller keeps a reference to stay around.
+ */
+abstract class PagedCollection implements ItemCollection {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.facade.PagedCollection");
+
+    public static final int DEFAULT_MAX_CACHED_PAGES = 4;
+    private static final int READ_AHEAD = 1;
+
+    // How long a page that could not be fetched is answered as failed, so that walking over it doesn't send a request
+    // for each of its items to an endpoint that is already failing
+    private static final long FAILED_PAGE_RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // Shared by the collections not given a loader of their own; the threads exit once there is nothing left to read ahead
+    private static final ThreadPoolExecutor sharedPageLoader = new ThreadPoolExecutor(4, 4, 5, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new NamedThreadFactory("page-loader"));
+
+    static {
+        sharedPageLoader.allowCoreThreadTimeOut(true);
+    }
+
+    private Executor pageLoader = sharedPageLoader;
+
+    protected final int pageSize;
+    private final Map<Integer, Future<Page>> pages;
+    // When each page in 'pages' that could not be fetched failed, guarded by 'pages'
+    private final Map<Integer, Long> failedAt = new HashMap<>();
+    // -1 until the first page is in
+    private volatile int total = -1;
+    private final AtomicInteger failedPageLoads = new AtomicInteger();
+
+    protected PagedCollection(int pageSize, int maxCachedPages) {
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Future<Page>> eldest) {
+                return size() > Math.max(1, maxCachedPages);
+            }
+        };
+    }
+
+    /**
+     * Fetch pages on 'pageLoader' rather than on the few threads shared by every collection, EX: to walk many
+     * collections at once, as many pages at a time as the caller has threads for
+     */
+    public PagedCollection withPageLoader(@NotNull Executor pageLoader) {
+        this.pageLoader = pageLoader;
+        return this;
+    }
+
+    /**
+     * One page of items, as fetched by fetchPage()
+     */
+    protected static final class Page {
+        // Entries are null for things that can't be represented as an item (EX: local files in a playlist)
+        final IItem[] items;
+        final int total;
+
+        Page(@NotNull IItem[] items, int total) {
+            this.items = items;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Fetch 'limit' items starting at 'offset'
+     *
+     * @return The page, or null if it could not be fetched (the error has already been reported)
+     */
+    @Nullable
+    protected abstract Page fetchPage(int offset, int limit);
+
+    /**
+     * A lazy view of the items in this collection. Elements are null where a position holds something that can't be
+     * represented as an item (EX: a local file), or whose page could not be fetched.
+     *
+     * @param limit       How many items to include, ignored if 'retrieveAll'
+     * @param offset      Position of the first item to include
+     * @param retrieveAll Include everything from 'offset' to the end of the collection
+     */
+    @Override
+    public List<IItem> items(int limit, int offset, boolean retrieveAll) {
+        int start = Math.max(0, offset);
+        return new View(start, retrieveAll ? Integer.MAX_VALUE : Math.max(0, limit));
+    }
+
+    /**
+     * Walks the collection until 'item' is found
+     */
+    @Override
+    public boolean contains(@NotNull IItem item) {
+        for (IItem member : items(0, 0, true)) {
+            if (item.equals(member))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return How many items Spotify says the collection holds (fetches the first page if need be)
+     */
+    public int total() {
+        if (total < 0)
+            page(0);
+        return Math.max(total, 0);
+    }
+
+    /**
+     * @return How many times a page could not be fetched; lets callers tell a complete walk of items() from one
+     * with holes in it
+     */
+    public int failedPageLoads() {
+        return failedPageLoads.get();
+    }
+
+    /**
+     * Walk the whole collection, for building an index over it
+     *
+     * @return Every item, or null if a page could not be fetched
+     */
+    @Nullable
+    protected List<IItem> retrieveAllOrNull() {
+        int failuresBefore = failedPageLoads();
+        var all = new ArrayList<IItem>(Math.max(0, total()));
+        all.addAll(items(0, 0, true));
+        return failedPageLoads() == failuresBefore ? all : null;
+    }
+
+    // Drop every cached page, EX: after the collection has been modified
+    protected void invalidate() {
+        synchronized (pages) {
+            pages.values().forEach(page -> page.cancel(false));
+            pages.clear();
+            failedAt.clear();
+        }
+        total = -1;
+    }
+
+    @Nullable
+    private IItem item(int index) {
+        Page page = page(index / pageSize);
+        if (page == null)
+            return null;
+        int inPage = index % pageSize;
+        return inPage < page.items.length ? page.items[inPage] : null;
+    }
+
+    @Nullable
+    private Page page(int pageIndex) {
+        Future<Page> future = request(pageIndex);
+        for (int ahead = 1; ahead <= READ_AHEAD; ahead++) {
+            int next = pageIndex + ahead;
+            if (total >= 0 && next * pageSize < total)
+                request(next);
+        }
+        Page page = null;
+        try {
+            page = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            logger.error("Could not load page " + pageIndex + ": " + e);
+        }
+        if (page == null)
+            failedPageLoads.incrementAndGet();
+        return page;
+    }
+
+    private Future<Page> request(int pageIndex) {
+        synchronized (pages) {
+            Future<Page> future = pages.get(pageIndex);
+            Long failed = failedAt.get(pageIndex);
+            // A failure is kept around for a while, then the next request for the page tries again
+            if (future != null && (failed == null || System.nanoTime() - failed < FAILED_PAGE_RETRY_NANOS))
+                return future;
+            failedAt.remove(pageIndex);
+            var task = new FutureTask<>(() -> {
+                Page page = null;
+                try {
+                    page = fetchPage(pageIndex * pageSize, pageSize);
+                } finally {
+                    if (page == null) {
+                        synchronized (pages) {
+                            failedAt.put(pageIndex, System.nanoTime());
+                        }
+                    } else {
+                        total = page.total;
+                    }
+                }
+                return page;
+            });
+            pages.put(pageIndex, task);
+            pageLoader.execute(task);
+            return task;
+        }
+    }
+
+    private class View extends AbstractList<IItem> implements RandomAccess {
+        private final int start;
+        private final int limit;
+
+        View(int start, int limit) {
+            this.start = start;
+            this.limit = limit;
+        }
+
+        @Override
+        public IItem get(int index) {
+            if (index < 0 || index >= size())
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            return item(start + index);
+        }
+
+        @Override
+        public int size() {
+            if (total < 0)
+                page(start / pageSize);
+            return Math.max(0, Math.min(limit, total - start));
+        }
+    }
+}
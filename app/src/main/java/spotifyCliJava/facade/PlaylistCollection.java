@@ -0,0 +1,307 @@
+package spotifyCliJava.facade;
+
+import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.model_objects.specification.Paging;
+import com.wrapper.spotify.model_objects.specification.PlaylistTrack;
+import org.apache.hc.core5.http.ParseException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.SpotifyFacade;
+import spotifyCliJava.localStore.MembershipIndex;
+import spotifyCliJava.localStore.MutationJournal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The tracks and episodes of one playlist, fetched a page at a time (see PagedCollection).
+ * Changes made with add() and remove() are buffered until flush() (see MutationBatcher).
+ */
+public class PlaylistCollection extends PagedCollection implements Mutable {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.facade.PlaylistCollection");
+
+    // The most items Spotify returns per request for a playlist
+    public static final int PAGE_SIZE = 100;
+    // The most items Spotify accepts per add or remove request
+    public static final int MAX_MUTATIONS_PER_REQUEST = 100;
+
+    private final SpotifyFacade facade;
+    private final ItemPool itemPool;
+    private final String playlistID;
+    private final CountryCode market;
+    private MembershipIndex membershipIndex;
+    private volatile String snapshotID;
+    private final MutationBatcher batcher = new MutationBatcher(MAX_MUTATIONS_PER_REQUEST, MAX_MUTATIONS_PER_REQUEST);
+    private boolean queueing = true;
+
+    public PlaylistCollection(@NotNull SpotifyFacade facade, @NotNull ItemPool itemPool, @NotNull String playlistID, CountryCode market) {
+        super(PAGE_SIZE, DEFAULT_MAX_CACHED_PAGES);
+        this.facade = facade;
+        this.itemPool = itemPool;
+        this.playlistID = playlistID;
+        this.market = market;
+    }
+
+    public String getPlaylistID() {
+        return playlistID;
+    }
+
+    /**
+     * @return The snapshot_id the playlist is known to be at, updated by every flush(); null if unknown
+     */
+    @Nullable
+    public String getSnapshotID() {
+        return snapshotID;
+    }
+
+    @Override
+    public PlaylistCollection withPageLoader(@NotNull Executor pageLoader) {
+        super.withPageLoader(pageLoader);
+        return this;
+    }
+
+    /**
+     * @param snapshotID The snapshot_id the playlist was read at. Before sending removes, flush() checks that the
+     *                   playlist is still at it (Spotify ignores snapshot_id when removing by URI), and keeps the
+     *                   removes pending instead of applying them to a playlist that has changed since it was read.
+     */
+    public PlaylistCollection withSnapshotID(@Nullable String snapshotID) {
+        this.snapshotID = snapshotID;
+        return this;
+    }
+
+    /**
+     * Answer contains() from 'membershipIndex' instead of paging through the playlist.
+     * If the playlist was indexed at a different snapshot, it is paged through once to rebuild its index.
+     *
+     * @param snapshotID The playlist's current snapshot_id (EX: from Items.Playlist.getSnapshotId())
+     */
+    public PlaylistCollection withMembershipIndex(@Nullable MembershipIndex membershipIndex, @NotNull String snapshotID) {
+        this.membershipIndex = membershipIndex;
+        this.snapshotID = snapshotID;
+        return this;
+    }
+
+    /**
+     * Queue 'item' to be added to the playlist on the next flush()
+     *
+     * @param kwargs "position": where to insert the item, a number from 0 (default: append it). An item with an
+     *               invalid position is reported and not queued.
+     */
+    @Override
+    public void add(@NotNull IItem item, @Nullable HashMap<String, String> kwargs) {
+        String position = kwargs == null ? null : kwargs.get("position");
+        if (position == null) {
+            batcher.add(item, null);
+            return;
+        }
+        int index;
+        try {
+            index = Integer.parseInt(position.trim());
+        } catch (NumberFormatException e) {
+            index = -1;
+        }
+        if (index < 0) {
+            var msg = "Invalid position \"" + position + "\" for " + item.getUri() + ", expected a number from 0; not added";
+            logger.error(msg);
+            System.err.println(msg);
+            return;
+        }
+        batcher.add(item, index);
+    }
+
+    /**
+     * Queue 'item' to be removed from the playlist (every occurrence of it) on the next flush()
+     *
+     * @param kwargs "snapshot_id": the snapshot the removal is meant for (default: the one set with withSnapshotID())
+     */
+    @Override
+    public void remove(@NotNull IItem item, @Nullable HashMap<String, String> kwargs) {
+        if (kwargs != null && kwargs.containsKey("snapshot_id"))
+            snapshotID = kwargs.get("snapshot_id");
+        batcher.remove(item);
+    }
+
+    public int pendingMutations() {
+        return batcher.pendingCount();
+    }
+
+    /**
+     * Whether flush() queues requests that fail in a way worth retrying in the journal, to be applied on a later run
+     * (the default), or leaves them pending. Turn it off when later changes depend on these being applied now:
+     * queued changes lose their position, and are applied after whatever the caller does next.
+     */
+    public PlaylistCollection withQueueing(boolean queueing) {
+        this.queueing = queueing;
+        return this;
+    }
+
+    /**
+     * Send every queued add and remove, 100 items per request. Removes go first, and only if the playlist is still at
+     * the known snapshot_id; each request moves the known snapshot_id on to the one Spotify returns.
+     * Appends and removes that fail in a way worth retrying are queued in the journal (see withQueueing()).
+     */
+    public MutationBatcher.FlushResult flush() {
+        MutationBatcher.FlushResult result = batcher.flush(new MutationBatcher.Sink() {
+            // null until the first remove checks the snapshot
+            private Boolean snapshotCurrent;
+
+            @Override
+            public MutationBatcher.Outcome add(@NotNull List<IItem> items, @Nullable Integer position) {
+                try {
+                    snapshotID = facade.sendPlaylistAdd(playlistID, uris(items), position);
+                    return MutationBatcher.Outcome.SENT;
+                } catch (IOException | SpotifyWebApiException | ParseException e) {
+                    // The journal has no place for a position, so positioned inserts aren't queued
+                    return failed(items, true, position == null, e);
+                }
+            }
+
+            @Override
+            public MutationBatcher.Outcome remove(@NotNull List<IItem> items) {
+                if (snapshotCurrent == null)
+                    snapshotCurrent = isSnapshotCurrent();
+                if (!snapshotCurrent)
+                    return MutationBatcher.Outcome.FAILED;
+                try {
+                    snapshotID = facade.sendPlaylistRemove(playlistID, uris(items), snapshotID);
+                    return MutationBatcher.Outcome.SENT;
+                } catch (IOException | SpotifyWebApiException | ParseException e) {
+                    return failed(items, false, true, e);
+                }
+            }
+        });
+        if (result.added + result.removed > 0)
+            invalidate();
+        return result;
+    }
+
+    private MutationBatcher.Outcome failed(List<IItem> items, boolean add, boolean queueable, Exception e) {
+        if (!queueing || !queueable) {
+            logger.error(e.getMessage());
+            System.err.println(e.getMessage());
+            return MutationBatcher.Outcome.FAILED;
+        }
+        var mutations = new ArrayList<MutationJournal.Mutation>();
+        for (IItem item : items)
+            mutations.add(new MutationJournal.Mutation(add, "playlist:" + playlistID, item.getUri()));
+        return facade.queueFailedMutations(mutations, e) ? MutationBatcher.Outcome.QUEUED : MutationBatcher.Outcome.FAILED;
+    }
+
+    // Spotify applies removes by URI to whatever the playlist holds now, so the check has to be made here
+    private boolean isSnapshotCurrent() {
+        if (snapshotID == null)
+            return true;
+        String current = facade.getPlaylistSnapshotID(playlistID);
+        if (current == null)
+            return false; // couldn't check, and removing from a changed playlist can't be undone
+        if (current.equals(snapshotID))
+            return true;
+        var msg = "Playlist " + playlistID + " has changed since it was read (snapshot " + snapshotID + ", now " + current
+                + "), not removing anything from it";
+        logger.error(msg);
+        System.err.println(msg);
+        return false;
+    }
+
+    private static String[] uris(List<IItem> items) {
+        return items.stream().map(IItem::getUri).toArray(String[]::new);
+    }
+
+    /**
+     * What refreshMembershipIndex() found
+     */
+    public enum IndexStatus {
+        // Already indexed at the playlist's snapshot
+        CURRENT,
+        // Paged through and indexed again
+        REBUILT,
+        // Could not be paged through (or there is no index): the index is not current, don't answer from it
+        FAILED
+    }
+
+    /**
+     * Make sure the membership index is current for this playlist's snapshot, rebuilding it if not.
+     * It is rebuilt only from pages fetched from Spotify just now: a page served from the local store may be from an
+     * older snapshot, and would be recorded as the current one.
+     */
+    public IndexStatus refreshMembershipIndex() {
+        if (membershipIndex == null || snapshotID == null)
+            return IndexStatus.FAILED;
+        if (membershipIndex.isCurrent("playlist", playlistID, snapshotID))
+            return IndexStatus.CURRENT;
+        List<IItem> all = retrieveAllFreshOrNull();
+        if (all == null) // don't record an index with holes in it as current
+            return IndexStatus.FAILED;
+        membershipIndex.put("playlist", playlistID, snapshotID, all);
+        return IndexStatus.REBUILT;
+    }
+
+    /**
+     * Every item in the playlist, a page at a time straight from Spotify (never from the local store)
+     *
+     * @return The items, or null if a page could not be fetched (the error has been reported)
+     */
+    @Nullable
+    private List<IItem> retrieveAllFreshOrNull() {
+        var all = new ArrayList<IItem>();
+        int total = Integer.MAX_VALUE;
+        for (int offset = 0; offset < total; offset += PAGE_SIZE) {
+            Paging<PlaylistTrack> page;
+            try {
+                String json = facade.fetchPlaylistItemsJson(playlistID, PAGE_SIZE, offset, market);
+                page = new PlaylistTrack.JsonUtil().createModelObjectPaging(json);
+            } catch (IOException | SpotifyWebApiException | ParseException e) {
+                var msg = "Could not read playlist " + playlistID + ": " + e.getMessage();
+                logger.error(msg);
+                System.err.println(msg);
+                return null;
+            }
+            PlaylistTrack[] playlistTracks = page.getItems();
+            for (PlaylistTrack playlistTrack : playlistTracks)
+                all.add(playlistTrack == null ? null : itemPool.playlistItem(playlistTrack.getTrack()));
+            // Without a total, a short page is the last one
+            if (playlistTracks.length == 0 || (page.getTotal() == null && playlistTracks.length < PAGE_SIZE))
+                break;
+            if (page.getTotal() != null)
+                total = page.getTotal();
+        }
+        return all;
+    }
+
+    /**
+     * With a membership index, answered from it once it is current. If it can't be brought current, that is reported
+     * and the playlist is paged through instead.
+     */
+    @Override
+    public boolean contains(@NotNull IItem item) {
+        if (membershipIndex == null)
+            return super.contains(item);
+        if (refreshMembershipIndex() == IndexStatus.FAILED) {
+            var msg = "Could not index playlist " + playlistID + " at snapshot " + snapshotID + ", looking through it instead";
+            logger.error(msg);
+            System.err.println(msg);
+            return super.contains(item);
+        }
+        return membershipIndex.contains("playlist", playlistID, item);
+    }
+
+    @Nullable
+    @Override
+    protected Page fetchPage(int offset, int limit) {
+        Paging<PlaylistTrack> page = facade.getPlaylistItems(playlistID, limit, offset, market);
+        if (page == null)
+            return null;
+        PlaylistTrack[] playlistTracks = page.getItems();
+        var items = new IItem[playlistTracks.length];
+        for (int i = 0; i < playlistTracks.length; i++)
+            items[i] = playlistTracks[i] == null ? null : itemPool.playlistItem(playlistTracks[i].getTrack());
+        return new Page(items, page.getTotal() == null ? offset + items.length : page.getTotal());
+    }
+}
@@ -0,0 +1,214 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedges idempotent GETs: if a request hasn't been answered after its endpoint's p95 latency, the same request is
+ * sent again, and whichever response comes back first is used; the other request is cancelled.
+ *
+ * A few slow responses (the slowest ~1 in 20) would otherwise set the latency of any command that fans out to many
+ * requests. Hedging only kicks in past the p95, so at most ~5% of requests are hedged to begin with, and a budget
+ * caps the extra load: every request earns 'budgetPercent'/100 of a hedge, and a hedge is only sent if one is
+ * available (up to MAX_BURST may be saved up).
+ *
+ * Latencies are tracked per endpoint (EX: "albums/{id}/tracks"), over the last WINDOW_SIZE responses; an endpoint
+ * isn't hedged until MIN_SAMPLES of its responses have been seen. A hedged request counts as long as the caller waited
+ * for it (from submit() to the first response), and the losing attempt counts as long as it had been running when it
+ * was cancelled, so slow requests aren't left out of the window just because a hedge beat them.
+ */
+public class RequestHedger implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.facade.RequestHedger");
+
+    static final int WINDOW_SIZE = 256;
+    static final int MIN_SAMPLES = 20;
+    private static final int MAX_BURST = 10;
+    // A hedge costs 100 credits, each request earns 'budgetPercent'
+    private static final long HEDGE_COST = 100;
+
+    private final int budgetPercent;
+    private final ConcurrentHashMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final AtomicLong credits = new AtomicLong();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger hedges = new AtomicInteger();
+    private final AtomicInteger hedgeWins = new AtomicInteger();
+    // Fires the hedges; the requests themselves run on the caller's executor
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new NamedThreadFactory("hedge-timer").newThread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param budgetPercent Most extra requests hedging may add, as a percentage of all requests (EX: 5)
+     */
+    public RequestHedger(int budgetPercent) {
+        this.budgetPercent = Math.max(0, Math.min(100, budgetPercent));
+    }
+
+    /**
+     * Send 'request' on 'executor', and again if it is slow; see the class doc.
+     *
+     * @param endpoint Which latencies the request is judged against; see endpointOf()
+     * @param request  Must be idempotent: it may run twice
+     * @return The first response, or the last failure if every attempt failed. Cancelling it cancels the attempts.
+     */
+    public <T> CompletableFuture<T> submit(@NotNull String endpoint, @NotNull Callable<T> request,
+                                           @NotNull ExecutorService executor) {
+        long submitted = System.nanoTime();
+        requests.incrementAndGet();
+        credits.updateAndGet(c -> Math.min(c + budgetPercent, MAX_BURST * HEDGE_COST));
+        LatencyWindow window = windows.computeIfAbsent(endpoint, k -> new LatencyWindow());
+
+        var result = new CompletableFuture<T>();
+        var attempts = new CopyOnWriteArrayList<Future<?>>();
+        // Attempts that may still answer; the result fails only once none can
+        var outstanding = new AtomicInteger(1);
+        attempts.add(executor.submit(() -> attempt(request, window, result, outstanding, submitted, false)));
+
+        long hedgeAfter = window.p95Nanos();
+        if (hedgeAfter >= 0) {
+            ScheduledFuture<?> hedge = timer.schedule(() -> {
+                if (result.isDone() || !takeCredit())
+                    return;
+                hedges.incrementAndGet();
+                outstanding.incrementAndGet();
+                logger.info("Hedging a request to " + endpoint + " after " + TimeUnit.NANOSECONDS.toMillis(hedgeAfter) + " ms");
+                attempts.add(executor.submit(() -> attempt(request, window, result, outstanding, submitted, true)));
+            }, hedgeAfter, TimeUnit.NANOSECONDS);
+            attempts.add(hedge);
+        }
+        // Whatever the outcome (or if the caller gives up), the losing attempt isn't needed anymore
+        result.whenComplete((value, error) -> {
+            for (Future<?> attempt : attempts)
+                attempt.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * @param submitted When submit() was called, which the winner's latency is measured from
+     */
+    private <T> void attempt(Callable<T> request, LatencyWindow window, CompletableFuture<T> result,
+                             AtomicInteger outstanding, long submitted, boolean isHedge) {
+        long start = isHedge ? System.nanoTime() : submitted;
+        try {
+            T value = request.call();
+            if (result.complete(value)) {
+                window.record(System.nanoTime() - submitted);
+                if (isHedge)
+                    hedgeWins.incrementAndGet();
+            } else {
+                window.record(System.nanoTime() - start); // answered after the other attempt
+            }
+        } catch (Exception e) {
+            // Cancelled (interrupted) because the other attempt answered first: it took at least this long
+            if (result.isDone() && !result.isCompletedExceptionally())
+                window.record(System.nanoTime() - start);
+            if (outstanding.decrementAndGet() <= 0)
+                result.completeExceptionally(e);
+        }
+    }
+
+    LatencyWindow window(@NotNull String endpoint) {
+        return windows.get(endpoint);
+    }
+
+    private boolean takeCredit() {
+        while (true) {
+            long available = credits.get();
+            if (available < HEDGE_COST)
+                return false;
+            if (credits.compareAndSet(available, available - HEDGE_COST))
+                return true;
+        }
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public int hedges() {
+        return hedges.get();
+    }
+
+    /**
+     * @return How many hedges answered before the request they hedged
+     */
+    public int hedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * The endpoint family of a request URI, with the IDs taken out. EX: https://api.spotify.com/v1/albums/4aawyAB9vmqN3uQ7FjRGTy/tracks?offset=50
+     * is "albums/{id}/tracks".
+     */
+    @NotNull
+    public static String endpointOf(@NotNull URI uri) {
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        var endpoint = new StringBuilder();
+        String previous = "";
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || segment.equals("v1"))
+                continue;
+            if (endpoint.length() > 0)
+                endpoint.append('/');
+            // Path words are lower case; IDs are base 62, except for user IDs, which can be anything
+            boolean isWord = segment.chars().allMatch(c -> (c >= 'a' && c <= 'z') || c == '-' || c == '_');
+            endpoint.append(isWord && !previous.equals("users") ? segment : "{id}");
+            previous = segment;
+        }
+        return endpoint.toString();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * The latencies of an endpoint's last WINDOW_SIZE responses
+     */
+    static class LatencyWindow {
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int count = 0;
+        private int next = 0;
+        // The p95 is recomputed at most every 16 samples; sorting the window on every request isn't worth it
+        private long p95 = -1;
+        private int sinceComputed = 0;
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+            sinceComputed++;
+        }
+
+        synchronized long[] samples() {
+            return Arrays.copyOf(samples, count);
+        }
+
+        /**
+         * @return The p95, or -1 while there are fewer than MIN_SAMPLES samples
+         */
+        synchronized long p95Nanos() {
+            if (count < MIN_SAMPLES)
+                return -1;
+            if (p95 < 0 || sinceComputed >= 16) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p95 = sorted[(int) Math.ceil(count * 0.95) - 1];
+                sinceComputed = 0;
+            }
+            return p95;
+        }
+    }
+}
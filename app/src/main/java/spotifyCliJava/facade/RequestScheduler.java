@@ -0,0 +1,83 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+import spotifyCliJava.utility.Deadline;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Runs the requests of one command concurrently, under one deadline.
+ *
+ * Requests are keyed (EX: "artist/3jOstUTkEu2JkjvRdBA5Gu"): a request whose key has already been submitted is not
+ * sent again, the caller gets the same future. That coalesces requests that are in flight at the same time, and
+ * caches the ones that have completed for as long as the scheduler lives, so fanning out to the artists of every
+ * track on an album fetches each artist once.
+ *
+ * Once the deadline has passed, await() stops waiting and returns null, and cancels the request it was waiting on;
+ * requests submitted after that are not sent.
+ */
+public class RequestScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.facade.RequestScheduler");
+
+    private final ExecutorService executor;
+    private final Deadline deadline;
+    private final ConcurrentHashMap<String, CompletableFuture<?>> requests = new ConcurrentHashMap<>();
+
+    /**
+     * @param parallelism How many requests to have in flight at once
+     * @param deadline    Usually the command's (SpotifyCLI's --deadline)
+     */
+    public RequestScheduler(int parallelism, @NotNull Deadline deadline) {
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new NamedThreadFactory("request"));
+        this.deadline = deadline;
+    }
+
+    /**
+     * Send 'request' unless a request with the same key has already been submitted
+     *
+     * @param request Returns null on failure (as the SpotifyFacade getters do)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(@NotNull String key, @NotNull Supplier<T> request) {
+        return (CompletableFuture<T>) requests.computeIfAbsent(key, k -> {
+            if (isExpired())
+                return CompletableFuture.completedFuture(null);
+            return CompletableFuture.supplyAsync(request, executor);
+        });
+    }
+
+    /**
+     * @return The result, or null if the request failed or the deadline passed first
+     */
+    @Nullable
+    public <T> T await(@NotNull CompletableFuture<T> future) {
+        try {
+            if (!deadline.isBounded())
+                return future.get();
+            return future.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | CancellationException e) {
+            logger.error("Request failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public boolean isExpired() {
+        return deadline.isExpired();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,104 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Spotify IDs are 128 bit numbers written as 22 base62 characters, EX: "3jOstUTkEu2JkjvRdBA5Gu".
+ *
+ * Holding an ID as two longs instead of a String takes 16 bytes instead of ~64, and makes it usable as a key in
+ * primitive hash tables and sorted arrays. These helpers convert between the two forms.
+ */
+public final class SpotifyId {
+    private static final String ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    public static final int LENGTH = 22;
+
+    private SpotifyId() {
+    }
+
+    /**
+     * @return True if 'id' is a base62 ID that fits in 128 bits
+     */
+    public static boolean isValid(@Nullable String id) {
+        return id != null && decode(id) != null;
+    }
+
+    /**
+     * @return The most significant 64 bits of 'id'
+     * @throws IllegalArgumentException if 'id' is not a valid Spotify ID
+     */
+    public static long high(String id) {
+        return decodeOrThrow(id)[0];
+    }
+
+    /**
+     * @return The least significant 64 bits of 'id'
+     * @throws IllegalArgumentException if 'id' is not a valid Spotify ID
+     */
+    public static long low(String id) {
+        return decodeOrThrow(id)[1];
+    }
+
+    /**
+     * @return {high, low}, or null if 'id' is not a valid Spotify ID
+     */
+    @Nullable
+    public static long[] decode(String id) {
+        if (id.length() != LENGTH)
+            return null;
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = ALPHABET.indexOf(id.charAt(i));
+            if (digit < 0)
+                return null;
+
+            // (high:low) = (high:low) * 62 + digit, as unsigned 128 bit arithmetic
+            long lowCarry = Math.multiplyHigh(low, 62) + ((low >> 63) & 62);
+            long highOverflow = Math.multiplyHigh(high, 62) + ((high >> 63) & 62);
+            long newHigh = high * 62;
+            long newLow = low * 62;
+            if (highOverflow != 0)
+                return null;
+            long summed = newHigh + lowCarry;
+            if (Long.compareUnsigned(summed, newHigh) < 0)
+                return null;
+            newHigh = summed;
+
+            long added = newLow + digit;
+            if (Long.compareUnsigned(added, newLow) < 0) {
+                if (newHigh == -1L)
+                    return null;
+                newHigh++;
+            }
+            high = newHigh;
+            low = added;
+        }
+        return new long[]{high, low};
+    }
+
+    /**
+     * @return The 22 character base62 form of the ID (high:low)
+     */
+    public static String encode(long high, long low) {
+        // Long division of the four 32 bit limbs by 62, one output character per pass
+        long[] limbs = {high >>> 32, high & 0xFFFFFFFFL, low >>> 32, low & 0xFFFFFFFFL};
+        char[] chars = new char[LENGTH];
+        for (int position = LENGTH - 1; position >= 0; position--) {
+            long remainder = 0;
+            for (int i = 0; i < limbs.length; i++) {
+                long current = (remainder << 32) | limbs[i];
+                limbs[i] = current / 62;
+                remainder = current % 62;
+            }
+            chars[position] = ALPHABET.charAt((int) remainder);
+        }
+        return new String(chars);
+    }
+
+    private static long[] decodeOrThrow(String id) {
+        long[] decoded = id == null ? null : decode(id);
+        if (decoded == null)
+            throw new IllegalArgumentException("Not a valid Spotify ID: " + id);
+        return decoded;
+    }
+}
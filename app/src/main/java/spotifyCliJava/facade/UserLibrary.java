@@ -0,0 +1,320 @@
+package spotifyCliJava.facade;
+
+import com.neovisionaries.i18n.CountryCode;
+import com.wrapper.spotify.model_objects.AbstractModelObject;
+import com.wrapper.spotify.model_objects.specification.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.SpotifyFacade;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The current user's library (saved albums, tracks and shows, followed artists and playlists), held in the
+ * compact item model. All collections share one ItemPool, so an album that is saved, and also the album of
+ * a dozen saved tracks, is held once.
+ */
+public class UserLibrary {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.facade.UserLibrary");
+
+    // Every collection type load() knows about, in the order they are listed
+    public static final List<String> COLLECTION_TYPES = List.of("album", "track", "show", "playlist", "artist");
+    // The largest page Spotify hands out for any of the library endpoints
+    private static final int PAGE_LIMIT = 50;
+    // How many page requests may be in flight at once, across all collection types
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private final ItemPool itemPool;
+
+    private final SavedItems<Items.Album> savedAlbums = new SavedItems<>();
+    private final SavedItems<Items.Track> savedTracks = new SavedItems<>();
+    private final SavedItems<Items.Show> savedShows = new SavedItems<>();
+    private final SavedItems<Items.Artist> followedArtists = new SavedItems<>();
+    private final SavedItems<Items.Playlist> playlists = new SavedItems<>();
+
+    public UserLibrary() {
+        this(new ItemPool());
+    }
+
+    public UserLibrary(@NotNull ItemPool itemPool) {
+        this.itemPool = itemPool;
+    }
+
+    public ItemPool getItemPool() {
+        return itemPool;
+    }
+
+    public SavedItems<Items.Album> getSavedAlbums() {
+        return savedAlbums;
+    }
+
+    public SavedItems<Items.Track> getSavedTracks() {
+        return savedTracks;
+    }
+
+    public SavedItems<Items.Show> getSavedShows() {
+        return savedShows;
+    }
+
+    public SavedItems<Items.Artist> getFollowedArtists() {
+        return followedArtists;
+    }
+
+    public SavedItems<Items.Playlist> getPlaylists() {
+        return playlists;
+    }
+
+    public int size() {
+        return savedAlbums.size() + savedTracks.size() + savedShows.size() + followedArtists.size() + playlists.size();
+    }
+
+    // Each add method converts one page, as returned by SpotifyFacade.getUserCollection(), into compact items
+
+    public void addSavedAlbums(@NotNull Paging<SavedAlbum> page) {
+        for (SavedAlbum saved : page.getItems())
+            savedAlbums.add(saved.getAlbum() == null ? null : itemPool.album(saved.getAlbum()), saved.getAddedAt());
+    }
+
+    public void addSavedTracks(@NotNull Paging<SavedTrack> page) {
+        for (SavedTrack saved : page.getItems())
+            savedTracks.add(saved.getTrack() == null ? null : itemPool.track(saved.getTrack()), saved.getAddedAt());
+    }
+
+    public void addSavedShows(@NotNull Paging<SavedShow> page) {
+        for (SavedShow saved : page.getItems())
+            savedShows.add(saved.getShow() == null ? null : itemPool.show(saved.getShow()), saved.getAddedAt());
+    }
+
+    public void addFollowedArtists(@NotNull PagingCursorbased<Artist> page) {
+        for (Artist artist : page.getItems())
+            followedArtists.add(itemPool.artist(artist), null);
+    }
+
+    public void addPlaylists(@NotNull Paging<PlaylistSimplified> page) {
+        for (PlaylistSimplified playlist : page.getItems())
+            playlists.add(itemPool.playlist(playlist), null);
+    }
+
+    /**
+     * Receives progress from load(). Called from the loader threads, so implementations must be thread safe.
+     */
+    public interface ProgressListener {
+        // 'total' is -1 when Spotify didn't say how many items there are
+        void pageLoaded(@NotNull String itemType, int loaded, int total);
+
+        void collectionLoaded(@NotNull CollectionReport report);
+    }
+
+    public static class CollectionReport {
+        public final String itemType;
+        public final int count;
+        public final long elapsedMillis;
+        // False if a page could not be fetched (from Spotify or the local store), so 'count' is short
+        public final boolean complete;
+
+        CollectionReport(String itemType, int count, long elapsedMillis, boolean complete) {
+            this.itemType = itemType;
+            this.count = count;
+            this.elapsedMillis = elapsedMillis;
+            this.complete = complete;
+        }
+    }
+
+    /**
+     * Load every page of each of 'itemTypes' into this library, all collection types at once.
+     *
+     * Each collection type gets its own loader thread. Offset paged collections fetch their first page to learn the
+     * total, then request all remaining pages together; followed artists are cursor paged, so their pages come one
+     * after another. Page requests from every type share one pool of 'parallelism' threads, which bounds how hard we
+     * hit the API, and the whole load takes about as long as the slowest collection rather than the sum of them.
+     * Pages are added in order, so saved items keep the order Spotify lists them in.
+     *
+     * @param listener May be null
+     * @return One report per collection type, in the order of 'itemTypes'
+     */
+    public List<CollectionReport> load(
+            @NotNull SpotifyFacade facade,
+            @NotNull Collection<String> itemTypes,
+            CountryCode market,
+            int parallelism,
+            @Nullable ProgressListener listener
+    ) {
+        var types = List.copyOf(itemTypes);
+        ExecutorService collectionLoaders = Executors.newFixedThreadPool(Math.max(1, types.size()), new NamedThreadFactory("library"));
+        ExecutorService pageLoaders = Executors.newFixedThreadPool(Math.max(1, parallelism), new NamedThreadFactory("library-page"));
+        try {
+            var futures = new ArrayList<Future<CollectionReport>>();
+            for (String itemType : types) {
+                futures.add(collectionLoaders.submit(() -> {
+                    long start = System.nanoTime();
+                    boolean complete = itemType.equals("artist")
+                            ? loadFollowedArtists(facade, listener)
+                            : loadPaged(facade, itemType, market, pageLoaders, listener);
+                    var report = new CollectionReport(itemType, collection(itemType).size(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), complete);
+                    if (listener != null)
+                        listener.collectionLoaded(report);
+                    return report;
+                }));
+            }
+            var reports = new ArrayList<CollectionReport>();
+            for (int i = 0; i < futures.size(); i++)
+                reports.add(await(futures.get(i), new CollectionReport(types.get(i), 0, 0, false)));
+            return reports;
+        } finally {
+            collectionLoaders.shutdownNow();
+            pageLoaders.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The collection load() fills for 'itemType'
+     */
+    @NotNull
+    public SavedItems<? extends IItem> collection(@NotNull String itemType) {
+        switch (itemType) {
+            case "album":
+                return savedAlbums;
+            case "track":
+                return savedTracks;
+            case "show":
+                return savedShows;
+            case "playlist":
+                return playlists;
+            case "artist":
+                return followedArtists;
+            default:
+                throw new IllegalArgumentException("Item type not recognized: " + itemType);
+        }
+    }
+
+    private boolean loadPaged(SpotifyFacade facade, String itemType, CountryCode market,
+                              ExecutorService pageLoaders, @Nullable ProgressListener listener) {
+        AbstractModelObject first = facade.getUserCollection(itemType, PAGE_LIMIT, 0, market);
+        if (!(first instanceof Paging))
+            return false;
+        addPage(itemType, first);
+        Integer reportedTotal = ((Paging<?>) first).getTotal();
+        int total = reportedTotal == null ? -1 : reportedTotal;
+        if (listener != null)
+            listener.pageLoaded(itemType, collection(itemType).size(), total);
+
+        var pages = new ArrayList<Future<AbstractModelObject>>();
+        for (int offset = PAGE_LIMIT; offset < total; offset += PAGE_LIMIT) {
+            int pageOffset = offset;
+            pages.add(pageLoaders.submit(() -> facade.getUserCollection(itemType, PAGE_LIMIT, pageOffset, market)));
+        }
+        boolean complete = true;
+        for (Future<AbstractModelObject> future : pages) {
+            AbstractModelObject page = await(future, null);
+            if (!(page instanceof Paging)) {
+                complete = false;
+                continue;
+            }
+            addPage(itemType, page);
+            if (listener != null)
+                listener.pageLoaded(itemType, collection(itemType).size(), total);
+        }
+        return complete;
+    }
+
+    private boolean loadFollowedArtists(SpotifyFacade facade, @Nullable ProgressListener listener) {
+        String after = null;
+        do {
+            PagingCursorbased<Artist> page = facade.getFollowedArtists(PAGE_LIMIT, after);
+            if (page == null)
+                return false;
+            addFollowedArtists(page);
+            if (listener != null)
+                listener.pageLoaded("artist", followedArtists.size(), page.getTotal() == null ? -1 : page.getTotal());
+            Cursor[] cursors = page.getCursors();
+            after = page.getNext() == null || cursors == null || cursors.length == 0 ? null : cursors[0].getAfter();
+        } while (after != null);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addPage(String itemType, AbstractModelObject page) {
+        switch (itemType) {
+            case "album":
+                addSavedAlbums((Paging<SavedAlbum>) page);
+                break;
+            case "track":
+                addSavedTracks((Paging<SavedTrack>) page);
+                break;
+            case "show":
+                addSavedShows((Paging<SavedShow>) page);
+                break;
+            case "playlist":
+                addPlaylists((Paging<PlaylistSimplified>) page);
+                break;
+        }
+    }
+
+    private static <T> T await(Future<T> future, T onFailure) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return onFailure;
+        } catch (ExecutionException e) {
+            logger.error(e.getCause().toString());
+            return onFailure;
+        }
+    }
+
+    /**
+     * A growable list of items, with when each was saved kept alongside as a primitive (seconds since the epoch).
+     * The items themselves are shared, so the date lives here rather than on the item.
+     * Appends are synchronized, so pages can be added from several threads.
+     */
+    public static class SavedItems<T extends IItem> extends AbstractList<T> {
+        private Object[] items = new Object[16];
+        private int[] addedAtSeconds = new int[16];
+        private int size = 0;
+
+        /**
+         * @param item    Ignored if null (EX: a local file that has no Spotify ID)
+         * @param addedAt When the item was saved, or null if unknown
+         */
+        public synchronized void add(@Nullable T item, @Nullable Date addedAt) {
+            if (item == null)
+                return;
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                addedAtSeconds = Arrays.copyOf(addedAtSeconds, size * 2);
+            }
+            items[size] = item;
+            addedAtSeconds[size] = addedAt == null ? 0 : (int) (addedAt.getTime() / 1000);
+            size++;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized T get(int index) {
+            if (index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return (T) items[index];
+        }
+
+        /**
+         * @return When the item at 'index' was saved, or null if unknown
+         */
+        @Nullable
+        public synchronized Date getAddedAt(int index) {
+            if (index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            int seconds = addedAtSeconds[index];
+            return seconds == 0 ? null : new Date(Integer.toUnsignedLong(seconds) * 1000);
+        }
+
+        @Override
+        public synchronized int size() {
+            return size;
+        }
+    }
+}
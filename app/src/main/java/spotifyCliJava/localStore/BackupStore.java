@@ -0,0 +1,223 @@
+package spotifyCliJava.localStore;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Where the 'backup' command writes to.
+ *
+ * Every page of JSON is stored once, under its SHA-256 ("objects/ab/abcdef....json"), so pages that haven't changed
+ * since the last backup (or are the same for several accounts) cost nothing more. Each backup run has its own
+ * directory under "runs/", holding:
+ *
+ *   checkpoint.log   one line per page as soon as it is stored: "P  collection  page  hash  next"
+ *                    ('next' is the cursor of the following page, for cursor paged collections), and one line per
+ *                    finished collection: "D  collection  pages". Forced to disk on every line, so a killed run
+ *                    resumes after its last stored page.
+ *   manifest.json    written once every collection is done: each collection with its pages' hashes in order.
+ */
+public class BackupStore {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.localStore.BackupStore");
+
+    private final Path root;
+    private final Path runDir;
+    private final Path checkpointPath;
+
+    // collection -> page -> record, as loaded from the checkpoint and added to since
+    private final Map<String, TreeMap<Integer, PageRecord>> pages = new HashMap<>();
+    private final Set<String> doneCollections = new HashSet<>();
+
+    /**
+     * @param root    The backup directory, shared by all runs
+     * @param runName EX: "2021-06-01"; re-using the name of an unfinished run resumes it
+     */
+    public BackupStore(@NotNull Path root, @NotNull String runName) throws IOException {
+        this.root = root;
+        this.runDir = root.resolve("runs").resolve(runName.replaceAll("[^A-Za-z0-9._-]", "_"));
+        this.checkpointPath = runDir.resolve("checkpoint.log");
+        Files.createDirectories(runDir);
+        loadCheckpoint();
+    }
+
+    public static class PageRecord {
+        public final int page;
+        public final String hash;
+        // The cursor of the page after this one (cursor paged collections), null if there is none / not cursor paged
+        @Nullable
+        public final String next;
+
+        PageRecord(int page, String hash, @Nullable String next) {
+            this.page = page;
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    public Path getRunDir() {
+        return runDir;
+    }
+
+    /**
+     * Throw away this run's progress, so it starts over (stored objects are kept, they are shared)
+     */
+    public synchronized void reset() throws IOException {
+        Files.deleteIfExists(checkpointPath);
+        Files.deleteIfExists(runDir.resolve("manifest.json"));
+        pages.clear();
+        doneCollections.clear();
+    }
+
+    public synchronized boolean isDone(@NotNull String collection) {
+        return doneCollections.contains(collection);
+    }
+
+    /**
+     * @return The pages of 'collection' stored so far, in order
+     */
+    public synchronized List<PageRecord> storedPages(@NotNull String collection) {
+        TreeMap<Integer, PageRecord> stored = pages.get(collection);
+        return stored == null ? new ArrayList<>() : new ArrayList<>(stored.values());
+    }
+
+    /**
+     * Store one page and checkpoint it. Returns once both are on disk.
+     */
+    public void putPage(@NotNull String collection, int page, @NotNull String json, @Nullable String next) throws IOException {
+        String hash = putObject(json);
+        synchronized (this) {
+            appendCheckpoint("P\t" + collection + "\t" + page + "\t" + hash + "\t" + (next == null ? "" : next));
+            pages.computeIfAbsent(collection, c -> new TreeMap<>()).put(page, new PageRecord(page, hash, next));
+        }
+    }
+
+    public synchronized void markDone(@NotNull String collection) throws IOException {
+        int count = pages.containsKey(collection) ? pages.get(collection).size() : 0;
+        appendCheckpoint("D\t" + collection + "\t" + count);
+        doneCollections.add(collection);
+    }
+
+    /**
+     * @return The stored JSON with this hash, or null if there is none
+     */
+    @Nullable
+    public String getObject(@NotNull String hash) throws IOException {
+        Path path = objectPath(hash);
+        return Files.exists(path) ? Files.readString(path, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Write the manifest of every collection, in 'order'
+     */
+    public synchronized Path writeManifest(@NotNull List<String> order) throws IOException {
+        var manifest = new JsonObject();
+        var collections = new JsonArray();
+        for (String collection : order) {
+            var entry = new JsonObject();
+            entry.addProperty("collection", collection);
+            var hashes = new JsonArray();
+            for (PageRecord record : storedPages(collection))
+                hashes.add(record.hash);
+            entry.add("pages", hashes);
+            collections.add(entry);
+        }
+        manifest.addProperty("createdAt", System.currentTimeMillis());
+        manifest.add("collections", collections);
+        Path path = runDir.resolve("manifest.json");
+        writeAtomically(path, manifest.toString());
+        return path;
+    }
+
+    // Content addressed: identical pages are stored once, and an existing object is never rewritten
+    private String putObject(String json) throws IOException {
+        String hash = sha256(json);
+        Path path = objectPath(hash);
+        if (Files.notExists(path)) {
+            Files.createDirectories(path.getParent());
+            writeAtomically(path, json);
+        }
+        return hash;
+    }
+
+    private Path objectPath(String hash) {
+        return root.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash + ".json");
+    }
+
+    private static void writeAtomically(Path path, String contents) throws IOException {
+        Path tmp = LocalStore.tempFileFor(path);
+        try {
+            Files.writeString(tmp, contents, StandardCharsets.UTF_8);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LocalStore.deleteQuietly(tmp);
+            throw e;
+        }
+    }
+
+    private void appendCheckpoint(String line) throws IOException {
+        try (FileChannel channel = FileChannel.open(checkpointPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(line + "\n");
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+        }
+    }
+
+    private void loadCheckpoint() throws IOException {
+        if (Files.notExists(checkpointPath))
+            return;
+        for (String line : Files.readAllLines(checkpointPath, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", -1);
+            try {
+                if (fields[0].equals("P") && fields.length == 5) {
+                    // A page is only checkpointed after its object is on disk, but check anyway
+                    if (Files.notExists(objectPath(fields[3])))
+                        continue;
+                    int page = Integer.parseInt(fields[2]);
+                    pages.computeIfAbsent(fields[1], c -> new TreeMap<>())
+                            .put(page, new PageRecord(page, fields[3], fields[4].isEmpty() ? null : fields[4]));
+                } else if (fields[0].equals("D") && fields.length == 3) {
+                    doneCollections.add(fields[1]);
+                }
+            } catch (NumberFormatException e) {
+                logger.error("Skipping a damaged checkpoint line: " + line);
+            }
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            var hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    public static Path defaultRoot(@NotNull LocalStore localStore) {
+        return Paths.get(localStore.getStorePath(), "backup");
+    }
+}
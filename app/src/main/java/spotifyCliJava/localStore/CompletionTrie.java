@@ -0,0 +1,295 @@
+package spotifyCliJava.localStore;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A prefix trie from item names (and IDs) to items, stored in a single file and memory-mapped when read.
+ *
+ * The file is laid out so a lookup never has to deserialize it: walking the trie is a handful of binary searches
+ * over the mapped bytes, so completing a prefix costs about the same no matter how large the library is.
+ *
+ * File layout (all integers big endian):
+ *   header:  int MAGIC, int rootOffset, int valueCount, int valueTableOffset
+ *   node:    char childCount, char valueCount, childCount x (char label, int childOffset), valueCount x int value
+ *   values:  valueCount x int stringOffset
+ *   strings: for each value, a UTF-8 string (short length prefix) of "type\tid\tname"
+ */
+public class CompletionTrie {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.localStore.CompletionTrie");
+    public static final String TRIE_FILE_NAME = "completion.trie";
+
+    private static final int MAGIC = 0x53435431; // "SCT1"
+    private static final int HEADER_SIZE = 16;
+    // Only the start of a name is needed to complete it, this keeps long names from bloating the trie
+    private static final int MAX_KEY_LENGTH = 32;
+    // Names are also reachable from their first few words after the first, EX: "blue album" for "Weezer (Blue Album)"
+    private static final int MAX_WORD_KEYS = 4;
+    private static final int MAX_VALUES_PER_NODE = Character.MAX_VALUE;
+
+    private final ByteBuffer buffer;
+    private final int rootOffset;
+    private final int valueTableOffset;
+
+    private CompletionTrie(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.rootOffset = buffer.getInt(4);
+        this.valueTableOffset = buffer.getInt(12);
+    }
+
+    public static class Completion {
+        public final String itemType;
+        public final String itemID;
+        public final String name;
+
+        private Completion(String itemType, String itemID, String name) {
+            this.itemType = itemType;
+            this.itemID = itemID;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Memory-map a trie file written by build()
+     * @return null if the file doesn't exist or is not a trie file
+     */
+    @Nullable
+    public static CompletionTrie open(@NotNull Path trieFile) {
+        if (Files.notExists(trieFile))
+            return null;
+        try (FileChannel channel = FileChannel.open(trieFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                logger.error("\"" + trieFile + "\" is not a completion trie");
+                return null;
+            }
+            return new CompletionTrie(buffer);
+        } catch (IOException e) {
+            logger.error("Could not open the completion trie: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Build a trie over 'documents' and write it to 'trieFile'.
+     * Every document is reachable by its ID, its whole name, and the part of its name starting at each word,
+     * so "blue" completes to "Weezer (Blue Album)".
+     */
+    public static void build(@NotNull Collection<SearchIndex.Document> documents, @NotNull Path trieFile) throws IOException {
+        var root = new Node();
+        var values = new ArrayList<String>();
+        for (SearchIndex.Document document : documents) {
+            int value = values.size();
+            values.add(document.itemType + "\t" + document.itemID + "\t" + document.name);
+            var keys = new LinkedHashSet<String>();
+            keys.add(document.itemID);
+            List<String> words = SearchIndex.tokenize(document.name);
+            for (int i = 0; i < words.size() && i < MAX_WORD_KEYS; i++)
+                keys.add(String.join(" ", words.subList(i, words.size())));
+            for (String key : keys)
+                root.insert(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key, value);
+        }
+
+        var out = new ByteArrayOutputStream();
+        var data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(0); // rootOffset, patched below
+        data.writeInt(values.size());
+        data.writeInt(0); // valueTableOffset, patched below
+        int rootOffset = root.write(data, out);
+
+        int valueTableOffset = out.size();
+        int stringOffset = valueTableOffset + 4 * values.size();
+        var strings = new ArrayList<byte[]>(values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            strings.add(bytes);
+            data.writeInt(stringOffset);
+            stringOffset += 2 + bytes.length;
+        }
+        for (byte[] bytes : strings) {
+            data.writeShort(bytes.length);
+            data.write(bytes);
+        }
+        data.flush();
+
+        ByteBuffer file = ByteBuffer.wrap(out.toByteArray());
+        file.putInt(4, rootOffset);
+        file.putInt(12, valueTableOffset);
+
+        Files.createDirectories(trieFile.toAbsolutePath().getParent());
+        Path tmp = LocalStore.tempFileFor(trieFile);
+        try {
+            Files.write(tmp, file.array());
+            Files.move(tmp, trieFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LocalStore.deleteQuietly(tmp);
+            throw e;
+        }
+        logger.info("Built completion trie for " + values.size() + " items");
+    }
+
+    /**
+     * @param prefix   The start of an item name or ID. Names are matched the same way the search index tokenizes them.
+     * @param itemType Only return items of this type, or null for all types
+     * @param limit    The maximum number of completions to return
+     * @return Completions, in lexicographic order of the matched key
+     */
+    public List<Completion> complete(@NotNull String prefix, @Nullable String itemType, int limit) {
+        var completions = new ArrayList<Completion>();
+        var seen = new HashSet<Integer>();
+        // An ID prefix is matched as typed, a name prefix is matched normalized (keeping a trailing space)
+        String normalized = String.join(" ", SearchIndex.tokenize(prefix)) + (prefix.endsWith(" ") ? " " : "");
+        for (String key : new LinkedHashSet<>(List.of(prefix, normalized))) {
+            int node = find(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+            if (node >= 0)
+                collect(node, itemType, limit, seen, completions);
+        }
+        return completions;
+    }
+
+    // Walk down from the root one character at a time. Returns the node's offset, or -1 if no key has this prefix
+    private int find(String key) {
+        int node = rootOffset;
+        for (int i = 0; i < key.length() && node >= 0; i++)
+            node = child(node, key.charAt(i));
+        return node;
+    }
+
+    private int child(int node, char label) {
+        int low = 0;
+        int high = buffer.getChar(node) - 1;
+        int children = node + 4;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midLabel = buffer.getChar(children + mid * 6);
+            if (midLabel < label)
+                low = mid + 1;
+            else if (midLabel > label)
+                high = mid - 1;
+            else
+                return buffer.getInt(children + mid * 6 + 2);
+        }
+        return -1;
+    }
+
+    // Depth first, so completions come out in key order
+    private void collect(int node, String itemType, int limit, Set<Integer> seen, List<Completion> completions) {
+        var stack = new ArrayDeque<Integer>();
+        stack.push(node);
+        while (!stack.isEmpty() && completions.size() < limit) {
+            int current = stack.pop();
+            int childCount = buffer.getChar(current);
+            int valueCount = buffer.getChar(current + 2);
+            int values = current + 4 + childCount * 6;
+            for (int i = 0; i < valueCount && completions.size() < limit; i++) {
+                int value = buffer.getInt(values + i * 4);
+                if (!seen.add(value))
+                    continue;
+                Completion completion = readValue(value);
+                if (itemType == null || itemType.equals(completion.itemType))
+                    completions.add(completion);
+            }
+            for (int i = childCount - 1; i >= 0; i--)
+                stack.push(buffer.getInt(current + 4 + i * 6 + 2));
+        }
+    }
+
+    private Completion readValue(int value) {
+        int offset = buffer.getInt(valueTableOffset + value * 4);
+        int length = buffer.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.slice(offset + 2, length).get(bytes);
+        String[] fields = new String(bytes, StandardCharsets.UTF_8).split("\t", 3);
+        return new Completion(fields[0], fields[1], fields[2]);
+    }
+
+    /**
+     * A trie node while building. Children are written before their parent, so offsets are known when it is written.
+     * Children are kept in parallel sorted arrays rather than a map, to keep the build cheap for large libraries.
+     */
+    private static class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private int[] values = new int[0];
+
+        void insert(String key, int value) {
+            Node node = this;
+            for (int i = 0; i < key.length(); i++)
+                node = node.childFor(key.charAt(i));
+            int count = node.values.length;
+            if (count < MAX_VALUES_PER_NODE && (count == 0 || node.values[count - 1] != value)) {
+                node.values = Arrays.copyOf(node.values, count + 1);
+                node.values[count] = value;
+            }
+        }
+
+        private Node childFor(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0)
+                return children[index];
+            int insertAt = -index - 1;
+            var child = new Node();
+            labels = insertAt(labels, insertAt, label);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, insertAt);
+            grown[insertAt] = child;
+            System.arraycopy(children, insertAt, grown, insertAt + 1, children.length - insertAt);
+            children = grown;
+            return child;
+        }
+
+        private static char[] insertAt(char[] array, int index, char value) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, index);
+            grown[index] = value;
+            System.arraycopy(array, index, grown, index + 1, array.length - index);
+            return grown;
+        }
+
+        // Iterative post-order, a recursive walk could overflow the stack on long keys
+        int write(DataOutputStream data, ByteArrayOutputStream out) throws IOException {
+            var offsets = new IdentityHashMap<Node, Integer>();
+            var stack = new ArrayDeque<Node>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                Node node = stack.peek();
+                boolean childrenWritten = true;
+                for (Node child : node.children) {
+                    if (!offsets.containsKey(child)) {
+                        stack.push(child);
+                        childrenWritten = false;
+                    }
+                }
+                if (!childrenWritten)
+                    continue;
+                stack.pop();
+                offsets.put(node, out.size());
+                data.writeChar(node.children.length);
+                data.writeChar(node.values.length);
+                for (int i = 0; i < node.children.length; i++) {
+                    data.writeChar(node.labels[i]);
+                    data.writeInt(offsets.get(node.children[i]));
+                }
+                for (int value : node.values)
+                    data.writeInt(value);
+            }
+            return offsets.get(this);
+        }
+    }
+}
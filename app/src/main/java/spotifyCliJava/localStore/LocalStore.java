@@ -0,0 +1,173 @@
+package spotifyCliJava.localStore;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.metrics.JfrEvents;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A file based mirror of the responses we get back from Spotify.
+ *
+ * Every document is stored as the raw JSON Spotify returned, under a key such as "items/album/{id}"
+ * or "collections/track/{offset}-{limit}". Each key maps to one file inside the store directory; the
+ * first line of the file records when the document was fetched, the rest of the file is the JSON.
+ *
+ * Reading from the store never touches the network, so it can be used when Spotify is slow or unreachable.
+ */
+public class LocalStore {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.localStore.LocalStore");
+    private static final String FETCHED_AT_HEADER = "FETCHED_AT\t";
+
+    // Provide default, but don't make final so path can be changed by user
+    private String storePath = "spotify_cli_store";
+
+    public LocalStore withStorePath(String storePath) {
+        if (storePath != null)
+            this.storePath = storePath;
+        return this;
+    }
+
+    public String getStorePath() {
+        return storePath;
+    }
+
+    public static String itemKey(@NotNull String itemType, @NotNull String itemID) {
+        return "items/" + sanitize(itemType) + "/" + sanitize(itemID);
+    }
+
+    public static String collectionKey(@NotNull String itemType, int limit, int offset) {
+        return "collections/" + sanitize(itemType) + "/" + offset + "-" + limit;
+    }
+
+    // For the contents of a single item, EX: the tracks of one playlist or album
+    public static String childKey(@NotNull String itemType, @NotNull String itemID, int limit, int offset) {
+        return "children/" + sanitize(itemType) + "/" + sanitize(itemID) + "/" + offset + "-" + limit;
+    }
+
+    // For cursor based collections (followed artists); the first page shares its key with offset 0
+    public static String cursorKey(@NotNull String itemType, int limit, @Nullable String after) {
+        if (after == null)
+            return collectionKey(itemType, limit, 0);
+        return "collections/" + sanitize(itemType) + "/after-" + sanitize(after) + "-" + limit;
+    }
+
+    public static String searchKey(@NotNull String itemType, @NotNull String query) {
+        String normalized = String.join("_", SearchIndex.tokenize(query));
+        // Names in other scripts would all sanitize down to underscores, so give those a hash instead
+        if (!normalized.matches("[a-z0-9_]+"))
+            normalized = "q" + Integer.toHexString(normalized.hashCode());
+        return "searches/" + sanitize(itemType) + "/" + normalized;
+    }
+
+    /**
+     * Write 'json' to the store under 'key', replacing whatever was there before.
+     * The file is written to a temporary file first, then moved into place, so readers never see a partial document.
+     */
+    public void put(@NotNull String key, @NotNull String json) {
+        Path path = pathFor(key);
+        Path tmp = null;
+        try {
+            Files.createDirectories(path.getParent());
+            tmp = tempFileFor(path);
+            Files.writeString(tmp, FETCHED_AT_HEADER + System.currentTimeMillis() + "\n" + json, StandardCharsets.UTF_8);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Stored \"" + key + "\"");
+        } catch (IOException e) {
+            logger.error("Could not write \"" + key + "\" to the local store: " + e.getMessage());
+            deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * A new, empty file next to 'path' to write its next version into before moving it into place.
+     * Unique to the caller, so concurrent writers (threads or other CLI processes) never write into each other's.
+     */
+    static Path tempFileFor(@NotNull Path path) throws IOException {
+        return Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName() + ".", ".tmp");
+    }
+
+    // For a temporary file left behind by a failed write
+    static void deleteQuietly(@Nullable Path tmp) {
+        if (tmp == null)
+            return;
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            logger.debug("Could not delete " + tmp + ": " + e.getMessage());
+        }
+    }
+
+    @Nullable
+    public StoreEntry get(@NotNull String key) {
+        var event = new JfrEvents.CacheLookup();
+        event.begin();
+        StoreEntry entry = read(key);
+        if (event.shouldCommit()) {
+            event.key = key;
+            event.hit = entry != null;
+            event.commit();
+        }
+        return entry;
+    }
+
+    @Nullable
+    private StoreEntry read(@NotNull String key) {
+        Path path = pathFor(key);
+        if (Files.notExists(path)) {
+            return null;
+        }
+        try {
+            String contents = Files.readString(path, StandardCharsets.UTF_8);
+            int newLine = contents.indexOf('\n');
+            if (!contents.startsWith(FETCHED_AT_HEADER) || newLine < 0) {
+                logger.error("Local store entry \"" + key + "\" is corrupt, ignoring it");
+                return null;
+            }
+            long fetchedAt = Long.parseLong(contents.substring(FETCHED_AT_HEADER.length(), newLine));
+            return new StoreEntry(key, contents.substring(newLine + 1), fetchedAt);
+        } catch (IOException | NumberFormatException e) {
+            logger.error("Could not read \"" + key + "\" from the local store: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param directoryKey A key prefix ending at a directory, EX: "items/album"
+     * @return The keys of every entry directly inside that directory
+     */
+    public List<String> listKeys(@NotNull String directoryKey) {
+        var keys = new ArrayList<String>();
+        Path dir = Paths.get(storePath, directoryKey);
+        if (Files.notExists(dir)) {
+            return keys;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".json"))
+                    .forEach(name -> keys.add(directoryKey + "/" + name.substring(0, name.length() - ".json".length())));
+        } catch (IOException e) {
+            logger.error("Could not list \"" + directoryKey + "\" in the local store: " + e.getMessage());
+        }
+        return keys;
+    }
+
+    private Path pathFor(String key) {
+        return Paths.get(storePath, key + ".json");
+    }
+
+    // Keys become file paths, so keep each path segment to characters that are safe on every file system
+    private static String sanitize(String segment) {
+        return segment.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
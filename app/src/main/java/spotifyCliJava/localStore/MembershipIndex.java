@@ -0,0 +1,204 @@
+package spotifyCliJava.localStore;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.facade.BloomFilter;
+import spotifyCliJava.facade.IItem;
+import spotifyCliJava.facade.LongPairSet;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Answers "is this item in that collection" from disk, without paging through the collection.
+ *
+ * Every indexed collection (EX: one playlist) gets a file holding a Bloom filter and the exact set of its item IDs,
+ * tagged with the version of the collection it was built from (a playlist's snapshot_id). A lookup checks the Bloom
+ * filter first, which rules out almost every non-member without reading the exact set; only on a Bloom hit is the
+ * exact set read in (and kept, up to MAX_LOADED_SETS of them) to confirm. Bloom filters of every collection that has
+ * been looked at stay in memory, so checking hundreds of tracks against hundreds of playlists is a few million bit
+ * probes. A collection whose version has changed must be rebuilt with put() before it is asked about again.
+ *
+ * Files live in "membership/{type}/{id}.bin" inside the store directory. Thread safe.
+ */
+public class MembershipIndex {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.localStore.MembershipIndex");
+    private static final int MAGIC = 0x53434D31; // "SCM1"
+    private static final int MAX_LOADED_SETS = 256;
+
+    private final Path indexDir;
+    // Header (version + Bloom filter) of every collection asked about so far; null values mean "no file"
+    private final Map<String, Header> headers = new HashMap<>();
+    private final Map<String, LongPairSet> exactSets = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LongPairSet> eldest) {
+            return size() > MAX_LOADED_SETS;
+        }
+    };
+
+    public MembershipIndex(@NotNull LocalStore localStore) {
+        this.indexDir = Paths.get(localStore.getStorePath(), "membership");
+    }
+
+    private static class Header {
+        final String version;
+        final int count;
+        final BloomFilter bloomFilter;
+
+        Header(String version, int count, BloomFilter bloomFilter) {
+            this.version = version;
+            this.count = count;
+            this.bloomFilter = bloomFilter;
+        }
+    }
+
+    /**
+     * @return True if the collection has been indexed at exactly 'version'
+     */
+    public synchronized boolean isCurrent(@NotNull String itemType, @NotNull String itemID, @NotNull String version) {
+        Header header = header(itemType, itemID);
+        return header != null && header.version.equals(version);
+    }
+
+    /**
+     * @return The version the collection was indexed at, or null if it has never been indexed
+     */
+    @Nullable
+    public synchronized String indexedVersion(@NotNull String itemType, @NotNull String itemID) {
+        Header header = header(itemType, itemID);
+        return header == null ? null : header.version;
+    }
+
+    /**
+     * (Re)build the index of one collection from its items, replacing any older version.
+     * Null items (EX: local files) are skipped.
+     */
+    public void put(@NotNull String itemType, @NotNull String itemID, @NotNull String version, @NotNull Iterable<? extends IItem> items) {
+        var exact = new LongPairSet();
+        for (IItem item : items) {
+            if (item != null)
+                exact.add(item.getIdHigh(), item.getIdLow());
+        }
+        var bloomFilter = new BloomFilter(exact.size());
+        exact.forEach(bloomFilter::add);
+
+        Path path = pathFor(itemType, itemID);
+        Path tmp = null;
+        try {
+            Files.createDirectories(path.getParent());
+            tmp = LocalStore.tempFileFor(path);
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(version);
+                out.writeInt(exact.size());
+                out.writeInt(bloomFilter.getHashes());
+                long[] words = bloomFilter.getWords();
+                out.writeInt(words.length);
+                for (long word : words)
+                    out.writeLong(word);
+                exact.forEach((high, low) -> {
+                    try {
+                        out.writeLong(high);
+                        out.writeLong(low);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Could not write the membership index for " + itemType + " " + itemID + ": " + e.getMessage());
+            LocalStore.deleteQuietly(tmp);
+        }
+
+        String key = key(itemType, itemID);
+        synchronized (this) {
+            headers.put(key, new Header(version, exact.size(), bloomFilter));
+            exactSets.put(key, exact);
+        }
+    }
+
+    /**
+     * @return True if the item is in the collection, as of the version it was indexed at.
+     * False if it isn't, or the collection has never been indexed (check isCurrent() first).
+     */
+    public synchronized boolean contains(@NotNull String itemType, @NotNull String itemID, @NotNull IItem item) {
+        return contains(itemType, itemID, item.getIdHigh(), item.getIdLow());
+    }
+
+    public synchronized boolean contains(@NotNull String itemType, @NotNull String itemID, long high, long low) {
+        Header header = header(itemType, itemID);
+        if (header == null || !header.bloomFilter.mightContain(high, low))
+            return false;
+        LongPairSet exact = exactSet(itemType, itemID, header);
+        return exact != null && exact.contains(high, low);
+    }
+
+    @Nullable
+    private Header header(String itemType, String itemID) {
+        String key = key(itemType, itemID);
+        if (headers.containsKey(key))
+            return headers.get(key);
+        Header header = null;
+        Path path = pathFor(itemType, itemID);
+        if (Files.exists(path)) {
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                header = readHeader(in);
+            } catch (IOException e) {
+                logger.error("Could not read the membership index for " + key + ": " + e.getMessage());
+            }
+        }
+        headers.put(key, header);
+        return header;
+    }
+
+    @Nullable
+    private LongPairSet exactSet(String itemType, String itemID, Header header) {
+        String key = key(itemType, itemID);
+        LongPairSet exact = exactSets.get(key);
+        if (exact != null)
+            return exact;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(pathFor(itemType, itemID))))) {
+            Header onDisk = readHeader(in);
+            if (!onDisk.version.equals(header.version))
+                return null; // replaced by another process since we read the header
+            exact = new LongPairSet(onDisk.count);
+            for (int i = 0; i < onDisk.count; i++)
+                exact.add(in.readLong(), in.readLong());
+        } catch (IOException e) {
+            logger.error("Could not read the membership index for " + key + ": " + e.getMessage());
+            return null;
+        }
+        exactSets.put(key, exact);
+        return exact;
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException("not a membership index file");
+        String version = in.readUTF();
+        int count = in.readInt();
+        int hashes = in.readInt();
+        var words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++)
+            words[i] = in.readLong();
+        return new Header(version, count, new BloomFilter(words, hashes));
+    }
+
+    private Path pathFor(String itemType, String itemID) {
+        return indexDir.resolve(itemType.replaceAll("[^A-Za-z0-9]", "_"))
+                .resolve(itemID.replaceAll("[^A-Za-z0-9]", "_") + ".bin");
+    }
+
+    private static String key(String itemType, String itemID) {
+        return itemType + ":" + itemID;
+    }
+}
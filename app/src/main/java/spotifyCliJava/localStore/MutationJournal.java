@@ -0,0 +1,280 @@
+package spotifyCliJava.localStore;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * An append-only, on disk log of library changes that have not been applied to Spotify yet.
+ *
+ * append() returns only once the entries have been forced to disk, so a change that has been journaled survives
+ * a crash, a kill or a lost connection; JournalReplayer applies it later. Each line of the file is one record:
+ *
+ *   E  seq  +|-  target  item      a mutation: add (save/follow) or remove 'item' to/from 'target'
+ *   S  seq                         the mutation is being sent; if no A/F follows, it may or may not have been applied
+ *   A  seq                         the mutation has been applied (or superseded by a later one), it can be dropped
+ *   F  seq  error                  Spotify refused the mutation for good, it can be dropped
+ *
+ * 'target' is an item type ('artist', 'user', 'playlist', 'album', 'track', 'show') for what the user follows or
+ * has saved ("playlist-private" for a playlist followed privately), or "playlist:{id}" for the contents of a playlist; 'item' is then an ID, or for playlist contents a URI. compact() rewrites the file down to the entries still
+ * pending. A lock file is held around every read and write, so concurrent invocations of the CLI don't interleave
+ * lines, and none of them can append to a journal that compact() is swapping out.
+ */
+public class MutationJournal {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.localStore.MutationJournal");
+    public static final String JOURNAL_FILE_NAME = "journal.log";
+
+    private final Path journalPath;
+    private final Path lockPath;
+
+    public MutationJournal(@NotNull LocalStore localStore) {
+        this.journalPath = Paths.get(localStore.getStorePath(), JOURNAL_FILE_NAME);
+        this.lockPath = Paths.get(localStore.getStorePath(), JOURNAL_FILE_NAME + ".lock");
+    }
+
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    /**
+     * A change to make: add (save, follow, insert) or remove 'item' to/from 'target'
+     */
+    public static class Mutation {
+        // The target of following a playlist privately. Unfollows are "playlist" however the playlist was followed.
+        public static final String PRIVATE_PLAYLIST_FOLLOW = "playlist-private";
+
+        public final boolean add;
+        public final String target;
+        public final String item;
+
+        public Mutation(boolean add, @NotNull String target, @NotNull String item) {
+            this.add = add;
+            this.target = clean(target);
+            this.item = clean(item);
+        }
+
+        public boolean isPlaylist() {
+            return target.startsWith("playlist:");
+        }
+
+        // Following or unfollowing a playlist, publicly or privately
+        public boolean isPlaylistFollow() {
+            return target.equals("playlist") || target.equals(PRIVATE_PLAYLIST_FOLLOW);
+        }
+
+        // For "playlist:{id}" targets
+        public String playlistID() {
+            return target.substring("playlist:".length());
+        }
+
+        private static String clean(String text) {
+            return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+
+    /**
+     * A journaled mutation that hasn't been applied yet
+     */
+    public static class Entry {
+        public final long seq;
+        public final Mutation mutation;
+        // True if sending it was started by an earlier run that didn't record the outcome
+        public final boolean maybeApplied;
+
+        Entry(long seq, Mutation mutation, boolean maybeApplied) {
+            this.seq = seq;
+            this.mutation = mutation;
+            this.maybeApplied = maybeApplied;
+        }
+    }
+
+    /**
+     * Durably queue 'mutations', in order. Returns once they are on disk.
+     *
+     * @return The sequence number given to each mutation
+     */
+    public synchronized long[] append(@NotNull List<Mutation> mutations) throws IOException {
+        var seqs = new long[mutations.size()];
+        if (mutations.isEmpty())
+            return seqs;
+        return locked(() -> {
+            try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                long seq = lastSeq(channel) + 1;
+                var lines = new StringBuilder();
+                for (int i = 0; i < mutations.size(); i++, seq++) {
+                    Mutation mutation = mutations.get(i);
+                    seqs[i] = seq;
+                    lines.append("E\t").append(seq).append('\t').append(mutation.add ? '+' : '-').append('\t')
+                            .append(mutation.target).append('\t').append(mutation.item).append('\n');
+                }
+                writeAtEnd(channel, lines);
+            }
+            return seqs;
+        });
+    }
+
+    public void markSending(@NotNull Collection<Long> seqs) throws IOException {
+        mark("S", seqs, null);
+    }
+
+    public void markApplied(@NotNull Collection<Long> seqs) throws IOException {
+        mark("A", seqs, null);
+    }
+
+    public void markFailed(@NotNull Collection<Long> seqs, @NotNull String error) throws IOException {
+        mark("F", seqs, error);
+    }
+
+    /**
+     * @return Every mutation that has been journaled but not applied or failed, in the order it was journaled
+     */
+    public synchronized List<Entry> pending() throws IOException {
+        return locked(() -> Files.notExists(journalPath) ? new ArrayList<>()
+                : parse(Files.readString(journalPath, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Rewrite the journal so it holds only the entries still pending, and delete it once there are none
+     */
+    public synchronized void compact() throws IOException {
+        locked(() -> {
+            if (Files.notExists(journalPath))
+                return null;
+            List<Entry> pending = parse(Files.readString(journalPath, StandardCharsets.UTF_8));
+            if (pending.isEmpty()) {
+                Files.delete(journalPath);
+                return null;
+            }
+            var lines = new StringBuilder();
+            for (Entry entry : pending) {
+                Mutation mutation = entry.mutation;
+                lines.append("E\t").append(entry.seq).append('\t').append(mutation.add ? '+' : '-').append('\t')
+                        .append(mutation.target).append('\t').append(mutation.item).append('\n');
+                if (entry.maybeApplied)
+                    lines.append("S\t").append(entry.seq).append('\n');
+            }
+            Path tmp = journalPath.resolveSibling(JOURNAL_FILE_NAME + ".tmp");
+            Files.writeString(tmp, lines, StandardCharsets.UTF_8);
+            try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                tmpChannel.force(true);
+            }
+            Files.move(tmp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Compacted the journal down to " + pending.size() + " pending entries");
+            return null;
+        });
+    }
+
+    private synchronized void mark(String record, Collection<Long> seqs, @Nullable String error) throws IOException {
+        if (seqs.isEmpty())
+            return;
+        locked(() -> {
+            try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                var lines = new StringBuilder();
+                for (long seq : seqs) {
+                    lines.append(record).append('\t').append(seq);
+                    if (error != null)
+                        lines.append('\t').append(Mutation.clean(error));
+                    lines.append('\n');
+                }
+                writeAtEnd(channel, lines);
+            }
+            return null;
+        });
+    }
+
+    private <T> T locked(LockedAction<T> action) throws IOException {
+        Files.createDirectories(lockPath.getParent());
+        try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.lock()) {
+            return action.run();
+        }
+    }
+
+    // Append and force to disk; the caller holds the lock
+    private static void writeAtEnd(FileChannel channel, CharSequence lines) throws IOException {
+        long position = channel.size();
+        String text = lines.toString();
+        // A crash mid-write can leave a torn last line; start on a fresh line so this write isn't glued onto it
+        if (position > 0) {
+            var last = ByteBuffer.allocate(1);
+            channel.read(last, position - 1);
+            if (last.get(0) != '\n')
+                text = "\n" + text;
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(text);
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        channel.force(false);
+    }
+
+    private static String read(FileChannel channel) throws IOException {
+        var buffer = ByteBuffer.allocate((int) channel.size());
+        long position = 0;
+        while (buffer.hasRemaining() && channel.read(buffer, position) > 0)
+            position = buffer.position();
+        buffer.flip();
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    private static long lastSeq(FileChannel channel) throws IOException {
+        long last = 0;
+        for (String line : read(channel).split("\n")) {
+            String[] fields = line.split("\t");
+            if (fields.length >= 2 && fields[0].equals("E")) {
+                try {
+                    last = Math.max(last, Long.parseLong(fields[1]));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return last;
+    }
+
+    private static List<Entry> parse(String contents) {
+        var mutations = new LinkedHashMap<Long, Mutation>();
+        var sending = new HashSet<Long>();
+        for (String line : contents.split("\n")) {
+            String[] fields = line.split("\t");
+            try {
+                switch (fields[0]) {
+                    case "E":
+                        if (fields.length == 5)
+                            mutations.put(Long.parseLong(fields[1]), new Mutation(fields[2].equals("+"), fields[3], fields[4]));
+                        break;
+                    case "S":
+                        sending.add(Long.parseLong(fields[1]));
+                        break;
+                    case "A":
+                    case "F":
+                        mutations.remove(Long.parseLong(fields[1]));
+                        break;
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                // A line torn by a crash mid-write; everything before it is intact
+                logger.error("Skipping a damaged journal line: " + line);
+            }
+        }
+        var entries = new ArrayList<Entry>();
+        mutations.forEach((seq, mutation) -> entries.add(new Entry(seq, mutation, sending.contains(seq))));
+        return entries;
+    }
+}
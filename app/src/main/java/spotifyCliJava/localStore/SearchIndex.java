@@ -0,0 +1,440 @@
+package spotifyCliJava.localStore;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * An in memory inverted index over the names of everything mirrored into the LocalStore.
+ *
+ * Names are split into tokens (lower cased, accents stripped), and every token is also split into trigrams,
+ * so a query matches on whole words first and falls back to partial / misspelled words.
+ * EX: "weezer blue" ranks "Weezer (Blue Album)" above "Blue" by some other artist.
+ *
+ * The documents are persisted as an append-only TSV file next to the store's entries, so the index can be
+ * updated incrementally as new items are synced, and reloaded without re-reading every JSON document.
+ * The completion trie (see CompletionTrie) is built from it whenever it is written, so completing never has to.
+ */
+public class SearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.localStore.SearchIndex");
+    public static final String INDEX_FILE_NAME = "search_index.tsv";
+
+    // Item types whose documents live in the store as full objects, and which can be rebuilt into the index
+    private static final String[] ITEM_TYPES = {"album", "artist", "playlist", "track", "show", "episode"};
+
+    private static final float NAME_TOKEN_SCORE = 3.0f;
+    private static final float CONTEXT_TOKEN_SCORE = 1.5f;
+    private static final float TRIGRAM_SCORE = 2.0f;
+    // Fraction of a query token's trigrams that must appear in a name before it counts as a partial match
+    private static final float MIN_TRIGRAM_OVERLAP = 0.6f;
+
+    private final Path indexPath;
+    private final Path triePath;
+    private boolean loaded = false;
+    // Documents have been added since the completion trie was last built
+    private boolean trieStale = false;
+
+    // Document ordinals index into 'documents'. Replaced documents leave a null behind, and are skipped
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> ordinalsByKey = new HashMap<>();
+    private final Map<String, Postings> nameTokens = new HashMap<>();
+    private final Map<String, Postings> contextTokens = new HashMap<>();
+    private final Map<String, Postings> nameTrigrams = new HashMap<>();
+    private int liveDocuments = 0;
+
+    public SearchIndex(@NotNull LocalStore localStore) {
+        this.indexPath = Paths.get(localStore.getStorePath(), INDEX_FILE_NAME);
+        this.triePath = Paths.get(localStore.getStorePath(), CompletionTrie.TRIE_FILE_NAME);
+    }
+
+    /**
+     * A searchable item: its type, ID, name, and some extra text to match on (artist names, owner, publisher)
+     */
+    public static class Document {
+        public final String itemType;
+        public final String itemID;
+        public final String name;
+        public final String context;
+
+        public Document(@NotNull String itemType, @NotNull String itemID, @NotNull String name, @NotNull String context) {
+            this.itemType = itemType;
+            this.itemID = itemID;
+            this.name = clean(name);
+            this.context = clean(context);
+        }
+
+        // Tabs and new lines would break the index file
+        private static String clean(String text) {
+            return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+
+    public static class Match {
+        public final Document document;
+        public final float score;
+        // Did every word of the query appear (as a whole word) in the item's name?
+        public final boolean exact;
+
+        private Match(Document document, float score, boolean exact) {
+            this.document = document;
+            this.score = score;
+            this.exact = exact;
+        }
+    }
+
+    /**
+     * Build a document from a JSON object as Spotify returns it. Works for full and simplified objects.
+     * @return null if the object has no ID or name (EX: local files in a playlist)
+     */
+    @Nullable
+    public static Document documentFor(@NotNull String itemType, @NotNull JsonObject item) {
+        if (!hasString(item, "id") || !hasString(item, "name"))
+            return null;
+
+        var context = new StringJoiner(" ");
+        if (item.has("artists") && item.get("artists").isJsonArray()) {
+            for (JsonElement artist : item.getAsJsonArray("artists")) {
+                if (artist.isJsonObject() && hasString(artist.getAsJsonObject(), "name"))
+                    context.add(artist.getAsJsonObject().get("name").getAsString());
+            }
+        }
+        if (item.has("album") && item.get("album").isJsonObject() && hasString(item.getAsJsonObject("album"), "name"))
+            context.add(item.getAsJsonObject("album").get("name").getAsString());
+        if (item.has("owner") && item.get("owner").isJsonObject() && hasString(item.getAsJsonObject("owner"), "display_name"))
+            context.add(item.getAsJsonObject("owner").get("display_name").getAsString());
+        if (item.has("show") && item.get("show").isJsonObject() && hasString(item.getAsJsonObject("show"), "name"))
+            context.add(item.getAsJsonObject("show").get("name").getAsString());
+        if (hasString(item, "publisher"))
+            context.add(item.get("publisher").getAsString());
+
+        return new Document(itemType, item.get("id").getAsString(), item.get("name").getAsString(), context.toString());
+    }
+
+    /**
+     * Add (or replace) documents, and append them to the index file.
+     * The completion trie is left for writeCompletionTrie(), so a sync adding a page at a time builds it once.
+     */
+    public synchronized void add(@NotNull Collection<Document> newDocuments) {
+        if (newDocuments.isEmpty())
+            return;
+        ensureLoaded();
+        for (Document document : newDocuments)
+            addToMemory(document);
+        trieStale = true;
+
+        try {
+            Files.createDirectories(indexPath.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(indexPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Document document : newDocuments)
+                    writeDocument(writer, document);
+            }
+        } catch (IOException e) {
+            logger.error("Could not update the search index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Throw away the index, and rebuild it from every item currently in the local store.
+     */
+    public synchronized void rebuild(@NotNull LocalStore localStore) {
+        clearMemory();
+        loaded = true;
+        for (String itemType : ITEM_TYPES) {
+            for (String key : localStore.listKeys("items/" + itemType)) {
+                StoreEntry entry = localStore.get(key);
+                if (entry == null)
+                    continue;
+                try {
+                    Document document = documentFor(itemType, JsonParser.parseString(entry.getJson()).getAsJsonObject());
+                    if (document != null)
+                        addToMemory(document);
+                } catch (RuntimeException e) {
+                    logger.error("Skipping unreadable store entry \"" + key + "\": " + e.getMessage());
+                }
+            }
+        }
+        compact();
+        logger.info("Rebuilt search index with " + liveDocuments + " documents");
+    }
+
+    /**
+     * @param query    Free text, EX: "weezer blue"
+     * @param itemType Only return items of this type, or null for all types
+     * @param limit    The maximum number of matches to return
+     * @return Matches, best first
+     */
+    public synchronized List<Match> search(@NotNull String query, @Nullable String itemType, int limit) {
+        ensureLoaded();
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0)
+            return new ArrayList<>();
+
+        float[] scores = new float[documents.size()];
+        int[] exactTokens = new int[documents.size()];
+        for (String token : queryTokens) {
+            Postings exact = nameTokens.get(token);
+            if (exact != null) {
+                for (int i = 0; i < exact.size; i++) {
+                    scores[exact.docs[i]] += NAME_TOKEN_SCORE;
+                    exactTokens[exact.docs[i]]++;
+                }
+            }
+            Postings context = contextTokens.get(token);
+            if (context != null) {
+                for (int i = 0; i < context.size; i++)
+                    scores[context.docs[i]] += CONTEXT_TOKEN_SCORE;
+            }
+            scorePartialMatches(token, exact, scores);
+        }
+
+        // Keep the best 'limit' matches in a min-heap, so we never sort the whole index
+        Comparator<Match> ranking = Comparator.<Match>comparingDouble(match -> match.score)
+                .thenComparing(match -> -match.document.name.length());
+        var best = new PriorityQueue<Match>(limit + 1, ranking);
+        for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+            Document document = documents.get(ordinal);
+            if (scores[ordinal] <= 0 || document == null)
+                continue;
+            if (itemType != null && !itemType.equals(document.itemType))
+                continue;
+            best.add(new Match(document, scores[ordinal], exactTokens[ordinal] >= queryTokens.size()));
+            if (best.size() > limit)
+                best.poll();
+        }
+
+        var matches = new ArrayList<Match>(best);
+        matches.sort(ranking.reversed());
+        return matches;
+    }
+
+    /**
+     * @return The best match of type 'itemType' whose name contains every word of 'name', or null if there is none
+     */
+    @Nullable
+    public Match bestExactMatch(@NotNull String itemType, @NotNull String name) {
+        List<Match> matches = search(name, itemType, 1);
+        if (matches.isEmpty() || !matches.get(0).exact)
+            return null;
+        return matches.get(0);
+    }
+
+    /**
+     * @return Every document currently in the index
+     */
+    public synchronized List<Document> liveDocuments() {
+        ensureLoaded();
+        return live();
+    }
+
+    /**
+     * Rebuild the completion trie if documents have been added since it was built, or there is none yet.
+     * Compacting or rebuilding the index rebuilds the trie too.
+     */
+    public synchronized void writeCompletionTrie() {
+        if (!trieStale && (Files.exists(triePath) || Files.notExists(indexPath)))
+            return;
+        ensureLoaded();
+        if (trieStale || Files.notExists(triePath))
+            buildCompletionTrie();
+    }
+
+    public Path getIndexPath() {
+        return indexPath;
+    }
+
+    public Path getTriePath() {
+        return triePath;
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return liveDocuments;
+    }
+
+    /**
+     * Lower case, strip accents, and split on anything that isn't a letter or digit.
+     */
+    public static List<String> tokenize(@NotNull String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        var tokens = new ArrayList<String>();
+        for (String token : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty())
+                tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static List<String> trigrams(String token) {
+        var grams = new ArrayList<String>();
+        if (token.length() < 3) {
+            grams.add(token);
+            return grams;
+        }
+        for (int i = 0; i + 3 <= token.length(); i++)
+            grams.add(token.substring(i, i + 3));
+        return grams;
+    }
+
+    // Score names that share most of the query token's trigrams, skipping names that matched it exactly
+    private void scorePartialMatches(String token, @Nullable Postings exact, float[] scores) {
+        List<String> grams = trigrams(token);
+        var overlap = new HashMap<Integer, Integer>();
+        for (String gram : grams) {
+            Postings postings = nameTrigrams.get(gram);
+            if (postings == null)
+                continue;
+            for (int i = 0; i < postings.size; i++)
+                overlap.merge(postings.docs[i], 1, Integer::sum);
+        }
+        for (var entry : overlap.entrySet()) {
+            if (exact != null && exact.contains(entry.getKey()))
+                continue;
+            float ratio = (float) entry.getValue() / grams.size();
+            if (ratio >= MIN_TRIGRAM_OVERLAP)
+                scores[entry.getKey()] += TRIGRAM_SCORE * ratio;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (Files.notExists(indexPath))
+            return;
+
+        int lines = 0;
+        try {
+            for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4)
+                    continue;
+                addToMemory(new Document(fields[0], fields[1], fields[2], fields[3]));
+                lines++;
+            }
+        } catch (IOException e) {
+            logger.error("Could not load the search index: " + e.getMessage());
+            return;
+        }
+        logger.debug("Loaded search index with " + liveDocuments + " documents");
+
+        // Replaced documents pile up in the append-only file, rewrite it once they outnumber the live ones
+        if (lines > 2 * liveDocuments)
+            compact();
+    }
+
+    private void addToMemory(Document document) {
+        String key = document.itemType + "/" + document.itemID;
+        Integer previous = ordinalsByKey.get(key);
+        if (previous != null) {
+            documents.set(previous, null);
+            liveDocuments--;
+        }
+        int ordinal = documents.size();
+        documents.add(document);
+        ordinalsByKey.put(key, ordinal);
+        liveDocuments++;
+
+        for (String token : tokenize(document.name)) {
+            nameTokens.computeIfAbsent(token, t -> new Postings()).add(ordinal);
+            for (String gram : trigrams(token))
+                nameTrigrams.computeIfAbsent(gram, g -> new Postings()).add(ordinal);
+        }
+        for (String token : tokenize(document.context))
+            contextTokens.computeIfAbsent(token, t -> new Postings()).add(ordinal);
+    }
+
+    private void clearMemory() {
+        documents.clear();
+        ordinalsByKey.clear();
+        nameTokens.clear();
+        contextTokens.clear();
+        nameTrigrams.clear();
+        liveDocuments = 0;
+    }
+
+    // Rewrite the index file with only the live documents
+    private void compact() {
+        Path tmp = null;
+        try {
+            Files.createDirectories(indexPath.getParent());
+            tmp = LocalStore.tempFileFor(indexPath);
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Document document : documents) {
+                    if (document != null)
+                        writeDocument(writer, document);
+                }
+            }
+            Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not compact the search index: " + e.getMessage());
+            LocalStore.deleteQuietly(tmp);
+        }
+        buildCompletionTrie();
+    }
+
+    private void buildCompletionTrie() {
+        try {
+            CompletionTrie.build(live(), triePath);
+            trieStale = false;
+        } catch (IOException e) {
+            logger.error("Could not build the completion trie: " + e.getMessage());
+        }
+    }
+
+    private List<Document> live() {
+        var live = new ArrayList<Document>(liveDocuments);
+        for (Document document : documents) {
+            if (document != null)
+                live.add(document);
+        }
+        return live;
+    }
+
+    private static void writeDocument(BufferedWriter writer, Document document) throws IOException {
+        writer.write(document.itemType + "\t" + document.itemID + "\t" + document.name + "\t" + document.context);
+        writer.newLine();
+    }
+
+    private static boolean hasString(JsonObject object, String member) {
+        return object.has(member) && object.get(member).isJsonPrimitive();
+    }
+
+    /**
+     * A growable, sorted list of document ordinals. Ordinals only ever increase, so appends keep it sorted.
+     */
+    private static class Postings {
+        private int[] docs = new int[4];
+        private int size = 0;
+
+        void add(int ordinal) {
+            // A word repeated in one name should only be counted once
+            if (size > 0 && docs[size - 1] == ordinal)
+                return;
+            if (size == docs.length)
+                docs = Arrays.copyOf(docs, size * 2);
+            docs[size++] = ordinal;
+        }
+
+        boolean contains(int ordinal) {
+            return Arrays.binarySearch(docs, 0, size, ordinal) >= 0;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package spotifyCliJava.localStore;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A single document loaded from the LocalStore: the raw JSON Spotify returned, and when it was fetched.
+ */
+public class StoreEntry {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String key;
+    private final String json;
+    private final long fetchedAtMillis;
+
+    StoreEntry(@NotNull String key, @NotNull String json, long fetchedAtMillis) {
+        this.key = key;
+        this.json = json;
+        this.fetchedAtMillis = fetchedAtMillis;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    public long getFetchedAtMillis() {
+        return fetchedAtMillis;
+    }
+
+    // Same format as GenericCredentials.getTimeStamp(), EXAMPLE DATE: 2021-10-29 14:02:16
+    public String getFetchedAtTimeStamp() {
+        var fetchedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(fetchedAtMillis), ZoneId.systemDefault());
+        return fetchedAt.format(TIMESTAMP_FORMAT);
+    }
+
+    /**
+     * @return A human readable age for the entry, EX: "42 seconds", "3 minutes", "2 days"
+     */
+    public String getAgeString() {
+        var age = Duration.ofMillis(Math.max(0, System.currentTimeMillis() - fetchedAtMillis));
+        if (age.toMinutes() < 1)
+            return age.toSeconds() + " seconds";
+        if (age.toHours() < 1)
+            return age.toMinutes() + " minutes";
+        if (age.toDays() < 1)
+            return age.toHours() + " hours";
+        return age.toDays() + " days";
+    }
+}
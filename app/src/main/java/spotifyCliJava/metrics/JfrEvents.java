@@ -0,0 +1,114 @@
+package spotifyCliJava.metrics;
+
+import jdk.jfr.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * The CLI's own JFR events, so its phases can be lined up against GC, class loading and socket I/O in JDK Mission
+ * Control. They are always compiled in but cost next to nothing unless a recording is running (see --jfr).
+ *
+ * EX: java -jar spotify-cli.jar --jfr=info.jfr info album 4aawyAB9vmqN3uQ7FjRGTy, then: jfr print --categories "Spotify CLI" info.jfr
+ */
+public final class JfrEvents {
+    private static final String CATEGORY = "Spotify CLI";
+    private static volatile boolean recording = false;
+
+    private JfrEvents() {
+    }
+
+    @Name("spotifyCli.AuthPhase")
+    @Label("Auth Phase")
+    @Category({CATEGORY, "Auth"})
+    @Description("One step of signing in: loading cached tokens, refreshing them, a full sign in, or waiting for the callback")
+    public static class AuthPhase extends Event {
+        @Label("Phase")
+        public String phase;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+
+        public AuthPhase(String phase) {
+            this.phase = phase;
+        }
+    }
+
+    @Name("spotifyCli.HttpRequest")
+    @Label("Spotify Request")
+    @Category({CATEGORY, "Network"})
+    @Description("One HTTP exchange with Spotify")
+    public static class HttpRequest extends Event {
+        @Label("Method")
+        public String method;
+
+        @Label("Endpoint")
+        @Description("The path with IDs taken out, EX: albums/{id}/tracks")
+        public String endpoint;
+
+        @Label("Status")
+        public String status;
+
+        @Label("Response Size")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("spotifyCli.CacheLookup")
+    @Label("Local Store Lookup")
+    @Category({CATEGORY, "Local Store"})
+    public static class CacheLookup extends Event {
+        @Label("Key")
+        public String key;
+
+        @Label("Hit")
+        public boolean hit;
+    }
+
+    @Name("spotifyCli.Render")
+    @Label("Render")
+    @Category({CATEGORY, "Output"})
+    @Description("Turning an item (or a deep view of one) into the text that is printed")
+    public static class Render extends Event {
+        @Label("Item Type")
+        public String itemType;
+
+        @Label("Length")
+        @Description("Characters rendered")
+        public int length;
+    }
+
+    /**
+     * Start a recording of the JVM's default profile settings plus the CLI's events, which is written to
+     * 'destination' when it is stopped (or closed)
+     */
+    @NotNull
+    public static Recording startRecording(@NotNull Path destination) throws IOException {
+        Configuration profile;
+        try {
+            profile = Configuration.getConfiguration("profile");
+        } catch (ParseException e) {
+            throw new IOException("Could not load the JFR 'profile' settings: " + e.getMessage(), e);
+        }
+        var jfrRecording = new Recording(profile);
+        jfrRecording.setName("spotify-cli");
+        jfrRecording.setToDisk(true);
+        jfrRecording.setDestination(destination);
+        jfrRecording.enable(AuthPhase.class);
+        jfrRecording.enable(HttpRequest.class);
+        jfrRecording.enable(CacheLookup.class);
+        jfrRecording.enable(Render.class);
+        jfrRecording.start();
+        recording = true;
+        return jfrRecording;
+    }
+
+    /**
+     * @return True once startRecording() has been called
+     */
+    public static boolean isRecording() {
+        return recording;
+    }
+}
@@ -0,0 +1,100 @@
+package spotifyCliJava.metrics;
+
+import com.wrapper.spotify.IHttpManager;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.ParseException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import spotifyCliJava.facade.RequestHedger;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Wraps the SpotifyApi's IHttpManager, timing every HTTP exchange and recording it in a RequestMetrics (if any) and
+ * as a JFR event. Everything made through the SpotifyApi object goes through here, the auth flows' token requests
+ * included.
+ */
+public class MeteredHttpManager implements IHttpManager {
+    private final IHttpManager delegate;
+    private final RequestMetrics metrics;
+
+    public MeteredHttpManager(@NotNull IHttpManager delegate, @Nullable RequestMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    private interface Exchange {
+        String send() throws IOException, SpotifyWebApiException, ParseException;
+    }
+
+    private String meter(String method, URI uri, Exchange exchange) throws IOException, SpotifyWebApiException, ParseException {
+        String endpoint = RequestHedger.endpointOf(uri);
+        var event = new JfrEvents.HttpRequest();
+        event.begin();
+        long start = System.nanoTime();
+        String response = null;
+        Exception error = null;
+        try {
+            response = exchange.send();
+            return response;
+        } catch (IOException | SpotifyWebApiException | ParseException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            long bytes = utf8Length(response);
+            if (metrics != null)
+                metrics.exchange(endpoint, System.nanoTime() - start, bytes, error);
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = method;
+                event.endpoint = endpoint;
+                event.status = RequestMetrics.statusOf(error);
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public String get(URI uri, Header[] headers) throws IOException, SpotifyWebApiException, ParseException {
+        return meter("GET", uri, () -> delegate.get(uri, headers));
+    }
+
+    @Override
+    public String post(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return meter("POST", uri, () -> delegate.post(uri, headers, body));
+    }
+
+    @Override
+    public String put(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return meter("PUT", uri, () -> delegate.put(uri, headers, body));
+    }
+
+    @Override
+    public String delete(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return meter("DELETE", uri, () -> delegate.delete(uri, headers, body));
+    }
+
+    // The response's size on the wire (before any compression), without encoding it again
+    private static long utf8Length(String response) {
+        if (response == null)
+            return 0;
+        long length = 0;
+        for (int i = 0; i < response.length(); i++) {
+            char c = response.charAt(i);
+            if (c < 0x80)
+                length++;
+            else if (c < 0x800)
+                length += 2;
+            else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else
+                length += 3;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,108 @@
+package spotifyCliJava.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Serves a RequestMetrics at http://127.0.0.1:PORT/metrics in the Prometheus text format, for as long as the CLI
+ * runs. Latencies are exported as summaries (in seconds) with the quantiles taken from the histograms.
+ */
+public class MetricsServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.metrics.MetricsServer");
+    private static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99};
+
+    private final HttpServer server;
+    private final RequestMetrics metrics;
+
+    public MetricsServer(@NotNull RequestMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        // Only ever on the loopback interface; nothing here is meant for other machines
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        logger.info("Serving metrics on http://127.0.0.1:" + port + "/metrics");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @NotNull
+    String render() {
+        var text = new StringBuilder();
+        Map<String, RequestMetrics.EndpointStats> endpoints = metrics.endpoints();
+
+        text.append("# HELP spotify_cli_requests_total HTTP exchanges with Spotify, by endpoint and status\n");
+        text.append("# TYPE spotify_cli_requests_total counter\n");
+        for (Map.Entry<String, RequestMetrics.EndpointStats> entry : endpoints.entrySet()) {
+            for (Map.Entry<String, LongAdder> status : new TreeMap<>(entry.getValue().statuses).entrySet()) {
+                text.append("spotify_cli_requests_total{endpoint=\"").append(escape(entry.getKey()))
+                        .append("\",status=\"").append(status.getKey()).append("\"} ").append(status.getValue().sum()).append('\n');
+            }
+        }
+        text.append("# HELP spotify_cli_request_retries_total Requests that resent an earlier one (hedges, retries)\n");
+        text.append("# TYPE spotify_cli_request_retries_total counter\n");
+        for (Map.Entry<String, RequestMetrics.EndpointStats> entry : endpoints.entrySet()) {
+            text.append("spotify_cli_request_retries_total{endpoint=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue().retries.sum()).append('\n');
+        }
+        summary(text, "spotify_cli_request_queue_seconds", "Time from the facade being asked to the request being sent", endpoints, stats -> stats.queue, 1e6);
+        summary(text, "spotify_cli_request_network_seconds", "Time spent on the HTTP exchange", endpoints, stats -> stats.network, 1e6);
+        summary(text, "spotify_cli_request_parse_seconds", "Time spent parsing responses", endpoints, stats -> stats.parse, 1e6);
+        summary(text, "spotify_cli_request_seconds", "Time from the facade being asked to it answering", endpoints, stats -> stats.total, 1e6);
+        summary(text, "spotify_cli_response_bytes", "Size of the responses", endpoints, stats -> stats.bytes, 1);
+
+        text.append("# HELP spotify_cli_cache_total How reads were answered by the local store\n");
+        text.append("# TYPE spotify_cli_cache_total counter\n");
+        for (RequestMetrics.Cache outcome : RequestMetrics.Cache.values()) {
+            text.append("spotify_cli_cache_total{outcome=\"").append(outcome.name().toLowerCase()).append("\"} ")
+                    .append(metrics.cacheCount(outcome)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void summary(StringBuilder text, String name, String help, Map<String, RequestMetrics.EndpointStats> endpoints,
+                                Function<RequestMetrics.EndpointStats, Histogram> histogramOf, double divisor) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for (Map.Entry<String, RequestMetrics.EndpointStats> entry : endpoints.entrySet()) {
+            Histogram histogram = histogramOf.apply(entry.getValue());
+            if (histogram.count() == 0)
+                continue;
+            String endpoint = escape(entry.getKey());
+            for (double quantile : QUANTILES) {
+                text.append(name).append("{endpoint=\"").append(endpoint).append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(histogram.percentile(quantile * 100) / divisor).append('\n');
+            }
+            text.append(name).append("_sum{endpoint=\"").append(endpoint).append("\"} ").append(histogram.sum() / divisor).append('\n');
+            text.append(name).append("_count{endpoint=\"").append(endpoint).append("\"} ").append(histogram.count()).append('\n');
+        }
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
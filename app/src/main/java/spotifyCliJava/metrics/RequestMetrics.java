@@ -0,0 +1,256 @@
+package spotifyCliJava.metrics;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import com.wrapper.spotify.exceptions.detailed.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time of a command's requests goes, per endpoint (EX: "albums/{id}/tracks"):
+ *
+ * - queue: from the facade being asked, to the request being sent (waiting for a bulkhead slot or request thread)
+ * - network: the HTTP exchange, as seen by MeteredHttpManager (one per attempt, so a hedged request has two)
+ * - parse: turning the response's JSON into model objects
+ * - total: from the facade being asked to it answering
+ *
+ * plus the size of each response, the status of each attempt, how many requests were resends of an earlier one
+ * (hedges, retries), and how reads were answered by the local store (see Cache).
+ *
+ * Times are recorded in microseconds. Printed with --metrics, written as JSON with --metrics-json and served in the
+ * Prometheus text format with --metrics-port; see SpotifyCLI.
+ */
+public class RequestMetrics {
+    public enum Cache {
+        // Answered from the local store, no request made
+        HIT,
+        // Not in the store (or not usable), so fetched from Spotify
+        MISS,
+        // Fetching failed, and an older copy from the store was used instead
+        STALE
+    }
+
+    // Network time of every exchange made on this thread so far; lets a caller take it out of a longer span
+    private static final ThreadLocal<long[]> networkNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    // Set by a caller that is about to resend a request, so the resend is counted as a retry; see markRetry()
+    private static final ThreadLocal<Boolean> retrying = ThreadLocal.withInitial(() -> false);
+
+    private final ConcurrentHashMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Cache, LongAdder> cache = new ConcurrentHashMap<>();
+
+    public static class EndpointStats {
+        public final Histogram queue = new Histogram();
+        public final Histogram network = new Histogram();
+        public final Histogram parse = new Histogram();
+        public final Histogram total = new Histogram();
+        public final Histogram bytes = new Histogram();
+        public final LongAdder retries = new LongAdder();
+        // EX: "2xx", "404", "429", "io_error"
+        public final ConcurrentHashMap<String, LongAdder> statuses = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * One request, from the facade being asked to it answering
+     */
+    public class Sample {
+        private final EndpointStats stats;
+        private final long startNanos;
+        private volatile boolean sent = false;
+
+        private Sample(EndpointStats stats, boolean retry) {
+            this.stats = stats;
+            this.startNanos = System.nanoTime();
+            if (retry)
+                stats.retries.increment();
+        }
+
+        /**
+         * The request is about to go out; the first call ends the queue time, later ones (hedges) count as retries
+         */
+        public void sending() {
+            if (sent) {
+                stats.retries.increment();
+                return;
+            }
+            sent = true;
+            stats.queue.record(micros(System.nanoTime() - startNanos));
+        }
+
+        public void parsed(long nanos) {
+            stats.parse.record(micros(nanos));
+        }
+
+        public void done() {
+            stats.total.record(micros(System.nanoTime() - startNanos));
+        }
+    }
+
+    @NotNull
+    public Sample begin(@NotNull String endpoint) {
+        boolean retry = retrying.get();
+        retrying.set(false);
+        return new Sample(stats(endpoint), retry);
+    }
+
+    /**
+     * The next request begun on this thread resends one that failed
+     */
+    public static void markRetry() {
+        retrying.set(true);
+    }
+
+    /**
+     * One HTTP exchange
+     *
+     * @param error Why it failed, null if it succeeded
+     */
+    public void exchange(@NotNull String endpoint, long nanos, long responseBytes, @Nullable Exception error) {
+        networkNanos.get()[0] += nanos;
+        EndpointStats stats = stats(endpoint);
+        stats.network.record(micros(nanos));
+        if (error == null)
+            stats.bytes.record(responseBytes);
+        stats.statuses.computeIfAbsent(statusOf(error), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return The network time of every exchange made on the calling thread so far
+     */
+    public static long networkNanosOnThread() {
+        return networkNanos.get()[0];
+    }
+
+    public void parsed(@NotNull String endpoint, long nanos) {
+        stats(endpoint).parse.record(micros(nanos));
+    }
+
+    public void cache(@NotNull Cache outcome) {
+        cache.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+    }
+
+    @NotNull
+    public Map<String, EndpointStats> endpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    public long cacheCount(@NotNull Cache outcome) {
+        LongAdder count = cache.get(outcome);
+        return count == null ? 0 : count.sum();
+    }
+
+    private EndpointStats stats(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, k -> new EndpointStats());
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * The HTTP status an exception stands for; the Spotify API wrapper turns every error response into one
+     */
+    @NotNull
+    public static String statusOf(@Nullable Exception error) {
+        if (error == null)
+            return "2xx";
+        if (error instanceof BadRequestException)
+            return "400";
+        if (error instanceof UnauthorizedException)
+            return "401";
+        if (error instanceof ForbiddenException)
+            return "403";
+        if (error instanceof NotFoundException)
+            return "404";
+        if (error instanceof TooManyRequestsException)
+            return "429";
+        if (error instanceof InternalServerErrorException)
+            return "500";
+        if (error instanceof BadGatewayException)
+            return "502";
+        if (error instanceof ServiceUnavailableException)
+            return "503";
+        if (error instanceof SpotifyWebApiException)
+            return "error";
+        if (error instanceof InterruptedIOException)
+            return "cancelled";
+        return "io_error";
+    }
+
+    /**
+     * A table of every endpoint's requests; times in milliseconds
+     */
+    public void printSummary(@NotNull PrintStream out) {
+        out.printf("%-32s %6s %7s %7s %7s %7s %8s %8s %8s %9s  %s%n", "ENDPOINT", "SENT", "RETRY", "p50", "p95", "p99",
+                "MAX", "QUEUE95", "PARSE95", "KB", "STATUS");
+        for (Map.Entry<String, EndpointStats> entry : endpoints().entrySet()) {
+            EndpointStats stats = entry.getValue();
+            // Requests made outside the facade (EX: by the auth flows) only have their network time
+            Histogram latency = stats.total.count() > 0 ? stats.total : stats.network;
+            var statuses = new StringBuilder();
+            for (Map.Entry<String, LongAdder> status : new TreeMap<>(stats.statuses).entrySet())
+                statuses.append(statuses.length() == 0 ? "" : " ").append(status.getKey()).append('=').append(status.getValue().sum());
+            out.printf("%-32s %6d %7d %7.1f %7.1f %7.1f %8.1f %8.1f %8.1f %9.1f  %s%n", entry.getKey(),
+                    stats.network.count(), stats.retries.sum(), millis(latency.percentile(50)),
+                    millis(latency.percentile(95)), millis(latency.percentile(99)), millis(latency.max()),
+                    millis(stats.queue.percentile(95)), millis(stats.parse.percentile(95)),
+                    stats.bytes.sum() / 1024.0, statuses);
+        }
+        out.printf("Local store: %d hits, %d misses, %d stale%n",
+                cacheCount(Cache.HIT), cacheCount(Cache.MISS), cacheCount(Cache.STALE));
+    }
+
+    @NotNull
+    public JsonObject toJson() {
+        var root = new JsonObject();
+        var endpointsJson = new JsonArray();
+        for (Map.Entry<String, EndpointStats> entry : endpoints().entrySet()) {
+            EndpointStats stats = entry.getValue();
+            var endpoint = new JsonObject();
+            endpoint.addProperty("endpoint", entry.getKey());
+            endpoint.addProperty("retries", stats.retries.sum());
+            var statuses = new JsonObject();
+            for (Map.Entry<String, LongAdder> status : new TreeMap<>(stats.statuses).entrySet())
+                statuses.addProperty(status.getKey(), status.getValue().sum());
+            endpoint.add("statuses", statuses);
+            endpoint.add("queue_us", histogramJson(stats.queue));
+            endpoint.add("network_us", histogramJson(stats.network));
+            endpoint.add("parse_us", histogramJson(stats.parse));
+            endpoint.add("total_us", histogramJson(stats.total));
+            endpoint.add("response_bytes", histogramJson(stats.bytes));
+            endpointsJson.add(endpoint);
+        }
+        root.add("endpoints", endpointsJson);
+        var cacheJson = new JsonObject();
+        for (Cache outcome : Cache.values())
+            cacheJson.addProperty(outcome.name().toLowerCase(), cacheCount(outcome));
+        root.add("cache", cacheJson);
+        return root;
+    }
+
+    private static JsonObject histogramJson(Histogram histogram) {
+        var json = new JsonObject();
+        json.addProperty("count", histogram.count());
+        json.addProperty("sum", histogram.sum());
+        json.addProperty("p50", histogram.percentile(50));
+        json.addProperty("p90", histogram.percentile(90));
+        json.addProperty("p95", histogram.percentile(95));
+        json.addProperty("p99", histogram.percentile(99));
+        json.addProperty("p999", histogram.percentile(99.9));
+        json.addProperty("max", histogram.max());
+        return json;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
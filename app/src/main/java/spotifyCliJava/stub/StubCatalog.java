@@ -0,0 +1,437 @@
+package spotifyCliJava.stub;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import spotifyCliJava.facade.SpotifyId;
+
+/**
+ * The made up catalog and library a StubSpotifyServer serves, generated on the fly so it costs no memory however large.
+ *
+ * Every item is a kind and an index, and its ID encodes both, so any ID handed out can be looked up again. The catalog
+ * is unbounded; the library (what the user has saved or follows) is the first N of each kind, with N derived from
+ * the library size given:
+ * - librarySize saved tracks; album i has tracks 12i to 12i+11, artist i made albums 3i to 3i+2
+ * - librarySize / 10 saved albums, librarySize / 20 followed artists
+ * - librarySize / 100 playlists of playlistSize tracks each, and as many saved shows of 10 episodes each
+ */
+public class StubCatalog {
+    public enum Kind {
+        ALBUM, ARTIST, TRACK, PLAYLIST, SHOW, EPISODE, USER;
+
+        @NotNull
+        public String typeName() {
+            return name().toLowerCase();
+        }
+    }
+
+    public static final int TRACKS_PER_ALBUM = 12;
+    public static final int ALBUMS_PER_ARTIST = 3;
+    public static final int EPISODES_PER_SHOW = 10;
+    private static final String API = "https://api.spotify.com/v1/";
+    private static final String ADDED_AT = "2021-06-01T12:00:00Z";
+
+    public final int savedTracks;
+    public final int savedAlbums;
+    public final int followedArtists;
+    public final int playlists;
+    public final int savedShows;
+    public final int playlistSize;
+
+    public StubCatalog(int librarySize, int playlistSize) {
+        this.savedTracks = Math.max(1, librarySize);
+        this.savedAlbums = Math.max(1, librarySize / 10);
+        this.followedArtists = Math.max(1, librarySize / 20);
+        this.playlists = Math.max(1, librarySize / 100);
+        this.savedShows = Math.max(1, librarySize / 100);
+        this.playlistSize = playlistSize;
+    }
+
+    @NotNull
+    public static String id(@NotNull Kind kind, int index) {
+        return SpotifyId.encode(kind.ordinal() + 1, index);
+    }
+
+    /**
+     * @return The index of the item of 'kind' with 'id', -1 if it isn't one
+     */
+    public static int indexOf(@NotNull Kind kind, @Nullable String id) {
+        long[] decoded = id == null ? null : SpotifyId.decode(id);
+        if (decoded == null || decoded[0] != kind.ordinal() + 1 || decoded[1] < 0 || decoded[1] > Integer.MAX_VALUE)
+            return -1;
+        return (int) decoded[1];
+    }
+
+    // Items
+    //---------------------------------------------------------------------
+
+    @NotNull
+    public JsonObject artistSimplified(int index) {
+        return base(Kind.ARTIST, index, "Artist " + index);
+    }
+
+    @NotNull
+    public JsonObject artist(int index) {
+        JsonObject artist = artistSimplified(index);
+        artist.add("followers", followers(1000 + index % 5000));
+        artist.add("genres", strings("stub"));
+        artist.add("images", new JsonArray());
+        artist.addProperty("popularity", index % 100);
+        return artist;
+    }
+
+    @NotNull
+    public JsonObject albumSimplified(int index) {
+        JsonObject album = base(Kind.ALBUM, index, "Album " + index);
+        album.addProperty("album_type", "album");
+        album.add("artists", array(artistSimplified(index / ALBUMS_PER_ARTIST)));
+        album.add("available_markets", strings("US"));
+        album.add("images", new JsonArray());
+        album.addProperty("release_date", "2020-01-01");
+        album.addProperty("release_date_precision", "day");
+        album.addProperty("total_tracks", TRACKS_PER_ALBUM);
+        return album;
+    }
+
+    @NotNull
+    public JsonObject album(int index) {
+        JsonObject album = albumSimplified(index);
+        album.add("copyrights", new JsonArray());
+        album.add("external_ids", externalIds("UPC", index));
+        album.add("genres", new JsonArray());
+        album.addProperty("label", "Stub Records");
+        album.addProperty("popularity", index % 100);
+        album.add("tracks", albumTracks(index, 0, 50));
+        return album;
+    }
+
+    @NotNull
+    public JsonObject trackSimplified(int index) {
+        JsonObject track = base(Kind.TRACK, index, "Track " + index);
+        track.add("artists", array(artistSimplified(index / TRACKS_PER_ALBUM / ALBUMS_PER_ARTIST)));
+        track.add("available_markets", strings("US"));
+        track.addProperty("disc_number", 1);
+        track.addProperty("duration_ms", 150_000 + index % 120_000);
+        track.addProperty("explicit", false);
+        track.addProperty("is_local", false);
+        track.add("preview_url", null);
+        track.addProperty("track_number", index % TRACKS_PER_ALBUM + 1);
+        return track;
+    }
+
+    @NotNull
+    public JsonObject track(int index) {
+        JsonObject track = trackSimplified(index);
+        track.add("album", albumSimplified(index / TRACKS_PER_ALBUM));
+        track.add("external_ids", externalIds("ISRC", index));
+        track.addProperty("popularity", index % 100);
+        return track;
+    }
+
+    @NotNull
+    public JsonObject user(int index) {
+        JsonObject user = base(Kind.USER, index, null);
+        user.addProperty("display_name", "Stub user " + index);
+        user.add("followers", followers(index));
+        user.add("images", new JsonArray());
+        return user;
+    }
+
+    @NotNull
+    public JsonObject playlistSimplified(int index) {
+        JsonObject playlist = base(Kind.PLAYLIST, index, "Playlist " + index);
+        playlist.addProperty("collaborative", false);
+        playlist.addProperty("description", "A stub playlist");
+        playlist.add("images", new JsonArray());
+        playlist.add("owner", user(0));
+        playlist.addProperty("public", true);
+        playlist.addProperty("snapshot_id", "c25hcHNob3Q" + index);
+        var tracks = new JsonObject();
+        tracks.addProperty("href", API + "playlists/" + id(Kind.PLAYLIST, index) + "/tracks");
+        tracks.addProperty("total", playlistSize);
+        playlist.add("tracks", tracks);
+        return playlist;
+    }
+
+    @NotNull
+    public JsonObject playlist(int index) {
+        JsonObject playlist = playlistSimplified(index);
+        playlist.add("followers", followers(index % 1000));
+        playlist.add("tracks", playlistItems(index, 0, 100));
+        return playlist;
+    }
+
+    @NotNull
+    public JsonObject showSimplified(int index) {
+        JsonObject show = base(Kind.SHOW, index, "Show " + index);
+        show.add("available_markets", strings("US"));
+        show.add("copyrights", new JsonArray());
+        show.addProperty("description", "A stub show");
+        show.addProperty("explicit", false);
+        show.add("images", new JsonArray());
+        show.addProperty("is_externally_hosted", false);
+        show.add("languages", strings("en"));
+        show.addProperty("media_type", "audio");
+        show.addProperty("publisher", "Stub Media");
+        return show;
+    }
+
+    @NotNull
+    public JsonObject show(int index) {
+        JsonObject show = showSimplified(index);
+        show.add("episodes", showEpisodes(index, 0, 50));
+        return show;
+    }
+
+    @NotNull
+    public JsonObject episodeSimplified(int index) {
+        JsonObject episode = base(Kind.EPISODE, index, "Episode " + index);
+        episode.add("audio_preview_url", null);
+        episode.addProperty("description", "A stub episode");
+        episode.addProperty("duration_ms", 1_800_000 + index % 600_000);
+        episode.addProperty("explicit", false);
+        episode.add("images", new JsonArray());
+        episode.addProperty("is_externally_hosted", false);
+        episode.addProperty("is_playable", true);
+        episode.addProperty("language", "en");
+        episode.add("languages", strings("en"));
+        episode.addProperty("release_date", "2021-01-01");
+        episode.addProperty("release_date_precision", "day");
+        return episode;
+    }
+
+    @NotNull
+    public JsonObject episode(int index) {
+        JsonObject episode = episodeSimplified(index);
+        episode.add("show", showSimplified(index / EPISODES_PER_SHOW));
+        return episode;
+    }
+
+    /**
+     * @return The item of 'kind' at 'index', in full
+     */
+    @NotNull
+    public JsonObject item(@NotNull Kind kind, int index) {
+        switch (kind) {
+            case ALBUM:
+                return album(index);
+            case ARTIST:
+                return artist(index);
+            case TRACK:
+                return track(index);
+            case PLAYLIST:
+                return playlist(index);
+            case SHOW:
+                return show(index);
+            case EPISODE:
+                return episode(index);
+            default:
+                return user(index);
+        }
+    }
+
+    // Pages
+    //---------------------------------------------------------------------
+
+    @NotNull
+    public JsonObject albumTracks(int album, int offset, int limit) {
+        var items = new JsonArray();
+        for (int i = offset; i < Math.min(TRACKS_PER_ALBUM, offset + limit); i++)
+            items.add(trackSimplified(album * TRACKS_PER_ALBUM + i));
+        return paging("albums/" + id(Kind.ALBUM, album) + "/tracks", items, offset, limit, TRACKS_PER_ALBUM);
+    }
+
+    @NotNull
+    public JsonObject showEpisodes(int show, int offset, int limit) {
+        var items = new JsonArray();
+        for (int i = offset; i < Math.min(EPISODES_PER_SHOW, offset + limit); i++)
+            items.add(episodeSimplified(show * EPISODES_PER_SHOW + i));
+        return paging("shows/" + id(Kind.SHOW, show) + "/episodes", items, offset, limit, EPISODES_PER_SHOW);
+    }
+
+    @NotNull
+    public JsonObject playlistItems(int playlist, int offset, int limit) {
+        var items = new JsonArray();
+        for (int i = offset; i < Math.min(playlistSize, offset + limit); i++) {
+            var item = new JsonObject();
+            item.addProperty("added_at", ADDED_AT);
+            item.add("added_by", user(0));
+            item.addProperty("is_local", false);
+            // Spread over the saved tracks, overlapping between playlists as real ones do
+            item.add("track", track((playlist * 37 + i) % savedTracks));
+            items.add(item);
+        }
+        return paging("playlists/" + id(Kind.PLAYLIST, playlist) + "/tracks", items, offset, limit, playlistSize);
+    }
+
+    /**
+     * @param itemType EX: "album", for GET /me/albums
+     */
+    @Nullable
+    public JsonObject savedItems(@NotNull String itemType, int offset, int limit) {
+        Kind kind;
+        int total;
+        switch (itemType) {
+            case "album":
+                kind = Kind.ALBUM;
+                total = savedAlbums;
+                break;
+            case "track":
+                kind = Kind.TRACK;
+                total = savedTracks;
+                break;
+            case "show":
+                kind = Kind.SHOW;
+                total = savedShows;
+                break;
+            default:
+                return null;
+        }
+        var items = new JsonArray();
+        for (int i = offset; i < Math.min(total, offset + limit); i++) {
+            var saved = new JsonObject();
+            saved.addProperty("added_at", ADDED_AT);
+            saved.add(itemType, kind == Kind.SHOW ? showSimplified(i) : item(kind, i));
+            items.add(saved);
+        }
+        return paging("me/" + itemType + "s", items, offset, limit, total);
+    }
+
+    @NotNull
+    public JsonObject userPlaylists(int offset, int limit) {
+        var items = new JsonArray();
+        for (int i = offset; i < Math.min(playlists, offset + limit); i++)
+            items.add(playlistSimplified(i));
+        return paging("me/playlists", items, offset, limit, playlists);
+    }
+
+    /**
+     * GET /me/following?type=artist, which pages with a cursor (the ID of the last artist of the previous page)
+     */
+    @NotNull
+    public JsonObject followedArtists(@Nullable String after, int limit) {
+        int from = after == null ? 0 : indexOf(Kind.ARTIST, after) + 1;
+        var items = new JsonArray();
+        int to = Math.min(followedArtists, Math.max(from, 0) + limit);
+        for (int i = Math.max(from, 0); i < to; i++)
+            items.add(artist(i));
+        var page = new JsonObject();
+        String href = API + "me/following?type=artist&limit=" + limit;
+        page.addProperty("href", href + (after == null ? "" : "&after=" + after));
+        page.add("items", items);
+        page.addProperty("limit", limit);
+        var cursors = new JsonObject();
+        if (to < followedArtists) {
+            String last = id(Kind.ARTIST, to - 1);
+            page.addProperty("next", href + "&after=" + last);
+            cursors.addProperty("after", last);
+        } else {
+            page.add("next", null);
+            cursors.add("after", null);
+        }
+        page.add("cursors", cursors);
+        page.addProperty("total", followedArtists);
+        var root = new JsonObject();
+        root.add("artists", page);
+        return root;
+    }
+
+    /**
+     * GET /search: the query is ignored, every search matches the whole library of that type
+     */
+    @Nullable
+    public JsonObject search(@NotNull String type, int offset, int limit) {
+        JsonObject page;
+        if (type.equals("playlist")) {
+            page = userPlaylists(offset, limit);
+        } else if (type.equals("artist")) {
+            var items = new JsonArray();
+            for (int i = offset; i < Math.min(followedArtists, offset + limit); i++)
+                items.add(artist(i));
+            page = paging("search?type=artist", items, offset, limit, followedArtists);
+        } else if (type.equals("episode")) {
+            var items = new JsonArray();
+            int total = savedShows * EPISODES_PER_SHOW;
+            for (int i = offset; i < Math.min(total, offset + limit); i++)
+                items.add(episodeSimplified(i));
+            page = paging("search?type=episode", items, offset, limit, total);
+        } else {
+            JsonObject saved = savedItems(type, offset, limit);
+            if (saved == null)
+                return null;
+            // Search results are the items themselves, not saved items
+            var items = new JsonArray();
+            for (JsonElement item : saved.getAsJsonArray("items"))
+                items.add(item.getAsJsonObject().get(type));
+            page = paging("search?type=" + type, items, offset, limit, saved.get("total").getAsInt());
+        }
+        var root = new JsonObject();
+        root.add(type + "s", page);
+        return root;
+    }
+
+    // Building blocks
+    //---------------------------------------------------------------------
+
+    private static JsonObject base(Kind kind, int index, @Nullable String name) {
+        String id = id(kind, index);
+        String type = kind.typeName();
+        var item = new JsonObject();
+        var externalUrls = new JsonObject();
+        externalUrls.addProperty("spotify", "https://open.spotify.com/" + type + "/" + id);
+        item.add("external_urls", externalUrls);
+        item.addProperty("href", API + type + "s/" + id);
+        item.addProperty("id", id);
+        if (name != null)
+            item.addProperty("name", name);
+        item.addProperty("type", type);
+        item.addProperty("uri", "spotify:" + type + ":" + id);
+        return item;
+    }
+
+    private static JsonObject paging(String path, JsonArray items, int offset, int limit, int total) {
+        String href = API + path + (path.contains("?") ? "&" : "?");
+        var page = new JsonObject();
+        page.addProperty("href", href + "offset=" + offset + "&limit=" + limit);
+        page.add("items", items);
+        page.addProperty("limit", limit);
+        if (offset + limit < total)
+            page.addProperty("next", href + "offset=" + (offset + limit) + "&limit=" + limit);
+        else
+            page.add("next", null);
+        page.addProperty("offset", offset);
+        if (offset > 0)
+            page.addProperty("previous", href + "offset=" + Math.max(0, offset - limit) + "&limit=" + limit);
+        else
+            page.add("previous", null);
+        page.addProperty("total", total);
+        return page;
+    }
+
+    private static JsonObject followers(int total) {
+        var followers = new JsonObject();
+        followers.add("href", null);
+        followers.addProperty("total", total);
+        return followers;
+    }
+
+    private static JsonObject externalIds(String type, int index) {
+        var ids = new JsonObject();
+        ids.addProperty(type.toLowerCase(), String.format("STUB%08d", index));
+        return ids;
+    }
+
+    private static JsonArray array(JsonElement element) {
+        var array = new JsonArray();
+        array.add(element);
+        return array;
+    }
+
+    private static JsonArray strings(String value) {
+        var array = new JsonArray();
+        array.add(value);
+        return array;
+    }
+}
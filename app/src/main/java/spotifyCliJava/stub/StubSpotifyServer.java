@@ -0,0 +1,463 @@
+package spotifyCliJava.stub;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spotifyCliJava.authorization.flows.utility.CallbackServer.NamedThreadFactory;
+import spotifyCliJava.stub.StubCatalog.Kind;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process stand in for the Spotify Web API (and the token endpoint of its accounts service), to load test the
+ * CLI against without touching Spotify. Point a SpotifyApi at it with SpotifyCliSetup's apiBaseURI.
+ *
+ * It serves everything the facade and the auth flows ask for: tokens, albums, artists, tracks, playlists, shows and
+ * episodes (with their tracks/items/episodes), the saved library and followed artists page by page, search, and the
+ * save/follow/playlist mutations (accepted, but not remembered). The data comes from a StubCatalog.
+ *
+ * What real Spotify does to a client can be dialled in: latency (plus jitter), a share of requests failing with 5xx,
+ * a share throttled with 429 and a Retry-After, and ETags on GETs (answering 304 to a matching If-None-Match).
+ * Failures and throttling only hit the Web API, so signing in always works.
+ */
+public class StubSpotifyServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger("spotify-cli-java.spotifyCliJava.stub.StubSpotifyServer");
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 50;
+
+    private final int port;
+    private final int latencyMillis;
+    private final int jitterMillis;
+    private final double errorRate;
+    private final double throttleRate;
+    private final int retryAfterSeconds;
+    private final boolean eTags;
+    private final StubCatalog catalog;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    private StubSpotifyServer(Builder builder) {
+        this.port = builder.port;
+        this.latencyMillis = builder.latencyMillis;
+        this.jitterMillis = builder.jitterMillis;
+        this.errorRate = builder.errorPercent / 100;
+        this.throttleRate = builder.throttlePercent / 100;
+        this.retryAfterSeconds = builder.retryAfterSeconds;
+        this.eTags = builder.eTags;
+        this.catalog = new StubCatalog(builder.librarySize, builder.playlistSize);
+    }
+
+    static {
+        // The JDK's server writes the headers and the body separately, and with Nagle's algorithm on, a small body
+        // then waits out the client's delayed ACK: ~40 ms added to every small response. It is read once, when the
+        // server classes load, so it has to be set before any server (EX: the metrics server) is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    public StubSpotifyServer start() throws IOException {
+        // Only ever on the loopback interface; nothing here is meant for other machines
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // A thread per request in flight, so the latency it's told to add is the only queueing there is
+        executor = Executors.newCachedThreadPool(new NamedThreadFactory("spotify-stub"));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        logger.info("Stub Spotify API listening on " + getBaseURI());
+        return this;
+    }
+
+    @NotNull
+    public URI getBaseURI() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @NotNull
+    public StubCatalog getCatalog() {
+        return catalog;
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long throttled() {
+        return throttled.sum();
+    }
+
+    public long notModified() {
+        return notModified.sum();
+    }
+
+    @Override
+    public void close() {
+        if (server == null)
+            return;
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+
+    // Requests
+    //---------------------------------------------------------------------
+
+    private static class Response {
+        final int status;
+        final String body;
+        final Map<String, String> headers = new HashMap<>();
+
+        Response(int status, @Nullable String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+            delay();
+            URI uri = exchange.getRequestURI();
+            String method = exchange.getRequestMethod();
+            Response response;
+            if (uri.getPath().equals("/api/token")) {
+                response = method.equals("POST") ? token() : error(405, "Method not allowed");
+            } else if (uri.getPath().startsWith("/v1/")) {
+                response = injectFault();
+                if (response == null)
+                    response = route(method, uri.getPath().substring("/v1/".length()), query(uri));
+            } else {
+                response = error(404, "Service not found");
+            }
+            if (eTags && method.equals("GET") && response.status == 200 && response.body != null)
+                response = withETag(response, exchange.getRequestHeaders().getFirst("If-None-Match"));
+            send(exchange, response);
+        } catch (RuntimeException e) {
+            logger.error("Stub failed to answer " + exchange.getRequestURI() + ": " + e);
+            send(exchange, error(500, e.toString()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void delay() {
+        int millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextInt(jitterMillis + 1) : 0);
+        if (millis <= 0)
+            return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Nullable
+    private Response injectFault() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < throttleRate) {
+            throttled.increment();
+            Response response = error(429, "API rate limit exceeded");
+            response.headers.put("Retry-After", String.valueOf(retryAfterSeconds));
+            return response;
+        }
+        if (roll < throttleRate + errorRate) {
+            failed.increment();
+            return ThreadLocalRandom.current().nextBoolean()
+                    ? error(500, "Server error")
+                    : error(503, "Service unavailable");
+        }
+        return null;
+    }
+
+    private Response withETag(Response response, @Nullable String ifNoneMatch) {
+        String eTag = "\"" + Integer.toHexString(response.body.hashCode()) + "\"";
+        Response answer = eTag.equals(ifNoneMatch) ? new Response(304, null) : response;
+        if (answer.status == 304)
+            notModified.increment();
+        answer.headers.put("ETag", eTag);
+        return answer;
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body == null ? null : response.body.getBytes(StandardCharsets.UTF_8);
+        response.headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+        if (body != null)
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body == null ? -1 : body.length);
+        if (body != null) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Response token() {
+        var token = new JsonObject();
+        token.addProperty("access_token", "stub-access-token");
+        token.addProperty("token_type", "Bearer");
+        token.addProperty("expires_in", 3600);
+        token.addProperty("refresh_token", "stub-refresh-token");
+        token.addProperty("scope", "");
+        return ok(token);
+    }
+
+    // Routes
+    //---------------------------------------------------------------------
+
+    private Response route(String method, String path, Map<String, String> query) {
+        String[] segments = path.split("/");
+        switch (method) {
+            case "GET":
+                return get(segments, query);
+            case "PUT":
+            case "DELETE":
+                // Saving/removing items, following/unfollowing artists and playlists
+                if (segments[0].equals("me") || (segments.length == 3 && segments[2].equals("followers")))
+                    return new Response(200, null);
+                if (segments.length == 3 && segments[0].equals("playlists") && segments[2].equals("tracks"))
+                    return snapshot(segments[1]);
+                break;
+            case "POST":
+                if (segments.length == 3 && segments[0].equals("playlists") && segments[2].equals("tracks"))
+                    return snapshot(segments[1]);
+                break;
+        }
+        return error(404, "Not found");
+    }
+
+    private Response get(String[] segments, Map<String, String> query) {
+        int offset = Math.max(0, intParam(query, "offset", 0));
+        int limit = Math.min(MAX_LIMIT, Math.max(1, intParam(query, "limit", DEFAULT_LIMIT)));
+        String collection = segments[0];
+
+        if (collection.equals("me")) {
+            if (segments.length == 1)
+                return ok(catalog.user(0));
+            switch (segments[1]) {
+                case "albums":
+                case "tracks":
+                case "shows":
+                    String itemType = segments[1].substring(0, segments[1].length() - 1);
+                    return ok(catalog.savedItems(itemType, offset, limit));
+                case "playlists":
+                    return ok(catalog.userPlaylists(offset, limit));
+                case "following":
+                    return ok(catalog.followedArtists(query.get("after"), limit));
+            }
+            return error(404, "Not found");
+        }
+
+        if (collection.equals("search")) {
+            String type = query.getOrDefault("type", "track").split(",")[0];
+            JsonObject results = catalog.search(type, offset, limit);
+            return results == null ? error(400, "Bad search type") : ok(results);
+        }
+
+        Kind kind = kindOf(collection);
+        if (kind == null)
+            return error(404, "Not found");
+
+        // Several at once, EX: GET /tracks?ids=a,b,c
+        if (segments.length == 1) {
+            String ids = query.get("ids");
+            if (ids == null)
+                return error(400, "Missing ids");
+            var items = new JsonArray();
+            for (String id : ids.split(",")) {
+                int index = StubCatalog.indexOf(kind, id);
+                if (index < 0)
+                    items.add((JsonObject) null);
+                else
+                    items.add(catalog.item(kind, index));
+            }
+            var root = new JsonObject();
+            root.add(collection, items);
+            return ok(root);
+        }
+
+        int index = StubCatalog.indexOf(kind, segments[1]);
+        if (index < 0)
+            return error(kind == Kind.USER ? 404 : 400, "Invalid id");
+        if (segments.length == 2)
+            return ok(catalog.item(kind, index));
+        switch (kind.typeName() + "/" + segments[2]) {
+            case "album/tracks":
+                return ok(catalog.albumTracks(index, offset, limit));
+            case "playlist/tracks":
+                // Playlists page by up to 100
+                return ok(catalog.playlistItems(index, offset, Math.min(100, Math.max(1, intParam(query, "limit", 100)))));
+            case "show/episodes":
+                return ok(catalog.showEpisodes(index, offset, limit));
+            case "artist/albums":
+                var albums = new JsonArray();
+                for (int album = index * StubCatalog.ALBUMS_PER_ARTIST; album < (index + 1) * StubCatalog.ALBUMS_PER_ARTIST; album++)
+                    albums.add(catalog.albumSimplified(album));
+                var page = new JsonObject();
+                page.add("items", albums);
+                page.addProperty("limit", limit);
+                page.addProperty("offset", 0);
+                page.addProperty("total", StubCatalog.ALBUMS_PER_ARTIST);
+                return ok(page);
+        }
+        return error(404, "Not found");
+    }
+
+    @Nullable
+    private static Kind kindOf(String collection) {
+        switch (collection) {
+            case "albums":
+                return Kind.ALBUM;
+            case "artists":
+                return Kind.ARTIST;
+            case "tracks":
+                return Kind.TRACK;
+            case "playlists":
+                return Kind.PLAYLIST;
+            case "shows":
+                return Kind.SHOW;
+            case "episodes":
+                return Kind.EPISODE;
+            case "users":
+                return Kind.USER;
+            default:
+                return null;
+        }
+    }
+
+    private static Response snapshot(String playlistID) {
+        var snapshot = new JsonObject();
+        // A new snapshot for every change, as Spotify does
+        snapshot.addProperty("snapshot_id", playlistID + "-" + System.nanoTime());
+        return new Response(201, snapshot.toString());
+    }
+
+    private static Response ok(JsonObject body) {
+        return new Response(200, body.toString());
+    }
+
+    // Spotify's error object
+    private static Response error(int status, String message) {
+        var error = new JsonObject();
+        error.addProperty("status", status);
+        error.addProperty("message", message);
+        var root = new JsonObject();
+        root.add("error", error);
+        return new Response(status, root.toString());
+    }
+
+    private static Map<String, String> query(URI uri) {
+        var params = new HashMap<String, String>();
+        String query = uri.getRawQuery();
+        if (query == null)
+            return params;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0)
+                params.put(pair.substring(0, equals), URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        try {
+            return query.containsKey(name) ? Integer.parseInt(query.get(name)) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static class Builder {
+        private int port = 0;
+        private int latencyMillis = 0;
+        private int jitterMillis = 0;
+        private double errorPercent = 0;
+        private double throttlePercent = 0;
+        private int retryAfterSeconds = 1;
+        private boolean eTags = true;
+        private int librarySize = 1000;
+        private int playlistSize = 100;
+
+        public StubSpotifyServer build() {
+            return new StubSpotifyServer(this);
+        }
+
+        /**
+         * @param port 0 for any free port (see getBaseURI)
+         */
+        public Builder withPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder withLatencyMillis(int latencyMillis) {
+            this.latencyMillis = latencyMillis;
+            return this;
+        }
+
+        /**
+         * @param jitterMillis Up to this much is added to the latency of each request, uniformly at random
+         */
+        public Builder withJitterMillis(int jitterMillis) {
+            this.jitterMillis = jitterMillis;
+            return this;
+        }
+
+        public Builder withErrorPercent(double errorPercent) {
+            this.errorPercent = errorPercent;
+            return this;
+        }
+
+        public Builder withThrottlePercent(double throttlePercent) {
+            this.throttlePercent = throttlePercent;
+            return this;
+        }
+
+        public Builder withRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+            return this;
+        }
+
+        public Builder withETags(boolean eTags) {
+            this.eTags = eTags;
+            return this;
+        }
+
+        public Builder withLibrarySize(int librarySize) {
+            this.librarySize = librarySize;
+            return this;
+        }
+
+        public Builder withPlaylistSize(int playlistSize) {
+            this.playlistSize = playlistSize;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package spotifyCliJava.utility;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a command must be done (see SpotifyCLI's --deadline). Everything that waits on the
+ * network asks it how much time is left, so the whole command is bounded, not just each request.
+ */
+public final class Deadline {
+    // No deadline at all
+    public static final Deadline NONE = new Deadline(0, false);
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+
+    private Deadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * @param millis How long from now; 0 or less means no deadline
+     */
+    public static Deadline in(long millis) {
+        return millis <= 0 ? NONE : new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), true);
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @return The time left, 0 once expired, Long.MAX_VALUE if there is no deadline
+     */
+    public long remainingNanos() {
+        return bounded ? Math.max(0, deadlineNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    public long remainingMillis() {
+        return bounded ? TimeUnit.NANOSECONDS.toMillis(remainingNanos()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return The earlier of this deadline and 'millis' from now
+     */
+    public Deadline orWithin(long millis) {
+        Deadline other = in(millis);
+        if (!other.bounded)
+            return this;
+        return bounded && deadlineNanos - other.deadlineNanos < 0 ? this : other;
+    }
+}
@@ -0,0 +1,13 @@
+package spotifyCliJava.utility;
+
+import java.io.InterruptedIOException;
+
+/**
+ * A request to Spotify was not sent, or was abandoned mid-flight, because the command's deadline ran out.
+ * It is an IOException, so callers that fall back to the local store on network trouble do so for this too.
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -42,7 +42,11 @@ public class Environment {
 
     // These are optional
     private static final String SPOTIFY_CLIENT_SECRET = dotenv.get("SPOTIFY_CLIENT_SECRET");
-    private static final String SPOTIFY_AUTH_SCOPES = dotenv.get("SPOTIFY_AUTH_SCOPES").replace(',', ' ');;
+    // Optional: when unset, sign in requests no scopes
+    private static final String SPOTIFY_AUTH_SCOPES = dotenv.get("SPOTIFY_AUTH_SCOPES") == null ? null
+            : dotenv.get("SPOTIFY_AUTH_SCOPES").replace(',', ' ');
+    // Optional: where to send requests instead of Spotify, EX: a stub of the API for load tests
+    private static final String SPOTIFY_API_BASE_URI = dotenv.get("SPOTIFY_API_BASE_URI");
 
     public final String clientID;
     public final String clientSecret;
@@ -51,6 +55,7 @@ public class Environment {
     public final String authScopes;
     public final boolean disableTokenCaching;
     public final boolean disableTokenRefresh;
+    public final String apiBaseURI;
     public String callbackServerHostName;
     public int callbackServerPort;
 
@@ -103,6 +108,12 @@ public class Environment {
                         DISABLE_TOKEN_CACHING
                 )
         );
+        this.apiBaseURI = setVar(
+                "SPOTIFY_API_BASE_URI",
+                null,
+                builder.apiBaseURI,
+                SPOTIFY_API_BASE_URI
+        );
 
         //TODO: If no port is specified via the redirect URI, what happens?
         var tokens = this.redirectURI.split(":");
@@ -156,6 +167,7 @@ public class Environment {
         private String authScopes;
         private Boolean disableTokenCaching = null;
         private Boolean disableTokenRefresh = null;
+        private String apiBaseURI;
 
         public Builder() {
         }
@@ -195,6 +207,11 @@ public class Environment {
             return this;
         }
 
+        public Builder withApiBaseURI(String apiBaseURI) {
+            this.apiBaseURI = apiBaseURI;
+            return this;
+        }
+
         public Environment build() {
             return new Environment(this);
         }
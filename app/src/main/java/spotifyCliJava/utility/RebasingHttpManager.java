@@ -0,0 +1,57 @@
+package spotifyCliJava.utility;
+
+import com.wrapper.spotify.IHttpManager;
+import com.wrapper.spotify.exceptions.SpotifyWebApiException;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.ParseException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Wraps the SpotifyApi's IHttpManager, sending every request to another base URI (EX: a local stub of the API) with
+ * its path and query kept as they are.
+ *
+ * This is done here rather than with SpotifyApi.Builder's host and port, because those don't apply to the token
+ * requests of the auth flows, which always go to accounts.spotify.com.
+ */
+public class RebasingHttpManager implements IHttpManager {
+    private final IHttpManager delegate;
+    // EX: "http://127.0.0.1:8089", or with a path prefix, without the trailing slash
+    private final String base;
+
+    public RebasingHttpManager(@NotNull IHttpManager delegate, @NotNull URI baseURI) {
+        this.delegate = delegate;
+        String base = baseURI.toString();
+        this.base = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+    }
+
+    @NotNull
+    public URI rebase(@NotNull URI uri) {
+        // The raw forms, so nothing already encoded is encoded twice
+        String query = uri.getRawQuery();
+        return URI.create(base + uri.getRawPath() + (query == null ? "" : "?" + query));
+    }
+
+    @Override
+    public String get(URI uri, Header[] headers) throws IOException, SpotifyWebApiException, ParseException {
+        return delegate.get(rebase(uri), headers);
+    }
+
+    @Override
+    public String post(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return delegate.post(rebase(uri), headers, body);
+    }
+
+    @Override
+    public String put(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return delegate.put(rebase(uri), headers, body);
+    }
+
+    @Override
+    public String delete(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException, ParseException {
+        return delegate.delete(rebase(uri), headers, body);
+    }
+}
@@ -0,0 +1,54 @@
+package spotifyCliJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionTest {
+
+    @Test
+    void splitsOnWhitespace() {
+        assertEquals(List.of("list", "album", "--all"), Session.tokenize("  list\talbum   --all "));
+        assertEquals(List.of(), Session.tokenize("   "));
+    }
+
+    @Test
+    void quotesKeepWhitespace() {
+        assertEquals(List.of("info", "playlist", "--name", "Road trip 2"), Session.tokenize("info playlist --name \"Road trip 2\""));
+        assertEquals(List.of("search", "it's here"), Session.tokenize("search \"it's here\""));
+        assertEquals(List.of("search", "say \"hi\""), Session.tokenize("search 'say \"hi\"'"));
+        // A quoted part joins the text around it into one argument
+        assertEquals(List.of("--name=Road trip"), Session.tokenize("--name='Road trip'"));
+    }
+
+    @Test
+    void emptyQuotesAreAnArgument() {
+        assertEquals(List.of("search", ""), Session.tokenize("search \"\""));
+        assertEquals(List.of("search", "", "x"), Session.tokenize("search '' x"));
+    }
+
+    @Test
+    void backslashEscapesOutsideSingleQuotes() {
+        assertEquals(List.of("search", "a b"), Session.tokenize("search a\\ b"));
+        assertEquals(List.of("search", "say \"hi\""), Session.tokenize("search \"say \\\"hi\\\"\""));
+        assertEquals(List.of("search", "a\\b"), Session.tokenize("search 'a\\b'"));
+        // A trailing backslash has nothing to escape
+        assertEquals(List.of("search", "a\\"), Session.tokenize("search a\\"));
+    }
+
+    @Test
+    void unterminatedQuotesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Session.tokenize("info playlist --name \"Road trip"));
+        assertThrows(IllegalArgumentException.class, () -> Session.tokenize("search 'x"));
+    }
+
+    @Test
+    void blankLinesAndCommentsAreSkipped() {
+        assertTrue(Session.isSkipped(""));
+        assertTrue(Session.isSkipped("   "));
+        assertTrue(Session.isSkipped("  # list album"));
+        assertFalse(Session.isSkipped("list album # all of them"));
+    }
+}
@@ -0,0 +1,91 @@
+package spotifyCliJava.cassette;
+
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CassetteTest {
+    private static final String TRACKS = "https://api.spotify.com/v1/me/tracks";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void exchangesReadBackAsRecorded() throws IOException {
+        Path path = dir.resolve("run.cassette");
+        try (var writer = new Cassette.Writer(path)) {
+            writer.response(Cassette.key("GET", TRACKS + "?offset=0&limit=50"), 1_000, "{\"items\":[]}");
+            writer.response(Cassette.key("GET", TRACKS + "?offset=50&limit=50"), 2_000, null);
+            writer.error(Cassette.key("GET", TRACKS + "?offset=100&limit=50"), 3_000, new IOException("Connection reset"), 7);
+            assertEquals(3, writer.size());
+        }
+
+        try (var reader = new Cassette.Reader(path)) {
+            assertEquals(3, reader.size());
+
+            Cassette.Exchange first = reader.find(Cassette.key("GET", TRACKS + "?offset=0&limit=50"), 0);
+            assertNotNull(first);
+            assertFalse(first.isError());
+            assertEquals(1_000, first.latencyNanos);
+            assertEquals("{\"items\":[]}", first.body);
+
+            Cassette.Exchange empty = reader.find(Cassette.key("GET", TRACKS + "?offset=50&limit=50"), 0);
+            assertNotNull(empty);
+            assertNull(empty.body);
+
+            Cassette.Exchange error = reader.find(Cassette.key("GET", TRACKS + "?offset=100&limit=50"), 0);
+            assertNotNull(error);
+            assertTrue(error.isError());
+            assertEquals(IOException.class.getName(), error.errorClass);
+            assertEquals("Connection reset", error.errorMessage);
+            assertEquals(7, error.retryAfter);
+
+            assertNull(reader.find(Cassette.key("GET", TRACKS + "?offset=150&limit=50"), 0));
+        }
+    }
+
+    @Test
+    void repeatedRequestsReplayInRecordingOrder() throws IOException {
+        Path path = dir.resolve("run.cassette");
+        String key = Cassette.key("GET", TRACKS);
+        try (var writer = new Cassette.Writer(path)) {
+            writer.response(key, 0, "first");
+            writer.response(key, 0, "second");
+        }
+
+        try (var reader = new Cassette.Reader(path)) {
+            assertEquals("first", reader.find(key, 0).body);
+            assertEquals("second", reader.find(key, 1).body);
+            // Past the last recording the last one is served again
+            assertEquals("second", reader.find(key, 2).body);
+        }
+    }
+
+    @Test
+    void requestsWithDifferentBodiesAreDifferentExchanges() throws IOException {
+        String save = Cassette.key("PUT", TRACKS, new StringEntity("{\"ids\":[\"a\"]}"));
+        String saveOther = Cassette.key("PUT", TRACKS, new StringEntity("{\"ids\":[\"b\"]}"));
+        assertNotEquals(save, saveOther);
+        assertEquals(save, Cassette.key("PUT", TRACKS, new StringEntity("{\"ids\":[\"a\"]}")));
+        // No body, or an empty one, keys like a request without one
+        assertEquals(Cassette.key("PUT", TRACKS), Cassette.key("PUT", TRACKS, null));
+        assertEquals(Cassette.key("PUT", TRACKS), Cassette.key("PUT", TRACKS, new StringEntity("")));
+
+        Path path = dir.resolve("run.cassette");
+        try (var writer = new Cassette.Writer(path)) {
+            writer.response(save, 0, "saved a");
+            writer.response(saveOther, 0, "saved b");
+        }
+
+        try (var reader = new Cassette.Reader(path)) {
+            assertEquals("saved a", reader.find(save, 0).body);
+            assertEquals("saved b", reader.find(saveOther, 0).body);
+            assertNull(reader.find(Cassette.key("PUT", TRACKS), 0));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void neverGivesFalseNegatives() {
+        var filter = new BloomFilter(1000);
+        var random = new Random(1);
+        long[][] added = new long[1000][];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = new long[]{random.nextLong(), random.nextLong()};
+            filter.add(added[i][0], added[i][1]);
+        }
+        for (long[] pair : added)
+            assertTrue(filter.mightContain(pair[0], pair[1]));
+    }
+
+    @Test
+    void falsePositiveRateIsNearOnePercent() {
+        int items = 10_000;
+        var filter = new BloomFilter(items);
+        var random = new Random(2);
+        for (int i = 0; i < items; i++)
+            filter.add(random.nextLong(), random.nextLong());
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(random.nextLong(), random.nextLong()))
+                falsePositives++;
+        }
+        assertTrue(falsePositives < probes * 0.02, falsePositives + " false positives in " + probes);
+    }
+
+    @Test
+    void survivesBeingWrittenOutAndReadBack() {
+        var filter = new BloomFilter(10);
+        filter.add(3, 4);
+        var copy = new BloomFilter(filter.getWords().clone(), filter.getHashes());
+        assertTrue(copy.mightContain(3, 4));
+    }
+}
@@ -0,0 +1,84 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateFinderTest {
+    private static final Items.Artist BEATLES = TestItems.artist(1, "The Beatles");
+
+    private static List<DuplicateFinder.Group> group(DuplicateFinder finder, String[] isrcs, int parallelism)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            return finder.group(isrcs, pool, parallelism);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void normalizeDropsCaseAccentsAndPunctuation() {
+        assertEquals("beyonce", DuplicateFinder.normalize("Beyonc\u00e9"));
+        assertEquals("don t stop me now", DuplicateFinder.normalize("  Don't Stop -- Me Now!  "));
+        assertEquals("", DuplicateFinder.normalize("?!"));
+    }
+
+    @Test
+    void titleKeyIgnoresVersionNotes() {
+        String key = DuplicateFinder.titleKey(TestItems.track(1, "Let It Be", BEATLES, 243_000));
+        assertEquals("t:let it be|the beatles", key);
+        assertEquals(key, DuplicateFinder.titleKey(TestItems.track(2, "Let It Be - Remastered 2009", BEATLES, 243_000)));
+        assertEquals(key, DuplicateFinder.titleKey(TestItems.track(3, "Let It Be (feat. Billy Preston)", BEATLES, 243_000)));
+        assertNotEquals(key, DuplicateFinder.titleKey(TestItems.track(4, "Let It Be Me", BEATLES, 243_000)));
+    }
+
+    @Test
+    void titleKeyKeepsATitleThatIsOnlyAVersionNote() {
+        assertEquals("t:mono|the beatles", DuplicateFinder.titleKey(TestItems.track(1, "(Mono)", BEATLES, 1_000)));
+    }
+
+    @Test
+    void titleKeyOfATrackWithoutArtistsIsNull() {
+        assertNull(DuplicateFinder.titleKey(new Items.Track(0, 1, "Untitled", null, new Items.Artist[0], 1_000, (byte) 0, false)));
+    }
+
+    @Test
+    void titleMatchesNeedCloseDurations() throws InterruptedException {
+        var finder = new DuplicateFinder();
+        finder.add(TestItems.track(1, "Let It Be", BEATLES, 243_000), "saved");
+        finder.add(TestItems.track(2, "Let It Be - Remastered 2009", BEATLES, 244_500), "album:Let It Be");
+        // Same title and artist, but a much longer recording
+        finder.add(TestItems.track(3, "Let It Be", BEATLES, 301_000), "album:Anthology 3");
+        // Same title, another artist
+        finder.add(TestItems.track(4, "Let It Be", TestItems.artist(2, "Other"), 243_000), "saved");
+
+        List<DuplicateFinder.Group> groups = group(finder, new String[4], 2);
+
+        assertEquals(1, groups.size());
+        assertEquals(List.of(TestItems.track(1), TestItems.track(2)), groups.get(0).tracks);
+    }
+
+    @Test
+    void isrcMatchesIgnoreDurationAndMergeWithTitleMatches() throws InterruptedException {
+        var finder = new DuplicateFinder();
+        finder.add(TestItems.track(1, "Song", BEATLES, 200_000), "saved");
+        finder.add(TestItems.track(2, "A Different Name", BEATLES, 260_000), "playlist:Mix");
+        finder.add(TestItems.track(3, "Song (Mono)", BEATLES, 201_000), "album:Mono");
+        finder.add(TestItems.track(4, "Unrelated", BEATLES, 200_000), "saved");
+        finder.add(TestItems.track(2, "A Different Name", BEATLES, 260_000), "saved");
+
+        for (int parallelism : new int[]{1, 3}) {
+            List<DuplicateFinder.Group> groups = group(finder, new String[]{"gbaye0601690", "GBAYE0601690", null, null}, parallelism);
+
+            assertEquals(1, groups.size());
+            DuplicateFinder.Group group = groups.get(0);
+            assertEquals(List.of(TestItems.track(1), TestItems.track(2), TestItems.track(3)), group.tracks);
+            assertEquals(List.of("playlist:Mix", "saved"), group.sources.get(1));
+        }
+    }
+}
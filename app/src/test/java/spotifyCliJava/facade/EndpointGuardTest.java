@@ -0,0 +1,119 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+import spotifyCliJava.utility.Deadline;
+
+import java.io.IOException;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointGuardTest {
+
+    private static String familyOf(String uri) {
+        return EndpointGuard.familyOf(URI.create(uri));
+    }
+
+    private static void failOnce(EndpointGuard guard, String family) throws IOException {
+        try (EndpointGuard.Permit permit = guard.acquire(family, Deadline.NONE)) {
+            permit.failed();
+        }
+    }
+
+    @Test
+    void familyIsTheFirstSegmentThatIsntMeUsersOrAnId() {
+        assertEquals("albums", familyOf("https://api.spotify.com/v1/albums/4aawyAB9vmqN3uQ7FjRGTy/tracks"));
+        assertEquals("playlists", familyOf("https://api.spotify.com/v1/me/playlists?limit=50"));
+        assertEquals("playlists", familyOf("https://api.spotify.com/v1/users/someone/playlists"));
+        assertEquals("following", familyOf("https://api.spotify.com/v1/me/following?type=artist"));
+    }
+
+    @Test
+    void familyOfOnlyMeOrNothingFallsBack() {
+        assertEquals("me", familyOf("https://api.spotify.com/v1/me"));
+        assertEquals("other", familyOf("https://api.spotify.com/v1/"));
+    }
+
+    @Test
+    void opensAfterTheFailureThresholdAndOnlyForThatFamily() throws IOException {
+        var guard = new EndpointGuard(2);
+        for (int i = 1; i < EndpointGuard.FAILURE_THRESHOLD; i++)
+            failOnce(guard, "albums");
+        assertEquals("closed", guard.state("albums"));
+
+        failOnce(guard, "albums");
+        assertEquals("open", guard.state("albums"));
+        assertThrows(CircuitOpenException.class, () -> guard.acquire("albums", Deadline.NONE));
+        assertEquals("closed", guard.state("tracks"));
+        guard.acquire("tracks", Deadline.NONE).close();
+    }
+
+    @Test
+    void aSuccessResetsTheFailureCount() throws IOException {
+        var guard = new EndpointGuard(1);
+        for (int i = 1; i < EndpointGuard.FAILURE_THRESHOLD; i++)
+            failOnce(guard, "albums");
+        try (EndpointGuard.Permit permit = guard.acquire("albums", Deadline.NONE)) {
+            permit.succeeded();
+        }
+        failOnce(guard, "albums");
+        assertEquals("closed", guard.state("albums"));
+    }
+
+    @Test
+    void aThrottleWithoutRetryAfterOpensForTheCooldown() throws IOException {
+        var guard = new EndpointGuard(1);
+        try (EndpointGuard.Permit permit = guard.acquire("search", Deadline.NONE)) {
+            permit.throttled(0);
+        }
+        CircuitOpenException e = assertThrows(CircuitOpenException.class, () -> guard.acquire("search", Deadline.NONE));
+        assertTrue(e.getRetryAfterMillis() > EndpointGuard.BASE_COOLDOWN_MILLIS - 5_000, "open for " + e.getRetryAfterMillis() + " ms");
+    }
+
+    @Test
+    void aThrottleOpensForItsRetryAfter() throws IOException {
+        var guard = new EndpointGuard(1);
+        try (EndpointGuard.Permit permit = guard.acquire("search", Deadline.NONE)) {
+            permit.throttled(120);
+        }
+        CircuitOpenException e = assertThrows(CircuitOpenException.class, () -> guard.acquire("search", Deadline.NONE));
+        assertTrue(e.getRetryAfterMillis() > 110_000, "open for " + e.getRetryAfterMillis() + " ms");
+    }
+
+    @Test
+    void aPermitClosedWithoutAnOutcomeDoesntCount() throws IOException {
+        var guard = new EndpointGuard(1);
+        for (int i = 0; i < EndpointGuard.FAILURE_THRESHOLD * 2; i++)
+            guard.acquire("albums", Deadline.NONE).close();
+        assertEquals("closed", guard.state("albums"));
+    }
+
+    @Test
+    void halfOpenOnlyTheProbeDecides() throws Exception {
+        var guard = new EndpointGuard(3);
+        // Let through while closed, answering only once the breaker is half open
+        EndpointGuard.Permit stale = guard.acquire("albums", Deadline.NONE);
+        EndpointGuard.Permit staleToo = guard.acquire("albums", Deadline.NONE);
+        try (EndpointGuard.Permit permit = guard.acquire("albums", Deadline.NONE)) {
+            permit.throttled(1);
+        }
+        Thread.sleep(1_100);
+        assertEquals("half open", guard.state("albums"));
+
+        EndpointGuard.Permit probe = guard.acquire("albums", Deadline.NONE);
+        stale.failed();
+        stale.close();
+        staleToo.succeeded();
+        staleToo.close();
+        // Neither reopened nor closed the breaker, and the probe is still the only request let through
+        assertEquals("half open", guard.state("albums"));
+        assertThrows(CircuitOpenException.class, () -> guard.acquire("albums", Deadline.NONE));
+
+        probe.failed();
+        probe.close();
+        CircuitOpenException e = assertThrows(CircuitOpenException.class, () -> guard.acquire("albums", Deadline.NONE));
+        // The probe's failure doubled the base cooldown, once
+        assertTrue(e.getRetryAfterMillis() > 2 * EndpointGuard.BASE_COOLDOWN_MILLIS - 5_000, "open for " + e.getRetryAfterMillis() + " ms");
+        assertTrue(e.getRetryAfterMillis() <= 2 * EndpointGuard.BASE_COOLDOWN_MILLIS, "open for " + e.getRetryAfterMillis() + " ms");
+    }
+}
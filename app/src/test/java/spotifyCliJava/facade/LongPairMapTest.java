@@ -0,0 +1,61 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongPairMapTest {
+
+    @Test
+    void putGetAndReplace() {
+        var map = new LongPairMap<String>();
+        assertNull(map.put(1, 2, "a"));
+        assertEquals("a", map.put(1, 2, "b"));
+        assertEquals("b", map.get(1, 2));
+        assertNull(map.get(2, 1));
+        assertTrue(map.containsKey(1, 2));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void zeroKeyIsAnOrdinaryKey() {
+        var map = new LongPairMap<String>();
+        assertFalse(map.containsKey(0, 0));
+        map.put(0, 0, "zero");
+        assertEquals("zero", map.get(0, 0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void computeIfAbsentOnlyComputesOnce() {
+        var map = new LongPairMap<String>();
+        int[] calls = {0};
+        assertEquals("x", map.computeIfAbsent(5, 6, () -> {
+            calls[0]++;
+            return "x";
+        }));
+        assertEquals("x", map.computeIfAbsent(5, 6, () -> {
+            calls[0]++;
+            return "y";
+        }));
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    void keepsEveryEntryAcrossGrowth() {
+        var map = new LongPairMap<Integer>(4);
+        int count = 10_000;
+        for (int i = 0; i < count; i++)
+            map.put(i * 31L, i, i);
+        assertEquals(count, map.size());
+        for (int i = 0; i < count; i++)
+            assertEquals(Integer.valueOf(i), map.get(i * 31L, i));
+
+        int[] visited = {0};
+        map.forEach((high, low, value) -> {
+            assertEquals(value.longValue(), low);
+            visited[0]++;
+        });
+        assertEquals(count, visited[0]);
+    }
+}
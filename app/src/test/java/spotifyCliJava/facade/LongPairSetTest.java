@@ -0,0 +1,56 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongPairSetTest {
+
+    @Test
+    void addAndContains() {
+        var set = new LongPairSet();
+        assertTrue(set.add(1, 2));
+        assertFalse(set.add(1, 2));
+        assertTrue(set.contains(1, 2));
+        assertFalse(set.contains(2, 1));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void zeroPairIsAnOrdinaryMember() {
+        var set = new LongPairSet();
+        assertFalse(set.contains(0, 0));
+        long[] zeroId = SpotifyId.decode("0000000000000000000000");
+        assertTrue(set.add(zeroId[0], zeroId[1]));
+        assertFalse(set.add(0, 0));
+        assertTrue(set.contains(0, 0));
+        assertEquals(1, set.size());
+
+        var seen = new HashSet<List<Long>>();
+        set.forEach((high, low) -> seen.add(List.of(high, low)));
+        assertEquals(Set.of(List.of(0L, 0L)), seen);
+    }
+
+    @Test
+    void keepsEveryPairAcrossGrowth() {
+        var set = new LongPairSet(4);
+        int count = 10_000;
+        for (int i = 0; i < count; i++)
+            assertTrue(set.add(i, -i));
+        assertEquals(count, set.size());
+        for (int i = 0; i < count; i++)
+            assertTrue(set.contains(i, -i), "lost (" + i + ", " + -i + ")");
+        assertFalse(set.contains(count, -count));
+
+        int[] visited = {0};
+        set.forEach((high, low) -> {
+            assertEquals(-high, low);
+            visited[0]++;
+        });
+        assertEquals(count, visited[0]);
+    }
+}
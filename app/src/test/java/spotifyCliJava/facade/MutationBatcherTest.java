@@ -0,0 +1,123 @@
+package spotifyCliJava.facade;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationBatcherTest {
+
+    // Records every request; fails or queues the ones whose number is in 'failing' or 'queueing'
+    private static class RecordingSink implements MutationBatcher.Sink {
+        final List<String> requests = new ArrayList<>();
+        final List<Integer> failing = new ArrayList<>();
+        final List<Integer> queueing = new ArrayList<>();
+
+        @Override
+        public MutationBatcher.Outcome add(@NotNull List<IItem> items, @Nullable Integer position) {
+            return record("add" + (position == null ? "" : "@" + position), items);
+        }
+
+        @Override
+        public MutationBatcher.Outcome remove(@NotNull List<IItem> items) {
+            return record("remove", items);
+        }
+
+        private MutationBatcher.Outcome record(String kind, List<IItem> items) {
+            var ids = new StringBuilder();
+            for (IItem item : items)
+                ids.append(ids.length() == 0 ? "" : ",").append(item.getIdLow());
+            requests.add(kind + " " + ids);
+            if (failing.contains(requests.size()))
+                return MutationBatcher.Outcome.FAILED;
+            return queueing.contains(requests.size()) ? MutationBatcher.Outcome.QUEUED : MutationBatcher.Outcome.SENT;
+        }
+    }
+
+    @Test
+    void sendsRemovesFirstInEndpointSizedChunks() {
+        var batcher = new MutationBatcher(2, 3);
+        for (int i = 1; i <= 3; i++)
+            batcher.add(TestItems.track(i), null);
+        for (int i = 4; i <= 7; i++)
+            batcher.remove(TestItems.track(i));
+        var sink = new RecordingSink();
+
+        MutationBatcher.FlushResult result = batcher.flush(sink);
+
+        assertEquals(List.of("remove 4,5,6", "remove 7", "add 1,2", "add 3"), sink.requests);
+        assertEquals(4, result.requests);
+        assertEquals(3, result.added);
+        assertEquals(4, result.removed);
+        assertEquals(0, result.failed);
+        assertEquals(0, batcher.pendingCount());
+    }
+
+    @Test
+    void addAndRemoveOfTheSameItemCancelOut() {
+        var batcher = new MutationBatcher(10, 10);
+        batcher.add(TestItems.track(1), null);
+        batcher.remove(TestItems.track(1));
+        batcher.remove(TestItems.track(2));
+        batcher.add(TestItems.track(2), null);
+        batcher.add(TestItems.track(3), null);
+        batcher.add(TestItems.track(3), null);
+        var sink = new RecordingSink();
+
+        batcher.flush(sink);
+
+        assertEquals(List.of("add 3"), sink.requests);
+    }
+
+    @Test
+    void groupsOnlyContiguousPositions() {
+        var batcher = new MutationBatcher(10, 10);
+        batcher.add(TestItems.track(1), 5);
+        batcher.add(TestItems.track(2), 6);
+        batcher.add(TestItems.track(3), 9);
+        batcher.add(TestItems.track(4), null);
+        var sink = new RecordingSink();
+
+        batcher.flush(sink);
+
+        assertEquals(List.of("add@5 1,2", "add@9 3", "add 4"), sink.requests);
+    }
+
+    @Test
+    void failedChunksStayPendingForTheNextFlush() {
+        var batcher = new MutationBatcher(1, 1);
+        batcher.add(TestItems.track(1), null);
+        batcher.add(TestItems.track(2), null);
+        var sink = new RecordingSink();
+        sink.failing.add(2);
+
+        MutationBatcher.FlushResult first = batcher.flush(sink);
+        assertEquals(1, first.added);
+        assertEquals(1, first.failed);
+        assertEquals(1, batcher.pendingCount());
+
+        MutationBatcher.FlushResult retry = batcher.flush(new RecordingSink());
+        assertEquals(1, retry.added);
+        assertEquals(0, batcher.pendingCount());
+    }
+
+    @Test
+    void queuedChunksAreNoLongerPending() {
+        var batcher = new MutationBatcher(1, 1);
+        batcher.add(TestItems.track(1), null);
+        batcher.remove(TestItems.track(2));
+        var sink = new RecordingSink();
+        sink.queueing.add(1);
+
+        MutationBatcher.FlushResult result = batcher.flush(sink);
+
+        assertEquals(1, result.queued);
+        assertEquals(0, result.removed);
+        assertEquals(1, result.added);
+        assertEquals(0, batcher.pendingCount());
+    }
+}
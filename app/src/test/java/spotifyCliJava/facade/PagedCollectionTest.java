@@ -0,0 +1,98 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedCollectionTest {
+
+    // 'total' tracks, 10 per page; the page at 'failingPage' can't be fetched
+    private static class Tracks extends PagedCollection {
+        final int total;
+        final int failingPage;
+        final ConcurrentHashMap<Integer, AtomicInteger> fetches = new ConcurrentHashMap<>();
+
+        Tracks(int total, int failingPage) {
+            super(10, DEFAULT_MAX_CACHED_PAGES);
+            this.total = total;
+            this.failingPage = failingPage;
+        }
+
+        @Override
+        protected Page fetchPage(int offset, int limit) {
+            fetches.computeIfAbsent(offset / limit, k -> new AtomicInteger()).incrementAndGet();
+            if (offset / limit == failingPage)
+                return null;
+            var items = new IItem[Math.min(limit, total - offset)];
+            for (int i = 0; i < items.length; i++)
+                items[i] = TestItems.track(offset + i);
+            return new Page(items, total);
+        }
+
+        int fetchesOf(int page) {
+            AtomicInteger count = fetches.get(page);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    @Test
+    void walksEveryPage() {
+        var tracks = new Tracks(25, -1);
+        List<IItem> all = tracks.items(0, 0, true);
+        assertEquals(25, all.size());
+        for (int i = 0; i < all.size(); i++)
+            assertEquals(i, all.get(i).getIdLow());
+        assertEquals(0, tracks.failedPageLoads());
+        assertEquals(1, tracks.fetchesOf(2));
+    }
+
+    @Test
+    void aFailedPageIsFetchedOncePerWalk() {
+        var tracks = new Tracks(30, 1);
+        List<IItem> all = tracks.items(0, 0, true);
+        assertEquals(30, all.size());
+        for (int i = 10; i < 20; i++)
+            assertNull(all.get(i));
+        assertEquals(20, all.get(20).getIdLow());
+        // Its ten items didn't send ten requests
+        assertEquals(1, tracks.fetchesOf(1));
+        assertTrue(tracks.failedPageLoads() > 0);
+        assertNull(tracks.retrieveAllOrNull());
+    }
+
+    @Test
+    void invalidateRetriesAFailedPage() {
+        var tracks = new Tracks(30, 1);
+        tracks.items(0, 0, true).get(15);
+        tracks.invalidate();
+        tracks.items(0, 0, true).get(15);
+        assertEquals(2, tracks.fetchesOf(1));
+    }
+
+    @Test
+    void pagesAreFetchedOnTheGivenLoader() {
+        ExecutorService loader = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-loader"));
+        try {
+            var threads = ConcurrentHashMap.<String>newKeySet();
+            var tracks = new Tracks(20, -1) {
+                @Override
+                protected Page fetchPage(int offset, int limit) {
+                    threads.add(Thread.currentThread().getName());
+                    return super.fetchPage(offset, limit);
+                }
+            };
+            tracks.withPageLoader(loader);
+            assertEquals(20, tracks.items(0, 0, true).size());
+            assertEquals(Set.of("test-loader"), threads);
+        } finally {
+            loader.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistSetsTest {
+
+    private static List<IItem> tracks(long... ids) {
+        var items = new ArrayList<IItem>();
+        for (long id : ids)
+            items.add(id == 0 ? null : TestItems.track(id)); // 0 stands for a local file
+        return items;
+    }
+
+    // Applies 'changes' the way Spotify does: removes take every occurrence, then appends, then inserts in order
+    private static List<IItem> apply(List<IItem> target, PlaylistSets.Changes changes) {
+        var result = new ArrayList<>(target);
+        result.removeIf(item -> item != null && changes.removes.contains(item));
+        result.addAll(changes.appends);
+        for (PlaylistSets.Insert insert : changes.inserts)
+            result.add(insert.position, insert.item);
+        return result;
+    }
+
+    @Test
+    void unionAppendsWhatTheTargetLacksOnceInFirstSeenOrder() {
+        PlaylistSets.Changes changes = PlaylistSets.union(tracks(1, 2), List.of(tracks(3, 2, 4), tracks(4, 5, 3)));
+
+        assertEquals(tracks(3, 4, 5), changes.appends);
+        assertTrue(changes.removes.isEmpty());
+        assertTrue(changes.inserts.isEmpty());
+    }
+
+    @Test
+    void intersectRemovesWhatIsMissingFromAnyOther() {
+        PlaylistSets.Changes changes = PlaylistSets.intersect(tracks(1, 2, 3, 2, 0), List.of(tracks(1, 2), tracks(2, 3)));
+
+        assertEquals(tracks(1, 3), changes.removes);
+        assertEquals(tracks(2, 2, 0), apply(tracks(1, 2, 3, 2, 0), changes));
+    }
+
+    @Test
+    void diffRemovesWhatIsInAnyOtherOnce() {
+        PlaylistSets.Changes changes = PlaylistSets.diff(tracks(1, 2, 3, 1), List.of(tracks(1), tracks(3, 9)));
+
+        assertEquals(tracks(1, 3), changes.removes);
+        assertEquals(tracks(2), apply(tracks(1, 2, 3, 1), changes));
+    }
+
+    @Test
+    void dedupeKeepsFirstOccurrencesInPlace() {
+        List<IItem> target = tracks(1, 2, 1, 0, 3, 2, 2);
+
+        PlaylistSets.Changes changes = PlaylistSets.dedupe(target);
+
+        assertEquals(tracks(1, 2), changes.removes);
+        assertEquals(tracks(1, 2, 0, 3), apply(target, changes));
+        int[] positions = changes.inserts.stream().mapToInt(insert -> insert.position).toArray();
+        assertEquals(Arrays.toString(new int[]{0, 1}), Arrays.toString(positions));
+    }
+
+    @Test
+    void dedupeOfAPlaylistWithoutDuplicatesChangesNothing() {
+        assertTrue(PlaylistSets.dedupe(tracks(1, 2, 0, 0, 3)).isEmpty());
+    }
+}
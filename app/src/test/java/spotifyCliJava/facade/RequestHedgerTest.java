@@ -0,0 +1,77 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgerTest {
+
+    private static String endpointOf(String uri) {
+        return RequestHedger.endpointOf(URI.create(uri));
+    }
+
+    @Test
+    void replacesIdsWithAPlaceholder() {
+        assertEquals("albums/{id}", endpointOf("https://api.spotify.com/v1/albums/4aawyAB9vmqN3uQ7FjRGTy"));
+        assertEquals("albums/{id}/tracks", endpointOf("https://api.spotify.com/v1/albums/4aawyAB9vmqN3uQ7FjRGTy/tracks?limit=50"));
+        assertEquals("playlists/{id}/tracks", endpointOf("https://api.spotify.com/v1/playlists/37i9dQZF1DXcBWIGoYBM5M/tracks"));
+    }
+
+    @Test
+    void keepsPathWordsAndDropsTheVersion() {
+        assertEquals("me/following", endpointOf("https://api.spotify.com/v1/me/following?type=artist&after=abc"));
+        assertEquals("me/albums", endpointOf("http://127.0.0.1:8089/v1/me/albums"));
+        assertEquals("search", endpointOf("https://api.spotify.com/v1/search?q=abbey+road&type=album"));
+    }
+
+    @Test
+    void treatsAnyUserIdAsAnId() {
+        // User IDs can be all lower case letters, which would otherwise pass for a path word
+        assertEquals("users/{id}/playlists", endpointOf("https://api.spotify.com/v1/users/drew-loukusa/playlists"));
+    }
+
+    @Test
+    void anEmptyPathIsAnEmptyEndpoint() {
+        assertEquals("", endpointOf("https://api.spotify.com"));
+        assertEquals("", endpointOf("https://api.spotify.com/v1/"));
+    }
+
+    @Test
+    void aHedgedRequestIsTimedFromTheSubmitAndItsLoserToo() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try (var hedger = new RequestHedger(100)) {
+            for (int i = 0; i < RequestHedger.MIN_SAMPLES; i++)
+                hedger.submit("albums", () -> {
+                    Thread.sleep(50);
+                    return "answered";
+                }, executor).get();
+
+            // The first attempt hangs until it is cancelled, the hedge sent after the p95 (~50 ms) answers at once
+            var calls = new AtomicInteger();
+            String value = hedger.submit("albums", () -> {
+                if (calls.getAndIncrement() == 0)
+                    Thread.sleep(10_000);
+                return "hedge";
+            }, executor).get(5, TimeUnit.SECONDS);
+            assertEquals("hedge", value);
+
+            RequestHedger.LatencyWindow window = hedger.window("albums");
+            long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (window.samples().length < RequestHedger.MIN_SAMPLES + 2 && System.nanoTime() < waitUntil)
+                Thread.sleep(10);
+            assertEquals(1, hedger.hedgeWins());
+            // Both waited about as long as the p95 before being recorded, not the hedge's ~0 ms
+            long slow = Arrays.stream(window.samples()).filter(nanos -> nanos >= TimeUnit.MILLISECONDS.toNanos(45)).count();
+            assertEquals(RequestHedger.MIN_SAMPLES + 2, slow);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
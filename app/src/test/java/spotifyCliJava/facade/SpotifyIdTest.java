@@ -0,0 +1,53 @@
+package spotifyCliJava.facade;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotifyIdTest {
+
+    @Test
+    void roundTripsRealIds() {
+        for (String id : new String[]{"3jOstUTkEu2JkjvRdBA5Gu", "6rqhFgbbKwnb9MLmUQDhG6", "0000000000000000000000"}) {
+            long[] decoded = SpotifyId.decode(id);
+            assertNotNull(decoded);
+            assertEquals(id, SpotifyId.encode(decoded[0], decoded[1]));
+            assertEquals(decoded[0], SpotifyId.high(id));
+            assertEquals(decoded[1], SpotifyId.low(id));
+        }
+    }
+
+    @Test
+    void roundTripsRandomPairs() {
+        var random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            long high = random.nextLong();
+            long low = random.nextLong();
+            String id = SpotifyId.encode(high, low);
+            assertEquals(SpotifyId.LENGTH, id.length());
+            assertArrayEquals(new long[]{high, low}, SpotifyId.decode(id));
+        }
+    }
+
+    @Test
+    void encodesTheExtremes() {
+        assertEquals("0000000000000000000000", SpotifyId.encode(0, 0));
+        assertEquals("0000000000000000000001", SpotifyId.encode(0, 1));
+        // 2^128 - 1, the largest ID that fits
+        String max = SpotifyId.encode(-1L, -1L);
+        assertArrayEquals(new long[]{-1L, -1L}, SpotifyId.decode(max));
+    }
+
+    @Test
+    void rejectsInvalidIds() {
+        assertNull(SpotifyId.decode("short"));
+        assertNull(SpotifyId.decode("3jOstUTkEu2JkjvRdBA5G!"));
+        // 62^22 - 1 is larger than 2^128 - 1
+        assertNull(SpotifyId.decode("ZZZZZZZZZZZZZZZZZZZZZZ"));
+        assertFalse(SpotifyId.isValid(null));
+        assertTrue(SpotifyId.isValid("3jOstUTkEu2JkjvRdBA5Gu"));
+        assertThrows(IllegalArgumentException.class, () -> SpotifyId.high("not an id"));
+    }
+}
@@ -0,0 +1,21 @@
+package spotifyCliJava.facade;
+
+/**
+ * Compact items for tests, with IDs made from a number
+ */
+final class TestItems {
+    private TestItems() {
+    }
+
+    static Items.Artist artist(long id, String name) {
+        return new Items.Artist(0, id, name);
+    }
+
+    static Items.Track track(long id) {
+        return track(id, "Track " + id, artist(1, "Artist"), 180_000);
+    }
+
+    static Items.Track track(long id, String name, Items.Artist artist, int durationMs) {
+        return new Items.Track(0, id, name, null, new Items.Artist[]{artist}, durationMs, (byte) 0, false);
+    }
+}
@@ -0,0 +1,82 @@
+package spotifyCliJava.localStore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionTrieTest {
+    @TempDir
+    Path dir;
+
+    private CompletionTrie build(SearchIndex.Document... documents) throws IOException {
+        Path trieFile = dir.resolve(CompletionTrie.TRIE_FILE_NAME);
+        CompletionTrie.build(List.of(documents), trieFile);
+        CompletionTrie trie = CompletionTrie.open(trieFile);
+        assertNotNull(trie);
+        return trie;
+    }
+
+    private static List<String> names(List<CompletionTrie.Completion> completions) {
+        return completions.stream().map(completion -> completion.name).collect(Collectors.toList());
+    }
+
+    @Test
+    void completesNamesFromAnyOfTheirFirstWords() throws IOException {
+        CompletionTrie trie = build(
+                new SearchIndex.Document("album", "6VBSnc6ALpeY6ZMmmWdSab", "Weezer (Blue Album)", ""),
+                new SearchIndex.Document("artist", "3jOstUTkEu2JkjvRdBA5Gu", "Weezer", ""));
+
+        assertEquals(List.of("Weezer", "Weezer (Blue Album)"), names(trie.complete("wee", null, 10)));
+        assertEquals(List.of("Weezer (Blue Album)"), names(trie.complete("blue", null, 10)));
+        assertEquals(List.of("Weezer (Blue Album)"), names(trie.complete("BLUE alb", null, 10)));
+        assertTrue(trie.complete("green", null, 10).isEmpty());
+    }
+
+    @Test
+    void completesIdsAsTyped() throws IOException {
+        CompletionTrie trie = build(new SearchIndex.Document("artist", "3jOstUTkEu2JkjvRdBA5Gu", "Weezer", ""));
+
+        List<CompletionTrie.Completion> completions = trie.complete("3jOst", null, 10);
+        assertEquals(1, completions.size());
+        assertEquals("artist", completions.get(0).itemType);
+        assertEquals("3jOstUTkEu2JkjvRdBA5Gu", completions.get(0).itemID);
+    }
+
+    @Test
+    void filtersByTypeAndLimits() throws IOException {
+        CompletionTrie trie = build(
+                new SearchIndex.Document("track", "0000000000000000000001", "Song A", ""),
+                new SearchIndex.Document("track", "0000000000000000000002", "Song B", ""),
+                new SearchIndex.Document("album", "0000000000000000000003", "Song C", ""));
+
+        assertEquals(List.of("Song C"), names(trie.complete("song", "album", 10)));
+        assertEquals(List.of("Song A", "Song B"), names(trie.complete("song", "track", 10)));
+        assertEquals(1, trie.complete("song", null, 1).size());
+    }
+
+    @Test
+    void openReturnsNullWithoutAFile() {
+        assertNull(CompletionTrie.open(dir.resolve("missing.trie")));
+    }
+
+    @Test
+    void theSearchIndexRebuildsTheTrieOnceItHasBeenWritten() {
+        var index = new SearchIndex(new LocalStore().withStorePath(dir.toString()));
+        index.add(List.of(new SearchIndex.Document("artist", "3jOstUTkEu2JkjvRdBA5Gu", "Weezer", "")));
+        assertNull(CompletionTrie.open(index.getTriePath()));
+
+        index.writeCompletionTrie();
+        assertEquals(List.of("Weezer"), names(CompletionTrie.open(index.getTriePath()).complete("wee", null, 10)));
+
+        index.add(List.of(new SearchIndex.Document("album", "6VBSnc6ALpeY6ZMmmWdSab", "Weezer (Blue Album)", "")));
+        index.writeCompletionTrie();
+        assertEquals(List.of("Weezer", "Weezer (Blue Album)"),
+                names(CompletionTrie.open(index.getTriePath()).complete("wee", null, 10)));
+    }
+}
@@ -0,0 +1,108 @@
+package spotifyCliJava.localStore;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationJournalTest {
+    @TempDir
+    Path storeDir;
+
+    private MutationJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = new MutationJournal(new LocalStore().withStorePath(storeDir.toString()));
+    }
+
+    @Test
+    void appendedEntriesArePendingUntilAppliedOrFailed() throws IOException {
+        long[] seqs = journal.append(List.of(
+                new MutationJournal.Mutation(true, "album", "a1"),
+                new MutationJournal.Mutation(false, "playlist:p1", "spotify:track:t1"),
+                new MutationJournal.Mutation(true, "artist", "r1")));
+        assertArrayEquals(new long[]{1, 2, 3}, seqs);
+
+        journal.markSending(List.of(2L));
+        journal.markApplied(List.of(1L));
+        journal.markFailed(List.of(3L), "rejected\tfor good");
+
+        List<MutationJournal.Entry> pending = journal.pending();
+        assertEquals(1, pending.size());
+        MutationJournal.Entry entry = pending.get(0);
+        assertEquals(2, entry.seq);
+        assertFalse(entry.mutation.add);
+        assertTrue(entry.mutation.isPlaylist());
+        assertEquals("p1", entry.mutation.playlistID());
+        assertEquals("spotify:track:t1", entry.mutation.item);
+        assertTrue(entry.maybeApplied);
+    }
+
+    @Test
+    void privatePlaylistFollowsKeepTheirVisibility() throws IOException {
+        journal.append(List.of(
+                new MutationJournal.Mutation(true, MutationJournal.Mutation.PRIVATE_PLAYLIST_FOLLOW, "p1"),
+                new MutationJournal.Mutation(false, "playlist", "p2")));
+
+        List<MutationJournal.Entry> pending = journal.pending();
+        assertEquals(MutationJournal.Mutation.PRIVATE_PLAYLIST_FOLLOW, pending.get(0).mutation.target);
+        assertTrue(pending.get(0).mutation.isPlaylistFollow());
+        assertFalse(pending.get(0).mutation.isPlaylist());
+        assertTrue(pending.get(1).mutation.isPlaylistFollow());
+    }
+
+    @Test
+    void skipsDamagedLinesAndKeepsTheRest() throws IOException {
+        Files.writeString(journal.getJournalPath(), "E\t1\t+\talbum\ta1\n"
+                + "E\tx\t+\talbum\ta2\n"          // unparsable seq
+                + "A\n"                                 // missing seq
+                + "E\t2\t+\ttrack\n"                 // too few fields
+                + "E\t3\t-\ttrack\tt3\n"
+                + "E\t4\t+\tsh", StandardCharsets.UTF_8); // torn mid-write
+
+        List<MutationJournal.Entry> pending = journal.pending();
+        assertEquals(2, pending.size());
+        assertEquals(1, pending.get(0).seq);
+        assertEquals("a1", pending.get(0).mutation.item);
+        assertEquals(3, pending.get(1).seq);
+        assertFalse(pending.get(1).mutation.add);
+
+        // The next append starts on a fresh line, after the highest sequence number seen
+        long[] seqs = journal.append(List.of(new MutationJournal.Mutation(true, "show", "s5")));
+        assertArrayEquals(new long[]{5}, seqs);
+        assertEquals(3, journal.pending().size());
+    }
+
+    @Test
+    void tabsAndNewLinesInFieldsDontSplitTheLine() throws IOException {
+        journal.append(List.of(new MutationJournal.Mutation(true, "playlist:p\t1", "spotify:track:a\nb")));
+
+        MutationJournal.Entry entry = journal.pending().get(0);
+        assertEquals("playlist:p 1", entry.mutation.target);
+        assertEquals("spotify:track:a b", entry.mutation.item);
+    }
+
+    @Test
+    void compactKeepsOnlyPendingEntriesAndDeletesAnEmptyJournal() throws IOException {
+        journal.append(List.of(new MutationJournal.Mutation(true, "album", "a1"),
+                new MutationJournal.Mutation(true, "album", "a2")));
+        journal.markSending(List.of(2L));
+        journal.markApplied(List.of(1L));
+
+        journal.compact();
+        List<String> lines = Files.readAllLines(journal.getJournalPath(), StandardCharsets.UTF_8);
+        assertEquals(List.of("E\t2\t+\talbum\ta2", "S\t2"), lines);
+
+        journal.markApplied(List.of(2L));
+        journal.compact();
+        assertFalse(Files.exists(journal.getJournalPath()));
+    }
+}
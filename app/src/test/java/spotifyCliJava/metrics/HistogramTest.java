@@ -0,0 +1,75 @@
+package spotifyCliJava.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void anEmptyHistogramReportsZero() {
+        var histogram = new Histogram();
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.percentile(99.9));
+        assertEquals(0.0, histogram.mean(), 0);
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        var histogram = new Histogram();
+        for (int value = 1; value <= 10; value++)
+            histogram.record(value);
+        assertEquals(5, histogram.percentile(50));
+        assertEquals(9, histogram.percentile(90));
+        assertEquals(10, histogram.percentile(100));
+        assertEquals(5.5, histogram.mean(), 1e-9);
+        assertEquals(55, histogram.sum());
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketError() {
+        var histogram = new Histogram();
+        for (int value = 1; value <= 100_000; value++)
+            histogram.record(value);
+        for (double percentile : new double[]{50, 90, 95, 99, 99.9}) {
+            double exact = percentile * 1_000;
+            long reported = histogram.percentile(percentile);
+            assertTrue(reported >= exact, "p" + percentile + " = " + reported);
+            assertTrue(reported <= exact * (1 + 1.0 / 16), "p" + percentile + " = " + reported);
+        }
+        assertEquals(100_000, histogram.percentile(100));
+        assertEquals(100_000, histogram.max());
+        assertEquals(100_000, histogram.count());
+    }
+
+    @Test
+    void percentilesNeverExceedTheMax() {
+        var histogram = new Histogram();
+        histogram.record(1_000_001);
+        assertEquals(1_000_001, histogram.percentile(50));
+        assertEquals(1_000_001, histogram.percentile(150));
+    }
+
+    @Test
+    void negativeValuesAreRecordedAsZero() {
+        var histogram = new Histogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.percentile(100));
+        assertEquals(0, histogram.sum());
+    }
+
+    @Test
+    void everyValueFallsInABucketThatHoldsIt() {
+        long[] values = {0, 15, 16, 17, 31, 32, 1_000, 123_456_789, 1L << 40, Long.MAX_VALUE};
+        int previousIndex = -1;
+        for (long value : values) {
+            int index = Histogram.indexOf(value);
+            long highest = Histogram.highestValueIn(index);
+            assertTrue(index > previousIndex, "index of " + value);
+            assertTrue(value <= highest, value + " in bucket up to " + highest);
+            assertTrue(highest - value <= value / 16, value + " in bucket up to " + highest);
+            previousIndex = index;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package spotifyCliJava.benchmarks;
+
+import com.wrapper.spotify.IHttpManager;
+import com.wrapper.spotify.SpotifyApi;
+import com.wrapper.spotify.model_objects.AbstractModelObject;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.openjdk.jmh.annotations.*;
+import spotifyCliJava.SpotifyFacade;
+import spotifyCliJava.facade.EndpointGuard;
+import spotifyCliJava.metrics.MeteredHttpManager;
+import spotifyCliJava.metrics.RequestMetrics;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A request through SpotifyFacade, from building it to the parsed item, against an in-process stub in place of
+ * Spotify; so what's measured is the CLI's own overhead per request, with and without the guard and metrics layers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FacadeDispatchBenchmark {
+    @Param({"plain", "guarded+metered"})
+    public String layers;
+
+    private SpotifyFacade facade;
+    private String trackID;
+
+    /**
+     * Answers every GET with the same track
+     */
+    static class StubHttpManager implements IHttpManager {
+        private final String track = Fixtures.track(1).toString();
+
+        @Override
+        public String get(URI uri, Header[] headers) {
+            return track;
+        }
+
+        @Override
+        public String post(URI uri, Header[] headers, HttpEntity body) {
+            return "{}";
+        }
+
+        @Override
+        public String put(URI uri, Header[] headers, HttpEntity body) {
+            return "{}";
+        }
+
+        @Override
+        public String delete(URI uri, Header[] headers, HttpEntity body) {
+            return "{}";
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        boolean full = layers.equals("guarded+metered");
+        var metrics = full ? new RequestMetrics() : null;
+        IHttpManager httpManager = new StubHttpManager();
+        if (full)
+            httpManager = new MeteredHttpManager(httpManager, metrics);
+        SpotifyApi spotifyApi = new SpotifyApi.Builder()
+                .setAccessToken("benchmark")
+                .setHttpManager(httpManager)
+                .build();
+        facade = new SpotifyFacade(spotifyApi, null);
+        if (full)
+            facade.withEndpointGuard(new EndpointGuard(8)).withMetrics(metrics);
+        trackID = Fixtures.id("track", 1);
+    }
+
+    @Benchmark
+    public AbstractModelObject getItem() {
+        return facade.getItem("track", trackID);
+    }
+}
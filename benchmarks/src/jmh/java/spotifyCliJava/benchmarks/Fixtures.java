@@ -0,0 +1,77 @@
+package spotifyCliJava.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Spotify API responses for the benchmarks to work on, shaped like the real ones
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    static JsonObject track(int n) {
+        var artist = new JsonObject();
+        artist.addProperty("id", id("artist", n % 97));
+        artist.addProperty("name", "Artist " + (n % 97));
+        artist.addProperty("type", "artist");
+        artist.addProperty("uri", "spotify:artist:" + id("artist", n % 97));
+        var artists = new JsonArray();
+        artists.add(artist);
+
+        var album = new JsonObject();
+        album.addProperty("id", id("album", n % 500));
+        album.addProperty("name", "Album " + (n % 500));
+        album.addProperty("album_type", "album");
+        album.addProperty("type", "album");
+        album.addProperty("release_date", "2020-01-01");
+        album.addProperty("release_date_precision", "day");
+        album.add("artists", artists);
+
+        var externalIds = new JsonObject();
+        externalIds.addProperty("isrc", String.format("USRC1%07d", n));
+
+        var track = new JsonObject();
+        track.addProperty("id", id("track", n));
+        track.addProperty("name", "Track number " + n);
+        track.addProperty("type", "track");
+        track.addProperty("uri", "spotify:track:" + id("track", n));
+        track.addProperty("duration_ms", 180_000 + n % 60_000);
+        track.addProperty("track_number", n % 12 + 1);
+        track.addProperty("disc_number", 1);
+        track.addProperty("explicit", false);
+        track.addProperty("popularity", n % 100);
+        track.add("album", album);
+        track.add("artists", artists);
+        track.add("external_ids", externalIds);
+        return track;
+    }
+
+    /**
+     * A page of 'size' saved tracks, as returned by GET /me/tracks (without Spotify's 50 item limit)
+     */
+    static String savedTracksPage(int size) {
+        var items = new JsonArray();
+        for (int n = 0; n < size; n++) {
+            var saved = new JsonObject();
+            saved.addProperty("added_at", "2021-06-01T12:00:00Z");
+            saved.add("track", track(n));
+            items.add(saved);
+        }
+        var page = new JsonObject();
+        page.addProperty("href", "https://api.spotify.com/v1/me/tracks?offset=0&limit=" + size);
+        page.add("items", items);
+        page.addProperty("limit", size);
+        page.addProperty("offset", 0);
+        page.addProperty("total", size);
+        return page.toString();
+    }
+
+    // Base 62 looking, 22 characters, like Spotify's IDs
+    static String id(String kind, int n) {
+        String digits = kind + n;
+        var id = new StringBuilder("4aawyAB9vmqN3uQ7FjRGTy");
+        id.replace(0, Math.min(digits.length(), 22), digits.substring(0, Math.min(digits.length(), 22)));
+        return id.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package spotifyCliJava.benchmarks;
+
+import com.wrapper.spotify.model_objects.specification.Paging;
+import com.wrapper.spotify.model_objects.specification.SavedTrack;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import spotifyCliJava.SpotifyFacade;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering what 'list' prints: a page the size of one request (50), and a whole large library (10k)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrettyStringBenchmark {
+    @Param({"50", "10000"})
+    public int size;
+
+    private SpotifyFacade facade;
+    private Paging<SavedTrack> page;
+
+    @Setup
+    public void setUp() {
+        // Rendering needs no SpotifyApi and no local store
+        facade = new SpotifyFacade(null, null);
+        page = new SavedTrack.JsonUtil().createModelObjectPaging(Fixtures.savedTracksPage(size));
+    }
+
+    @Benchmark
+    public String collectionToPrettyString() {
+        return facade.collectionToPrettyString(page);
+    }
+
+    @Benchmark
+    public void itemToPrettyString(Blackhole blackhole) {
+        for (SavedTrack savedTrack : page.getItems())
+            blackhole.consume(facade.itemToPrettyString(savedTrack));
+    }
+}
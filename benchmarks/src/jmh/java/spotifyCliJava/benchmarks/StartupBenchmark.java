@@ -0,0 +1,44 @@
+package spotifyCliJava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import spotifyCliJava.authorization.flows.utility.PKCE;
+import spotifyCliJava.utility.Environment;
+
+import java.io.UnsupportedEncodingException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work done before the first request of every run: resolving the configuration, and (for the PKCE flow)
+ * generating the code verifier and its challenge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StartupBenchmark {
+    private String codeVerifier;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        codeVerifier = PKCE.generateCodeVerifier();
+    }
+
+    @Benchmark
+    public Environment environmentBuild() {
+        return new Environment.Builder()
+                .withClientID("e896df19119b4105a6e49585b8013bb9")
+                .withRedirectURI("http://localhost:8080")
+                .withAuthFlowType("PKCE")
+                .build();
+    }
+
+    @Benchmark
+    public String generateCodeVerifier() throws UnsupportedEncodingException {
+        return PKCE.generateCodeVerifier();
+    }
+
+    @Benchmark
+    public String generateCodeChallenge() throws NoSuchAlgorithmException {
+        return PKCE.generateCodeChallenge(codeVerifier);
+    }
+}
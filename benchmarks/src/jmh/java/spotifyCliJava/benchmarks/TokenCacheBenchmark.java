@@ -0,0 +1,50 @@
+package spotifyCliJava.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import spotifyCliJava.authorization.tokenCaching.SpotifyCliTokenCache;
+import spotifyCliJava.utility.GenericCredentials;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storing and loading the token cache, which every authenticated run does at least once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenCacheBenchmark {
+    private Path directory;
+    private SpotifyCliTokenCache tokenCache;
+    private GenericCredentials credentials;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("token-cache-bench");
+        tokenCache = new SpotifyCliTokenCache().withTokenCachePath(directory.resolve("token_cache.txt").toString());
+        credentials = new GenericCredentials.Builder()
+                .withAccessToken("BQD" + "x".repeat(250))
+                .withRefreshToken("AQB" + "y".repeat(128))
+                .withExpiresIn(3600)
+                .build();
+        tokenCache.cacheTokens(credentials);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("token_cache.txt"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void store() {
+        tokenCache.cacheTokens(credentials);
+    }
+
+    @Benchmark
+    public GenericCredentials load() {
+        return tokenCache.loadTokens();
+    }
+}